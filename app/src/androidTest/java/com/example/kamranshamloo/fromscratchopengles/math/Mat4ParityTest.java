@@ -0,0 +1,95 @@
+package com.example.kamranshamloo.fromscratchopengles.math;
+
+import android.opengl.Matrix;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Checks on a device that {@link Mat4} gives the same results as
+ * {@link android.opengl.Matrix}.
+ */
+public class Mat4ParityTest extends TestCase {
+
+    private static final float EPSILON = 1e-5f;
+
+    private final Random mRandom = new Random(7);
+
+    public void testMultiply() {
+        for (int i = 0; i < 100; i++) {
+            float[] lhs = randomMatrix();
+            float[] rhs = randomMatrix();
+            float[] expected = new float[16];
+            float[] actual = new float[16];
+            Matrix.multiplyMM(expected, 0, lhs, 0, rhs, 0);
+            Mat4.multiply(actual, 0, lhs, 0, rhs, 0);
+            assertMatrixEquals(expected, actual);
+        }
+    }
+
+    public void testMultiplyVector() {
+        float[] m = randomMatrix();
+        float[] v = {0.5f, -2, 3, 1};
+        float[] expected = new float[4];
+        float[] actual = new float[4];
+        Matrix.multiplyMV(expected, 0, m, 0, v, 0);
+        Mat4.multiplyVector(actual, 0, m, 0, v, 0);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expected[i], actual[i], EPSILON);
+        }
+    }
+
+    public void testRotate() {
+        float[][] axes = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {0.3f, -1, 2}};
+        for (float[] axis : axes) {
+            float[] expected = randomMatrix();
+            float[] actual = expected.clone();
+            Matrix.rotateM(expected, 0, -63, axis[0], axis[1], axis[2]);
+            Mat4.rotate(actual, 0, -63, axis[0], axis[1], axis[2]);
+            assertMatrixEquals(expected, actual);
+
+            Matrix.setRotateM(expected, 0, 200, axis[0], axis[1], axis[2]);
+            Mat4.setRotate(actual, 0, 200, axis[0], axis[1], axis[2]);
+            assertMatrixEquals(expected, actual);
+        }
+    }
+
+    public void testTranslate() {
+        float[] expected = randomMatrix();
+        float[] actual = expected.clone();
+        Matrix.translateM(expected, 0, 1, -2, 3);
+        Mat4.translate(actual, 0, 1, -2, 3);
+        assertMatrixEquals(expected, actual);
+    }
+
+    public void testSetLookAt() {
+        float[] expected = new float[16];
+        float[] actual = new float[16];
+        Matrix.setLookAtM(expected, 0, 1, 2, 4, 0, 0, -1, 0, 1, 0);
+        Mat4.setLookAt(actual, 0, 1, 2, 4, 0, 0, -1, 0, 1, 0);
+        assertMatrixEquals(expected, actual);
+    }
+
+    public void testFrustum() {
+        float[] expected = new float[16];
+        float[] actual = new float[16];
+        Matrix.frustumM(expected, 0, -1.6f, 1.6f, -1, 1, 1, 1000);
+        Mat4.frustum(actual, 0, -1.6f, 1.6f, -1, 1, 1, 1000);
+        assertMatrixEquals(expected, actual);
+    }
+
+    private float[] randomMatrix() {
+        float[] m = new float[16];
+        for (int i = 0; i < 16; i++) {
+            m[i] = mRandom.nextFloat() * 2 - 1;
+        }
+        return m;
+    }
+
+    private static void assertMatrixEquals(float[] expected, float[] actual) {
+        for (int i = 0; i < 16; i++) {
+            assertEquals("element " + i, expected[i], actual[i], EPSILON);
+        }
+    }
+}
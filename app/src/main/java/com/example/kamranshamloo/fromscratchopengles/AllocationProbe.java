@@ -0,0 +1,14 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Reads how much the calling thread has allocated, for
+ * {@link AllocationTracker}.
+ */
+public interface AllocationProbe {
+
+    /**
+     * Returns the bytes allocated by the calling thread so far. Only the
+     * difference between two calls matters.
+     */
+    long getAllocatedBytes();
+}
@@ -0,0 +1,152 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Measures what every frame allocates on the GL thread, phase by phase, and
+ * flags frames over a budget.
+ *
+ * <p>The renderer marks the end of each {@link FrameStats} phase as it goes,
+ * and everything allocated since the previous mark is put down to that
+ * phase. What falls between the named phases only counts towards the frame
+ * total, kept under {@link FrameStats#PHASE_FRAME}. Meant for debug builds
+ * and tests: the probe decides what it costs.</p>
+ */
+public class AllocationTracker {
+
+    /**
+     * Told about every frame over the budget, on the GL thread right after it.
+     */
+    public interface Listener {
+        void onOverBudget(AllocationTracker tracker);
+    }
+
+    private final AllocationProbe mProbe;
+    private final long mProbeOverhead;
+    private long mBudgetBytes;
+    private Listener mListener;
+
+    private long mLastReading;
+    private final long[] mFrameBytes = new long[FrameStats.PHASE_COUNT];
+    private final long[] mLastFrameBytes = new long[FrameStats.PHASE_COUNT];
+    private final long[] mMaxFrameBytes = new long[FrameStats.PHASE_COUNT];
+    private long mFrameCount = 0;
+    private long mOverBudgetCount = 0;
+
+    /**
+     * @param probe - Reads the allocations of the GL thread.
+     * @param budgetBytes - The most a frame may allocate without being flagged.
+     */
+    public AllocationTracker(AllocationProbe probe, long budgetBytes) {
+        mProbe = probe;
+        mBudgetBytes = budgetBytes;
+        // Reading the probe may itself allocate; measure that once and subtract it.
+        long first = probe.getAllocatedBytes();
+        long second = probe.getAllocatedBytes();
+        mProbeOverhead = second - first;
+    }
+
+    public void setBudget(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+    }
+
+    public long getBudget() {
+        return mBudgetBytes;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Starts a frame.
+     */
+    public void beginFrame() {
+        for (int i = 0; i < FrameStats.PHASE_COUNT; i++) {
+            mFrameBytes[i] = 0;
+        }
+        mLastReading = mProbe.getAllocatedBytes();
+    }
+
+    /**
+     * Puts everything allocated since the previous mark down to a phase.
+     *
+     * @param phase - One of the FrameStats phases other than PHASE_FRAME.
+     */
+    public void endPhase(int phase) {
+        mFrameBytes[phase] += takeReading();
+    }
+
+    /**
+     * Ends the frame and tells the listener if it went over the budget.
+     */
+    public void endFrame() {
+        long total = takeReading();
+        for (int i = 0; i < FrameStats.PHASE_COUNT; i++) {
+            if (i != FrameStats.PHASE_FRAME) {
+                total += mFrameBytes[i];
+            }
+        }
+        mFrameBytes[FrameStats.PHASE_FRAME] = total;
+        for (int i = 0; i < FrameStats.PHASE_COUNT; i++) {
+            mLastFrameBytes[i] = mFrameBytes[i];
+            mMaxFrameBytes[i] = Math.max(mMaxFrameBytes[i], mFrameBytes[i]);
+        }
+        mFrameCount++;
+        if (total > mBudgetBytes) {
+            mOverBudgetCount++;
+            if (mListener != null) {
+                mListener.onOverBudget(this);
+            }
+        }
+    }
+
+    /**
+     * Returns the bytes a phase of the last frame allocated, or the whole
+     * frame for {@link FrameStats#PHASE_FRAME}.
+     */
+    public long getLastFrameBytes(int phase) {
+        return mLastFrameBytes[phase];
+    }
+
+    /**
+     * Returns the most a phase of any frame allocated, or any whole frame for
+     * {@link FrameStats#PHASE_FRAME}.
+     */
+    public long getMaxFrameBytes(int phase) {
+        return mMaxFrameBytes[phase];
+    }
+
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Returns the number of frames that allocated more than the budget.
+     */
+    public long getOverBudgetCount() {
+        return mOverBudgetCount;
+    }
+
+    /**
+     * Describes the last frame's allocations by phase, e.g. for a log.
+     * Allocates, so call it outside of frames.
+     */
+    public String describeLastFrame() {
+        StringBuilder description = new StringBuilder();
+        description.append(mLastFrameBytes[FrameStats.PHASE_FRAME])
+                .append(" bytes allocated, budget ").append(mBudgetBytes);
+        for (int i = 0; i < FrameStats.PHASE_COUNT; i++) {
+            if (i != FrameStats.PHASE_FRAME) {
+                description.append(", ").append(FrameStats.getPhaseName(i))
+                        .append(' ').append(mLastFrameBytes[i]);
+            }
+        }
+        return description.toString();
+    }
+
+    private long takeReading() {
+        long reading = mProbe.getAllocatedBytes();
+        long bytes = Math.max(0, reading - mLastReading - mProbeOverhead);
+        mLastReading = reading;
+        return bytes;
+    }
+}
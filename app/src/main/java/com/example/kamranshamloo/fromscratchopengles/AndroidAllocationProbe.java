@@ -0,0 +1,22 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.os.Debug;
+
+/**
+ * Reads the per-thread allocation counters of the Android runtime.
+ *
+ * <p>The counters cost some speed once started, and are process wide, so
+ * this is meant for debug builds only.</p>
+ */
+@SuppressWarnings("deprecation")
+public class AndroidAllocationProbe implements AllocationProbe {
+
+    public AndroidAllocationProbe() {
+        Debug.startAllocCounting();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return Debug.getThreadAllocSize();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Source of time for animations. Injecting it lets animations run
+ * deterministically in JVM unit tests, where {@code SystemClock} is not
+ * available.
+ */
+public interface AnimationClock {
+
+    /**
+     * Returns the current time in seconds. Only differences between two readings
+     * are meaningful. A double, so that a reading after weeks of uptime still
+     * resolves a frame.
+     */
+    double now();
+}
@@ -1,16 +1,15 @@
 package com.example.kamranshamloo.fromscratchopengles;
 
 import android.opengl.GLES20;
-import android.opengl.Matrix;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
+
+import com.example.kamranshamloo.fromscratchopengles.math.Mat4;
 
 /**
- * A cuboid (rectangular room) for use as a drawn object in OpenGL ES 2.0.
+ * The wireframe of the room for use as a drawn object in OpenGL ES 2.0,
+ * either the indexed edges of a {@link RoomMesh} or the line segments of a
+ * {@link SceneFile}.
  */
-public class Cuboid {
+public class Cuboid implements Drawable {
 
     private final String vertexShaderCode =
             // This matrix member variable provides a hook to manipulate
@@ -32,165 +31,78 @@ public class Cuboid {
                     "  gl_FragColor = vColor;" +
                     "}";
 
-    private final FloatBuffer vertexBuffer;
-    private final ShortBuffer drawListBuffer;
-    private final int mProgram;
-    private int mPositionHandle;
-    private int mColorHandle;
-    private int mMVPMatrixHandle;
+    private final Gl mGl;
+    private final GpuBuffer mVertexBuffer;
+    // Null for a wireframe drawn straight from the vertices.
+    private final GpuBuffer mIndexBuffer;
+    // Vertices drawn, through the indices if there are any.
+    private final int mVertexCount;
+    private final ShaderProgram mProgram;
+    private final int mPositionSlot;
+    private final int mColorSlot;
+    private final int mMVPMatrixSlot;
 
     // number of coordinates per vertex in this array
     static final int COORDS_PER_VERTEX = 3;
-//    static float squareCoords[] = {
-//            -0.5f,  0.5f, 0.0f,   // top left
-//            -0.5f, -0.5f, 0.0f,   // bottom left
-//            0.5f, -0.5f, 0.0f,   // bottom right
-//            0.5f,  0.5f, 0.0f }; // top right
-    //---------------------------
-final float[] cubeLineSegmentsPositionData =
-        {
-                // Front face
-                2.0f, 1.0f, 1.0f,    // right-top    corner
-                2.0f, -1.0f, 1.0f,   // right-bottom corner
-
-                2.0f, -1.0f, 1.0f,   // right-bottom corner
-                -2.0f, -1.0f, 1.0f,  // left-bottom  corner
-
-                -2.0f, -1.0f, 1.0f,  // left-bottom  corner
-                -2.0f, 1.0f, 1.0f,   // left-top     corner
-
-                -2.0f, 1.0f, 1.0f,   // left-top     corner
-                2.0f, 1.0f, 1.0f,    // right-top    corner
-
-                // Back face
-                2.0f, 1.0f, -1.0f,    // right-top    corner
-                2.0f, -1.0f, -1.0f,   // right-bottom corner
-
-                2.0f, -1.0f, -1.0f,   // right-bottom corner
-                -2.0f, -1.0f, -1.0f,  // left-bottom  corner
-
-                -2.0f, -1.0f, -1.0f,  // left-bottom  corner
-                -2.0f, 1.0f, -1.0f,   // left-top     corner
-
-                -2.0f, 1.0f, -1.0f,   // left-top     corner
-                2.0f, 1.0f, -1.0f,    // right-top    corner
-
-                // Right face
-                2.0f, 1.0f, -1.0f,    // top-far      corner
-                2.0f, 1.0f, 1.0f,     // top-close    corner
-
-                2.0f, -1.0f, -1.0f,   // bottom-far   corner
-                2.0f, -1.0f, 1.0f,    // bottom-close corner
-
-                // Left face
-                -2.0f, 1.0f, -1.0f,    // top-far      corner
-                -2.0f, 1.0f, 1.0f,     // top-close    corner
-
-                -2.0f, -1.0f, -1.0f,   // bottom-far   corner
-                -2.0f, -1.0f, 1.0f,    // bottom-close corner
-        };
-
-    //------------------------------------
-
-    final float[] cubePositionData =
-            {
-                    // In OpenGL counter-clockwise winding is default. This means that when we look at a triangle,
-                    // if the points are counter-clockwise we are looking at the "front". If not we are looking at
-                    // the back. OpenGL has an optimization where all back-facing triangles are culled, since they
-                    // usually represent the backside of an object and aren't visible anyways.
-
-                    // Front face
-                    -1.0f, 1.0f, 1.0f,
-                    -1.0f, -1.0f, 1.0f,
-                    1.0f, 1.0f, 1.0f,
-                    -1.0f, -1.0f, 1.0f,
-                    1.0f, -1.0f, 1.0f,
-                    1.0f, 1.0f, 1.0f,
-
-                    // Right face
-                    1.0f, 1.0f, 1.0f,
-                    1.0f, -1.0f, 1.0f,
-                    1.0f, 1.0f, -1.0f,
-                    1.0f, -1.0f, 1.0f,
-                    1.0f, -1.0f, -1.0f,
-                    1.0f, 1.0f, -1.0f,
-
-                    // Back face
-                    1.0f, 1.0f, -1.0f,    // right-top    corner
-                    1.0f, -1.0f, -1.0f,   // right-bottom corner
-                    -1.0f, 1.0f, -1.0f,   // left-top     corner
-                    1.0f, -1.0f, -1.0f,   // right-bottom corner
-                    -1.0f, -1.0f, -1.0f,  // left-bottom  corner
-                    -1.0f, 1.0f, -1.0f,   // left-top     corner
-                    1.0f, 1.0f, -1.0f,    // right-top    corner // added to draw missing line
-                    -1.0f, 1.0f, -1.0f,   // left-top     corner // added to draw missing line
-
-                    // Left face
-                    -1.0f, 1.0f, -1.0f,
-                    -1.0f, -1.0f, -1.0f,
-                    -1.0f, 1.0f, 1.0f,
-                    -1.0f, -1.0f, -1.0f,
-                    -1.0f, -1.0f, 1.0f,
-                    -1.0f, 1.0f, 1.0f,
-
-                    // Top face
-                    -1.0f, 1.0f, -1.0f,
-                    -1.0f, 1.0f, 1.0f,
-                    1.0f, 1.0f, -1.0f,
-                    -1.0f, 1.0f, 1.0f,
-                    1.0f, 1.0f, 1.0f,
-                    1.0f, 1.0f, -1.0f,
-
-                    // Bottom face
-                    1.0f, -1.0f, -1.0f,
-                    1.0f, -1.0f, 1.0f,
-                    -1.0f, -1.0f, -1.0f,
-                    1.0f, -1.0f, 1.0f,
-                    -1.0f, -1.0f, 1.0f,
-                    -1.0f, -1.0f, -1.0f,
-            };
-    //---------------------------------------------
-
-    private final short drawOrder[] = { 0, 1, 2, 0, 2, 3 }; // order to draw vertices
 
     private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
 
     float color[] = { 0.2f, 0.709803922f, 0.898039216f, 0.5f };
 
+    // Width of the edges in pixels.
+    static final float LINE_WIDTH = 8;
+
     /**
      * Sets up the drawing object data for use in an OpenGL ES context.
      */
-    public Cuboid() {
-        // initialize vertex byte buffer for shape coordinates
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                // (# of coordinate values * 4 bytes per float)
-                cubeLineSegmentsPositionData.length * 4);
-        bb.order(ByteOrder.nativeOrder());
-        vertexBuffer = bb.asFloatBuffer();
-        vertexBuffer.put(cubeLineSegmentsPositionData);
-        vertexBuffer.position(0);
-
-        // initialize byte buffer for the draw list
-        ByteBuffer dlb = ByteBuffer.allocateDirect(
-                // (# of coordinate values * 2 bytes per short)
-                drawOrder.length * 2);
-        dlb.order(ByteOrder.nativeOrder());
-        drawListBuffer = dlb.asShortBuffer();
-        drawListBuffer.put(drawOrder);
-        drawListBuffer.position(0);
-
-        // prepare shaders and OpenGL program
-        int vertexShader = MyGLRenderer.loadShader(
-                GLES20.GL_VERTEX_SHADER,
-                vertexShaderCode);
-        int fragmentShader = MyGLRenderer.loadShader(
-                GLES20.GL_FRAGMENT_SHADER,
-                fragmentShaderCode);
-
-        mProgram = GLES20.glCreateProgram();             // create empty OpenGL Program
-        GLES20.glAttachShader(mProgram, vertexShader);   // add the vertex shader to program
-        GLES20.glAttachShader(mProgram, fragmentShader); // add the fragment shader to program
-        GLES20.glLinkProgram(mProgram);                  // create OpenGL program executables
+    public Cuboid(Gl gl, ShaderProgramCache programCache, GpuBufferManager bufferManager) {
+        this(gl, programCache, bufferManager, RoomMesh.box(RoomMesh.DEFAULT_EXTENTS));
+    }
+
+    /**
+     * Sets up the rooms of a mesh for use in an OpenGL ES context.
+     *
+     * @param room - Made by {@link RoomMeshBuilder}.
+     */
+    public Cuboid(Gl gl, ShaderProgramCache programCache, GpuBufferManager bufferManager,
+                  RoomMesh room) {
+        // upload the corners and the edges between them to the GPU once per mesh
+        this(gl, programCache,
+                bufferManager.acquireStatic(room.getName() + ".vertices", room.getVertices()),
+                bufferManager.acquireStatic(room.getName() + ".lines", room.getLineIndices()),
+                room.getLineIndices().length);
+    }
+
+    /**
+     * Sets up the room of a site for use in an OpenGL ES context.
+     *
+     * @param scene - Holds the wireframe of the room.
+     */
+    public Cuboid(Gl gl, ShaderProgramCache programCache, GpuBufferManager bufferManager,
+                  SceneFile.Scene scene) {
+        // Straight from the scene file, no copy.
+        this(gl, programCache,
+                bufferManager.acquireStatic(scene.getName() + ".lines", scene.getSegments()),
+                null, scene.getSegmentVertexCount());
+    }
+
+    private Cuboid(Gl gl, ShaderProgramCache programCache, GpuBuffer vertexBuffer,
+                   GpuBuffer indexBuffer, int vertexCount) {
+        mGl = gl;
+        mVertexBuffer = vertexBuffer;
+        mIndexBuffer = indexBuffer;
+        mVertexCount = vertexCount;
+
+        // prepare shaders and OpenGL program (shared with every shape using the same source)
+        mProgram = programCache.acquire(vertexShaderCode, fragmentShaderCode);
+        mPositionSlot = mProgram.attributeSlot("vPosition", GLES20.GL_FLOAT_VEC4);
+        mColorSlot = mProgram.uniformSlot("vColor", GLES20.GL_FLOAT_VEC4);
+        mMVPMatrixSlot = mProgram.uniformSlot("uMVPMatrix", GLES20.GL_FLOAT_MAT4);
+    }
+
+    @Override
+    public long getSortKey(float depth) {
+        return RenderQueue.makeKey(mProgram.getHandle(), mVertexBuffer.getHandle(), LINE_WIDTH, color[3] < 1.0f, depth);
     }
 
     /**
@@ -198,52 +110,44 @@ final float[] cubeLineSegmentsPositionData =
      *
      * @param mvpMatrix - The Model View Project matrix in which to draw
      * this shape.
+     * @param arena - Scratch matrices of the current frame.
      */
-    public void draw(final float[] mvpMatrix, final float[] globalRotationMatrix) {
+    @Override
+    public void draw(final float[] mvpMatrix, final float[] globalRotationMatrix,
+                     final MatrixArena arena) {
         // Add program to OpenGL environment
-        GLES20.glUseProgram(mProgram);
+        mProgram.use();
 
         // get handle to vertex shader's vPosition member
-        mPositionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
+        final int positionHandle = mProgram.getAttributeLocation(mPositionSlot);
 
         // Enable a handle to the triangle vertices
-        GLES20.glEnableVertexAttribArray(mPositionHandle);
+        mGl.glEnableVertexAttribArray(positionHandle);
 
-        // Prepare the triangle coordinate data
-        GLES20.glVertexAttribPointer(
-                mPositionHandle, COORDS_PER_VERTEX,
+        // Point the attribute at the cuboid coordinates already on the GPU
+        mVertexBuffer.bind();
+        mGl.glVertexAttribPointer(
+                positionHandle, COORDS_PER_VERTEX,
                 GLES20.GL_FLOAT, false,
-                vertexStride, vertexBuffer);
-
-        // get handle to fragment shader's vColor member
-        mColorHandle = GLES20.glGetUniformLocation(mProgram, "vColor");
+                vertexStride, 0);
 
         // Set color for drawing the triangle
-        GLES20.glUniform4fv(mColorHandle, 1, color, 0);
-
-        // get handle to shape's transformation matrix
-        mMVPMatrixHandle = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
-        MyGLRenderer.checkGlError("glGetUniformLocation");
+        mProgram.setUniform4fv(mColorSlot, color);
 
-        float[] scratch = new float[16];
-        Matrix.multiplyMM(scratch, 0, mvpMatrix, 0, globalRotationMatrix, 0);
+        float[] scratch = arena.obtain();
+        Mat4.multiply(scratch, 0, mvpMatrix, 0, globalRotationMatrix, 0);
         // Apply the projection and view transformation
-        GLES20.glUniformMatrix4fv(mMVPMatrixHandle, 1, false, scratch, 0);
-        MyGLRenderer.checkGlError("glUniformMatrix4fv");
-
-        // Draw the square
-//        GLES20.glDrawElements(
-//                GLES20.GL_TRIANGLES, drawOrder.length,
-//                GLES20.GL_UNSIGNED_SHORT, drawListBuffer);
-        // Draw the cube.
-
-        GLES20.glLineWidth(8); // Make the edges thicker
-        GLES20.glDrawArrays(GLES20.GL_LINES, 0, cubeLineSegmentsPositionData.length/3); //36 vertexes, 6 vertex for each side
-        //GLES20.glDrawArrays(GLES20.GL_LINE_LOOP, 0, cubePositionData.length/3); //36 vertexes, 6 vertex for each side
-        //GL_POINTS, GL_LINE_STRIP, GL_LINE_LOOP, GL_LINES, GL_TRIANGLE_STRIP, GL_TRIANGLE_FAN, and GL_TRIANGLES are accepted.
-
-        // Disable vertex array
-        GLES20.glDisableVertexAttribArray(mPositionHandle);
+        mProgram.setUniformMatrix4fv(mMVPMatrixSlot, scratch);
+        MyGLRenderer.checkGlError(mGl, "glUniformMatrix4fv");
+
+        // Draw the edges of the room
+        mGl.glLineWidth(LINE_WIDTH); // Make the edges thicker
+        if (mIndexBuffer != null) {
+            mIndexBuffer.bind();
+            mGl.glDrawElements(GLES20.GL_LINES, mVertexCount, GLES20.GL_UNSIGNED_SHORT, 0);
+        } else {
+            mGl.glDrawArrays(GLES20.GL_LINES, 0, mVertexCount);
+        }
     }
 
 }
\ No newline at end of file
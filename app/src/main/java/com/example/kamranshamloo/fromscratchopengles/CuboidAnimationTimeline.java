@@ -0,0 +1,177 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.nio.FloatBuffer;
+
+/**
+ * The build-up of the room as a {@link SegmentTimeline}: first two edges of the
+ * left wall grow, then the other two, then the four long edges grow to the
+ * right while the right wall sweeps along with them. Rooms of any other shape
+ * are drawn on the floor first, then their walls rise. The wireframe of a
+ * site rises from its lowest point, line by line.
+ *
+ * <p>Kept free of GL so the vertex generation of {@link CuboidAnimation} can
+ * be tested and benchmarked on a plain JVM.</p>
+ */
+final class CuboidAnimationTimeline {
+
+    // Speed at which the edges grow, in units per second.
+    private static final float SPEED = 3.0f;
+
+    private CuboidAnimationTimeline() {
+    }
+
+    /**
+     * Builds the timeline of the build-up of the built-in room.
+     */
+    static SegmentTimeline create() {
+        return create(RoomMesh.DEFAULT_EXTENTS);
+    }
+
+    /**
+     * Builds the timeline of the build-up of the rooms of a mesh. It ends
+     * with every edge of the mesh.
+     */
+    static SegmentTimeline create(RoomMesh room) {
+        if (room.isBox()) {
+            return create(room.getExtents());
+        }
+        final float[] vertices = room.getVertices();
+        final short[] walls = room.getWallIndices();
+        SegmentTimeline timeline = new SegmentTimeline();
+        Easing easing = Easing.LINEAR;
+
+        // Frame 1: the outline of every floor, once where walls of different
+        // heights stand on it
+        float duration = 0;
+        final IntIntMap outline = new IntIntMap(room.getWallCount());
+        for (int i = 0; i < walls.length; i += 4) {
+            final int a = walls[i] & 0xffff;
+            final int b = walls[i + 1] & 0xffff;
+            if (outline.put(Math.min(a, b) << 16 | Math.max(a, b), i) != IntIntMap.NO_VALUE) {
+                continue;
+            }
+            final float[] bottomA = corner(vertices, walls[i]);
+            final float[] bottomB = corner(vertices, walls[i + 1]);
+            final float length = distance(bottomA, bottomB) / SPEED;
+            timeline.addGrowth(bottomA, bottomB, 0, length, easing);
+            duration = Math.max(duration, length);
+        }
+
+        // Frame 2: the walls rise, their vertical edges growing along with them
+        final float start = duration;
+        final boolean[] raised = new boolean[room.getVertexCount()];
+        for (int i = 0; i < walls.length; i += 4) {
+            final float[] bottomA = corner(vertices, walls[i]);
+            final float[] bottomB = corner(vertices, walls[i + 1]);
+            final float[] topB = corner(vertices, walls[i + 2]);
+            final float[] topA = corner(vertices, walls[i + 3]);
+            final float rise = distance(bottomA, topA) / SPEED;
+            timeline.addSweep(bottomA, bottomB, topA, topB, start, rise, easing);
+            if (!raised[walls[i + 3] & 0xffff]) {
+                raised[walls[i + 3] & 0xffff] = true;
+                timeline.addGrowth(bottomA, topA, start, rise, easing);
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * Builds the timeline of the build-up of the wireframe of a site. It ends
+     * with the segments {@link Cuboid} draws of it: each grows out of its lower
+     * end once the build-up has risen that far, so the floor comes first and
+     * the ceiling last.
+     *
+     * @param segments - xyz per vertex, two vertices per segment. Read without
+     *                 moving its position.
+     * @param segmentVertexCount - Number of vertices in segments.
+     */
+    static SegmentTimeline create(FloatBuffer segments, int segmentVertexCount) {
+        SegmentTimeline timeline = new SegmentTimeline();
+        Easing easing = Easing.LINEAR;
+        float floor = Float.POSITIVE_INFINITY;
+        for (int v = 0; v < segmentVertexCount; v++) {
+            floor = Math.min(floor, segments.get(v * 3 + 1));
+        }
+        for (int v = 0; v < segmentVertexCount; v += 2) {
+            float[] lower = vertex(segments, v);
+            float[] upper = vertex(segments, v + 1);
+            if (upper[1] < lower[1]) {
+                float[] swap = lower;
+                lower = upper;
+                upper = swap;
+            }
+            timeline.addGrowth(lower, upper, (lower[1] - floor) / SPEED,
+                    distance(lower, upper) / SPEED, easing);
+        }
+        return timeline;
+    }
+
+    /**
+     * Builds the timeline of the build-up of a room.
+     *
+     * @param extents - minX, minY, minZ, maxX, maxY and maxZ of the room.
+     */
+    static SegmentTimeline create(float[] extents) {
+        // Define corners of the cuboid
+        final float minX = extents[0], minY = extents[1], minZ = extents[2];
+        final float maxX = extents[3], maxY = extents[4], maxZ = extents[5];
+        final float[] leftBottomFar   = {minX, minY, minZ};
+        final float[] leftBottomNear  = {minX, minY, maxZ};
+        final float[] leftTopNear     = {minX, maxY, maxZ};
+        final float[] leftTopFar      = {minX, maxY, minZ};
+        final float[] rightBottomFar  = {maxX, minY, minZ};
+        final float[] rightBottomNear = {maxX, minY, maxZ};
+        final float[] rightTopNear    = {maxX, maxY, maxZ};
+        final float[] rightTopFar     = {maxX, maxY, minZ};
+
+        SegmentTimeline timeline = new SegmentTimeline();
+        Easing easing = Easing.LINEAR;
+
+        // Frame 1 (two lines)
+        float start = 0;
+        float duration = distance(leftBottomFar, leftBottomNear) / SPEED;
+        timeline.addGrowth(leftBottomFar, leftBottomNear, start, duration, easing);
+        timeline.addGrowth(leftTopNear, leftTopFar, start, duration, easing);
+
+        // Frame 2 (two lines)
+        start += duration;
+        duration = distance(leftBottomNear, leftTopNear) / SPEED;
+        timeline.addGrowth(leftBottomNear, leftTopNear, start, duration, easing);
+        timeline.addGrowth(leftTopFar, leftBottomFar, start, duration, easing);
+
+        // Frame 3 (four lines and the moving square)
+        start += duration;
+        duration = distance(leftBottomFar, rightBottomFar) / SPEED;
+        timeline.addGrowth(leftBottomFar, rightBottomFar, start, duration, easing);
+        timeline.addGrowth(leftBottomNear, rightBottomNear, start, duration, easing);
+        timeline.addGrowth(leftTopNear, rightTopNear, start, duration, easing);
+        timeline.addGrowth(leftTopFar, rightTopFar, start, duration, easing);
+
+        timeline.addSweep(leftBottomFar, leftBottomNear,
+                rightBottomFar, rightBottomNear, start, duration, easing);
+        timeline.addSweep(leftBottomNear, leftTopNear,
+                rightBottomNear, rightTopNear, start, duration, easing);
+        timeline.addSweep(leftTopNear, leftTopFar,
+                rightTopNear, rightTopFar, start, duration, easing);
+        timeline.addSweep(leftTopFar, leftBottomFar,
+                rightTopFar, rightBottomFar, start, duration, easing);
+        return timeline;
+    }
+
+    private static float[] corner(float[] vertices, short index) {
+        final int offset = (index & 0xffff) * RoomMesh.COORDS_PER_VERTEX;
+        return new float[]{vertices[offset], vertices[offset + 1], vertices[offset + 2]};
+    }
+
+    private static float[] vertex(FloatBuffer segments, int index) {
+        final int offset = index * 3;
+        return new float[]{segments.get(offset), segments.get(offset + 1), segments.get(offset + 2)};
+    }
+
+    private static float distance(float[] from, float[] to) {
+        float dx = to[0] - from[0];
+        float dy = to[1] - from[1];
+        float dz = to[2] - from[2];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * The latest reported position of every M2P device, as parallel primitive
+ * arrays.
+ *
+ * <p>Entry {@code i} of {@link #ids}, {@link #x}, {@link #y}, {@link #z} and
+ * {@link #timestamps} describes one device. Entries are added in the order
+ * devices are first seen and never move, and an {@link IntIntMap} finds the
+ * entry of a device id. The capacity is fixed, so updating never allocates;
+ * devices beyond it are turned away.</p>
+ */
+public class DevicePositions {
+
+    /** Device id of each entry. */
+    public final int[] ids;
+    /** Room coordinates of each entry. */
+    public final float[] x;
+    public final float[] y;
+    public final float[] z;
+    /** Time of each sample in nanoseconds on the sender's clock. */
+    public final long[] timestamps;
+
+    private final IntIntMap mIndex;
+    private int mSize = 0;
+
+    /**
+     * @param capacity - The most devices tracked.
+     */
+    public DevicePositions(int capacity) {
+        ids = new int[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        timestamps = new long[capacity];
+        mIndex = new IntIntMap(capacity);
+    }
+
+    /**
+     * Returns the number of devices, the valid length of the arrays.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the most devices tracked.
+     */
+    public int capacity() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the entry of a device, or {@link IntIntMap#NO_VALUE}.
+     */
+    public int indexOf(int id) {
+        return mIndex.get(id);
+    }
+
+    /**
+     * Records a position sample. Samples older than the one already stored
+     * for the device are ignored, so reordered datagrams can't move it back.
+     *
+     * @param id - Device id, any int except {@link Integer#MIN_VALUE}.
+     * @param timestamp - Sample time in nanoseconds on the sender's clock.
+     * @return - False if the device is new and the store is full.
+     */
+    public boolean put(int id, float x, float y, float z, long timestamp) {
+        int index = mIndex.get(id);
+        if (index == IntIntMap.NO_VALUE) {
+            if (mSize == ids.length) {
+                return false;
+            }
+            index = mSize++;
+            mIndex.put(id, index);
+            ids[index] = id;
+        } else if (timestamp < timestamps[index]) {
+            return true;
+        }
+        this.x[index] = x;
+        this.y[index] = y;
+        this.z[index] = z;
+        timestamps[index] = timestamp;
+        return true;
+    }
+
+    /**
+     * Makes this store a copy of another of the same capacity.
+     */
+    public void copyFrom(DevicePositions other) {
+        if (other.capacity() != capacity()) {
+            throw new IllegalArgumentException("Capacity " + other.capacity() + " != " + capacity());
+        }
+        int size = other.mSize;
+        System.arraycopy(other.ids, 0, ids, 0, size);
+        System.arraycopy(other.x, 0, x, 0, size);
+        System.arraycopy(other.y, 0, y, 0, size);
+        System.arraycopy(other.z, 0, z, 0, size);
+        System.arraycopy(other.timestamps, 0, timestamps, 0, size);
+        mIndex.copyFrom(other.mIndex);
+        mSize = size;
+    }
+
+    /**
+     * Forgets every device.
+     */
+    public void clear() {
+        mIndex.clear();
+        mSize = 0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Something the {@link RenderQueue} can sort and draw.
+ */
+public interface Drawable {
+
+    /**
+     * Returns the key this object is sorted by, built with
+     * {@link RenderQueue#makeKey(int, int, float, boolean, float)} from the
+     * state its draw will set.
+     *
+     * @param depth - Distance of the object from the eye, 0 at the near and
+     *              1 at the far clipping plane.
+     */
+    long getSortKey(float depth);
+
+    /**
+     * Encapsulates the OpenGL ES instructions for drawing this object. It
+     * sets the state it needs, attribute arrays and buffer bindings included,
+     * and leaves it as it is afterwards: the next object sets what it needs,
+     * and the {@link GlStateCache} drops what is unchanged.
+     *
+     * @param mvpMatrix - The Model View Project matrix in which to draw
+     * this object.
+     * @param globalRotationMatrix - The rotation of the whole room.
+     * @param arena - Scratch matrices of the current frame.
+     */
+    void draw(float[] mvpMatrix, float[] globalRotationMatrix, MatrixArena arena);
+}
@@ -0,0 +1,42 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Maps the linear progress of an animation track onto the progress that is
+ * shown. Both values are in the range 0..1.
+ */
+public interface Easing {
+
+    /** Constant speed. */
+    Easing LINEAR = new Easing() {
+        @Override
+        public float ease(float t) {
+            return t;
+        }
+    };
+
+    /** Starts slowly and accelerates. */
+    Easing EASE_IN = new Easing() {
+        @Override
+        public float ease(float t) {
+            return t * t;
+        }
+    };
+
+    /** Starts quickly and decelerates. */
+    Easing EASE_OUT = new Easing() {
+        @Override
+        public float ease(float t) {
+            return t * (2 - t);
+        }
+    };
+
+    /** Accelerates and then decelerates (smoothstep). */
+    Easing EASE_IN_OUT = new Easing() {
+        @Override
+        public float ease(float t) {
+            return t * t * (3 - 2 * t);
+        }
+    };
+
+    float ease(float t);
+}
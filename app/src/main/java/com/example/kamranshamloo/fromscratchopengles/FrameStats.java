@@ -0,0 +1,177 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times the phases of every frame and counts the GL work it did.
+ *
+ * <p>The GL thread brackets each phase with {@link #begin} and {@link #end}
+ * and closes the frame with {@link #endFrame}; every phase duration goes into
+ * its own {@link LatencyHistogram}. Any other thread may take a
+ * {@link Snapshot} at any time, or {@link #drain()} one to report a period
+ * at a time. Recording doesn't lock or allocate.</p>
+ */
+public class FrameStats {
+
+    /** All of onDrawFrame. */
+    public static final int PHASE_FRAME = 0;
+    /** Camera and rotation matrices, device positions and queueing the draws. */
+    public static final int PHASE_SETUP = 1;
+    /** Vertex generation of the room build-up, only while it runs. */
+    public static final int PHASE_ANIMATION = 2;
+    /** Issuing the GL calls of the queued draws. */
+    public static final int PHASE_SUBMIT = 3;
+    public static final int PHASE_COUNT = 4;
+
+    private static final String[] PHASE_NAMES = {"frame", "setup", "animation", "submit"};
+
+    // Percentiles reported, with their column names.
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p95", "p99"};
+
+    private final LatencyHistogram[] mPhases = new LatencyHistogram[PHASE_COUNT];
+    private final long[] mPhaseStarts = new long[PHASE_COUNT];
+    private final AtomicLong mFrameCount = new AtomicLong();
+    private final AtomicLong mDrawCallCount = new AtomicLong();
+    private final AtomicLong mUploadedBytes = new AtomicLong();
+
+    public FrameStats() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mPhases[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Returns the name of a phase, as used in the CSV columns.
+     */
+    public static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * Starts timing a phase. Call on the GL thread.
+     *
+     * @param now - {@link System#nanoTime()}.
+     */
+    public void begin(int phase, long now) {
+        mPhaseStarts[phase] = now;
+    }
+
+    /**
+     * Stops timing a phase and records its duration. Call on the GL thread.
+     *
+     * @param now - {@link System#nanoTime()}.
+     */
+    public void end(int phase, long now) {
+        mPhases[phase].record(now - mPhaseStarts[phase]);
+    }
+
+    /**
+     * Counts a finished frame. Call on the GL thread.
+     *
+     * @param drawCalls - Draw calls issued by the frame.
+     * @param uploadedBytes - Bytes the frame handed to the driver.
+     */
+    public void endFrame(int drawCalls, long uploadedBytes) {
+        mDrawCallCount.addAndGet(drawCalls);
+        mUploadedBytes.addAndGet(uploadedBytes);
+        mFrameCount.incrementAndGet();
+    }
+
+    /**
+     * Returns everything recorded so far.
+     */
+    public Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] phases = new LatencyHistogram.Snapshot[PHASE_COUNT];
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            phases[i] = mPhases[i].snapshot();
+        }
+        return new Snapshot(phases, mFrameCount.get(), mDrawCallCount.get(), mUploadedBytes.get());
+    }
+
+    /**
+     * Returns everything recorded since the last drain and starts over.
+     */
+    public Snapshot drain() {
+        LatencyHistogram.Snapshot[] phases = new LatencyHistogram.Snapshot[PHASE_COUNT];
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            phases[i] = mPhases[i].drain();
+        }
+        return new Snapshot(phases, mFrameCount.getAndSet(0), mDrawCallCount.getAndSet(0),
+                mUploadedBytes.getAndSet(0));
+    }
+
+    /**
+     * The frame statistics of a period.
+     */
+    public static class Snapshot {
+
+        private final LatencyHistogram.Snapshot[] mPhases;
+        private final long mFrameCount;
+        private final long mDrawCallCount;
+        private final long mUploadedBytes;
+
+        Snapshot(LatencyHistogram.Snapshot[] phases, long frameCount, long drawCallCount,
+                 long uploadedBytes) {
+            mPhases = phases;
+            mFrameCount = frameCount;
+            mDrawCallCount = drawCallCount;
+            mUploadedBytes = uploadedBytes;
+        }
+
+        /**
+         * Returns the durations of a phase in nanoseconds.
+         *
+         * @param phase - One of the PHASE_ constants.
+         */
+        public LatencyHistogram.Snapshot getPhase(int phase) {
+            return mPhases[phase];
+        }
+
+        public long getFrameCount() {
+            return mFrameCount;
+        }
+
+        public long getDrawCallCount() {
+            return mDrawCallCount;
+        }
+
+        public long getUploadedBytes() {
+            return mUploadedBytes;
+        }
+
+        /**
+         * Writes the column names matching {@link #writeCsvRow}, ending the line.
+         */
+        public static void writeCsvHeader(Appendable out) throws IOException {
+            out.append("time_ms,frames,draw_calls,uploaded_bytes");
+            for (String phase : PHASE_NAMES) {
+                for (String percentile : PERCENTILE_NAMES) {
+                    out.append(',').append(phase).append('_').append(percentile).append("_us");
+                }
+                out.append(',').append(phase).append("_max_us");
+            }
+            out.append('\n');
+        }
+
+        /**
+         * Writes the snapshot as one CSV line, durations in microseconds.
+         *
+         * @param timeMillis - When the snapshot was taken, first column.
+         */
+        public void writeCsvRow(Appendable out, long timeMillis) throws IOException {
+            out.append(Long.toString(timeMillis))
+                    .append(',').append(Long.toString(mFrameCount))
+                    .append(',').append(Long.toString(mDrawCallCount))
+                    .append(',').append(Long.toString(mUploadedBytes));
+            for (LatencyHistogram.Snapshot phase : mPhases) {
+                for (double percentile : PERCENTILES) {
+                    out.append(',').append(Long.toString(phase.getPercentile(percentile) / 1000));
+                }
+                out.append(',').append(Long.toString(phase.getMax() / 1000));
+            }
+            out.append('\n');
+        }
+    }
+}
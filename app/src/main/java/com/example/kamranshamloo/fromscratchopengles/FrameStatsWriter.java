@@ -0,0 +1,138 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Appends the {@link FrameStats} of every period to a CSV file on a
+ * background thread, so devices in the field can report jank.
+ *
+ * <p>Each line covers the frames drawn since the previous one; periods
+ * without frames, e.g. while nothing changes on screen, are left out. The
+ * column names are written when the file is new.</p>
+ *
+ * <p>Once the file has grown to its size limit it is renamed with a ".1"
+ * suffix, replacing the one renamed before, and a new file is started. The
+ * two never hold much more than twice the limit, however long the device
+ * runs.</p>
+ */
+public class FrameStatsWriter implements Runnable {
+
+    private final FrameStats mStats;
+    private final File mFile;
+    private final long mPeriodMillis;
+    private final long mMaxBytes;
+
+    private Thread mThread;
+    private volatile boolean mRunning = false;
+    private volatile IOException mFailure;
+
+    /**
+     * @param stats - Drained once per period.
+     * @param file - Appended to.
+     * @param periodMillis - Time between lines.
+     * @param maxBytes - Size at which the file is rolled over.
+     */
+    public FrameStatsWriter(FrameStats stats, File file, long periodMillis, long maxBytes) {
+        mStats = stats;
+        mFile = file;
+        mPeriodMillis = periodMillis;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the file the lines before the last roll-over went to.
+     */
+    public File getPreviousFile() {
+        return new File(mFile.getPath() + ".1");
+    }
+
+    /**
+     * Starts the writing thread. What was recorded before is dropped.
+     */
+    public void start() {
+        if (mThread != null) {
+            throw new IllegalStateException("Already started");
+        }
+        mStats.drain();
+        mFailure = null;
+        mRunning = true;
+        mThread = new Thread(this, "FrameStatsWriter");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Writes what was recorded since the last line and stops the thread.
+     */
+    public void stop() {
+        if (mThread == null) {
+            return;
+        }
+        mRunning = false;
+        mThread.interrupt();
+        boolean interrupted = false;
+        while (mThread.isAlive()) {
+            try {
+                mThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        mThread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns why the writing thread stopped on its own, or null.
+     */
+    public IOException getFailure() {
+        return mFailure;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (mRunning) {
+                try {
+                    Thread.sleep(mPeriodMillis);
+                } catch (InterruptedException e) {
+                    // Stopping; write out the partial period below.
+                }
+                write(mStats.drain());
+            }
+        } catch (IOException e) {
+            mFailure = e;
+        }
+    }
+
+    /**
+     * Appends one snapshot to the file, with the column names first if the
+     * file is new, rolling the file over first if it is full.
+     */
+    void write(FrameStats.Snapshot snapshot) throws IOException {
+        if (snapshot.getFrameCount() == 0) {
+            return;
+        }
+        if (mFile.length() >= mMaxBytes) {
+            File previous = getPreviousFile();
+            if (previous.exists() && !previous.delete() || !mFile.renameTo(previous)) {
+                throw new IOException("Could not roll " + mFile + " over to " + previous);
+            }
+        }
+        boolean isNew = mFile.length() == 0;
+        Writer out = new FileWriter(mFile, true);
+        try {
+            if (isNew) {
+                FrameStats.Snapshot.writeCsvHeader(out);
+            }
+            snapshot.writeCsvRow(out, System.currentTimeMillis());
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Finds the pucks inside the view volume, so only those are sent to the GPU.
+ *
+ * <p>The six planes of the volume are read straight off the matrix taking
+ * puck positions to clip space (Gribb &amp; Hartmann), and every puck is
+ * tested as a bounding sphere against them. The test runs over the parallel
+ * position arrays of a {@link PuckStore} and writes the indices of the
+ * visible pucks to an int array, without allocating.</p>
+ */
+public class FrustumCuller {
+
+    // Floats per plane: the normal, then the distance.
+    private static final int PLANE_FLOATS = 4;
+    private static final int PLANE_COUNT = 6;
+
+    private final float[] mPlanes = new float[PLANE_COUNT * PLANE_FLOATS];
+    private int mVisibleCount = 0;
+    private int mCulledCount = 0;
+
+    /**
+     * Sets the view volume.
+     *
+     * @param m - Column-major matrix from the space of the positions to clip
+     *          space, e.g. projection * view * model.
+     */
+    public void setMatrix(float[] m, int offset) {
+        // Each plane is the last row of m plus or minus one of the others.
+        for (int row = 0; row < 3; row++) {
+            setPlane(row * 2, m, offset, row, 1.0f);
+            setPlane(row * 2 + 1, m, offset, row, -1.0f);
+        }
+    }
+
+    /**
+     * Returns whether a sphere is at least partly inside the view volume.
+     */
+    public boolean isVisible(float x, float y, float z, float radius) {
+        final float[] p = mPlanes;
+        for (int plane = 0; plane < PLANE_COUNT * PLANE_FLOATS; plane += PLANE_FLOATS) {
+            if (p[plane] * x + p[plane + 1] * y + p[plane + 2] * z + p[plane + 3] < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests a run of spheres of equal size.
+     *
+     * @param count - Number of spheres, read from the start of x, y and z.
+     * @param radius - Radius of every sphere.
+     * @param visible - Receives the indices of the visible spheres in
+     *                increasing order; must hold count entries.
+     * @return - The number of visible spheres.
+     */
+    public int cull(float[] x, float[] y, float[] z, int count, float radius, int[] visible) {
+        final float[] p = mPlanes;
+        final float ax = p[0], ay = p[1], az = p[2], ad = p[3] + radius;
+        final float bx = p[4], by = p[5], bz = p[6], bd = p[7] + radius;
+        final float cx = p[8], cy = p[9], cz = p[10], cd = p[11] + radius;
+        final float dx = p[12], dy = p[13], dz = p[14], dd = p[15] + radius;
+        final float ex = p[16], ey = p[17], ez = p[18], ed = p[19] + radius;
+        final float fx = p[20], fy = p[21], fz = p[22], fd = p[23] + radius;
+        int visibleCount = 0;
+        for (int i = 0; i < count; i++) {
+            final float px = x[i], py = y[i], pz = z[i];
+            // Branch free, so the loop runs at the same speed however the
+            // pucks are spread over the view.
+            final boolean inside = ax * px + ay * py + az * pz + ad >= 0
+                    & bx * px + by * py + bz * pz + bd >= 0
+                    & cx * px + cy * py + cz * pz + cd >= 0
+                    & dx * px + dy * py + dz * pz + dd >= 0
+                    & ex * px + ey * py + ez * pz + ed >= 0
+                    & fx * px + fy * py + fz * pz + fd >= 0;
+            visible[visibleCount] = i;
+            visibleCount += inside ? 1 : 0;
+        }
+        mVisibleCount = visibleCount;
+        mCulledCount = count - visibleCount;
+        return visibleCount;
+    }
+
+    /**
+     * Returns how many spheres the last {@link #cull} found visible.
+     */
+    public int getVisibleCount() {
+        return mVisibleCount;
+    }
+
+    /**
+     * Returns how many spheres the last {@link #cull} left out.
+     */
+    public int getCulledCount() {
+        return mCulledCount;
+    }
+
+    /**
+     * Stores row 3 + sign * row of m as a plane, scaled so its normal has
+     * unit length and distances come out in the units of the positions.
+     */
+    private void setPlane(int plane, float[] m, int offset, int row, float sign) {
+        final float a = m[offset + 3] + sign * m[offset + row];
+        final float b = m[offset + 7] + sign * m[offset + 4 + row];
+        final float c = m[offset + 11] + sign * m[offset + 8 + row];
+        final float d = m[offset + 15] + sign * m[offset + 12 + row];
+        final float scale = 1.0f / (float) Math.sqrt(a * a + b * b + c * c);
+        final int i = plane * PLANE_FLOATS;
+        mPlanes[i] = a * scale;
+        mPlanes[i + 1] = b * scale;
+        mPlanes[i + 2] = c * scale;
+        mPlanes[i + 3] = d * scale;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Geometry of multi-touch gestures, kept free of Android classes so it can be
+ * tested and benchmarked on a plain JVM.
+ */
+final class GestureMath {
+
+    private GestureMath() {
+    }
+
+    /**
+     * Returns the angle in degrees, in -180..180, by which the line through the
+     * new touch points (nf, ns) is turned against the line through the first
+     * ones (f, s).
+     */
+    static float angleBetweenLines(float fX, float fY, float sX, float sY,
+                                   float nfX, float nfY, float nsX, float nsY) {
+        float angle1 = (float) Math.atan2( (fY - sY), (fX - sX) );
+        float angle2 = (float) Math.atan2( (nfY - nsY), (nfX - nsX) );
+
+        float angle = ((float)Math.toDegrees(angle1 - angle2)) % 360;
+        if (angle < -180.f) angle += 360.0f;
+        if (angle > 180.f) angle -= 360.0f;
+        return angle;
+    }
+}
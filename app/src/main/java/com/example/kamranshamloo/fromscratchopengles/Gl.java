@@ -0,0 +1,143 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.nio.Buffer;
+
+/**
+ * The OpenGL ES calls made by the renderer and its shapes.
+ *
+ * <p>Methods have the names and signatures of their {@link android.opengl.GLES20}
+ * and {@link android.opengl.GLES30} counterparts, and the enums are the
+ * {@code GLES20.GL_*} constants. {@link AndroidGl} forwards to the real driver;
+ * {@link RecordingGl} only records the calls, so the whole render loop can run
+ * and be measured on a plain JVM.</p>
+ *
+ * <p>Only the calls this project actually uses are declared. Add new ones here
+ * and to both backends.</p>
+ */
+public interface Gl {
+
+    // State
+
+    void glClearColor(float red, float green, float blue, float alpha);
+
+    void glClear(int mask);
+
+    void glViewport(int x, int y, int width, int height);
+
+    void glLineWidth(float width);
+
+    void glEnable(int cap);
+
+    void glDisable(int cap);
+
+    void glBlendFunc(int sfactor, int dfactor);
+
+    int glGetError();
+
+    String glGetString(int name);
+
+    // Shaders and programs
+
+    int glCreateShader(int type);
+
+    void glShaderSource(int shader, String source);
+
+    void glCompileShader(int shader);
+
+    void glDeleteShader(int shader);
+
+    int glCreateProgram();
+
+    void glAttachShader(int program, int shader);
+
+    void glLinkProgram(int program);
+
+    void glGetProgramiv(int program, int pname, int[] params, int offset);
+
+    String glGetProgramInfoLog(int program);
+
+    String glGetActiveAttrib(int program, int index,
+                             int[] size, int sizeOffset, int[] type, int typeOffset);
+
+    String glGetActiveUniform(int program, int index,
+                              int[] size, int sizeOffset, int[] type, int typeOffset);
+
+    int glGetAttribLocation(int program, String name);
+
+    int glGetUniformLocation(int program, String name);
+
+    void glUseProgram(int program);
+
+    void glDeleteProgram(int program);
+
+    void glUniform4fv(int location, int count, float[] v, int offset);
+
+    void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    // Buffers and vertex attributes
+
+    void glGenBuffers(int n, int[] buffers, int offset);
+
+    void glDeleteBuffers(int n, int[] buffers, int offset);
+
+    void glBindBuffer(int target, int buffer);
+
+    /**
+     * A null data only allocates the storage, orphaning what the buffer held.
+     */
+    void glBufferData(int target, int size, Buffer data, int usage);
+
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+
+    void glEnableVertexAttribArray(int index);
+
+    void glDisableVertexAttribArray(int index);
+
+    /**
+     * Points an attribute at the bound {@code GL_ARRAY_BUFFER}.
+     */
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                               int stride, int offset);
+
+    /**
+     * Points an attribute at a client-side array.
+     */
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                               int stride, Buffer pointer);
+
+    /**
+     * OpenGL ES 3.0 only.
+     */
+    void glVertexAttribDivisor(int index, int divisor);
+
+    // Drawing
+
+    void glDrawArrays(int mode, int first, int count);
+
+    /**
+     * Draws with indices from the bound {@code GL_ELEMENT_ARRAY_BUFFER}.
+     */
+    void glDrawElements(int mode, int count, int type, int offset);
+
+    /**
+     * OpenGL ES 3.0 only.
+     */
+    void glDrawArraysInstanced(int mode, int first, int count, int instanceCount);
+
+    // Synchronization
+
+    /**
+     * OpenGL ES 3.0 only.
+     */
+    long glFenceSync(int condition, int flags);
+
+    /**
+     * OpenGL ES 3.0 only.
+     */
+    int glClientWaitSync(long sync, int flags, long timeout);
+
+    /**
+     * OpenGL ES 3.0 only.
+     */
+    void glDeleteSync(long sync);
+}
@@ -0,0 +1,652 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+
+/**
+ * {@link Gl} decorator that shadows the GL state and drops calls that would
+ * not change it.
+ *
+ * <p>Tracked are the current program, the uniform values of every program,
+ * the enabled vertex attribute arrays with their buffer pointers and divisors,
+ * the array and element array buffer bindings, the line width, blending and
+ * depth testing with the blend function, the viewport and the clear color.
+ * Everything else is forwarded unchanged. Shapes can therefore set the state
+ * they need on every draw without costing a driver call when the previous
+ * shape left it the same.</p>
+ *
+ * <p>The shadow starts out unknown and must be dropped with
+ * {@link #invalidate()} whenever a new EGL context is created. State changed
+ * behind the cache's back is not seen, so all GL calls of the context have to
+ * go through it.</p>
+ */
+public class GlStateCache implements Gl {
+
+    private static final int MAX_VERTEX_ATTRIBS = 16;
+
+    // Tri-state of a vertex attribute array or capability.
+    private static final byte UNKNOWN = 0;
+    private static final byte ENABLED = 1;
+    private static final byte DISABLED = 2;
+
+    private static final int NO_PROGRAM_STATE = -1;
+
+    /** Uniform values last uploaded to one program, indexed by location. */
+    private static class ProgramState {
+        final int handle;
+        float[][] uniforms = new float[8][];
+
+        ProgramState(int handle) {
+            this.handle = handle;
+        }
+
+        float[] uniform(int location, int size) {
+            if (location >= uniforms.length) {
+                float[][] grown = new float[Math.max(location + 1, uniforms.length * 2)][];
+                System.arraycopy(uniforms, 0, grown, 0, uniforms.length);
+                uniforms = grown;
+            }
+            float[] value = uniforms[location];
+            if (value == null || value.length != size) {
+                value = new float[size];
+                uniforms[location] = value;
+                // A fresh entry never matches, so the first upload goes through.
+                value[0] = Float.NaN;
+            }
+            return value;
+        }
+
+        void forget() {
+            for (int i = 0; i < uniforms.length; i++) {
+                uniforms[i] = null;
+            }
+        }
+    }
+
+    private final Gl mGl;
+
+    // Shadowed state; see invalidate() for the unknown values.
+    private boolean mProgramKnown;
+    private int mProgram;
+    private ProgramState mProgramState;
+    private ProgramState[] mProgramStates = new ProgramState[4];
+    private int mProgramStateCount = 0;
+
+    private int mArrayBuffer;
+    private int mElementArrayBuffer;
+
+    private final byte[] mAttribArrays = new byte[MAX_VERTEX_ATTRIBS];
+    // Buffer pointer per attribute: {buffer, size, type, normalized, stride,
+    // offset}, buffer -1 if unknown.
+    private final int[][] mAttribPointers = new int[MAX_VERTEX_ATTRIBS][6];
+    private final int[] mAttribDivisors = new int[MAX_VERTEX_ATTRIBS];
+
+    private float mLineWidth;
+    private byte mBlend;
+    private byte mDepthTest;
+    private int mBlendSrc;
+    private int mBlendDst;
+    private final int[] mViewport = new int[4];
+    private final float[] mClearColor = new float[4];
+
+    // Bytes per vertex read from client memory by each attribute, 0 for
+    // buffer objects.
+    private final int[] mClientBytesPerVertex = new int[MAX_VERTEX_ATTRIBS];
+
+    private int mIssuedCount = 0;
+    private int mSkippedCount = 0;
+    private int mDrawCallCount = 0;
+    private long mUploadedBytes = 0;
+
+    /**
+     * @param gl - Receives every call that changes something.
+     */
+    public GlStateCache(Gl gl) {
+        mGl = gl;
+        invalidate();
+    }
+
+    /**
+     * Forgets all shadowed state, so the next call of every kind is issued.
+     * Call this once a new EGL context is current.
+     */
+    public void invalidate() {
+        mProgramKnown = false;
+        mProgram = 0;
+        mProgramState = null;
+        for (int i = 0; i < mProgramStateCount; i++) {
+            mProgramStates[i] = null;
+        }
+        mProgramStateCount = 0;
+        mArrayBuffer = -1;
+        mElementArrayBuffer = -1;
+        for (int i = 0; i < MAX_VERTEX_ATTRIBS; i++) {
+            mAttribArrays[i] = UNKNOWN;
+            mAttribPointers[i][0] = -1;
+            mAttribDivisors[i] = -1;
+            mClientBytesPerVertex[i] = 0;
+        }
+        mLineWidth = Float.NaN;
+        mBlend = UNKNOWN;
+        mDepthTest = UNKNOWN;
+        mBlendSrc = -1;
+        mBlendDst = -1;
+        mViewport[2] = -1;
+        mClearColor[0] = Float.NaN;
+    }
+
+    /**
+     * Returns the number of state changes forwarded since the last
+     * {@link #resetCounters()}.
+     */
+    public int getIssuedCount() {
+        return mIssuedCount;
+    }
+
+    /**
+     * Returns the number of state changes dropped as redundant since the last
+     * {@link #resetCounters()}.
+     */
+    public int getSkippedCount() {
+        return mSkippedCount;
+    }
+
+    /**
+     * Returns the number of draw calls since the last {@link #resetCounters()}.
+     */
+    public int getDrawCallCount() {
+        return mDrawCallCount;
+    }
+
+    /**
+     * Returns the bytes handed to the driver since the last
+     * {@link #resetCounters()}: buffer data, uniforms that changed, and
+     * client-side vertex arrays read by draw calls.
+     */
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    /**
+     * Zeroes all counters, e.g. at the start of a frame.
+     */
+    public void resetCounters() {
+        mIssuedCount = 0;
+        mSkippedCount = 0;
+        mDrawCallCount = 0;
+        mUploadedBytes = 0;
+    }
+
+    // State
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        if (mClearColor[0] == red && mClearColor[1] == green
+                && mClearColor[2] == blue && mClearColor[3] == alpha) {
+            mSkippedCount++;
+            return;
+        }
+        mClearColor[0] = red;
+        mClearColor[1] = green;
+        mClearColor[2] = blue;
+        mClearColor[3] = alpha;
+        mIssuedCount++;
+        mGl.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void glClear(int mask) {
+        mGl.glClear(mask);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        if (mViewport[0] == x && mViewport[1] == y
+                && mViewport[2] == width && mViewport[3] == height) {
+            mSkippedCount++;
+            return;
+        }
+        mViewport[0] = x;
+        mViewport[1] = y;
+        mViewport[2] = width;
+        mViewport[3] = height;
+        mIssuedCount++;
+        mGl.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void glLineWidth(float width) {
+        if (mLineWidth == width) {
+            mSkippedCount++;
+            return;
+        }
+        mLineWidth = width;
+        mIssuedCount++;
+        mGl.glLineWidth(width);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        setCapability(cap, ENABLED);
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        setCapability(cap, DISABLED);
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        if (mBlendSrc == sfactor && mBlendDst == dfactor) {
+            mSkippedCount++;
+            return;
+        }
+        mBlendSrc = sfactor;
+        mBlendDst = dfactor;
+        mIssuedCount++;
+        mGl.glBlendFunc(sfactor, dfactor);
+    }
+
+    @Override
+    public int glGetError() {
+        return mGl.glGetError();
+    }
+
+    @Override
+    public String glGetString(int name) {
+        return mGl.glGetString(name);
+    }
+
+    // Shaders and programs
+
+    @Override
+    public int glCreateShader(int type) {
+        return mGl.glCreateShader(type);
+    }
+
+    @Override
+    public void glShaderSource(int shader, String source) {
+        mGl.glShaderSource(shader, source);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        mGl.glCompileShader(shader);
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        mGl.glDeleteShader(shader);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        return mGl.glCreateProgram();
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        mGl.glAttachShader(program, shader);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        // Linking resets every uniform of the program to zero.
+        int index = findProgramState(program);
+        if (index != NO_PROGRAM_STATE) {
+            mProgramStates[index].forget();
+        }
+        mGl.glLinkProgram(program);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        mGl.glGetProgramiv(program, pname, params, offset);
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        return mGl.glGetProgramInfoLog(program);
+    }
+
+    @Override
+    public String glGetActiveAttrib(int program, int index,
+                                    int[] size, int sizeOffset, int[] type, int typeOffset) {
+        return mGl.glGetActiveAttrib(program, index, size, sizeOffset, type, typeOffset);
+    }
+
+    @Override
+    public String glGetActiveUniform(int program, int index,
+                                     int[] size, int sizeOffset, int[] type, int typeOffset) {
+        return mGl.glGetActiveUniform(program, index, size, sizeOffset, type, typeOffset);
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        return mGl.glGetAttribLocation(program, name);
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        return mGl.glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        if (mProgramKnown && mProgram == program) {
+            mSkippedCount++;
+            return;
+        }
+        mProgramKnown = true;
+        mProgram = program;
+        mProgramState = program != 0 ? programState(program) : null;
+        mIssuedCount++;
+        mGl.glUseProgram(program);
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        int index = findProgramState(program);
+        if (index != NO_PROGRAM_STATE) {
+            mProgramStates[index] = mProgramStates[--mProgramStateCount];
+            mProgramStates[mProgramStateCount] = null;
+        }
+        if (mProgram == program) {
+            // The handle may be reused by the next glCreateProgram.
+            mProgramKnown = false;
+            mProgramState = null;
+        }
+        mGl.glDeleteProgram(program);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        if (isUniformUnchanged(location, count, 4, v, offset)) {
+            mSkippedCount++;
+            return;
+        }
+        mIssuedCount++;
+        mUploadedBytes += count * 4 * 4;
+        mGl.glUniform4fv(location, count, v, offset);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        if (!transpose && isUniformUnchanged(location, count, 16, value, offset)) {
+            mSkippedCount++;
+            return;
+        }
+        mIssuedCount++;
+        mUploadedBytes += count * 16 * 4;
+        mGl.glUniformMatrix4fv(location, count, transpose, value, offset);
+    }
+
+    // Buffers and vertex attributes
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        mGl.glGenBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        // Deleting a bound buffer binds 0 in its place.
+        for (int i = 0; i < n; i++) {
+            int buffer = buffers[offset + i];
+            if (mArrayBuffer == buffer) {
+                mArrayBuffer = 0;
+            }
+            if (mElementArrayBuffer == buffer) {
+                mElementArrayBuffer = 0;
+            }
+            for (int index = 0; index < MAX_VERTEX_ATTRIBS; index++) {
+                if (mAttribPointers[index][0] == buffer) {
+                    mAttribPointers[index][0] = -1;
+                }
+            }
+        }
+        mGl.glDeleteBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        if (target == GLES20.GL_ARRAY_BUFFER) {
+            if (mArrayBuffer == buffer) {
+                mSkippedCount++;
+                return;
+            }
+            mArrayBuffer = buffer;
+        } else if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER) {
+            if (mElementArrayBuffer == buffer) {
+                mSkippedCount++;
+                return;
+            }
+            mElementArrayBuffer = buffer;
+        }
+        mIssuedCount++;
+        mGl.glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        if (data != null) {
+            mUploadedBytes += size;
+        }
+        mGl.glBufferData(target, size, data, usage);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        mUploadedBytes += size;
+        mGl.glBufferSubData(target, offset, size, data);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        if (index >= 0 && index < MAX_VERTEX_ATTRIBS) {
+            if (mAttribArrays[index] == ENABLED) {
+                mSkippedCount++;
+                return;
+            }
+            mAttribArrays[index] = ENABLED;
+        }
+        mIssuedCount++;
+        mGl.glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        if (index >= 0 && index < MAX_VERTEX_ATTRIBS) {
+            if (mAttribArrays[index] == DISABLED) {
+                mSkippedCount++;
+                return;
+            }
+            mAttribArrays[index] = DISABLED;
+        }
+        mIssuedCount++;
+        mGl.glDisableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                                      int stride, int offset) {
+        if (index >= 0 && index < MAX_VERTEX_ATTRIBS) {
+            mClientBytesPerVertex[index] = 0;
+        }
+        if (index >= 0 && index < MAX_VERTEX_ATTRIBS && mArrayBuffer != -1) {
+            int[] pointer = mAttribPointers[index];
+            int normalizedBit = normalized ? 1 : 0;
+            if (pointer[0] == mArrayBuffer && pointer[1] == size && pointer[2] == type
+                    && pointer[3] == normalizedBit && pointer[4] == stride && pointer[5] == offset) {
+                mSkippedCount++;
+                return;
+            }
+            pointer[0] = mArrayBuffer;
+            pointer[1] = size;
+            pointer[2] = type;
+            pointer[3] = normalizedBit;
+            pointer[4] = stride;
+            pointer[5] = offset;
+        }
+        mIssuedCount++;
+        mGl.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                                      int stride, Buffer pointer) {
+        // Client-side arrays are read from the buffer's position at call time,
+        // so they are always forwarded.
+        if (index >= 0 && index < MAX_VERTEX_ATTRIBS) {
+            mAttribPointers[index][0] = -1;
+            // Every attribute used here is a float.
+            mClientBytesPerVertex[index] = stride != 0 ? stride : size * 4;
+        }
+        mIssuedCount++;
+        mGl.glVertexAttribPointer(index, size, type, normalized, stride, pointer);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        if (index >= 0 && index < MAX_VERTEX_ATTRIBS) {
+            if (mAttribDivisors[index] == divisor) {
+                mSkippedCount++;
+                return;
+            }
+            mAttribDivisors[index] = divisor;
+        }
+        mIssuedCount++;
+        mGl.glVertexAttribDivisor(index, divisor);
+    }
+
+    // Drawing
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        countDraw(count);
+        mGl.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        countDraw(count);
+        mGl.glDrawElements(mode, count, type, offset);
+    }
+
+    @Override
+    public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        countDraw(count);
+        mGl.glDrawArraysInstanced(mode, first, count, instanceCount);
+    }
+
+    // Synchronization
+
+    @Override
+    public long glFenceSync(int condition, int flags) {
+        return mGl.glFenceSync(condition, flags);
+    }
+
+    @Override
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        return mGl.glClientWaitSync(sync, flags, timeout);
+    }
+
+    @Override
+    public void glDeleteSync(long sync) {
+        mGl.glDeleteSync(sync);
+    }
+
+    private void countDraw(int vertexCount) {
+        mDrawCallCount++;
+        for (int i = 0; i < MAX_VERTEX_ATTRIBS; i++) {
+            if (mAttribArrays[i] == ENABLED) {
+                mUploadedBytes += (long) mClientBytesPerVertex[i] * vertexCount;
+            }
+        }
+    }
+
+    /**
+     * Enables or disables a capability unless it already is. Only blending
+     * and depth testing are tracked.
+     */
+    private void setCapability(int cap, byte state) {
+        byte current;
+        if (cap == GLES20.GL_BLEND) {
+            current = mBlend;
+            mBlend = state;
+        } else if (cap == GLES20.GL_DEPTH_TEST) {
+            current = mDepthTest;
+            mDepthTest = state;
+        } else {
+            current = UNKNOWN;
+        }
+        if (current == state) {
+            mSkippedCount++;
+            return;
+        }
+        mIssuedCount++;
+        if (state == ENABLED) {
+            mGl.glEnable(cap);
+        } else {
+            mGl.glDisable(cap);
+        }
+    }
+
+    /**
+     * Compares a single-element uniform upload with the value the current
+     * program already holds, and remembers it if it differs. Arrays are never
+     * cached.
+     */
+    private boolean isUniformUnchanged(int location, int count, int size, float[] v, int offset) {
+        if (location < 0) {
+            // GL silently ignores location -1; so can we.
+            return mProgramState != null;
+        }
+        if (mProgramState == null) {
+            return false;
+        }
+        if (count != 1) {
+            if (location < mProgramState.uniforms.length) {
+                mProgramState.uniforms[location] = null;
+            }
+            return false;
+        }
+        float[] cached = mProgramState.uniform(location, size);
+        boolean unchanged = true;
+        for (int i = 0; i < size; i++) {
+            if (cached[i] != v[offset + i]) {
+                unchanged = false;
+                break;
+            }
+        }
+        if (!unchanged) {
+            System.arraycopy(v, offset, cached, 0, size);
+        }
+        return unchanged;
+    }
+
+    private int findProgramState(int program) {
+        for (int i = 0; i < mProgramStateCount; i++) {
+            if (mProgramStates[i].handle == program) {
+                return i;
+            }
+        }
+        return NO_PROGRAM_STATE;
+    }
+
+    private ProgramState programState(int program) {
+        int index = findProgramState(program);
+        if (index != NO_PROGRAM_STATE) {
+            return mProgramStates[index];
+        }
+        if (mProgramStateCount == mProgramStates.length) {
+            ProgramState[] grown = new ProgramState[mProgramStates.length * 2];
+            System.arraycopy(mProgramStates, 0, grown, 0, mProgramStateCount);
+            mProgramStates = grown;
+        }
+        ProgramState state = new ProgramState(program);
+        mProgramStates[mProgramStateCount++] = state;
+        return state;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+
+/**
+ * A vertex or index buffer object living in GPU memory.
+ *
+ * <p>Instances are handed out by {@link GpuBufferManager}. The client-side copy
+ * of the data is kept so the buffer can be uploaded again after EGL context
+ * loss; shapes keep a reference to this object rather than to the raw handle
+ * for the same reason.</p>
+ */
+public class GpuBuffer {
+
+    private final Gl mGl;
+    private final String mName;
+    private final int mTarget;
+    private final int mUsage;
+    private final Buffer mData;
+    private final int mSizeInBytes;
+    private int mHandle;
+    private int mReferenceCount;
+
+    GpuBuffer(Gl gl, String name, int target, int usage, Buffer data, int sizeInBytes) {
+        mGl = gl;
+        mName = name;
+        mTarget = target;
+        mUsage = usage;
+        mData = data;
+        mSizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Returns the OpenGL buffer handle for the current EGL context.
+     */
+    public int getHandle() {
+        return mHandle;
+    }
+
+    /**
+     * Returns {@link GLES20#GL_ARRAY_BUFFER} or {@link GLES20#GL_ELEMENT_ARRAY_BUFFER}.
+     */
+    public int getTarget() {
+        return mTarget;
+    }
+
+    public int getSizeInBytes() {
+        return mSizeInBytes;
+    }
+
+    /**
+     * Binds this buffer to its target.
+     */
+    public void bind() {
+        mGl.glBindBuffer(mTarget, mHandle);
+    }
+
+    String getName() {
+        return mName;
+    }
+
+    int retain() {
+        return ++mReferenceCount;
+    }
+
+    int release() {
+        return --mReferenceCount;
+    }
+
+    /**
+     * Generates a new buffer object and uploads the client-side data into it.
+     * Any handle from a previous EGL context is simply forgotten, since it died
+     * with that context.
+     */
+    void upload() {
+        final int[] handle = new int[1];
+        mGl.glGenBuffers(1, handle, 0);
+        mHandle = handle[0];
+
+        mData.position(0);
+        mGl.glBindBuffer(mTarget, mHandle);
+        mGl.glBufferData(mTarget, mSizeInBytes, mData, mUsage);
+        mGl.glBindBuffer(mTarget, 0);
+        MyGLRenderer.checkGlError(mGl, "glBufferData");
+    }
+
+    /**
+     * Deletes the buffer object from the current EGL context.
+     */
+    void delete() {
+        if (mHandle != 0) {
+            mGl.glDeleteBuffers(1, new int[]{mHandle}, 0);
+            mHandle = 0;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+
+/**
+ * Owns the static geometry uploaded to GPU buffer objects.
+ *
+ * <p>Immutable vertex and index arrays are uploaded once with
+ * {@link GLES20#GL_STATIC_DRAW}, so draws only reference offsets into buffers
+ * that already live on the GPU instead of streaming client-side arrays every
+ * frame. Buffers are shared by name and reference counted, in the same way as
+ * {@link ShaderProgramCache} shares programs. All methods must be called on the
+ * GL thread.</p>
+ */
+public class GpuBufferManager {
+
+    private final Gl mGl;
+    private final HashMap<String, GpuBuffer> mBuffers = new HashMap<>();
+
+    public GpuBufferManager(Gl gl) {
+        mGl = gl;
+    }
+
+    /**
+     * Returns the vertex buffer registered under the given name, uploading the
+     * data if no shape holds it yet. Every call must be balanced by a call to
+     * {@link #release(GpuBuffer)}.
+     *
+     * @param name - Unique name of the geometry, e.g. "cuboid.lines".
+     * @param data - Vertex data. Only read when the buffer is created.
+     * @return - The shared buffer.
+     */
+    public GpuBuffer acquireStatic(String name, float[] data) {
+        GpuBuffer buffer = mBuffers.get(name);
+        if (buffer == null) {
+            ByteBuffer bb = ByteBuffer.allocateDirect(
+                    // (# of coordinate values * 4 bytes per float)
+                    data.length * 4);
+            bb.order(ByteOrder.nativeOrder());
+            FloatBuffer floatBuffer = bb.asFloatBuffer();
+            floatBuffer.put(data);
+            floatBuffer.position(0);
+            buffer = create(name, GLES20.GL_ARRAY_BUFFER, floatBuffer, data.length * 4);
+        }
+        buffer.retain();
+        return buffer;
+    }
+
+    /**
+     * Returns the vertex buffer registered under the given name, uploading the
+     * data as it is if no shape holds it yet, e.g. a view onto a mapped
+     * {@link SceneFile}. Every call must be balanced by a call to
+     * {@link #release(GpuBuffer)}.
+     *
+     * @param name - Unique name of the geometry, e.g. "scene.lines".
+     * @param data - Direct buffer in native order, up to its limit. Kept for
+     *             uploading again after context loss.
+     * @return - The shared buffer.
+     */
+    public GpuBuffer acquireStatic(String name, FloatBuffer data) {
+        GpuBuffer buffer = mBuffers.get(name);
+        if (buffer == null) {
+            buffer = create(name, GLES20.GL_ARRAY_BUFFER, data, data.limit() * 4);
+        }
+        buffer.retain();
+        return buffer;
+    }
+
+    /**
+     * Returns the index buffer registered under the given name, uploading the
+     * data if no shape holds it yet. Every call must be balanced by a call to
+     * {@link #release(GpuBuffer)}.
+     *
+     * @param name - Unique name of the geometry, e.g. "square.indices".
+     * @param data - Index data. Only read when the buffer is created.
+     * @return - The shared buffer.
+     */
+    public GpuBuffer acquireStatic(String name, short[] data) {
+        GpuBuffer buffer = mBuffers.get(name);
+        if (buffer == null) {
+            ByteBuffer bb = ByteBuffer.allocateDirect(
+                    // (# of index values * 2 bytes per short)
+                    data.length * 2);
+            bb.order(ByteOrder.nativeOrder());
+            ShortBuffer shortBuffer = bb.asShortBuffer();
+            shortBuffer.put(data);
+            shortBuffer.position(0);
+            buffer = create(name, GLES20.GL_ELEMENT_ARRAY_BUFFER, shortBuffer, data.length * 2);
+        }
+        buffer.retain();
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer obtained from one of the acquire methods. The buffer
+     * object is deleted once no shape references it anymore.
+     */
+    public void release(GpuBuffer buffer) {
+        if (buffer.release() == 0) {
+            mBuffers.remove(buffer.getName());
+            buffer.delete();
+        }
+    }
+
+    /**
+     * Re-creates and re-uploads every live buffer. Call this from
+     * {@link MyGLRenderer#onSurfaceCreated} since all buffer objects are lost
+     * together with the EGL context.
+     */
+    public void onSurfaceCreated() {
+        for (GpuBuffer buffer : mBuffers.values()) {
+            buffer.upload();
+        }
+    }
+
+    /**
+     * Returns the number of live buffers.
+     */
+    public int size() {
+        return mBuffers.size();
+    }
+
+    private GpuBuffer create(String name, int target, Buffer data, int sizeInBytes) {
+        GpuBuffer buffer = new GpuBuffer(mGl, name, target, GLES20.GL_STATIC_DRAW, data, sizeInBytes);
+        buffer.upload();
+        mBuffers.put(name, buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Map from int keys to int values without boxing.
+ *
+ * <p>Open addressing with linear probing in two parallel arrays, kept at most
+ * half full. Removal shifts the following entries back instead of leaving
+ * tombstones, so lookups stay short however often keys come and go. Nothing is
+ * allocated unless the map has to grow beyond its expected size.</p>
+ */
+public class IntIntMap {
+
+    /** Returned by {@link #get} and {@link #remove} for a missing key. */
+    public static final int NO_VALUE = -1;
+
+    // Marks a free slot, so it cannot be used as a key.
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] mKeys;
+    private int[] mValues;
+    private int mMask;
+    private int mShift;
+    private int mSize = 0;
+
+    /**
+     * @param expectedSize - Number of entries the map holds without growing.
+     */
+    public IntIntMap(int expectedSize) {
+        int capacity = 2;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the value of a key, or {@link #NO_VALUE}.
+     */
+    public int get(int key) {
+        int slot = find(key);
+        return mKeys[slot] == key ? mValues[slot] : NO_VALUE;
+    }
+
+    /**
+     * Returns whether the map holds a key.
+     */
+    public boolean containsKey(int key) {
+        return mKeys[find(key)] == key;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key - Any int except {@link Integer#MIN_VALUE}.
+     * @param value - The new value.
+     * @return - The previous value, or {@link #NO_VALUE}.
+     */
+    public int put(int key, int value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE can't be a key");
+        }
+        int slot = find(key);
+        if (mKeys[slot] == key) {
+            int previous = mValues[slot];
+            mValues[slot] = value;
+            return previous;
+        }
+        if ((mSize + 1) * 2 > mKeys.length) {
+            grow();
+            slot = find(key);
+        }
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        mSize++;
+        return NO_VALUE;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @return - The value it had, or {@link #NO_VALUE}.
+     */
+    public int remove(int key) {
+        int slot = find(key);
+        if (mKeys[slot] != key) {
+            return NO_VALUE;
+        }
+        int value = mValues[slot];
+        // Move back every entry of the probe chain that would no longer be
+        // found across the hole.
+        int hole = slot;
+        int next = (hole + 1) & mMask;
+        while (mKeys[next] != FREE) {
+            int home = hash(mKeys[next]);
+            if (((next - home) & mMask) >= ((next - hole) & mMask)) {
+                mKeys[hole] = mKeys[next];
+                mValues[hole] = mValues[next];
+                hole = next;
+            }
+            next = (next + 1) & mMask;
+        }
+        mKeys[hole] = FREE;
+        mSize--;
+        return value;
+    }
+
+    /**
+     * Returns the number of keys.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Removes every key.
+     */
+    public void clear() {
+        for (int i = 0; i < mKeys.length; i++) {
+            mKeys[i] = FREE;
+        }
+        mSize = 0;
+    }
+
+    /**
+     * Makes this map a copy of another, reusing its arrays when they are the
+     * same size.
+     */
+    public void copyFrom(IntIntMap other) {
+        if (mKeys.length != other.mKeys.length) {
+            mKeys = new int[other.mKeys.length];
+            mValues = new int[other.mValues.length];
+            mMask = other.mMask;
+            mShift = other.mShift;
+        }
+        System.arraycopy(other.mKeys, 0, mKeys, 0, mKeys.length);
+        System.arraycopy(other.mValues, 0, mValues, 0, mValues.length);
+        mSize = other.mSize;
+    }
+
+    /**
+     * Returns the slot holding the key, or the free slot where it would go.
+     */
+    private int find(int key) {
+        int slot = hash(key);
+        while (mKeys[slot] != FREE && mKeys[slot] != key) {
+            slot = (slot + 1) & mMask;
+        }
+        return slot;
+    }
+
+    private int hash(int key) {
+        // Fibonacci hashing spreads sequential device ids over the table.
+        return (key * 0x9E3779B9) >>> mShift;
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new int[capacity];
+        mValues = new int[capacity];
+        mMask = capacity - 1;
+        mShift = Integer.numberOfLeadingZeros(capacity) + 1;
+        for (int i = 0; i < capacity; i++) {
+            mKeys[i] = FREE;
+        }
+    }
+
+    private void grow() {
+        int[] keys = mKeys;
+        int[] values = mValues;
+        allocate(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                int slot = find(keys[i]);
+                mKeys[slot] = keys[i];
+                mValues[slot] = values[i];
+            }
+        }
+    }
+}
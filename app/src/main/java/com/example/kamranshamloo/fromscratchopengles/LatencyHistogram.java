@@ -0,0 +1,152 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed relative precision.
+ *
+ * <p>Buckets are laid out like an HDR histogram: every power of two is split
+ * into {@link #SUB_BUCKETS} equal buckets, so a value is recorded to within
+ * about 3% however large it is, from nanoseconds up to minutes, in a fixed
+ * array of counts. Recording is a few shifts and one atomic increment, and
+ * never allocates.</p>
+ *
+ * <p>One thread records while any other may read or drain the counts without
+ * locking: every count is taken atomically, so a value recorded while a
+ * drain runs is counted in either this drain or the next one.</p>
+ */
+public class LatencyHistogram {
+
+    // Values below SUB_BUCKETS get a bucket each; above, every power of two
+    // gets SUB_BUCKETS buckets.
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Larger values, about 18 minutes, are recorded as this.
+    private static final int MAX_EXPONENT = 40;
+    static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private static final int BUCKET_COUNT = bucketOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos - Negative values count as 0.
+     */
+    public void record(long nanos) {
+        final long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        mCounts.incrementAndGet(bucketOf(value));
+        // Only the recording thread raises it, so no compare-and-set loop.
+        if (value > mMax.get()) {
+            mMax.set(value);
+        }
+    }
+
+    /**
+     * Copies the counts into a snapshot and zeroes them.
+     */
+    public Snapshot drain() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mCounts.getAndSet(i, 0);
+        }
+        return new Snapshot(counts, mMax.getAndSet(0));
+    }
+
+    /**
+     * Copies the counts into a snapshot, leaving them as they are.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mCounts.get(i);
+        }
+        return new Snapshot(counts, mMax.get());
+    }
+
+    /**
+     * The counts of a histogram at one point in time.
+     */
+    public static class Snapshot {
+
+        private final long[] mCounts;
+        private final long mMax;
+        private final long mTotal;
+
+        Snapshot(long[] counts, long max) {
+            mCounts = counts;
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    total += counts[i];
+                    // The maximum may be missing a value recorded during a drain.
+                    max = Math.max(max, lowestInBucket(i));
+                }
+            }
+            mTotal = total;
+            mMax = max;
+        }
+
+        /**
+         * Returns the number of values recorded.
+         */
+        public long getCount() {
+            return mTotal;
+        }
+
+        /**
+         * Returns the largest value recorded, or 0.
+         */
+        public long getMax() {
+            return mMax;
+        }
+
+        /**
+         * Returns a value at least as large as the given fraction of all
+         * values, rounded up to the end of its bucket.
+         *
+         * @param fraction - 0.5 for the median, 0.99 for the 99th percentile.
+         * @return - The percentile, or 0 if nothing was recorded.
+         */
+        public long getPercentile(double fraction) {
+            if (mTotal == 0) {
+                return 0;
+            }
+            final long rank = Math.max((long) Math.ceil(fraction * mTotal), 1);
+            long seen = 0;
+            for (int i = 0; i < mCounts.length; i++) {
+                seen += mCounts[i];
+                if (seen >= rank) {
+                    // Never more than was actually recorded.
+                    return Math.min(highestInBucket(i), mMax);
+                }
+            }
+            return mMax;
+        }
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // The top SUB_BUCKET_BITS + 1 bits of the value pick the bucket.
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long lowestInBucket(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    static long highestInBucket(int bucket) {
+        return lowestInBucket(bucket + 1) - 1;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Per-frame pool of 4x4 scratch matrices for the render thread.
+ *
+ * <p>The renderer resets the arena at the start of every frame and hands it to
+ * each {@code draw()}, which takes the temporaries it needs with
+ * {@link #obtain()} instead of allocating them. Matrices are only valid until
+ * the next {@link #reset()}. The arena grows when a frame needs more matrices
+ * than ever before and counts those allocations, so the render loop can be
+ * checked to allocate nothing in steady state.</p>
+ */
+public class MatrixArena {
+
+    private float[][] mMatrices;
+    private int mUsed = 0;
+    private int mHighWaterMark = 0;
+    private int mAllocationCount = 0;
+
+    /**
+     * @param initialCapacity - Number of matrices to preallocate.
+     */
+    public MatrixArena(int initialCapacity) {
+        mMatrices = new float[Math.max(1, initialCapacity)][];
+        for (int i = 0; i < mMatrices.length; i++) {
+            mMatrices[i] = new float[16];
+        }
+    }
+
+    /**
+     * Makes every matrix available again. Call once at the start of a frame.
+     */
+    public void reset() {
+        mUsed = 0;
+    }
+
+    /**
+     * Returns a scratch matrix with undefined content, valid until the next
+     * {@link #reset()}.
+     */
+    public float[] obtain() {
+        if (mUsed == mMatrices.length) {
+            float[][] matrices = new float[mMatrices.length * 2][];
+            System.arraycopy(mMatrices, 0, matrices, 0, mMatrices.length);
+            for (int i = mMatrices.length; i < matrices.length; i++) {
+                matrices[i] = new float[16];
+                mAllocationCount++;
+            }
+            mMatrices = matrices;
+        }
+        float[] matrix = mMatrices[mUsed++];
+        if (mUsed > mHighWaterMark) {
+            mHighWaterMark = mUsed;
+        }
+        return matrix;
+    }
+
+    /**
+     * Returns the number of matrices handed out since the last {@link #reset()}.
+     */
+    public int getUsed() {
+        return mUsed;
+    }
+
+    /**
+     * Returns the largest number of matrices any frame has used.
+     */
+    public int getHighWaterMark() {
+        return mHighWaterMark;
+    }
+
+    /**
+     * Returns how many matrices had to be allocated after construction because
+     * a frame outgrew the arena. Stays constant once the render loop is in
+     * steady state.
+     */
+    public int getAllocationCount() {
+        return mAllocationCount;
+    }
+}
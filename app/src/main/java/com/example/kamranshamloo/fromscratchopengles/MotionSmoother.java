@@ -0,0 +1,229 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Turns irregular device position samples into smooth motion at the display
+ * rate.
+ *
+ * <p>Every device keeps its last {@link #SAMPLES_PER_DEVICE} timestamped
+ * samples in a ring. Positions are evaluated a fixed delay behind the newest
+ * sample time, so there usually are samples on both sides to interpolate
+ * between. When samples are late, the device keeps moving with the velocity
+ * of its last two samples for a limited time, then stops there.</p>
+ *
+ * <p>Samples carry the sender's clock, which is mapped to the local one with
+ * the smallest transit offset seen, since the fastest datagram is the one
+ * least delayed by jitter. The offset may grow slowly to follow clock drift.</p>
+ *
+ * <p>All state is in primitive arrays of a fixed capacity and
+ * {@link #update(double)} evaluates every device in one pass. Neither adding
+ * samples nor updating allocates.</p>
+ */
+public class MotionSmoother {
+
+    /** Samples kept per device. */
+    public static final int SAMPLES_PER_DEVICE = 4;
+
+    // How fast the clock offset may grow, in seconds per second.
+    private static final double OFFSET_DRIFT = 0.01;
+
+    private final float mDelay;
+    private final float mMaxExtrapolation;
+
+    // Sample rings, SAMPLES_PER_DEVICE entries per device.
+    private final double[] mTimes;
+    private final float[] mSampleX;
+    private final float[] mSampleY;
+    private final float[] mSampleZ;
+    private final int[] mNewest;
+    private final int[] mCount;
+
+    // Per device.
+    private final int[] mIds;
+    private final float[] mX;
+    private final float[] mY;
+    private final float[] mZ;
+    private final IntIntMap mIndex;
+    private int mSize = 0;
+
+    // Maps the sender's clock to the local one.
+    private boolean mHasBase = false;
+    private long mBaseTimestamp;
+    private double mOffset;
+    private double mOffsetUpdated;
+
+    /**
+     * @param capacity - The most devices smoothed.
+     * @param delay - Seconds the output trails the newest samples; a bit more
+     *              than the usual interval between samples.
+     * @param maxExtrapolation - Seconds a device keeps moving on its own once
+     *                         samples run out.
+     */
+    public MotionSmoother(int capacity, float delay, float maxExtrapolation) {
+        mDelay = delay;
+        mMaxExtrapolation = maxExtrapolation;
+        mTimes = new double[capacity * SAMPLES_PER_DEVICE];
+        mSampleX = new float[capacity * SAMPLES_PER_DEVICE];
+        mSampleY = new float[capacity * SAMPLES_PER_DEVICE];
+        mSampleZ = new float[capacity * SAMPLES_PER_DEVICE];
+        mNewest = new int[capacity];
+        mCount = new int[capacity];
+        mIds = new int[capacity];
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mZ = new float[capacity];
+        mIndex = new IntIntMap(capacity);
+    }
+
+    /**
+     * Adds a position sample. Samples not newer than the device's newest one
+     * are ignored.
+     *
+     * @param id - Device id, any int except {@link Integer#MIN_VALUE}.
+     * @param timestamp - Sample time in nanoseconds on the sender's clock.
+     * @param now - Local time in seconds, from the same clock as {@link #update}.
+     * @return - False if the device is new and the smoother is full.
+     */
+    public boolean addSample(int id, long timestamp, float x, float y, float z, double now) {
+        if (!mHasBase) {
+            // Seconds since the first sample keep full double precision.
+            mHasBase = true;
+            mBaseTimestamp = timestamp;
+            mOffset = now;
+            mOffsetUpdated = now;
+        }
+        double time = (timestamp - mBaseTimestamp) * 1e-9;
+        updateOffset(now - time, now);
+
+        int device = mIndex.get(id);
+        if (device == IntIntMap.NO_VALUE) {
+            if (mSize == mIds.length) {
+                return false;
+            }
+            device = mSize++;
+            mIndex.put(id, device);
+            mIds[device] = id;
+            mCount[device] = 0;
+            mNewest[device] = SAMPLES_PER_DEVICE - 1;
+        } else if (time <= mTimes[device * SAMPLES_PER_DEVICE + mNewest[device]]) {
+            return true;
+        }
+
+        int newest = (mNewest[device] + 1) % SAMPLES_PER_DEVICE;
+        int sample = device * SAMPLES_PER_DEVICE + newest;
+        mTimes[sample] = time;
+        mSampleX[sample] = x;
+        mSampleY[sample] = y;
+        mSampleZ[sample] = z;
+        mNewest[device] = newest;
+        mCount[device] = Math.min(mCount[device] + 1, SAMPLES_PER_DEVICE);
+        return true;
+    }
+
+    /**
+     * Evaluates the position of every device for a point in time.
+     *
+     * @param now - Local time in seconds.
+     * @return - True while any device is still moving, i.e. interpolating or
+     * extrapolating.
+     */
+    public boolean update(double now) {
+        final double renderTime = now - mOffset - mDelay;
+        boolean moving = false;
+        for (int device = 0; device < mSize; device++) {
+            moving |= evaluate(device, renderTime);
+        }
+        return moving;
+    }
+
+    /**
+     * Returns the number of devices, the valid length of the output arrays.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /** Returns the device ids, valid below {@link #size()}. */
+    public int[] getIds() {
+        return mIds;
+    }
+
+    /** Returns the x coordinates of the last {@link #update}, valid below {@link #size()}. */
+    public float[] getX() {
+        return mX;
+    }
+
+    /** Returns the y coordinates of the last {@link #update}, valid below {@link #size()}. */
+    public float[] getY() {
+        return mY;
+    }
+
+    /** Returns the z coordinates of the last {@link #update}, valid below {@link #size()}. */
+    public float[] getZ() {
+        return mZ;
+    }
+
+    private void updateOffset(double offset, double now) {
+        if (offset < mOffset) {
+            mOffset = offset;
+        } else {
+            // Let the offset creep up in case the clocks drift apart.
+            double allowed = Math.max(now - mOffsetUpdated, 0.0) * OFFSET_DRIFT;
+            mOffset = Math.min(offset, mOffset + allowed);
+        }
+        mOffsetUpdated = now;
+    }
+
+    /**
+     * Sets the output position of one device.
+     *
+     * @return - True if the device is not at rest.
+     */
+    private boolean evaluate(int device, double renderTime) {
+        final int base = device * SAMPLES_PER_DEVICE;
+        final int count = mCount[device];
+        int newer = mNewest[device];
+        int sample = base + newer;
+        if (count == 1) {
+            setOutput(device, sample);
+            return false;
+        }
+
+        if (renderTime >= mTimes[sample]) {
+            // Late: keep going with the last velocity for a while.
+            int previous = base + (newer + SAMPLES_PER_DEVICE - 1) % SAMPLES_PER_DEVICE;
+            double late = renderTime - mTimes[sample];
+            float t = (float) (Math.min(late, mMaxExtrapolation)
+                    / (mTimes[sample] - mTimes[previous]));
+            setOutput(device, previous, sample, 1.0f + t);
+            return late < mMaxExtrapolation;
+        }
+
+        // Walk back to the samples around the render time.
+        for (int i = 1; i < count; i++) {
+            int older = (newer + SAMPLES_PER_DEVICE - 1) % SAMPLES_PER_DEVICE;
+            double olderTime = mTimes[base + older];
+            if (renderTime >= olderTime) {
+                double newerTime = mTimes[base + newer];
+                float t = (float) ((renderTime - olderTime) / (newerTime - olderTime));
+                setOutput(device, base + older, base + newer, t);
+                return true;
+            }
+            newer = older;
+        }
+        // Before the oldest sample kept: wait there.
+        setOutput(device, base + newer);
+        return true;
+    }
+
+    private void setOutput(int device, int sample) {
+        mX[device] = mSampleX[sample];
+        mY[device] = mSampleY[sample];
+        mZ[device] = mSampleZ[sample];
+    }
+
+    private void setOutput(int device, int from, int to, float t) {
+        mX[device] = mSampleX[from] + (mSampleX[to] - mSampleX[from]) * t;
+        mY[device] = mSampleY[from] + (mSampleY[to] - mSampleY[from]) * t;
+        mZ[device] = mSampleZ[from] + (mSampleZ[to] - mSampleZ[from]) * t;
+    }
+}
@@ -1,9 +1,9 @@
 package com.example.kamranshamloo.fromscratchopengles;
 
 import android.opengl.GLES20;
-import android.opengl.Matrix;
+import android.opengl.GLSurfaceView;
 
-import java.util.ArrayList;
+import com.example.kamranshamloo.fromscratchopengles.math.Mat4;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -20,13 +20,20 @@ import javax.microedition.khronos.opengles.GL10;
  *   <li>{@link android.opengl.GLSurfaceView.Renderer#onSurfaceChanged}</li>
  * </ul>
  */
-public class MyGLRenderer implements MyGLSurfaceView.Renderer{
+public class MyGLRenderer implements GLSurfaceView.Renderer{
     private static final String TAG = "MyGLRenderer";
     //private Triangle mTriangle;
     private Square   mSquare;
     private Cuboid mCuboid;
-    private ArrayList<Puck> mPucks;
+    private final PuckStore mPucks = new PuckStore(16); // the live M2P pucks.
     private CuboidAnimation mCuboidAnimation;
+    private final Gl mGl;
+    private final GlStateCache mStateCache;
+    private final AnimationClock mClock;
+    private final ShaderProgramCache mProgramCache;
+    private final GpuBufferManager mBufferManager;
+    private final StreamingVertexBuffer mStreamingBuffer;
+    private final PuckBatchRenderer mPuckBatchRenderer;
 
     // mMVPMatrix is an abbreviation for "Model View Projection Matrix"
     private final float[] mMVPMatrix = new float[16];
@@ -34,53 +41,178 @@ public class MyGLRenderer implements MyGLSurfaceView.Renderer{
     private final float[] mViewMatrix = new float[16];
     private final float[] mRotationMatrix = new float[16];
 
-    /** A temporary matrix. */
-    private float[] mTemporaryMatrix = new float[16];
+    /**
+     * Ring of vertex buffers for the data uploaded every frame: sized for
+     * the build-up and a thousand merged pucks, three deep to stay clear of
+     * the frames the GPU is still drawing.
+     */
+    private static final int STREAMING_BUFFER_COUNT = 3;
+    private static final int STREAMING_BUFFER_SIZE = 512 * 1024;
+
+    /** Scratch matrices handed to the shapes, reused every frame. */
+    private final MatrixArena mMatrixArena = new MatrixArena(8);
+
+    /** Switches the view between continuous and on-demand rendering. */
+    private RenderScheduler mRenderScheduler;
+
+    /** Seconds an animated {@link #resetView()} takes to turn the room back. */
+    private static final float RESET_VIEW_DURATION = 0.5f;
 
-    /** Store the accumulated rotation. */
+    /** The accumulated rotation of the room. */
+    private final TrackballRotation mTrackball;
+
+    /** The accumulated rotation as a matrix, rebuilt once per frame. */
     private final float[] mAccumulatedRotation = new float[16];
 
-    /** Store the current rotation. */
-    private final float[] mCurrentRotation = new float[16];
     private final float[] mCurrentTranslation = new float[16];
 
     private volatile float mAngle = 0.0f;
 
 
 
-    private volatile float mAngleAroundZ = 0.0f;
-    public volatile float mDeltaX = -45.0f; // Initial angle (looks good for animation).
-    public volatile float mDeltaY = 0.0f;
+    // Gesture deltas handed over from the UI thread, drained once per frame.
+    private final RotationInputChannel mRotationInput = new RotationInputChannel();
+    private final float[] mRotationDeltas = new float[3];
+
+    // Clipping planes of the projection.
+    private static final float NEAR = 1.0f;
+    private static final float FAR = 1000.0f;
+
+    // Orders the draws of a frame by state and depth.
+    private final RenderQueue mRenderQueue;
+    private final float[] mEyeTransform = new float[16];
+    private final float[] mDepthPoint = new float[4];
+    private final float[] mDepthResult = new float[4];
+
+    // Live device positions, if any; see setPositionSource.
+    private volatile PositionExchange mPositionSource;
+
+    // Smooths the device positions; created on the GL thread once live data arrives.
+    private MotionSmoother mMotionSmoother;
+    private boolean mPucksMoving = false;
+
+    /** Seconds the pucks trail the newest device positions, to interpolate between them. */
+    private static final float MOTION_DELAY = 0.1f;
+
+    /** Seconds a puck keeps moving on its own when its device goes quiet. */
+    private static final float MAX_EXTRAPOLATION = 0.25f;
+
+    /** Edge length of the cells of the puck grid. */
+    private static final float GRID_CELL_SIZE = 0.25f;
+    /** Cells of the grids of large sites grow to keep it within this many. */
+    private static final int MAX_GRID_CELLS = 1 << 20;
+
+    // Finds pucks by position, over the room's -2..2 x -1..1 x -1..1 unless
+    // a scene or room says otherwise.
+    private PuckGrid mPuckGrid = new PuckGrid(-2, -1, -1, 2, 1, 1, GRID_CELL_SIZE, 16);
+
+    // The site shown, or null for the room below and demo pucks.
+    private SceneFile.Scene mScene;
+    // The rooms shown without a site.
+    private RoomMesh mRoom = RoomMesh.box(RoomMesh.DEFAULT_EXTENTS);
+
+    /** How close a touch has to come to a puck's center to pick it. */
+    private static final float PICK_RADIUS = 0.1f;
+
+    // Turns a touch into a ray through the room.
+    private final float[] mPickMatrix = new float[16];
+    private final float[] mPickNear = new float[4];
+    private final float[] mPickFar = new float[4];
+    private int mWidth = 1;
+    private int mHeight = 1;
+
+    // Phase timings and GL work of every frame.
+    private final FrameStats mFrameStats = new FrameStats();
+    // Allocations of every frame by phase; only set in debug builds and tests.
+    private AllocationTracker mAllocationTracker;
+
+    /**
+     * Creates a renderer issuing its GL calls to the given backend: an
+     * {@link AndroidGl} to draw with the OpenGL ES context of the GL thread,
+     * or a {@link RecordingGl} to run the render loop without a device.
+     *
+     * @param gl - Receives every GL call that changes something.
+     * @param clock - Times the animations.
+     */
+    public MyGLRenderer(Gl gl, AnimationClock clock) {
+        mStateCache = new GlStateCache(gl);
+        mGl = mStateCache;
+        mClock = clock;
+        mProgramCache = new ShaderProgramCache(mGl);
+        mBufferManager = new GpuBufferManager(mGl);
+        mStreamingBuffer = new StreamingVertexBuffer(mGl, STREAMING_BUFFER_COUNT,
+                STREAMING_BUFFER_SIZE);
+        mPuckBatchRenderer = new PuckBatchRenderer(mGl, mProgramCache, mBufferManager,
+                mStreamingBuffer);
+        mRenderQueue = new RenderQueue(mGl);
+        mTrackball = new TrackballRotation(clock);
+        mRotationInput.addDrag(-45.0f, 0.0f); // Initial angle (looks good for animation).
+    }
 
     @Override
     public void onSurfaceCreated(GL10 gl10, EGLConfig eglConfig) {
-        // Set the background frame color
-        GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+        // The new context starts with default state, whatever the cache remembers.
+        mStateCache.invalidate();
 
-        mSquare   = new Square();
-        mCuboid = new Cuboid(); // This is the room
-        mPucks    = new ArrayList<>(); // list of live M2P pucks.
-        mCuboidAnimation = new CuboidAnimation(); // shows the generation of the cuboid (room)
+        // Set the background frame color
+        mGl.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+
+        // A new surface means a new EGL context: every program and buffer created
+        // for the previous one is gone, so rebuild the ones the shapes are holding.
+        mProgramCache.onSurfaceCreated();
+        mBufferManager.onSurfaceCreated();
+        mStreamingBuffer.onSurfaceCreated();
+        mPuckBatchRenderer.onSurfaceCreated();
+        if (mCuboid != null) {
+            return;
+        }
 
-        // Depending on how many pucks are live, set up the list of pucks to be rendered.
-        mPucks.add(new Puck());
-        mPucks.add(new Puck(2, 1, 1));
-        mPucks.add(new Puck(2, 1, -1));
-        mPucks.add(new Puck(-2, 1, 1));
-        mPucks.add(new Puck(-2, 1, -1));
+        mSquare   = new Square(mGl, mProgramCache, mBufferManager);
+        if (mScene != null) {
+            mCuboid = new Cuboid(mGl, mProgramCache, mBufferManager, mScene); // This is the room
+            mCuboidAnimation = new CuboidAnimation(mGl, mProgramCache, mStreamingBuffer, mClock, mScene); // shows the generation of the cuboid (room)
+        } else {
+            mCuboid = new Cuboid(mGl, mProgramCache, mBufferManager, mRoom);
+            mCuboidAnimation = new CuboidAnimation(mGl, mProgramCache, mStreamingBuffer, mClock, mRoom);
+        }
 
-        // Initialize the accumulated rotation matrix
-        Matrix.setIdentityM(mAccumulatedRotation, 0);
+        final float[] color = mPuckBatchRenderer.color;
+        if (mScene != null) {
+            // The devices of the site until live device positions arrive.
+            mScene.addDevicesTo(mPucks, color);
+        } else {
+            // Demo pucks until live device positions arrive, with ids no device uses.
+            mPucks.add(-1, 0, 0, 0, color);
+            mPucks.add(-2, 2, 1, 1, color);
+            mPucks.add(-3, 2, 1, -1, color);
+            mPucks.add(-4, -2, 1, 1, color);
+            mPucks.add(-5, -2, 1, -1, color);
+        }
+        for (int i = 0; i < mPucks.size(); i++) {
+            mPuckGrid.put(mPucks.getIds()[i], mPucks.getX()[i], mPucks.getY()[i], mPucks.getZ()[i]);
+        }
+        mPuckBatchRenderer.setPucks(mPucks);
     }
 
     @Override
     public void onDrawFrame(GL10 unused) {
-        float[] scratch = new float[16];
+        final long frameStart = System.nanoTime();
+        mFrameStats.begin(FrameStats.PHASE_FRAME, frameStart);
+        mFrameStats.begin(FrameStats.PHASE_SETUP, frameStart);
+        final AllocationTracker allocationTracker = mAllocationTracker;
+        if (allocationTracker != null) {
+            allocationTracker.beginFrame();
+        }
+
+        // Every scratch matrix handed out during the previous frame is free again.
+        mMatrixArena.reset();
+        mStateCache.resetCounters();
+
         // Draw background color
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        mGl.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
         // Set the camera position (View matrix)
-        //Matrix.setLookAtM(mViewMatrix,0, 0, 0, -3, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
+        //Mat4.setLookAt(mViewMatrix,0, 0, 0, -3, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
         // Position the eye in front of the origin.
         final float eyeX = 0.0f;
         final float eyeY = 0.0f;
@@ -99,9 +231,9 @@ public class MyGLRenderer implements MyGLSurfaceView.Renderer{
         // Set the view matrix. This matrix can be said to represent the camera position.
         // NOTE: In OpenGL 1, a ModelView matrix is used, which is a combination of a model and
         // view matrix. In OpenGL 2, we can keep track of these matrices separately if we choose.
-        Matrix.setLookAtM(mViewMatrix, 0, eyeX, eyeY, eyeZ, lookX, lookY, lookZ, upX, upY, upZ);
+        Mat4.setLookAt(mViewMatrix, 0, eyeX, eyeY, eyeZ, lookX, lookY, lookZ, upX, upY, upZ);
         // Calculate the projection and view transformation
-        Matrix.multiplyMM(mMVPMatrix, 0, mProjectionMatrix, 0, mViewMatrix, 0);
+        Mat4.multiply(mMVPMatrix, 0, mProjectionMatrix, 0, mViewMatrix, 0);
 
         // Draw square
         //mSquare.draw(mMVPMatrix);
@@ -120,40 +252,95 @@ public class MyGLRenderer implements MyGLSurfaceView.Renderer{
         //Matrix.setRotateM(mRotationMatrix, 0, mAngle, 0, 0, 1.0f);
 
         // Create global rotation matrix "mAccumulatedRotation"
-        // Set a matrix that contains the current rotation.
-        Matrix.setIdentityM(mCurrentRotation, 0);
-        Matrix.rotateM(mCurrentRotation, 0, mDeltaX, 0.0f, 1.0f, 0.0f);
-        Matrix.rotateM(mCurrentRotation, 0, mDeltaY, 1.0f, 0.0f, 0.0f);
-        Matrix.rotateM(mCurrentRotation, 0, mAngleAroundZ, 0.0f, 0.0f, 1.0f);
-        mDeltaX = 0.0f;
-        mDeltaY = 0.0f;
-        mAngleAroundZ = 0.0f;
-        // Multiply the current rotation by the accumulated rotation, and then set the accumulated rotation to the result.
-        Matrix.multiplyMM(mTemporaryMatrix, 0, mCurrentRotation, 0, mAccumulatedRotation, 0);
-        System.arraycopy(mTemporaryMatrix, 0, mAccumulatedRotation, 0, 16);
-
-
-        if (mCuboidAnimation.isAnimationFinished()) {
-            mCuboid.draw(mMVPMatrix, mAccumulatedRotation);
+        // Compose this frame's gestures into the accumulated rotation, then
+        // turn it into the matrix the shapes use.
+        mTrackball.update();
+        mRotationInput.drain(mRotationDeltas);
+        mTrackball.rotate(
+                mRotationDeltas[RotationInputChannel.AROUND_Y],
+                mRotationDeltas[RotationInputChannel.AROUND_X],
+                mRotationDeltas[RotationInputChannel.AROUND_Z]);
+        mTrackball.getMatrix(mAccumulatedRotation);
+
+        // Move the pucks along the reported device positions.
+        applyDevicePositions();
+
+
+        // Queue this frame's objects and draw them sorted by state and depth.
+        Mat4.multiply(mEyeTransform, 0, mViewMatrix, 0, mAccumulatedRotation, 0);
+        mRenderQueue.clear();
+        final boolean animating = !mCuboidAnimation.isAnimationFinished();
+        if (!animating) {
+            mRenderQueue.submit(mCuboid, depthOf(0.0f, 0.0f, 0.0f));
+
+            // Once the room is built, draw all pucks with a single draw call,
+            // sorted by their center.
+            final float[] puckX = mPucks.getX();
+            final float[] puckY = mPucks.getY();
+            final float[] puckZ = mPucks.getZ();
+            float x = 0.0f;
+            float y = 0.0f;
+            float z = 0.0f;
+            for (int i = 0; i < mPucks.size(); i++) {
+                x += puckX[i];
+                y += puckY[i];
+                z += puckZ[i];
+            }
+            int count = Math.max(mPucks.size(), 1);
+            mRenderQueue.submit(mPuckBatchRenderer, depthOf(x / count, y / count, z / count));
         }
         else {
             //mCuboidAnimation.setAnimationDuration(4.0f); // in seconds
-            mCuboidAnimation.draw(mMVPMatrix, mAccumulatedRotation);
+            mRenderQueue.submit(mCuboidAnimation, depthOf(0.0f, 0.0f, 0.0f));
+        }
+        long now = System.nanoTime();
+        mFrameStats.end(FrameStats.PHASE_SETUP, now);
+        if (allocationTracker != null) {
+            allocationTracker.endPhase(FrameStats.PHASE_SETUP);
         }
 
+        if (animating) {
+            mFrameStats.begin(FrameStats.PHASE_ANIMATION, now);
+            mCuboidAnimation.update();
+            now = System.nanoTime();
+            mFrameStats.end(FrameStats.PHASE_ANIMATION, now);
+            if (allocationTracker != null) {
+                allocationTracker.endPhase(FrameStats.PHASE_ANIMATION);
+            }
+        }
 
+        mFrameStats.begin(FrameStats.PHASE_SUBMIT, now);
+        mRenderQueue.execute(mMVPMatrix, mAccumulatedRotation, mMatrixArena);
+        now = System.nanoTime();
+        mFrameStats.end(FrameStats.PHASE_SUBMIT, now);
+        if (allocationTracker != null) {
+            allocationTracker.endPhase(FrameStats.PHASE_SUBMIT);
+        }
 
+        // Keep drawing every frame only while the room is still being built
+        // or the view is turning back after a reset.
+        if (mRenderScheduler != null) {
+            mRenderScheduler.setActive(RenderScheduler.SOURCE_ANIMATION,
+                    !mCuboidAnimation.isAnimationFinished());
+            mRenderScheduler.setActive(RenderScheduler.SOURCE_VIEW_RESET,
+                    mTrackball.isResetting());
+            mRenderScheduler.setActive(RenderScheduler.SOURCE_PUCK_MOTION, mPucksMoving);
+        }
 
-//        for (Puck p : mPucks) {
-//            p.draw(mMVPMatrix, mAccumulatedRotation);
-//        }
+        mFrameStats.end(FrameStats.PHASE_FRAME, System.nanoTime());
+        mFrameStats.endFrame(mStateCache.getDrawCallCount(), mStateCache.getUploadedBytes());
+        if (allocationTracker != null) {
+            allocationTracker.endFrame();
+        }
     }
 
     @Override
     public void onSurfaceChanged(GL10 unused, int width, int height) {
         // Adjust the viewport based on geometry changes,
         // such as screen rotation
-        GLES20.glViewport(0, 0, width, height);
+        mGl.glViewport(0, 0, width, height);
+        mWidth = width;
+        mHeight = height;
 
         // Create a new perspective projection matrix. The height will stay the same
         // while the width will vary as per aspect ratio.
@@ -162,14 +349,171 @@ public class MyGLRenderer implements MyGLSurfaceView.Renderer{
         final float right = ratio;
         final float bottom = -1.0f;
         final float top = 1.0f;
-        final float near = 1.0f;
-        final float far = 1000.0f;
-        Matrix.frustumM(mProjectionMatrix, 0, left, right, bottom, top, near, far);
+        Mat4.frustum(mProjectionMatrix, 0, left, right, bottom, top, NEAR, FAR);
         //float ratio = (float) width/ height;
         // this projection matrix is applied to object coordinates
         // in the onDrawFrame() method
-        //Matrix.frustumM(mProjectionMatrix, 0, -ratio, ratio, -1, 1, 1, 10);//3, 7); // 3 and 7 are near and far clipping plane.
+        //Mat4.frustum(mProjectionMatrix, 0, -ratio, ratio, -1, 1, 1, 10);//3, 7); // 3 and 7 are near and far clipping plane.
+
+    }
+
+    /**
+     * Sets the site to show: its room and its devices, until live positions
+     * arrive. Call before the surface is first created.
+     *
+     * @param scene - Kept; its buffers are uploaded as they are.
+     */
+    public void setScene(SceneFile.Scene scene) {
+        if (mCuboid != null) {
+            throw new IllegalStateException("The scene is already shown");
+        }
+        mScene = scene;
+        fitPuckGrid(scene.getExtents(), scene.getDeviceCount());
+    }
+
+    /**
+     * Sets the rooms to show instead of the built-in one, with the demo
+     * pucks. Call before the surface is first created; replaces any scene.
+     *
+     * @param room - Made by {@link RoomMeshBuilder}.
+     */
+    public void setRoom(RoomMesh room) {
+        if (mCuboid != null) {
+            throw new IllegalStateException("The room is already shown");
+        }
+        mScene = null;
+        mRoom = room;
+        fitPuckGrid(room.getExtents(), 16);
+    }
 
+    /**
+     * Replaces the puck grid with one over the given extents.
+     *
+     * @param capacity - Pucks expected.
+     */
+    private void fitPuckGrid(float[] extents, int capacity) {
+        double volume = 1;
+        for (int i = 0; i < 3; i++) {
+            volume *= Math.max(extents[i + 3] - extents[i], GRID_CELL_SIZE);
+        }
+        float cellSize = Math.max(GRID_CELL_SIZE, (float) Math.cbrt(volume / MAX_GRID_CELLS));
+        mPuckGrid = new PuckGrid(extents[0], extents[1], extents[2],
+                extents[3], extents[4], extents[5], cellSize, capacity);
+    }
+
+    /**
+     * Sets where live puck positions come from. Until the first snapshot
+     * arrives the demo pucks, or the devices of the scene, are shown.
+     *
+     * @param source - Read on the GL thread, fed by a {@link PositionReceiver}.
+     */
+    public void setPositionSource(PositionExchange source) {
+        mPositionSource = source;
+    }
+
+    /**
+     * Feeds the newest device positions, if there are new ones, to the motion
+     * smoother and moves the pucks to its positions for this frame. Pucks are
+     * added for devices seen for the first time.
+     */
+    private void applyDevicePositions() {
+        PositionExchange source = mPositionSource;
+        if (source == null) {
+            return;
+        }
+        final double now = mClock.now();
+        if (source.acquire()) {
+            if (mMotionSmoother == null) {
+                mMotionSmoother = new MotionSmoother(source.capacity(), MOTION_DELAY, MAX_EXTRAPOLATION);
+                // The first live snapshot replaces the demo pucks.
+                mPucks.clear();
+                mPuckGrid.clear();
+            }
+            DevicePositions positions = source.getFront();
+            for (int i = 0; i < positions.size(); i++) {
+                mMotionSmoother.addSample(positions.ids[i], positions.timestamps[i],
+                        positions.x[i], positions.y[i], positions.z[i], now);
+            }
+        }
+        final MotionSmoother smoother = mMotionSmoother;
+        if (smoother == null) {
+            return;
+        }
+        mPucksMoving = smoother.update(now);
+        final int[] ids = smoother.getIds();
+        final float[] x = smoother.getX();
+        final float[] y = smoother.getY();
+        final float[] z = smoother.getZ();
+        for (int i = 0; i < smoother.size(); i++) {
+            int index = mPucks.indexOf(ids[i]);
+            if (index == IntIntMap.NO_VALUE) {
+                mPucks.add(ids[i], x[i], y[i], z[i], mPuckBatchRenderer.color);
+            } else {
+                mPucks.setPosition(index, x[i], y[i], z[i]);
+            }
+            mPuckGrid.put(ids[i], x[i], y[i], z[i]);
+        }
+    }
+
+    /**
+     * Finds the puck under a point of the view, as drawn in the last frame.
+     * Call on the GL thread, e.g. through {@link android.opengl.GLSurfaceView#queueEvent}.
+     *
+     * @param x - Pixels from the left edge of the view.
+     * @param y - Pixels from the top edge of the view.
+     * @return - The id of the nearest puck under the point, or
+     * {@link PuckGrid#NO_PUCK}.
+     */
+    public int pickPuck(float x, float y) {
+        // Pucks are drawn with projection * view * rotation; undo all three.
+        Mat4.multiply(mPickMatrix, 0, mMVPMatrix, 0, mAccumulatedRotation, 0);
+        if (!Mat4.invert(mPickMatrix, 0, mPickMatrix, 0)) {
+            return PuckGrid.NO_PUCK;
+        }
+        final float ndcX = 2.0f * x / mWidth - 1.0f;
+        final float ndcY = 1.0f - 2.0f * y / mHeight;
+        unproject(mPickNear, ndcX, ndcY, -1.0f);
+        unproject(mPickFar, ndcX, ndcY, 1.0f);
+        return mPuckGrid.pick(mPickNear[0], mPickNear[1], mPickNear[2],
+                mPickFar[0] - mPickNear[0], mPickFar[1] - mPickNear[1], mPickFar[2] - mPickNear[2],
+                PICK_RADIUS);
+    }
+
+    /**
+     * Returns the spatial index of the pucks, e.g. to find the devices in a
+     * part of the room. Use on the GL thread.
+     */
+    public PuckGrid getPuckGrid() {
+        return mPuckGrid;
+    }
+
+    /**
+     * Maps a point in normalized device coordinates back into the room with
+     * mPickMatrix.
+     */
+    private void unproject(float[] result, float x, float y, float z) {
+        result[0] = x;
+        result[1] = y;
+        result[2] = z;
+        result[3] = 1.0f;
+        Mat4.multiplyVector(result, 0, mPickMatrix, 0, result, 0);
+        result[0] /= result[3];
+        result[1] /= result[3];
+        result[2] /= result[3];
+    }
+
+    /**
+     * Returns how far a point of the room is from the eye this frame, 0 at the
+     * near and 1 at the far clipping plane.
+     */
+    private float depthOf(float x, float y, float z) {
+        mDepthPoint[0] = x;
+        mDepthPoint[1] = y;
+        mDepthPoint[2] = z;
+        mDepthPoint[3] = 1.0f;
+        Mat4.multiplyVector(mDepthResult, 0, mEyeTransform, 0, mDepthPoint, 0);
+        // The camera looks down the negative z axis.
+        return (-mDepthResult[2] - NEAR) / (FAR - NEAR);
     }
 
     /**
@@ -178,26 +522,27 @@ public class MyGLRenderer implements MyGLSurfaceView.Renderer{
      * <p><strong>Note:</strong> When developing shaders, use the checkGlError()
      * method to debug shader coding errors.</p>
      *
+     * @param gl - The GL backend to compile with.
      * @param type - Vertex or fragment shader type.
      * @param shaderCode - String containing the shader code.
      * @return - Returns an id for the shader.
      */
-    public static int loadShader(int type, String shaderCode){
+    public static int loadShader(Gl gl, int type, String shaderCode){
 
         // create a vertex shader type (GLES20.GL_VERTEX_SHADER)
         // or a fragment shader type (GLES20.GL_FRAGMENT_SHADER)
-        int shader = GLES20.glCreateShader(type);
+        int shader = gl.glCreateShader(type);
 
         // add the source code to the shader and compile it
-        GLES20.glShaderSource(shader, shaderCode);
-        GLES20.glCompileShader(shader);
+        gl.glShaderSource(shader, shaderCode);
+        gl.glCompileShader(shader);
 
         return shader;
     }
 
-    public static void checkGlError(String glOperation) {
+    public static void checkGlError(Gl gl, String glOperation) {
         int error;
-        while ((error = GLES20.glGetError()) != GLES20.GL_NO_ERROR){
+        while ((error = gl.glGetError()) != GLES20.GL_NO_ERROR){
             // TODO: Figure out why the following line leads to error.
             // Log.e(TAG, glOperation + ": glError " + error);
             throw new RuntimeException(glOperation + ": glError " + error);
@@ -216,15 +561,111 @@ public class MyGLRenderer implements MyGLSurfaceView.Renderer{
      */
     public void setAngle(float angle) {mAngle = angle;}
 
+    /**
+     * Returns the shader program cache shared by all shapes of this renderer.
+     */
+    public ShaderProgramCache getProgramCache() {
+        return mProgramCache;
+    }
+
+    /**
+     * Returns the GL state cache in front of the backend. Its counters cover
+     * the last drawn frame.
+     */
+    public GlStateCache getStateCache() {
+        return mStateCache;
+    }
+
+    /**
+     * Returns the frame timings and GL work counts. Snapshots may be taken on
+     * any thread.
+     */
+    public FrameStats getFrameStats() {
+        return mFrameStats;
+    }
+
+    /**
+     * Sets the tracker told what every frame allocates, or null to stop
+     * tracking. Call on the GL thread.
+     */
+    public void setAllocationTracker(AllocationTracker allocationTracker) {
+        mAllocationTracker = allocationTracker;
+    }
+
+    public AllocationTracker getAllocationTracker() {
+        return mAllocationTracker;
+    }
+
+    /**
+     * Returns the culler of the pucks, whose visible and culled counts cover
+     * the last drawn frame.
+     */
+    public FrustumCuller getPuckCuller() {
+        return mPuckBatchRenderer.getCuller();
+    }
+
+    /**
+     * Returns the ring the per-frame vertex data is streamed through.
+     */
+    public StreamingVertexBuffer getStreamingBuffer() {
+        return mStreamingBuffer;
+    }
+
+    /**
+     * Returns the pool of scratch matrices used by the render loop, e.g. to
+     * check that it stopped growing.
+     */
+    public MatrixArena getMatrixArena() {
+        return mMatrixArena;
+    }
+
+    /**
+     * Sets the scheduler that decides when the view has to be redrawn.
+     */
+    public void setRenderScheduler(RenderScheduler renderScheduler) {
+        mRenderScheduler = renderScheduler;
+    }
+
+    /**
+     * Asks for a redraw after the puck positions changed.
+     */
+    public void onPuckPositionsChanged() {
+        if (mRenderScheduler != null) {
+            mRenderScheduler.requestRender();
+        }
+    }
+
+    /**
+     * Turns the room back to its initial orientation with a short animation.
+     * Safe to call from the UI thread.
+     */
     public void resetView(){
-        Matrix.setIdentityM(mAccumulatedRotation, 0);
+        mTrackball.requestReset(RESET_VIEW_DURATION);
+        if (mRenderScheduler != null) {
+            mRenderScheduler.setActive(RenderScheduler.SOURCE_VIEW_RESET, true);
+            // A frame finishing right now may have seen no reset and idled the
+            // source again; the requested frame sees it and keeps it active.
+            mRenderScheduler.requestRender();
+        }
     }
 
-    public float getAngleAroundZ() {
-        return mAngleAroundZ;
+    /**
+     * Queues a drag rotation for the next frame. Safe to call from the UI thread.
+     *
+     * @param deltaX - Degrees around the Y axis.
+     * @param deltaY - Degrees around the X axis.
+     */
+    public void addRotation(float deltaX, float deltaY) {
+        mRotationInput.addDrag(deltaX, deltaY);
     }
 
-    public void setAngleAroundZ(float angleAroundZ) {
-        this.mAngleAroundZ = angleAroundZ;
+    /**
+     * Queues a rotation around the Z axis for the next frame. Safe to call from
+     * the UI thread.
+     *
+     * @param deltaAngle - Degrees around the Z axis.
+     */
+    public void addRotationAroundZ(float deltaAngle) {
+        mRotationInput.addTwist(deltaAngle);
     }
 }
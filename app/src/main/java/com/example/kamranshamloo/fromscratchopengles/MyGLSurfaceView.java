@@ -4,19 +4,51 @@ import android.content.Context;
 import android.opengl.GLSurfaceView;
 import android.support.v7.app.AppCompatActivity;
 import android.util.DisplayMetrics;
+import android.util.Log;
 import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Created by kamran.shamloo on 2016-07-21.
  */
-public class MyGLSurfaceView extends GLSurfaceView implements RotationGestureDetector.OnRotationGestureListener{
+public class MyGLSurfaceView extends GLSurfaceView
+        implements RotationGestureDetector.OnRotationGestureListener, RenderScheduler.Host,
+        PositionReceiver.Listener {
+    private static final String TAG = "MyGLSurfaceView";
+
+    // The most M2P devices shown at once.
+    private static final int MAX_DEVICES = 1024;
+
+    // Frame statistics are appended to this file in the app's files directory.
+    private static final String FRAME_STATS_FILE = "frame_stats.csv";
+    private static final long FRAME_STATS_PERIOD_MILLIS = 60 * 1000;
+    // Weeks of lines at one a minute before the file is rolled over.
+    private static final long FRAME_STATS_MAX_BYTES = 4 * 1024 * 1024;
+
+    // The site is read from this file in the app's files directory, if it is there.
+    private static final String SCENE_FILE = "room.scene";
+
+    // Debug builds log every frame allocating more than this on the GL thread.
+    private static final long FRAME_ALLOCATION_BUDGET_BYTES = 0;
+
     private final MyGLRenderer mRenderer;
+    private final PositionReceiver mPositionReceiver;
+    private final FrameStatsWriter mFrameStatsWriter;
     private final float TOUCH_SCALE_FACTOR = 180.0f / 320;
     private float mDensity;
     private float mPreviousX;
     private float mPreviousY;
     private RotationGestureDetector mRotationDetector;
 
+    // A touch that stays within the slop of where it went down is a tap, which picks a puck.
+    private final float mTouchSlop;
+    private float mDownX;
+    private float mDownY;
+    private boolean mIsTap;
+
 
     public MyGLSurfaceView(Context context){
         super(context);
@@ -28,15 +60,51 @@ public class MyGLSurfaceView extends GLSurfaceView implements RotationGestureDet
         ((AppCompatActivity)context).getWindowManager().getDefaultDisplay().getMetrics(displayMetrics);
         mDensity = displayMetrics.density;
         // Set the Renderer for drawing on the GLSurfaceView
-        mRenderer = new MyGLRenderer();
+        mRenderer = new MyGLRenderer(new AndroidGl(), new SystemAnimationClock());
+        File sceneFile = new File(context.getFilesDir(), SCENE_FILE);
+        if (sceneFile.exists()) {
+            try {
+                mRenderer.setScene(SceneFile.load(sceneFile));
+            } catch (IOException e) {
+                Log.w(TAG, "Showing the built-in room, could not load " + SCENE_FILE, e);
+            }
+        }
         setRenderer(mRenderer);
 
-        // Render the view only when there is a change in the drawing data
-        //setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
-        //setRenderMode(GLSurfaceView.RENDERMODE_CONTINUOUSLY);
+        // Render the view only when there is a change in the drawing data,
+        // and continuously only while something is animating.
+        mRenderer.setRenderScheduler(new RenderScheduler(this));
 
         mRotationDetector = new RotationGestureDetector(this);
-
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        // Live puck positions arrive over UDP and are handed to the GL thread.
+        PositionExchange positions = new PositionExchange(MAX_DEVICES);
+        mRenderer.setPositionSource(positions);
+        mPositionReceiver = new PositionReceiver(positions, PositionFrameCodec.DEFAULT_PORT);
+        mPositionReceiver.setListener(this);
+
+        mFrameStatsWriter = new FrameStatsWriter(mRenderer.getFrameStats(),
+                new File(context.getFilesDir(), FRAME_STATS_FILE), FRAME_STATS_PERIOD_MILLIS,
+                FRAME_STATS_MAX_BYTES);
+
+        if (BuildConfig.DEBUG) {
+            queueEvent(new Runnable() {
+                @Override
+                public void run() {
+                    // Created on the GL thread, whose allocations it reads.
+                    AllocationTracker tracker = new AllocationTracker(new AndroidAllocationProbe(),
+                            FRAME_ALLOCATION_BUDGET_BYTES);
+                    tracker.setListener(new AllocationTracker.Listener() {
+                        @Override
+                        public void onOverBudget(AllocationTracker tracker) {
+                            Log.w(TAG, "Frame over allocation budget: " + tracker.describeLastFrame());
+                        }
+                    });
+                    mRenderer.setAllocationTracker(tracker);
+                }
+            });
+        }
     }
 
     @Override
@@ -53,13 +121,28 @@ public class MyGLSurfaceView extends GLSurfaceView implements RotationGestureDet
 
         switch (motionEvent.getAction()) {
 
+            case MotionEvent.ACTION_DOWN:
+                mDownX = x;
+                mDownY = y;
+                mIsTap = true;
+                break;
+
+            case MotionEvent.ACTION_UP:
+                if (mIsTap) {
+                    pickPuck(x, y);
+                }
+                break;
+
             case MotionEvent.ACTION_MOVE: {
+                if (mRotationDetector.isInProgress()
+                        || Math.abs(x - mDownX) > mTouchSlop || Math.abs(y - mDownY) > mTouchSlop) {
+                    mIsTap = false;
+                }
                 if (!mRotationDetector.isInProgress()) {
                     float deltaX = (x - mPreviousX) / mDensity / 2f;
                     float deltaY = (y - mPreviousY) / mDensity / 2f;
 
-                    mRenderer.mDeltaX += deltaX;
-                    mRenderer.mDeltaY += deltaY;
+                    mRenderer.addRotation(deltaX, deltaY);
                     //mRenderer.setAngle(mRenderer.getAngle() + (deltaX + deltaY));
                     requestRender();
                 }
@@ -92,9 +175,52 @@ public class MyGLSurfaceView extends GLSurfaceView implements RotationGestureDet
 
     }
 
+    /**
+     * Logs the device under a tap.
+     */
+    private void pickPuck(final float x, final float y) {
+        // The pucks and the matrices they were drawn with belong to the GL thread.
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                int id = mRenderer.pickPuck(x, y);
+                if (id != PuckGrid.NO_PUCK) {
+                    Log.i(TAG, "Picked device " + id);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        try {
+            mPositionReceiver.start();
+        } catch (IOException e) {
+            Log.w(TAG, "No live puck positions on port " + PositionFrameCodec.DEFAULT_PORT, e);
+        }
+        mFrameStatsWriter.start();
+    }
+
+    @Override
+    public void onPause() {
+        mPositionReceiver.stop();
+        mFrameStatsWriter.stop();
+        if (mFrameStatsWriter.getFailure() != null) {
+            Log.w(TAG, "Could not write " + FRAME_STATS_FILE, mFrameStatsWriter.getFailure());
+        }
+        super.onPause();
+    }
+
+    @Override
+    public void onPositionsPublished() {
+        // Called on the receiving thread; requestRender is thread safe.
+        requestRender();
+    }
+
     @Override
     public void OnRotation(RotationGestureDetector rotationDetector) {
-        mRenderer.setAngleAroundZ(rotationDetector.getAngle());
+        mRenderer.addRotationAroundZ(rotationDetector.getAngle());
         requestRender();
     }
 }
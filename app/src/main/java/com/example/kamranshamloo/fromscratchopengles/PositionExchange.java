@@ -0,0 +1,75 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands device positions from the receiving thread to the GL thread without
+ * locks.
+ *
+ * <p>Three {@link DevicePositions} buffers rotate between the two threads:
+ * the writer fills its back buffer and swaps it into the middle, the reader
+ * swaps the middle out as its front buffer. The swaps are single atomic
+ * exchanges, so neither thread ever waits for the other or sees a
+ * half-written snapshot, and a slow reader just skips to the newest one. This
+ * is the double-buffering of a swap chain with the third buffer taking the
+ * place of a lock.</p>
+ */
+public class PositionExchange {
+
+    // Set in mMiddle while the middle buffer holds a snapshot the reader hasn't taken.
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final DevicePositions[] mBuffers = new DevicePositions[3];
+    private final AtomicInteger mMiddle = new AtomicInteger(1);
+
+    // Owned by the writer and the reader thread respectively.
+    private int mBack = 0;
+    private int mFront = 2;
+
+    /**
+     * @param capacity - The most devices a snapshot holds.
+     */
+    public PositionExchange(int capacity) {
+        for (int i = 0; i < mBuffers.length; i++) {
+            mBuffers[i] = new DevicePositions(capacity);
+        }
+    }
+
+    /**
+     * Returns the most devices a snapshot holds.
+     */
+    public int capacity() {
+        return mBuffers[0].capacity();
+    }
+
+    /**
+     * Publishes a copy of the writer's positions. Writer thread only.
+     */
+    public void publish(DevicePositions positions) {
+        mBuffers[mBack].copyFrom(positions);
+        mBack = mMiddle.getAndSet(mBack | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Takes the newest published snapshot, if there is one the reader hasn't
+     * seen yet. Reader thread only.
+     *
+     * @return - True if {@link #getFront()} changed.
+     */
+    public boolean acquire() {
+        if ((mMiddle.get() & FRESH) == 0) {
+            return false;
+        }
+        mFront = mMiddle.getAndSet(mFront) & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * Returns the snapshot taken by the last {@link #acquire()}. It stays
+     * unchanged until the next one. Reader thread only.
+     */
+    public DevicePositions getFront() {
+        return mBuffers[mFront];
+    }
+}
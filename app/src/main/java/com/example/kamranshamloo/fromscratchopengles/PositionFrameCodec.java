@@ -0,0 +1,106 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary format of the position frames M2P devices send, one frame per
+ * UDP datagram, in network byte order:
+ *
+ * <pre>
+ * header: int magic 'M2PF' | short version | short record count | long timestamp (ns)
+ * record: int device id | float x | float y | float z
+ * </pre>
+ *
+ * <p>The timestamp is when the sender sampled the positions, on its own
+ * clock. Decoding checks the whole frame before storing anything, so a
+ * truncated or foreign datagram leaves the store untouched.</p>
+ */
+public final class PositionFrameCodec {
+
+    /** The UDP port devices and the simulator send to. */
+    public static final int DEFAULT_PORT = 47800;
+
+    public static final int MAGIC = 0x4D325046; // 'M2PF'
+    public static final short VERSION = 1;
+
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 16;
+
+    /** The largest payload of a UDP datagram over IPv4. */
+    public static final int MAX_FRAME_SIZE = 65507;
+    /** The most records that fit a frame. */
+    public static final int MAX_RECORDS = (MAX_FRAME_SIZE - HEADER_SIZE) / RECORD_SIZE;
+
+    /** Returned by {@link #decode} for a datagram that is not a valid frame. */
+    public static final int MALFORMED = -1;
+
+    private PositionFrameCodec() {
+    }
+
+    /**
+     * Returns the size in bytes of a frame with the given number of records.
+     */
+    public static int frameSize(int recordCount) {
+        return HEADER_SIZE + recordCount * RECORD_SIZE;
+    }
+
+    /**
+     * Writes a frame header at the buffer's position. The records are written
+     * after it with {@link #encodeRecord}.
+     */
+    public static void encodeHeader(ByteBuffer frame, int recordCount, long timestamp) {
+        if (recordCount < 0 || recordCount > MAX_RECORDS) {
+            throw new IllegalArgumentException("Record count " + recordCount);
+        }
+        frame.putInt(MAGIC);
+        frame.putShort(VERSION);
+        frame.putShort((short) recordCount);
+        frame.putLong(timestamp);
+    }
+
+    /**
+     * Writes one device position at the buffer's position.
+     */
+    public static void encodeRecord(ByteBuffer frame, int id, float x, float y, float z) {
+        frame.putInt(id);
+        frame.putFloat(x);
+        frame.putFloat(y);
+        frame.putFloat(z);
+    }
+
+    /**
+     * Stores the positions of the frame between the buffer's position and limit.
+     *
+     * @param frame - One received datagram.
+     * @param positions - Receives every record.
+     * @return - The number of records that did not fit the store, or
+     * {@link #MALFORMED}.
+     */
+    public static int decode(ByteBuffer frame, DevicePositions positions) {
+        int start = frame.position();
+        if (frame.remaining() < HEADER_SIZE
+                || frame.getInt(start) != MAGIC
+                || frame.getShort(start + 4) != VERSION) {
+            return MALFORMED;
+        }
+        int count = frame.getShort(start + 6) & 0xFFFF;
+        if (frame.remaining() != frameSize(count)) {
+            return MALFORMED;
+        }
+        long timestamp = frame.getLong(start + 8);
+        int dropped = 0;
+        for (int i = 0, p = start + HEADER_SIZE; i < count; i++, p += RECORD_SIZE) {
+            int id = frame.getInt(p);
+            if (id == Integer.MIN_VALUE) {
+                dropped++;
+                continue;
+            }
+            if (!positions.put(id, frame.getFloat(p + 4), frame.getFloat(p + 8),
+                    frame.getFloat(p + 12), timestamp)) {
+                dropped++;
+            }
+        }
+        frame.position(frame.limit());
+        return dropped;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+/**
+ * Receives device positions as UDP datagrams on a background thread.
+ *
+ * <p>Each datagram is one frame in the {@link PositionFrameCodec} format.
+ * Whenever the socket runs dry, and after every {@link #MAX_BURST} datagrams
+ * while it does not, the positions received so far are published to a
+ * {@link PositionExchange} for the GL thread. A burst of datagrams thus
+ * becomes a single snapshot, yet input arriving faster than it is decoded
+ * still reaches the GL thread. All datagrams are received into one reused
+ * direct buffer and decoded from it in place.</p>
+ */
+public class PositionReceiver implements Runnable {
+
+    /**
+     * Told about every published snapshot, on the receiving thread.
+     */
+    public interface Listener {
+        void onPositionsPublished();
+    }
+
+    // Most datagrams decoded between two snapshots.
+    static final int MAX_BURST = 32;
+
+    private final PositionExchange mExchange;
+    private final int mPort;
+    private final DevicePositions mPositions;
+    private final ByteBuffer mFrame =
+            ByteBuffer.allocateDirect(PositionFrameCodec.MAX_FRAME_SIZE);
+    private Listener mListener;
+
+    private DatagramChannel mChannel;
+    private Selector mSelector;
+    private Thread mThread;
+    private volatile boolean mRunning = false;
+    private volatile IOException mFailure;
+
+    // Only written by the receiving thread.
+    private boolean mReceived = false;
+    private volatile long mFrameCount = 0;
+    private volatile long mMalformedCount = 0;
+    private volatile long mDroppedCount = 0;
+    private volatile long mPublishCount = 0;
+
+    /**
+     * @param exchange - Receives the snapshots.
+     * @param port - UDP port to listen on, 0 for any free one.
+     */
+    public PositionReceiver(PositionExchange exchange, int port) {
+        mExchange = exchange;
+        mPort = port;
+        mPositions = new DevicePositions(exchange.capacity());
+    }
+
+    /**
+     * Sets who to tell about new snapshots, e.g. to request a render. Call
+     * before {@link #start()}.
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Binds the socket and starts the receiving thread.
+     *
+     * @throws IOException - If the port can't be bound.
+     */
+    public void start() throws IOException {
+        if (mThread != null) {
+            throw new IllegalStateException("Already started");
+        }
+        mFailure = null;
+        mSelector = Selector.open();
+        mChannel = DatagramChannel.open();
+        try {
+            mChannel.socket().bind(new InetSocketAddress(mPort));
+            mChannel.configureBlocking(false);
+            mChannel.register(mSelector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        mRunning = true;
+        mThread = new Thread(this, "PositionReceiver");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops the receiving thread and closes the socket. The positions received
+     * so far are kept for the next {@link #start()}.
+     */
+    public void stop() {
+        if (mThread == null) {
+            return;
+        }
+        mRunning = false;
+        mSelector.wakeup();
+        boolean interrupted = false;
+        while (mThread.isAlive()) {
+            try {
+                mThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        mThread = null;
+        close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the bound port, e.g. after starting on port 0.
+     */
+    public int getLocalPort() {
+        return mChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Returns why the receiving thread stopped on its own, or null.
+     */
+    public IOException getFailure() {
+        return mFailure;
+    }
+
+    /** Returns the number of valid frames received. */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /** Returns the number of datagrams that were not valid frames. */
+    public long getMalformedCount() {
+        return mMalformedCount;
+    }
+
+    /** Returns the number of records turned away because the store was full. */
+    public long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /** Returns the number of snapshots published. */
+    public long getPublishCount() {
+        return mPublishCount;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (mRunning) {
+                mSelector.select();
+                mSelector.selectedKeys().clear();
+                int count;
+                do {
+                    count = receiveBurst();
+                    if (mReceived) {
+                        mReceived = false;
+                        mExchange.publish(mPositions);
+                        mPublishCount++;
+                        if (mListener != null) {
+                            mListener.onPositionsPublished();
+                        }
+                    }
+                } while (count == MAX_BURST && mRunning);
+            }
+        } catch (ClosedSelectorException e) {
+            // Closed while stopping.
+        } catch (IOException e) {
+            mFailure = e;
+        }
+    }
+
+    /**
+     * Decodes pending datagrams, at most {@link #MAX_BURST} of them, and
+     * notes in mReceived whether any was a valid frame.
+     *
+     * @return - The number of datagrams decoded, less than MAX_BURST once the
+     *         socket has run dry.
+     */
+    private int receiveBurst() throws IOException {
+        for (int count = 0; count < MAX_BURST; count++) {
+            mFrame.clear();
+            if (mChannel.receive(mFrame) == null) {
+                return count;
+            }
+            mFrame.flip();
+            int dropped = PositionFrameCodec.decode(mFrame, mPositions);
+            if (dropped == PositionFrameCodec.MALFORMED) {
+                mMalformedCount++;
+            } else {
+                mFrameCount++;
+                mDroppedCount += dropped;
+                mReceived = true;
+            }
+        }
+        return MAX_BURST;
+    }
+
+    private void close() {
+        try {
+            mChannel.close();
+        } catch (IOException e) {
+            // Nothing left to do with it.
+        }
+        try {
+            mSelector.close();
+        } catch (IOException e) {
+            // Nothing left to do with it.
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Packs the positions of all live pucks into one buffer per frame so they can
+ * be drawn with a single draw call.
+ *
+ * <p>In instanced mode every puck contributes one xyz offset and the GPU
+ * repeats the shared wireframe for each of them. In merged mode (plain GLES2)
+ * the wireframe is copied once per puck with the offset already applied, so
+ * one {@code glDrawArrays} covers all pucks.</p>
+ *
+ * <p>The batch only grows; in steady state a frame does not allocate.</p>
+ */
+public class PuckBatch {
+
+    // number of coordinates per vertex in this array
+    static final int COORDS_PER_VERTEX = 3;
+
+    private final float[] mWireframe;
+    private final boolean mInstanced;
+    private final int mFloatsPerPuck;
+
+    private float[] mData = new float[0];
+    private FloatBuffer mBuffer;
+    private int mCount = 0;
+
+    /**
+     * @param wireframe - Vertices of the puck wireframe, {@link #COORDS_PER_VERTEX} floats each.
+     * @param instanced - True to pack one offset per puck, false to pack pre-transformed wireframes.
+     */
+    public PuckBatch(float[] wireframe, boolean instanced) {
+        mWireframe = wireframe;
+        mInstanced = instanced;
+        mFloatsPerPuck = instanced ? COORDS_PER_VERTEX : wireframe.length;
+        ensureCapacity(16);
+    }
+
+    /**
+     * Starts a new frame, dropping the pucks of the previous one.
+     */
+    public void begin() {
+        mCount = 0;
+    }
+
+    /**
+     * Adds one puck at the given position.
+     */
+    public void add(float x, float y, float z) {
+        if (mCount == getCapacity()) {
+            ensureCapacity(mCount * 2);
+        }
+        final float[] data = mData;
+        int offset = mCount * mFloatsPerPuck;
+        if (mInstanced) {
+            data[offset] = x;
+            data[offset + 1] = y;
+            data[offset + 2] = z;
+        } else {
+            final float[] wireframe = mWireframe;
+            for (int i = 0; i < wireframe.length; i += COORDS_PER_VERTEX) {
+                data[offset + i] = wireframe[i] + x;
+                data[offset + i + 1] = wireframe[i + 1] + y;
+                data[offset + i + 2] = wireframe[i + 2] + z;
+            }
+        }
+        mCount++;
+    }
+
+    /**
+     * Finishes the frame and copies the packed data into the direct buffer that
+     * is uploaded to the GPU.
+     *
+     * @return - The packed data, positioned at 0.
+     */
+    public FloatBuffer end() {
+        mBuffer.position(0);
+        mBuffer.put(mData, 0, mCount * mFloatsPerPuck);
+        mBuffer.position(0);
+        return mBuffer;
+    }
+
+    public boolean isInstanced() {
+        return mInstanced;
+    }
+
+    /**
+     * Returns the number of pucks added since {@link #begin()}.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the number of vertices to draw: the wireframe vertex count when
+     * instanced, or the wireframe repeated for every puck when merged.
+     */
+    public int getVertexCount() {
+        int wireframeVertices = mWireframe.length / COORDS_PER_VERTEX;
+        return mInstanced ? wireframeVertices : wireframeVertices * mCount;
+    }
+
+    /**
+     * Returns the size of the packed data of the current frame in bytes.
+     */
+    public int getSizeInBytes() {
+        return mCount * mFloatsPerPuck * 4;
+    }
+
+    int getCapacity() {
+        return mData.length / mFloatsPerPuck;
+    }
+
+    private void ensureCapacity(int pucks) {
+        if (pucks <= getCapacity()) {
+            return;
+        }
+        float[] data = new float[pucks * mFloatsPerPuck];
+        System.arraycopy(mData, 0, data, 0, mData.length);
+        mData = data;
+
+        ByteBuffer bb = ByteBuffer.allocateDirect(
+                // (# of coordinate values * 4 bytes per float)
+                data.length * 4);
+        bb.order(ByteOrder.nativeOrder());
+        mBuffer = bb.asFloatBuffer();
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import com.example.kamranshamloo.fromscratchopengles.math.Mat4;
+
+/**
+ * Draws all live pucks with one program switch, one upload into the
+ * {@link StreamingVertexBuffer} and one draw call per frame.
+ *
+ * <p>On OpenGL ES 3 contexts the shared wireframe is drawn instanced, with the
+ * puck offsets read from a per-instance attribute. Everywhere else the
+ * wireframes are merged on the CPU, see {@link PuckBatch}.
+ * {@code GL_EXT_instanced_arrays} is not used: the Android Java bindings do not
+ * expose {@code glVertexAttribDivisorEXT}, so GLES2 devices with the extension
+ * take the merged path as well.</p>
+ *
+ * <p>Pucks outside the view volume are left out of the batch, see
+ * {@link FrustumCuller}.</p>
+ */
+public class PuckBatchRenderer implements Drawable {
+
+    private final String instancedVertexShaderCode =
+            // Every instance is the shared wireframe moved by its own offset.
+            "uniform mat4 uMVPMatrix;" +
+                    "attribute vec4 vPosition;" +
+                    "attribute vec3 aOffset;" +
+                    "void main() {" +
+                    "  gl_Position = uMVPMatrix * vec4(vPosition.xyz + aOffset, 1.0);" +
+                    "}";
+
+    private final String vertexShaderCode =
+            // This matrix member variable provides a hook to manipulate
+            // the coordinates of the objects that use this vertex shader
+            "uniform mat4 uMVPMatrix;" +
+                    "attribute vec4 vPosition;" +
+                    "void main() {" +
+                    // The matrix must be included as a modifier of gl_Position.
+                    // Note that the uMVPMatrix factor *must be first* in order
+                    // for the matrix multiplication product to be correct.
+                    "  gl_Position = uMVPMatrix * vPosition;" +
+                    "}";
+
+    private final String fragmentShaderCode =
+            "precision mediump float;" +
+                    "uniform vec4 vColor;" +
+                    "void main() {" +
+                    "  gl_FragColor = vColor;" +
+                    "}";
+
+    // number of coordinates per vertex in this array
+    static final int COORDS_PER_VERTEX = 3;
+
+    private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
+
+    float color[] = { 1.0f, 0.509803922f, 0.698039216f, 0.5f };
+
+    // Width of the edges in pixels.
+    static final float LINE_WIDTH = 4;
+
+    // Radius of a sphere around the puck wireframe, for culling.
+    static final float BOUNDING_RADIUS = boundingRadius(Puck.cubeLineSegmentsPositionData);
+
+    private final Gl mGl;
+    private final ShaderProgramCache mProgramCache;
+    private final GpuBufferManager mBufferManager;
+    private final StreamingVertexBuffer mStreamingBuffer;
+
+    private ShaderProgram mProgram;
+    private GpuBuffer mWireframeBuffer;
+    private PuckBatch mBatch;
+    private int mPositionSlot;
+    private int mOffsetSlot;
+    private int mColorSlot;
+    private int mMVPMatrixSlot;
+
+    private PuckStore mPucks = new PuckStore(1);
+
+    private final FrustumCuller mCuller = new FrustumCuller();
+    private int[] mVisible = new int[16];
+
+    public PuckBatchRenderer(Gl gl, ShaderProgramCache programCache, GpuBufferManager bufferManager,
+                             StreamingVertexBuffer streamingBuffer) {
+        mGl = gl;
+        mProgramCache = programCache;
+        mBufferManager = bufferManager;
+        mStreamingBuffer = streamingBuffer;
+    }
+
+    /**
+     * Picks the instanced or merged path for the new EGL context. Call this
+     * from {@link MyGLRenderer#onSurfaceCreated} after the program cache and
+     * buffer manager have been rebuilt.
+     */
+    public void onSurfaceCreated() {
+        boolean instanced = isInstancingSupported();
+        if (mBatch == null || mBatch.isInstanced() != instanced) {
+            if (mProgram != null) {
+                mProgramCache.release(mProgram);
+            }
+            mProgram = mProgramCache.acquire(
+                    instanced ? instancedVertexShaderCode : vertexShaderCode,
+                    fragmentShaderCode);
+            mPositionSlot = mProgram.attributeSlot("vPosition", GLES20.GL_FLOAT_VEC4);
+            mOffsetSlot = instanced ? mProgram.attributeSlot("aOffset", GLES20.GL_FLOAT_VEC3) : -1;
+            mColorSlot = mProgram.uniformSlot("vColor", GLES20.GL_FLOAT_VEC4);
+            mMVPMatrixSlot = mProgram.uniformSlot("uMVPMatrix", GLES20.GL_FLOAT_MAT4);
+            mBatch = new PuckBatch(Puck.cubeLineSegmentsPositionData, instanced);
+        }
+        if (mWireframeBuffer == null) {
+            mWireframeBuffer = mBufferManager.acquireStatic("puck.lines", Puck.cubeLineSegmentsPositionData);
+        }
+    }
+
+    /**
+     * Sets the pucks drawn by {@link #draw(float[], float[], MatrixArena)}.
+     *
+     * @param pucks - The live pucks, read on every draw.
+     */
+    public void setPucks(PuckStore pucks) {
+        mPucks = pucks;
+    }
+
+    @Override
+    public long getSortKey(float depth) {
+        return RenderQueue.makeKey(mProgram.getHandle(), mStreamingBuffer.getHandle(), LINE_WIDTH, color[3] < 1.0f, depth);
+    }
+
+    /**
+     * Draws the pucks set with {@link #setPucks(PuckStore)} with a single draw call.
+     *
+     * @param mvpMatrix - The Model View Project matrix in which to draw the pucks.
+     * @param globalRotationMatrix - The rotation of the whole room.
+     * @param arena - Scratch matrices of the current frame.
+     */
+    @Override
+    public void draw(final float[] mvpMatrix, final float[] globalRotationMatrix,
+                     final MatrixArena arena) {
+        draw(mvpMatrix, globalRotationMatrix, mPucks, arena);
+    }
+
+    /**
+     * Returns the culler, whose counts cover the last draw.
+     */
+    public FrustumCuller getCuller() {
+        return mCuller;
+    }
+
+    /**
+     * Draws every visible puck in the store with a single draw call, all in
+     * the color of this renderer.
+     *
+     * @param mvpMatrix - The Model View Project matrix in which to draw the pucks.
+     * @param globalRotationMatrix - The rotation of the whole room.
+     * @param pucks - The live pucks.
+     * @param arena - Scratch matrices of the current frame.
+     */
+    public void draw(final float[] mvpMatrix, final float[] globalRotationMatrix,
+                     final PuckStore pucks, final MatrixArena arena) {
+        // The offsets are applied before the global rotation, like the
+        // translation matrix in Puck.draw.
+        float[] scratch = arena.obtain();
+        Mat4.multiply(scratch, 0, mvpMatrix, 0, globalRotationMatrix, 0);
+
+        // Only the pucks in view go into the batch.
+        if (mVisible.length < pucks.size()) {
+            mVisible = new int[pucks.size() * 2];
+        }
+        final int[] visible = mVisible;
+        final float[] x = pucks.getX();
+        final float[] y = pucks.getY();
+        final float[] z = pucks.getZ();
+        mCuller.setMatrix(scratch, 0);
+        final int visibleCount = mCuller.cull(x, y, z, pucks.size(), BOUNDING_RADIUS, visible);
+
+        final PuckBatch batch = mBatch;
+        batch.begin();
+        for (int i = 0; i < visibleCount; i++) {
+            final int puck = visible[i];
+            batch.add(x[puck], y[puck], z[puck]);
+        }
+        if (batch.getCount() == 0) {
+            return;
+        }
+
+        // Add program to OpenGL environment
+        mProgram.use();
+        final int positionHandle = mProgram.getAttributeLocation(mPositionSlot);
+        mGl.glEnableVertexAttribArray(positionHandle);
+
+        final int offset = mStreamingBuffer.write(batch.end(), batch.getSizeInBytes());
+
+        int offsetHandle = -1;
+        if (batch.isInstanced()) {
+            offsetHandle = mProgram.getAttributeLocation(mOffsetSlot);
+            mGl.glEnableVertexAttribArray(offsetHandle);
+            mGl.glVertexAttribPointer(
+                    offsetHandle, COORDS_PER_VERTEX,
+                    GLES20.GL_FLOAT, false,
+                    vertexStride, offset);
+            mGl.glVertexAttribDivisor(offsetHandle, 1);
+
+            mWireframeBuffer.bind();
+        }
+        mGl.glVertexAttribPointer(
+                positionHandle, COORDS_PER_VERTEX,
+                GLES20.GL_FLOAT, false,
+                vertexStride, batch.isInstanced() ? 0 : offset);
+
+        // Set color for drawing the pucks
+        mProgram.setUniform4fv(mColorSlot, color);
+
+        mProgram.setUniformMatrix4fv(mMVPMatrixSlot, scratch);
+
+        mGl.glLineWidth(LINE_WIDTH); // Make the edges thicker
+        if (batch.isInstanced()) {
+            mGl.glDrawArraysInstanced(GLES20.GL_LINES, 0, batch.getVertexCount(), batch.getCount());
+            mGl.glVertexAttribDivisor(offsetHandle, 0);
+            mGl.glDisableVertexAttribArray(offsetHandle);
+        } else {
+            mGl.glDrawArrays(GLES20.GL_LINES, 0, batch.getVertexCount());
+        }
+    }
+
+    private static float boundingRadius(float[] vertices) {
+        float radiusSquared = 0;
+        for (int i = 0; i < vertices.length; i += COORDS_PER_VERTEX) {
+            radiusSquared = Math.max(radiusSquared, vertices[i] * vertices[i]
+                    + vertices[i + 1] * vertices[i + 1] + vertices[i + 2] * vertices[i + 2]);
+        }
+        return (float) Math.sqrt(radiusSquared);
+    }
+
+    private boolean isInstancingSupported() {
+        String version = mGl.glGetString(GLES20.GL_VERSION);
+        return version != null && version.startsWith("OpenGL ES 3");
+    }
+}
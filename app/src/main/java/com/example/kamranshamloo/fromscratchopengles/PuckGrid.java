@@ -0,0 +1,439 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.util.Arrays;
+
+/**
+ * Finds pucks by position: under a touch, inside a box or near a point.
+ *
+ * <p>The room is cut into cubic cells of equal size, and every cell keeps a
+ * linked list of the pucks whose center lies in it. Moving a puck only
+ * relinks it when it crosses into another cell, so the index follows the
+ * device positions every frame at the cost of a hash lookup per puck. Queries
+ * only look at the cells overlapping the region asked for.</p>
+ *
+ * <p>Pucks are expected inside the bounds given to the constructor. Those
+ * outside are kept in the border cells: box and radius queries still find
+ * them, picking only within the pick radius of the bounds.</p>
+ *
+ * <p>Nothing is allocated unless the grid has to grow beyond its capacity.</p>
+ */
+public class PuckGrid {
+
+    /** Returned by {@link #pick} when no puck is hit. Never a puck id. */
+    public static final int NO_PUCK = Integer.MIN_VALUE;
+
+    // Ends a cell's list.
+    private static final int NONE = -1;
+
+    private final float mMinX;
+    private final float mMinY;
+    private final float mMinZ;
+    private final float mCellSize;
+    private final float mInverseCellSize;
+    private final int mCellsX;
+    private final int mCellsY;
+    private final int mCellsZ;
+
+    // First entry of every cell.
+    private final int[] mHeads;
+
+    // Per entry.
+    private int[] mIds;
+    private float[] mX;
+    private float[] mY;
+    private float[] mZ;
+    private int[] mCells;
+    private int[] mNext;
+    private int[] mPrevious;
+    private final IntIntMap mIndex;
+    private int mSize = 0;
+
+    // State of the pick in progress, kept in fields so picking doesn't allocate.
+    private float mEnter;
+    private float mExit;
+    private float mBestDistance;
+    private int mBestId;
+
+    /**
+     * @param cellSize - Edge length of a cell. Somewhat more than the pick
+     *                 radius works well; too small and picks walk many cells,
+     *                 too large and every cell holds many pucks.
+     * @param capacity - Number of pucks the grid holds without growing.
+     */
+    public PuckGrid(float minX, float minY, float minZ,
+                    float maxX, float maxY, float maxZ,
+                    float cellSize, int capacity) {
+        if (!(cellSize > 0.0f)) {
+            throw new IllegalArgumentException("cellSize " + cellSize);
+        }
+        mMinX = minX;
+        mMinY = minY;
+        mMinZ = minZ;
+        mCellSize = cellSize;
+        mInverseCellSize = 1.0f / cellSize;
+        mCellsX = cellCount(minX, maxX, cellSize);
+        mCellsY = cellCount(minY, maxY, cellSize);
+        mCellsZ = cellCount(minZ, maxZ, cellSize);
+        mHeads = new int[mCellsX * mCellsY * mCellsZ];
+        Arrays.fill(mHeads, NONE);
+
+        capacity = Math.max(capacity, 1);
+        mIds = new int[capacity];
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mZ = new float[capacity];
+        mCells = new int[capacity];
+        mNext = new int[capacity];
+        mPrevious = new int[capacity];
+        mIndex = new IntIntMap(capacity);
+    }
+
+    /**
+     * Returns the number of pucks.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Adds a puck, or moves it if it is already in the grid.
+     *
+     * @param id - Any int except {@link #NO_PUCK}.
+     */
+    public void put(int id, float x, float y, float z) {
+        final int cell = cellOf(x, y, z);
+        int entry = mIndex.get(id);
+        if (entry == IntIntMap.NO_VALUE) {
+            if (mSize == mIds.length) {
+                grow();
+            }
+            entry = mSize++;
+            mIndex.put(id, entry);
+            mIds[entry] = id;
+            link(entry, cell);
+        } else if (mCells[entry] != cell) {
+            unlink(entry);
+            link(entry, cell);
+        }
+        mX[entry] = x;
+        mY[entry] = y;
+        mZ[entry] = z;
+    }
+
+    /**
+     * Removes a puck.
+     *
+     * @return - False if there was no such puck.
+     */
+    public boolean remove(int id) {
+        final int entry = mIndex.remove(id);
+        if (entry == IntIntMap.NO_VALUE) {
+            return false;
+        }
+        unlink(entry);
+        // Move the last entry into the hole and point its neighbours at it.
+        final int last = --mSize;
+        if (entry != last) {
+            mIds[entry] = mIds[last];
+            mX[entry] = mX[last];
+            mY[entry] = mY[last];
+            mZ[entry] = mZ[last];
+            mCells[entry] = mCells[last];
+            mNext[entry] = mNext[last];
+            mPrevious[entry] = mPrevious[last];
+            if (mPrevious[entry] == NONE) {
+                mHeads[mCells[entry]] = entry;
+            } else {
+                mNext[mPrevious[entry]] = entry;
+            }
+            if (mNext[entry] != NONE) {
+                mPrevious[mNext[entry]] = entry;
+            }
+            mIndex.put(mIds[entry], entry);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every puck.
+     */
+    public void clear() {
+        Arrays.fill(mHeads, NONE);
+        mIndex.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Finds the pucks inside an axis-aligned box, bounds included.
+     *
+     * @param ids - Receives the ids of the pucks found, as many as fit.
+     * @return - The number of pucks found, which may be more than ids holds.
+     */
+    public int queryBox(float minX, float minY, float minZ,
+                        float maxX, float maxY, float maxZ, int[] ids) {
+        int count = 0;
+        final int x1 = cellX(maxX);
+        final int y1 = cellY(maxY);
+        final int z1 = cellZ(maxZ);
+        for (int cz = cellZ(minZ); cz <= z1; cz++) {
+            for (int cy = cellY(minY); cy <= y1; cy++) {
+                for (int cx = cellX(minX); cx <= x1; cx++) {
+                    for (int e = mHeads[(cz * mCellsY + cy) * mCellsX + cx]; e != NONE; e = mNext[e]) {
+                        if (mX[e] >= minX && mX[e] <= maxX
+                                && mY[e] >= minY && mY[e] <= maxY
+                                && mZ[e] >= minZ && mZ[e] <= maxZ) {
+                            if (count < ids.length) {
+                                ids[count] = mIds[e];
+                            }
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the pucks within a distance of a point, the distance included.
+     *
+     * @param ids - Receives the ids of the pucks found, as many as fit.
+     * @return - The number of pucks found, which may be more than ids holds.
+     */
+    public int queryRadius(float x, float y, float z, float radius, int[] ids) {
+        int count = 0;
+        final float radiusSquared = radius * radius;
+        final int x1 = cellX(x + radius);
+        final int y1 = cellY(y + radius);
+        final int z1 = cellZ(z + radius);
+        for (int cz = cellZ(z - radius); cz <= z1; cz++) {
+            for (int cy = cellY(y - radius); cy <= y1; cy++) {
+                for (int cx = cellX(x - radius); cx <= x1; cx++) {
+                    for (int e = mHeads[(cz * mCellsY + cy) * mCellsX + cx]; e != NONE; e = mNext[e]) {
+                        final float dx = mX[e] - x;
+                        final float dy = mY[e] - y;
+                        final float dz = mZ[e] - z;
+                        if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                            if (count < ids.length) {
+                                ids[count] = mIds[e];
+                            }
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the first puck along a ray, treating every puck as a sphere.
+     *
+     * <p>The ray steps from cell to cell and stops as soon as the cells left
+     * lie behind the closest hit, so a pick near the eye looks at a few cells
+     * however many pucks there are.</p>
+     *
+     * @param originX - Start of the ray, e.g. the touch on the near plane.
+     * @param directionX - Direction of the ray, any length but zero.
+     * @param radius - Radius of the puck spheres, at most the cell size.
+     * @return - The id of the puck whose center passes closest to the origin
+     * along the ray, or {@link #NO_PUCK}.
+     */
+    public int pick(float originX, float originY, float originZ,
+                    float directionX, float directionY, float directionZ, float radius) {
+        if (radius > mCellSize) {
+            throw new IllegalArgumentException("Pick radius " + radius
+                    + " is larger than the cells, " + mCellSize);
+        }
+        final float length = (float) Math.sqrt(directionX * directionX
+                + directionY * directionY + directionZ * directionZ);
+        if (length == 0.0f) {
+            return NO_PUCK;
+        }
+        final float dx = directionX / length;
+        final float dy = directionY / length;
+        final float dz = directionZ / length;
+
+        // Clip the ray to the bounds, grown by the radius so spheres reaching
+        // over the border are hit as well.
+        mEnter = 0.0f;
+        mExit = Float.POSITIVE_INFINITY;
+        if (!clip(originX, dx, mMinX - radius, mMinX + mCellsX * mCellSize + radius)
+                || !clip(originY, dy, mMinY - radius, mMinY + mCellsY * mCellSize + radius)
+                || !clip(originZ, dz, mMinZ - radius, mMinZ + mCellsZ * mCellSize + radius)) {
+            return NO_PUCK;
+        }
+        final float enter = mEnter;
+        final float exit = mExit;
+
+        // Walk the cells along the ray (Amanatides & Woo). A sphere hit at
+        // distance t has its center within the radius, so within one cell, of
+        // the cell the ray is in at t: checking the neighbours of every cell
+        // walked finds it, and no hit closer than the best one so far can lie
+        // beyond the cell the ray enters after it.
+        final float startX = originX + dx * enter;
+        final float startY = originY + dy * enter;
+        final float startZ = originZ + dz * enter;
+        int cx = (int) Math.floor((startX - mMinX) * mInverseCellSize);
+        int cy = (int) Math.floor((startY - mMinY) * mInverseCellSize);
+        int cz = (int) Math.floor((startZ - mMinZ) * mInverseCellSize);
+        final int stepX = dx > 0 ? 1 : -1;
+        final int stepY = dy > 0 ? 1 : -1;
+        final int stepZ = dz > 0 ? 1 : -1;
+        final float deltaX = dx != 0 ? mCellSize / Math.abs(dx) : Float.POSITIVE_INFINITY;
+        final float deltaY = dy != 0 ? mCellSize / Math.abs(dy) : Float.POSITIVE_INFINITY;
+        final float deltaZ = dz != 0 ? mCellSize / Math.abs(dz) : Float.POSITIVE_INFINITY;
+        float nextX = dx != 0
+                ? enter + (mMinX + (cx + (dx > 0 ? 1 : 0)) * mCellSize - startX) / dx
+                : Float.POSITIVE_INFINITY;
+        float nextY = dy != 0
+                ? enter + (mMinY + (cy + (dy > 0 ? 1 : 0)) * mCellSize - startY) / dy
+                : Float.POSITIVE_INFINITY;
+        float nextZ = dz != 0
+                ? enter + (mMinZ + (cz + (dz > 0 ? 1 : 0)) * mCellSize - startZ) / dz
+                : Float.POSITIVE_INFINITY;
+
+        final float radiusSquared = radius * radius;
+        mBestDistance = Float.POSITIVE_INFINITY;
+        mBestId = NO_PUCK;
+        float cellEnter = enter;
+        while (cellEnter <= exit && cellEnter <= mBestDistance) {
+            pickAround(cx, cy, cz, originX, originY, originZ, dx, dy, dz, radiusSquared);
+            if (nextX <= nextY && nextX <= nextZ) {
+                cellEnter = nextX;
+                nextX += deltaX;
+                cx += stepX;
+            } else if (nextY <= nextZ) {
+                cellEnter = nextY;
+                nextY += deltaY;
+                cy += stepY;
+            } else {
+                cellEnter = nextZ;
+                nextZ += deltaZ;
+                cz += stepZ;
+            }
+        }
+        return mBestId;
+    }
+
+    /**
+     * Narrows the part of the ray being picked, [mEnter, mExit], to where it
+     * is between two planes.
+     *
+     * @return - False if that leaves nothing.
+     */
+    private boolean clip(float origin, float direction, float min, float max) {
+        if (direction == 0.0f) {
+            return origin >= min && origin <= max;
+        }
+        float near = (min - origin) / direction;
+        float far = (max - origin) / direction;
+        if (near > far) {
+            float swap = near;
+            near = far;
+            far = swap;
+        }
+        mEnter = Math.max(mEnter, near);
+        mExit = Math.min(mExit, far);
+        return mEnter <= mExit;
+    }
+
+    /**
+     * Checks the pucks of a cell and its neighbours against the ray, keeping
+     * the closest hit.
+     */
+    private void pickAround(int cx, int cy, int cz,
+                            float originX, float originY, float originZ,
+                            float dx, float dy, float dz, float radiusSquared) {
+        final int x0 = Math.max(cx - 1, 0);
+        final int x1 = Math.min(cx + 1, mCellsX - 1);
+        final int y0 = Math.max(cy - 1, 0);
+        final int y1 = Math.min(cy + 1, mCellsY - 1);
+        final int z0 = Math.max(cz - 1, 0);
+        final int z1 = Math.min(cz + 1, mCellsZ - 1);
+        for (int z = z0; z <= z1; z++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    for (int e = mHeads[(z * mCellsY + y) * mCellsX + x]; e != NONE; e = mNext[e]) {
+                        final float px = mX[e] - originX;
+                        final float py = mY[e] - originY;
+                        final float pz = mZ[e] - originZ;
+                        // Distance along the ray of the point closest to the center.
+                        final float along = px * dx + py * dy + pz * dz;
+                        if (along < 0.0f || along >= mBestDistance) {
+                            continue;
+                        }
+                        final float offsetSquared = px * px + py * py + pz * pz - along * along;
+                        if (offsetSquared <= radiusSquared) {
+                            mBestDistance = along;
+                            mBestId = mIds[e];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellOf(float x, float y, float z) {
+        return (cellZ(z) * mCellsY + cellY(y)) * mCellsX + cellX(x);
+    }
+
+    private int cellX(float x) {
+        return clampCell((x - mMinX) * mInverseCellSize, mCellsX);
+    }
+
+    private int cellY(float y) {
+        return clampCell((y - mMinY) * mInverseCellSize, mCellsY);
+    }
+
+    private int cellZ(float z) {
+        return clampCell((z - mMinZ) * mInverseCellSize, mCellsZ);
+    }
+
+    private static int clampCell(float scaled, int count) {
+        // Truncating is flooring for everything that isn't clamped to 0 anyway.
+        int cell = (int) scaled;
+        return cell < 0 ? 0 : cell >= count ? count - 1 : cell;
+    }
+
+    private static int cellCount(float min, float max, float cellSize) {
+        if (!(max > min)) {
+            throw new IllegalArgumentException("Empty bounds " + min + ".." + max);
+        }
+        return Math.max((int) Math.ceil((max - min) / cellSize), 1);
+    }
+
+    private void link(int entry, int cell) {
+        mCells[entry] = cell;
+        mPrevious[entry] = NONE;
+        mNext[entry] = mHeads[cell];
+        if (mHeads[cell] != NONE) {
+            mPrevious[mHeads[cell]] = entry;
+        }
+        mHeads[cell] = entry;
+    }
+
+    private void unlink(int entry) {
+        final int previous = mPrevious[entry];
+        final int next = mNext[entry];
+        if (previous == NONE) {
+            mHeads[mCells[entry]] = next;
+        } else {
+            mNext[previous] = next;
+        }
+        if (next != NONE) {
+            mPrevious[next] = previous;
+        }
+    }
+
+    private void grow() {
+        int capacity = mIds.length * 2;
+        mIds = Arrays.copyOf(mIds, capacity);
+        mX = Arrays.copyOf(mX, capacity);
+        mY = Arrays.copyOf(mY, capacity);
+        mZ = Arrays.copyOf(mZ, capacity);
+        mCells = Arrays.copyOf(mCells, capacity);
+        mNext = Arrays.copyOf(mNext, capacity);
+        mPrevious = Arrays.copyOf(mPrevious, capacity);
+    }
+}
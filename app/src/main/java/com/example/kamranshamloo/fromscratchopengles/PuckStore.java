@@ -0,0 +1,165 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.util.Arrays;
+
+/**
+ * The live pucks, as parallel primitive arrays.
+ *
+ * <p>A puck is an id, a position and a color; the wireframe, shader program
+ * and buffers are the same for all of them and live in the renderer. Entry
+ * {@code i} of the arrays returned by {@link #getIds()}, {@link #getX()},
+ * {@link #getY()}, {@link #getZ()} and {@link #getColors()} describes one
+ * puck, for {@code i} below {@link #size()}, so systems walk the positions as
+ * plain contiguous floats.</p>
+ *
+ * <p>Adding appends and removing moves the last entry into the hole, both in
+ * constant time, so entries don't keep their index across removals; look
+ * pucks up by id with {@link #indexOf(int)}. The arrays are replaced when the
+ * store grows, so don't hold on to them across {@link #add}.</p>
+ */
+public class PuckStore {
+
+    /** Floats per entry of {@link #getColors()}: red, green, blue, alpha. */
+    public static final int COLOR_COMPONENTS = 4;
+
+    private int[] mIds;
+    private float[] mX;
+    private float[] mY;
+    private float[] mZ;
+    private float[] mColors;
+    private final IntIntMap mIndex;
+    private int mSize = 0;
+
+    /**
+     * @param capacity - Number of pucks the store holds without growing.
+     */
+    public PuckStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        mIds = new int[capacity];
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mZ = new float[capacity];
+        mColors = new float[capacity * COLOR_COMPONENTS];
+        mIndex = new IntIntMap(capacity);
+    }
+
+    /**
+     * Returns the number of pucks.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the entry of a puck, or {@link IntIntMap#NO_VALUE}.
+     */
+    public int indexOf(int id) {
+        return mIndex.get(id);
+    }
+
+    /**
+     * Adds a puck.
+     *
+     * @param id - Unique id, any int except {@link Integer#MIN_VALUE}.
+     * @param color - Red, green, blue and alpha, copied.
+     * @return - The entry of the new puck.
+     */
+    public int add(int id, float x, float y, float z, float[] color) {
+        if (mIndex.containsKey(id)) {
+            throw new IllegalArgumentException("Puck " + id + " already exists");
+        }
+        if (mSize == mIds.length) {
+            grow();
+        }
+        int index = mSize++;
+        mIndex.put(id, index);
+        mIds[index] = id;
+        mX[index] = x;
+        mY[index] = y;
+        mZ[index] = z;
+        System.arraycopy(color, 0, mColors, index * COLOR_COMPONENTS, COLOR_COMPONENTS);
+        return index;
+    }
+
+    /**
+     * Moves a puck.
+     *
+     * @param index - Entry of the puck, see {@link #indexOf(int)}.
+     */
+    public void setPosition(int index, float x, float y, float z) {
+        if (index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+        }
+        mX[index] = x;
+        mY[index] = y;
+        mZ[index] = z;
+    }
+
+    /**
+     * Removes a puck. The last entry takes its place.
+     *
+     * @return - False if there was no such puck.
+     */
+    public boolean remove(int id) {
+        int index = mIndex.remove(id);
+        if (index == IntIntMap.NO_VALUE) {
+            return false;
+        }
+        int last = --mSize;
+        if (index != last) {
+            mIds[index] = mIds[last];
+            mX[index] = mX[last];
+            mY[index] = mY[last];
+            mZ[index] = mZ[last];
+            System.arraycopy(mColors, last * COLOR_COMPONENTS,
+                    mColors, index * COLOR_COMPONENTS, COLOR_COMPONENTS);
+            mIndex.put(mIds[index], index);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every puck.
+     */
+    public void clear() {
+        mIndex.clear();
+        mSize = 0;
+    }
+
+    /** Returns the ids, valid below {@link #size()}. */
+    public int[] getIds() {
+        return mIds;
+    }
+
+    /** Returns the x coordinates, valid below {@link #size()}. */
+    public float[] getX() {
+        return mX;
+    }
+
+    /** Returns the y coordinates, valid below {@link #size()}. */
+    public float[] getY() {
+        return mY;
+    }
+
+    /** Returns the z coordinates, valid below {@link #size()}. */
+    public float[] getZ() {
+        return mZ;
+    }
+
+    /**
+     * Returns the colors, {@link #COLOR_COMPONENTS} floats per puck, valid
+     * below {@code size() * COLOR_COMPONENTS}.
+     */
+    public float[] getColors() {
+        return mColors;
+    }
+
+    private void grow() {
+        int capacity = mIds.length * 2;
+        mIds = Arrays.copyOf(mIds, capacity);
+        mX = Arrays.copyOf(mX, capacity);
+        mY = Arrays.copyOf(mY, capacity);
+        mZ = Arrays.copyOf(mZ, capacity);
+        mColors = Arrays.copyOf(mColors, capacity * COLOR_COMPONENTS);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import com.example.kamranshamloo.fromscratchopengles.math.Mat4;
+
+/**
+ * Builds the transform of a single puck, kept free of GL so it can be tested
+ * and benchmarked on a plain JVM.
+ */
+final class PuckTransform {
+
+    private PuckTransform() {
+    }
+
+    /**
+     * Computes result = mvp * globalRotation * translation(x, y, z), the proper
+     * order being projection * view * globalRotation * translation * model.
+     *
+     * @param arena - Provides the two intermediate matrices.
+     */
+    static void compose(float[] result, float[] mvpMatrix, float[] globalRotationMatrix,
+                        float x, float y, float z, MatrixArena arena) {
+        float[] translation = arena.obtain();
+        Mat4.setIdentity(translation, 0);
+        Mat4.translate(translation, 0, x, y, z);
+        float[] rotatedTranslation = arena.obtain();
+        // Both are affine, so the cheaper product will do.
+        Mat4.multiplyAffine(rotatedTranslation, 0, globalRotationMatrix, 0, translation, 0);
+        Mat4.multiply(result, 0, mvpMatrix, 0, rotatedTranslation, 0);
+    }
+}
@@ -0,0 +1,719 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Headless {@link Gl} that draws nothing and records every call instead.
+ *
+ * <p>Commands are appended to a flat {@code int[]} log: one header per command
+ * holding the opcode and the number of arguments that follow, then the
+ * arguments, with floats stored as their raw bits. Client-side buffers and
+ * strings are not copied. Once the log has grown to the size of a frame,
+ * recording does not allocate.</p>
+ *
+ * <p>Just enough of GL is emulated for the renderer to run: object names are
+ * handed out, programs always link, and their active attributes and uniforms
+ * are taken from the declarations in the shader source. Along the way draw
+ * calls, state changes and uploaded bytes are counted, so they can be checked
+ * per frame as regression metrics. Call {@link #reset()} between frames.</p>
+ *
+ * <p>Fences are signaled a set number of fences after they were inserted, as
+ * if the GPU lagged that far behind, see {@link #setGpuLatency(int)}.</p>
+ */
+public class RecordingGl implements Gl {
+
+    /** Version string of an OpenGL ES 2.0 context. */
+    public static final String VERSION_ES2 = "OpenGL ES 2.0 RecordingGl";
+    /** Version string of an OpenGL ES 3.0 context. */
+    public static final String VERSION_ES3 = "OpenGL ES 3.0 RecordingGl";
+
+    // Opcodes of the command log.
+    public static final int CLEAR_COLOR = 1;
+    public static final int CLEAR = 2;
+    public static final int VIEWPORT = 3;
+    public static final int LINE_WIDTH = 4;
+    public static final int CREATE_SHADER = 5;
+    public static final int SHADER_SOURCE = 6;
+    public static final int COMPILE_SHADER = 7;
+    public static final int DELETE_SHADER = 8;
+    public static final int CREATE_PROGRAM = 9;
+    public static final int ATTACH_SHADER = 10;
+    public static final int LINK_PROGRAM = 11;
+    public static final int USE_PROGRAM = 12;
+    public static final int DELETE_PROGRAM = 13;
+    public static final int UNIFORM_4FV = 14;
+    public static final int UNIFORM_MATRIX_4FV = 15;
+    public static final int GEN_BUFFERS = 16;
+    public static final int DELETE_BUFFERS = 17;
+    public static final int BIND_BUFFER = 18;
+    public static final int BUFFER_DATA = 19;
+    public static final int ENABLE_VERTEX_ATTRIB_ARRAY = 20;
+    public static final int DISABLE_VERTEX_ATTRIB_ARRAY = 21;
+    public static final int VERTEX_ATTRIB_POINTER = 22;
+    public static final int VERTEX_ATTRIB_POINTER_CLIENT = 23;
+    public static final int VERTEX_ATTRIB_DIVISOR = 24;
+    public static final int DRAW_ARRAYS = 25;
+    public static final int DRAW_ELEMENTS = 26;
+    public static final int DRAW_ARRAYS_INSTANCED = 27;
+    public static final int ENABLE = 28;
+    public static final int DISABLE = 29;
+    public static final int BLEND_FUNC = 30;
+    public static final int BUFFER_SUB_DATA = 31;
+    public static final int FENCE_SYNC = 32;
+    public static final int CLIENT_WAIT_SYNC = 33;
+    public static final int DELETE_SYNC = 34;
+
+    private static final int OPCODE_COUNT = 35;
+
+    private static final int MAX_VERTEX_ATTRIBS = 16;
+
+    // attribute/uniform [precision] type name [array];
+    private static final Pattern DECLARATION = Pattern.compile(
+            "\\b(attribute|uniform)\\s+(?:(?:lowp|mediump|highp)\\s+)?(\\w+)\\s+(\\w+)\\s*(\\[\\s*\\d+\\s*\\])?\\s*;");
+
+    private static class Program {
+        final ArrayList<String> shaderSources = new ArrayList<>();
+        final ArrayList<String> attributeNames = new ArrayList<>();
+        final ArrayList<Integer> attributeTypes = new ArrayList<>();
+        final ArrayList<String> uniformNames = new ArrayList<>();
+        final ArrayList<Integer> uniformTypes = new ArrayList<>();
+    }
+
+    private final String mVersion;
+
+    private int[] mLog = new int[1024];
+    private int mLogSize = 0;
+    private final int[] mCommandCounts = new int[OPCODE_COUNT];
+
+    private int mNextName = 1;
+    private final HashMap<Integer, String> mShaderSources = new HashMap<>();
+    private final HashMap<Integer, Program> mPrograms = new HashMap<>();
+    private int mCurrentProgram = 0;
+    private int mError = GLES20.GL_NO_ERROR;
+
+    // Bytes per vertex read from client memory by each enabled attribute, 0 for buffer objects.
+    private final boolean[] mAttribEnabled = new boolean[MAX_VERTEX_ATTRIBS];
+    private final int[] mClientBytesPerVertex = new int[MAX_VERTEX_ATTRIBS];
+
+    private int mDrawCallCount = 0;
+    private int mStateChangeCount = 0;
+    private long mUploadedBytes = 0;
+
+    // Fences are numbered from 1; all up to mSignaledSync have been passed by the GPU.
+    private int mGpuLatency = 0;
+    private long mLastSync = 0;
+    private long mSignaledSync = 0;
+    private int mBlockingWaitCount = 0;
+
+    /**
+     * Creates a backend that reports itself as OpenGL ES 2.0.
+     */
+    public RecordingGl() {
+        this(VERSION_ES2);
+    }
+
+    /**
+     * @param version - What {@code glGetString(GL_VERSION)} returns, e.g.
+     *                  {@link #VERSION_ES3} to take the instanced paths.
+     */
+    public RecordingGl(String version) {
+        mVersion = version;
+    }
+
+    /**
+     * Clears the command log and the counters, e.g. at the start of a frame.
+     * GL objects and state are kept.
+     */
+    public void reset() {
+        mLogSize = 0;
+        for (int i = 0; i < OPCODE_COUNT; i++) {
+            mCommandCounts[i] = 0;
+        }
+        mDrawCallCount = 0;
+        mStateChangeCount = 0;
+        mUploadedBytes = 0;
+    }
+
+    /**
+     * Returns the command log. Valid up to {@link #getLogSize()}.
+     */
+    public int[] getLog() {
+        return mLog;
+    }
+
+    public int getLogSize() {
+        return mLogSize;
+    }
+
+    /**
+     * Returns the opcode of the command whose header is at the given log position.
+     */
+    public static int opcodeAt(int[] log, int position) {
+        return log[position] >>> 8;
+    }
+
+    /**
+     * Returns the position of the command after the one at the given log position.
+     */
+    public static int nextCommand(int[] log, int position) {
+        return position + 1 + (log[position] & 0xff);
+    }
+
+    /**
+     * Returns how often the call with the given opcode was recorded.
+     */
+    public int getCommandCount(int opcode) {
+        return mCommandCounts[opcode];
+    }
+
+    /**
+     * Returns the number of glDraw* calls.
+     */
+    public int getDrawCallCount() {
+        return mDrawCallCount;
+    }
+
+    /**
+     * Returns the number of calls that changed pipeline state: program and
+     * buffer bindings, vertex attribute setup, uniforms, line width, capabilities,
+     * blend function, viewport and clear color.
+     */
+    public int getStateChangeCount() {
+        return mStateChangeCount;
+    }
+
+    /**
+     * Sets how many fences the emulated GPU lags behind: a fence is signaled
+     * once that many later fences have been inserted, or when waited on with
+     * a timeout. 0, the default, signals every fence right away.
+     */
+    public void setGpuLatency(int fences) {
+        mGpuLatency = fences;
+    }
+
+    /**
+     * Returns the number of glClientWaitSync calls that had to wait for the
+     * GPU, over the lifetime of this backend.
+     */
+    public int getBlockingWaitCount() {
+        return mBlockingWaitCount;
+    }
+
+    /**
+     * Returns the bytes handed to the driver: buffer data, uniforms, and
+     * client-side vertex arrays read by draw calls.
+     */
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    // State
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        record(CLEAR_COLOR, Float.floatToRawIntBits(red), Float.floatToRawIntBits(green),
+                Float.floatToRawIntBits(blue), Float.floatToRawIntBits(alpha));
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glClear(int mask) {
+        record(CLEAR, mask);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        record(VIEWPORT, x, y, width, height);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glLineWidth(float width) {
+        record(LINE_WIDTH, Float.floatToRawIntBits(width));
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        record(ENABLE, cap);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        record(DISABLE, cap);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        record(BLEND_FUNC, sfactor, dfactor);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public int glGetError() {
+        int error = mError;
+        mError = GLES20.GL_NO_ERROR;
+        return error;
+    }
+
+    @Override
+    public String glGetString(int name) {
+        if (name == GLES20.GL_VERSION) {
+            return mVersion;
+        }
+        if (name == GLES20.GL_EXTENSIONS) {
+            return "";
+        }
+        return null;
+    }
+
+    // Shaders and programs
+
+    @Override
+    public int glCreateShader(int type) {
+        int shader = mNextName++;
+        mShaderSources.put(shader, "");
+        record(CREATE_SHADER, type, shader);
+        return shader;
+    }
+
+    @Override
+    public void glShaderSource(int shader, String source) {
+        if (!mShaderSources.containsKey(shader)) {
+            mError = GLES20.GL_INVALID_VALUE;
+        }
+        mShaderSources.put(shader, source);
+        record(SHADER_SOURCE, shader);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        record(COMPILE_SHADER, shader);
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        // Attached shaders live on in their programs, which copied the source.
+        mShaderSources.remove(shader);
+        record(DELETE_SHADER, shader);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        int program = mNextName++;
+        mPrograms.put(program, new Program());
+        record(CREATE_PROGRAM, program);
+        return program;
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        Program p = mPrograms.get(program);
+        String source = mShaderSources.get(shader);
+        if (p == null || source == null) {
+            mError = GLES20.GL_INVALID_VALUE;
+        } else {
+            p.shaderSources.add(source);
+        }
+        record(ATTACH_SHADER, program, shader);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        Program p = mPrograms.get(program);
+        if (p == null) {
+            mError = GLES20.GL_INVALID_VALUE;
+        } else {
+            p.attributeNames.clear();
+            p.attributeTypes.clear();
+            p.uniformNames.clear();
+            p.uniformTypes.clear();
+            for (String source : p.shaderSources) {
+                Matcher matcher = DECLARATION.matcher(source);
+                while (matcher.find()) {
+                    boolean attribute = matcher.group(1).equals("attribute");
+                    ArrayList<String> names = attribute ? p.attributeNames : p.uniformNames;
+                    ArrayList<Integer> types = attribute ? p.attributeTypes : p.uniformTypes;
+                    String name = matcher.group(3) + (matcher.group(4) != null ? "[0]" : "");
+                    // Uniforms shared by both shaders are one variable.
+                    if (!names.contains(name)) {
+                        names.add(name);
+                        types.add(typeOf(matcher.group(2)));
+                    }
+                }
+            }
+        }
+        record(LINK_PROGRAM, program);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        Program p = mPrograms.get(program);
+        if (p == null) {
+            mError = GLES20.GL_INVALID_VALUE;
+            return;
+        }
+        if (pname == GLES20.GL_LINK_STATUS) {
+            params[offset] = GLES20.GL_TRUE;
+        } else if (pname == GLES20.GL_ACTIVE_ATTRIBUTES) {
+            params[offset] = p.attributeNames.size();
+        } else if (pname == GLES20.GL_ACTIVE_UNIFORMS) {
+            params[offset] = p.uniformNames.size();
+        } else {
+            mError = GLES20.GL_INVALID_ENUM;
+        }
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        return "";
+    }
+
+    @Override
+    public String glGetActiveAttrib(int program, int index,
+                                    int[] size, int sizeOffset, int[] type, int typeOffset) {
+        Program p = mPrograms.get(program);
+        if (p == null || index >= p.attributeNames.size()) {
+            mError = GLES20.GL_INVALID_VALUE;
+            return "";
+        }
+        size[sizeOffset] = 1;
+        type[typeOffset] = p.attributeTypes.get(index);
+        return p.attributeNames.get(index);
+    }
+
+    @Override
+    public String glGetActiveUniform(int program, int index,
+                                     int[] size, int sizeOffset, int[] type, int typeOffset) {
+        Program p = mPrograms.get(program);
+        if (p == null || index >= p.uniformNames.size()) {
+            mError = GLES20.GL_INVALID_VALUE;
+            return "";
+        }
+        size[sizeOffset] = 1;
+        type[typeOffset] = p.uniformTypes.get(index);
+        return p.uniformNames.get(index);
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        Program p = mPrograms.get(program);
+        return p != null ? p.attributeNames.indexOf(name) : -1;
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        Program p = mPrograms.get(program);
+        if (p == null) {
+            return -1;
+        }
+        int location = p.uniformNames.indexOf(name);
+        return location >= 0 ? location : p.uniformNames.indexOf(name + "[0]");
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        if (program != 0 && !mPrograms.containsKey(program)) {
+            mError = GLES20.GL_INVALID_VALUE;
+        }
+        mCurrentProgram = program;
+        record(USE_PROGRAM, program);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        mPrograms.remove(program);
+        if (mCurrentProgram == program) {
+            mCurrentProgram = 0;
+        }
+        record(DELETE_PROGRAM, program);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        requireProgram();
+        record(UNIFORM_4FV, location, count);
+        mStateChangeCount++;
+        mUploadedBytes += count * 4 * 4;
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        requireProgram();
+        record(UNIFORM_MATRIX_4FV, location, count);
+        mStateChangeCount++;
+        mUploadedBytes += count * 16 * 4;
+    }
+
+    // Buffers and vertex attributes
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        for (int i = 0; i < n; i++) {
+            buffers[offset + i] = mNextName++;
+        }
+        record(GEN_BUFFERS, n);
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        record(DELETE_BUFFERS, n);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        record(BIND_BUFFER, target, buffer);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        record(BUFFER_DATA, target, size, usage);
+        if (data != null) {
+            mUploadedBytes += size;
+        }
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        record(BUFFER_SUB_DATA, target, offset, size);
+        mUploadedBytes += size;
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        if (!isValidAttrib(index)) {
+            return;
+        }
+        mAttribEnabled[index] = true;
+        record(ENABLE_VERTEX_ATTRIB_ARRAY, index);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        if (!isValidAttrib(index)) {
+            return;
+        }
+        mAttribEnabled[index] = false;
+        record(DISABLE_VERTEX_ATTRIB_ARRAY, index);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                                      int stride, int offset) {
+        if (!isValidAttrib(index)) {
+            return;
+        }
+        mClientBytesPerVertex[index] = 0;
+        record(VERTEX_ATTRIB_POINTER, index, size, type, normalized ? 1 : 0, stride, offset);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                                      int stride, Buffer pointer) {
+        if (!isValidAttrib(index)) {
+            return;
+        }
+        // Every supported attribute type is a float.
+        mClientBytesPerVertex[index] = stride != 0 ? stride : size * 4;
+        record(VERTEX_ATTRIB_POINTER_CLIENT, index, size, type, normalized ? 1 : 0, stride);
+        mStateChangeCount++;
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        if (!mVersion.startsWith("OpenGL ES 3")) {
+            mError = GLES20.GL_INVALID_OPERATION;
+        }
+        record(VERTEX_ATTRIB_DIVISOR, index, divisor);
+        mStateChangeCount++;
+    }
+
+    // Drawing
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        requireProgram();
+        record(DRAW_ARRAYS, mode, first, count);
+        mDrawCallCount++;
+        mUploadedBytes += clientBytes(count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        requireProgram();
+        record(DRAW_ELEMENTS, mode, count, type, offset);
+        mDrawCallCount++;
+        mUploadedBytes += clientBytes(count);
+    }
+
+    @Override
+    public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        if (!mVersion.startsWith("OpenGL ES 3")) {
+            mError = GLES20.GL_INVALID_OPERATION;
+        }
+        requireProgram();
+        record(DRAW_ARRAYS_INSTANCED, mode, first, count, instanceCount);
+        mDrawCallCount++;
+        mUploadedBytes += clientBytes(count);
+    }
+
+    // Synchronization
+
+    @Override
+    public long glFenceSync(int condition, int flags) {
+        if (!requireEs3()) {
+            return 0;
+        }
+        long sync = ++mLastSync;
+        mSignaledSync = Math.max(mSignaledSync, sync - mGpuLatency);
+        record(FENCE_SYNC, (int) sync);
+        return sync;
+    }
+
+    @Override
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        record(CLIENT_WAIT_SYNC, (int) sync, flags);
+        if (!requireEs3()) {
+            return GLES30.GL_WAIT_FAILED;
+        }
+        if (sync <= mSignaledSync) {
+            return GLES30.GL_ALREADY_SIGNALED;
+        }
+        if (timeout == 0) {
+            return GLES30.GL_TIMEOUT_EXPIRED;
+        }
+        // Waiting lets the GPU catch up with the fence.
+        mSignaledSync = sync;
+        mBlockingWaitCount++;
+        return GLES30.GL_CONDITION_SATISFIED;
+    }
+
+    @Override
+    public void glDeleteSync(long sync) {
+        requireEs3();
+        record(DELETE_SYNC, (int) sync);
+    }
+
+    private boolean requireEs3() {
+        if (!mVersion.startsWith("OpenGL ES 3")) {
+            mError = GLES20.GL_INVALID_OPERATION;
+            return false;
+        }
+        return true;
+    }
+
+    private void requireProgram() {
+        if (mCurrentProgram == 0) {
+            mError = GLES20.GL_INVALID_OPERATION;
+        }
+    }
+
+    private boolean isValidAttrib(int index) {
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            mError = GLES20.GL_INVALID_VALUE;
+            return false;
+        }
+        return true;
+    }
+
+    private long clientBytes(int vertexCount) {
+        long bytes = 0;
+        for (int i = 0; i < MAX_VERTEX_ATTRIBS; i++) {
+            if (mAttribEnabled[i]) {
+                bytes += (long) mClientBytesPerVertex[i] * vertexCount;
+            }
+        }
+        return bytes;
+    }
+
+    private static int typeOf(String glslType) {
+        switch (glslType) {
+            case "float": return GLES20.GL_FLOAT;
+            case "vec2": return GLES20.GL_FLOAT_VEC2;
+            case "vec3": return GLES20.GL_FLOAT_VEC3;
+            case "vec4": return GLES20.GL_FLOAT_VEC4;
+            case "mat2": return GLES20.GL_FLOAT_MAT2;
+            case "mat3": return GLES20.GL_FLOAT_MAT3;
+            case "mat4": return GLES20.GL_FLOAT_MAT4;
+            case "int": return GLES20.GL_INT;
+            case "bool": return GLES20.GL_BOOL;
+            case "sampler2D": return GLES20.GL_SAMPLER_2D;
+            default: throw new IllegalArgumentException("Unsupported GLSL type " + glslType);
+        }
+    }
+
+    // The record overloads avoid varargs, which would allocate an array per call.
+
+    private void record(int opcode, int a) {
+        int p = begin(opcode, 1);
+        mLog[p] = a;
+    }
+
+    private void record(int opcode, int a, int b) {
+        int p = begin(opcode, 2);
+        mLog[p] = a;
+        mLog[p + 1] = b;
+    }
+
+    private void record(int opcode, int a, int b, int c) {
+        int p = begin(opcode, 3);
+        mLog[p] = a;
+        mLog[p + 1] = b;
+        mLog[p + 2] = c;
+    }
+
+    private void record(int opcode, int a, int b, int c, int d) {
+        int p = begin(opcode, 4);
+        mLog[p] = a;
+        mLog[p + 1] = b;
+        mLog[p + 2] = c;
+        mLog[p + 3] = d;
+    }
+
+    private void record(int opcode, int a, int b, int c, int d, int e) {
+        int p = begin(opcode, 5);
+        mLog[p] = a;
+        mLog[p + 1] = b;
+        mLog[p + 2] = c;
+        mLog[p + 3] = d;
+        mLog[p + 4] = e;
+    }
+
+    private void record(int opcode, int a, int b, int c, int d, int e, int f) {
+        int p = begin(opcode, 6);
+        mLog[p] = a;
+        mLog[p + 1] = b;
+        mLog[p + 2] = c;
+        mLog[p + 3] = d;
+        mLog[p + 4] = e;
+        mLog[p + 5] = f;
+    }
+
+    // Writes the header and returns the log position of the first argument.
+    private int begin(int opcode, int argumentCount) {
+        if (mLogSize + 1 + argumentCount > mLog.length) {
+            int[] log = new int[mLog.length * 2];
+            System.arraycopy(mLog, 0, log, 0, mLogSize);
+            mLog = log;
+        }
+        mCommandCounts[opcode]++;
+        mLog[mLogSize] = (opcode << 8) | argumentCount;
+        int position = mLogSize + 1;
+        mLogSize = position + argumentCount;
+        return position;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+/**
+ * Collects the drawables of a frame and draws them in the order of their
+ * 64-bit sort keys.
+ *
+ * <p>Opaque objects come first, grouped by program, then buffer, then line
+ * width, and front to back within a group, so state changes are rare and
+ * near objects hide far ones early. Translucent objects follow back to front,
+ * which blending needs to composite correctly, and only then by state. Keys
+ * are compared as unsigned numbers:</p>
+ *
+ * <pre>
+ * opaque:      0 | program:12 | buffer:12 | line width:8 | depth:15     | index:16
+ * translucent: 1 | far-depth:15 | program:12 | buffer:12 | line width:8 | index:16
+ * </pre>
+ *
+ * <p>The low 16 bits hold the submission index, which makes every key unique
+ * and keeps ties in submission order. The keys are sorted with a radix sort
+ * over their bytes, which needs no comparisons and, once the arrays have
+ * grown to the size of a frame, no allocation.</p>
+ */
+public class RenderQueue {
+
+    /** The most drawables one frame can submit. */
+    public static final int MAX_SIZE = 1 << 16;
+
+    private static final long TRANSLUCENT = 1L << 63;
+    private static final int DEPTH_BITS = 15;
+    private static final int DEPTH_MAX = (1 << DEPTH_BITS) - 1;
+    private static final int INDEX_MASK = MAX_SIZE - 1;
+
+    private final Gl mGl;
+
+    private Drawable[] mDrawables = new Drawable[16];
+    private long[] mKeys = new long[16];
+    private long[] mScratch = new long[16];
+    private final int[] mCounts = new int[256];
+    private int mSize = 0;
+
+    /**
+     * @param gl - Receives the blending state changes between the opaque and
+     *           the translucent objects.
+     */
+    public RenderQueue(Gl gl) {
+        mGl = gl;
+    }
+
+    /**
+     * Builds a sort key. The submission index is added by {@link #submit}.
+     *
+     * @param program - Handle of the program the draw uses.
+     * @param buffer - Handle of the vertex buffer the draw reads, 0 for client-side arrays.
+     * @param lineWidth - Line width the draw sets, in steps of a quarter pixel up to 63.75.
+     * @param translucent - Whether the draw blends with what is behind it.
+     * @param depth - Distance from the eye, 0 at the near and 1 at the far
+     *              clipping plane. Values outside are clamped.
+     */
+    public static long makeKey(int program, int buffer, float lineWidth,
+                               boolean translucent, float depth) {
+        long state = ((long) (program & 0xFFF) << 20)
+                | ((long) (buffer & 0xFFF) << 8)
+                | (Math.min(Math.max((int) (lineWidth * 4), 0), 0xFF));
+        long quantizedDepth = (long) (Math.min(Math.max(depth, 0.0f), 1.0f) * DEPTH_MAX);
+        if (translucent) {
+            return TRANSLUCENT | ((DEPTH_MAX - quantizedDepth) << 48) | (state << 16);
+        }
+        return (state << 31) | (quantizedDepth << 16);
+    }
+
+    /**
+     * Returns whether a key belongs to a translucent object.
+     */
+    public static boolean isTranslucent(long key) {
+        return key < 0;
+    }
+
+    /**
+     * Empties the queue for the next frame.
+     */
+    public void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mDrawables[i] = null;
+        }
+        mSize = 0;
+    }
+
+    /**
+     * Queues a drawable for this frame.
+     *
+     * @param drawable - Drawn by {@link #execute}.
+     * @param depth - Distance from the eye, see {@link #makeKey}.
+     */
+    public void submit(Drawable drawable, float depth) {
+        if (mSize == MAX_SIZE) {
+            throw new IllegalStateException("More than " + MAX_SIZE + " drawables in one frame");
+        }
+        if (mSize == mKeys.length) {
+            int capacity = Math.min(mSize * 2, MAX_SIZE);
+            Drawable[] drawables = new Drawable[capacity];
+            System.arraycopy(mDrawables, 0, drawables, 0, mSize);
+            mDrawables = drawables;
+            long[] keys = new long[capacity];
+            System.arraycopy(mKeys, 0, keys, 0, mSize);
+            mKeys = keys;
+            mScratch = new long[capacity];
+        }
+        mDrawables[mSize] = drawable;
+        mKeys[mSize] = (drawable.getSortKey(depth) & ~(long) INDEX_MASK) | mSize;
+        mSize++;
+    }
+
+    /**
+     * Returns the number of queued drawables.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Sorts the queued keys. Valid until the next {@link #submit}.
+     */
+    public void sort() {
+        // The keys are submitted in index order, so the two index bytes are
+        // sorted already.
+        for (int shift = 16; shift < 64; shift += 8) {
+            radixPass(shift);
+        }
+    }
+
+    /**
+     * Returns the key at a position of the sorted queue.
+     */
+    public long getSortedKey(int position) {
+        return mKeys[position];
+    }
+
+    /**
+     * Returns the drawable at a position of the sorted queue.
+     */
+    public Drawable getSortedDrawable(int position) {
+        return mDrawables[(int) (mKeys[position] & INDEX_MASK)];
+    }
+
+    /**
+     * Sorts the queue and draws everything in it, blending the translucent
+     * objects over the opaque ones.
+     *
+     * @param mvpMatrix - The Model View Project matrix of the frame.
+     * @param globalRotationMatrix - The rotation of the whole room.
+     * @param arena - Scratch matrices of the current frame.
+     */
+    public void execute(float[] mvpMatrix, float[] globalRotationMatrix, MatrixArena arena) {
+        sort();
+        boolean blending = false;
+        for (int i = 0; i < mSize; i++) {
+            long key = mKeys[i];
+            // Set on the first object either way, redundant calls are left
+            // to the GlStateCache.
+            if (i == 0 || isTranslucent(key) != blending) {
+                blending = isTranslucent(key);
+                if (blending) {
+                    mGl.glEnable(GLES20.GL_BLEND);
+                    mGl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+                } else {
+                    mGl.glDisable(GLES20.GL_BLEND);
+                }
+            }
+            mDrawables[(int) (key & INDEX_MASK)].draw(mvpMatrix, globalRotationMatrix, arena);
+        }
+    }
+
+    /**
+     * One stable counting sort pass over the byte at {@code shift}, skipped
+     * when all keys share that byte.
+     */
+    private void radixPass(int shift) {
+        final int[] counts = mCounts;
+        final long[] keys = mKeys;
+        final int size = mSize;
+        for (int i = 0; i < 256; i++) {
+            counts[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            counts[(int) (keys[i] >>> shift) & 0xFF]++;
+        }
+        if (size == 0 || counts[(int) (keys[0] >>> shift) & 0xFF] == size) {
+            return;
+        }
+        int total = 0;
+        for (int i = 0; i < 256; i++) {
+            int count = counts[i];
+            counts[i] = total;
+            total += count;
+        }
+        final long[] sorted = mScratch;
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            sorted[counts[(int) (key >>> shift) & 0xFF]++] = key;
+        }
+        mScratch = keys;
+        mKeys = sorted;
+    }
+}
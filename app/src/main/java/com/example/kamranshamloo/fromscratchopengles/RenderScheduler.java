@@ -0,0 +1,106 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLSurfaceView;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether the GL thread renders continuously or only on demand.
+ *
+ * <p>Anything that changes the picture on its own, such as the room
+ * animation, marks itself active with {@link #setActive(int, boolean)}. While
+ * at least one source is active the view renders continuously. Once all of
+ * them are idle it drops to {@link GLSurfaceView#RENDERMODE_WHEN_DIRTY} and
+ * only draws again on {@link #requestRender()}, e.g. for touch input or new
+ * device positions. This keeps wall-mounted tablets from redrawing a static
+ * room at full frame rate.</p>
+ *
+ * <p>Sources may be toggled from any thread.</p>
+ */
+public class RenderScheduler {
+
+    /**
+     * Receives the render mode decisions, normally the {@link GLSurfaceView}.
+     */
+    public interface Host {
+        void setRenderMode(int renderMode);
+        void requestRender();
+    }
+
+    /** The room build-up animation is running. */
+    public static final int SOURCE_ANIMATION = 1;
+
+    /** Puck positions are being updated. */
+    public static final int SOURCE_PUCK_MOTION = 1 << 1;
+
+    /** The view is animating back to its initial orientation. */
+    public static final int SOURCE_VIEW_RESET = 1 << 2;
+
+    private final Host mHost;
+    private final AtomicInteger mActiveSources = new AtomicInteger(0);
+    // Guards deciding and applying the render mode as one step.
+    private final Object mRenderModeLock = new Object();
+    private volatile int mRenderMode;
+
+    /**
+     * Creates a scheduler with every source idle, so the host starts out
+     * rendering on demand.
+     */
+    public RenderScheduler(Host host) {
+        mHost = host;
+        mRenderMode = GLSurfaceView.RENDERMODE_WHEN_DIRTY;
+        mHost.setRenderMode(mRenderMode);
+    }
+
+    /**
+     * Marks a source of continuous change as active or idle.
+     *
+     * @param source - One of the {@code SOURCE_*} flags.
+     * @param active - True while the source changes the picture every frame.
+     */
+    public void setActive(int source, boolean active) {
+        int sources;
+        int updated;
+        do {
+            sources = mActiveSources.get();
+            updated = active ? sources | source : sources & ~source;
+        } while (sources != updated && !mActiveSources.compareAndSet(sources, updated));
+        updateRenderMode();
+    }
+
+    /**
+     * Returns true if the given source is currently active.
+     */
+    public boolean isActive(int source) {
+        return (mActiveSources.get() & source) != 0;
+    }
+
+    /**
+     * Asks for one more frame, e.g. after touch input or a position update.
+     */
+    public void requestRender() {
+        mHost.requestRender();
+    }
+
+    /**
+     * Returns {@link GLSurfaceView#RENDERMODE_CONTINUOUSLY} or
+     * {@link GLSurfaceView#RENDERMODE_WHEN_DIRTY}.
+     */
+    public int getRenderMode() {
+        return mRenderMode;
+    }
+
+    private void updateRenderMode() {
+        // Read the sources under the lock: whoever changes them afterwards
+        // comes through here again, so the last mode set always matches them.
+        synchronized (mRenderModeLock) {
+            int renderMode = mActiveSources.get() != 0
+                    ? GLSurfaceView.RENDERMODE_CONTINUOUSLY
+                    : GLSurfaceView.RENDERMODE_WHEN_DIRTY;
+            if (renderMode != mRenderMode) {
+                mRenderMode = renderMode;
+                mHost.setRenderMode(renderMode);
+            }
+        }
+    }
+}
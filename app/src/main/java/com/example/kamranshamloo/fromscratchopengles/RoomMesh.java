@@ -0,0 +1,117 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexed geometry of one or more rooms, as made by {@link RoomMeshBuilder}.
+ *
+ * <p>Every corner is stored once; the wireframe, the surfaces and the walls
+ * refer to corners by their index, ready for {@code glDrawElements} with
+ * {@code GL_UNSIGNED_SHORT}. The arrays are shared, not copied, so treat
+ * them as read-only.</p>
+ */
+public final class RoomMesh {
+
+    /** The built-in room. */
+    public static final float[] DEFAULT_EXTENTS = {-2.0f, -1.0f, -1.0f, 2.0f, 1.0f, 1.0f};
+
+    // number of coordinates per vertex in this array
+    static final int COORDS_PER_VERTEX = 3;
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final String mName = "room" + NEXT_ID.getAndIncrement();
+
+    private final float[] mVertices;
+    private final short[] mLineIndices;
+    private final short[] mTriangleIndices;
+    private final short[] mWallIndices;
+    private final float[] mExtents;
+
+    RoomMesh(float[] vertices, short[] lineIndices, short[] triangleIndices,
+             short[] wallIndices, float[] extents) {
+        mVertices = vertices;
+        mLineIndices = lineIndices;
+        mTriangleIndices = triangleIndices;
+        mWallIndices = wallIndices;
+        mExtents = extents;
+    }
+
+    /**
+     * Returns the mesh of a box-shaped room.
+     *
+     * @param extents - minX, minY, minZ, maxX, maxY and maxZ of the room.
+     */
+    public static RoomMesh box(float[] extents) {
+        return new RoomMeshBuilder().addBox(extents).build();
+    }
+
+    /**
+     * Returns a name no other mesh has, for naming its GPU buffers.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Returns the corners, xyz per vertex.
+     */
+    public float[] getVertices() {
+        return mVertices;
+    }
+
+    public int getVertexCount() {
+        return mVertices.length / COORDS_PER_VERTEX;
+    }
+
+    /**
+     * Returns the edges for {@code GL_LINES}, two indices each.
+     */
+    public short[] getLineIndices() {
+        return mLineIndices;
+    }
+
+    /**
+     * Returns the floors, ceilings and walls for {@code GL_TRIANGLES}, three
+     * indices each, counter-clockwise as seen from inside the room.
+     */
+    public short[] getTriangleIndices() {
+        return mTriangleIndices;
+    }
+
+    /**
+     * Returns the walls, four indices each: the two bottom corners, then the
+     * top corner above the second and the top corner above the first.
+     */
+    public short[] getWallIndices() {
+        return mWallIndices;
+    }
+
+    public int getWallCount() {
+        return mWallIndices.length / 4;
+    }
+
+    /**
+     * Returns minX, minY, minZ, maxX, maxY and maxZ of all rooms.
+     */
+    public float[] getExtents() {
+        return mExtents.clone();
+    }
+
+    /**
+     * Returns whether the mesh is a single box, i.e. eight corners on the
+     * corners of its extents joined by twelve edges.
+     */
+    public boolean isBox() {
+        if (getVertexCount() != 8 || mLineIndices.length != 12 * 2) {
+            return false;
+        }
+        for (int i = 0; i < mVertices.length; i++) {
+            final int axis = i % COORDS_PER_VERTEX;
+            if (mVertices[i] != mExtents[axis] && mVertices[i] != mExtents[axis + 3]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Builds the {@link RoomMesh} of a floor plan: rooms with any polygonal
+ * footprint, extruded from their floor up to their ceiling.
+ *
+ * <p>Corners shared by rooms, e.g. on both sides of a common wall, are
+ * stored once, and so are the edges and walls between shared corners. A wall
+ * is only shared if both rooms have a corner at each of its ends, with the
+ * same floor and ceiling.</p>
+ *
+ * <p>Kept free of GL so the geometry can be tested and benchmarked on a
+ * plain JVM.</p>
+ */
+public class RoomMeshBuilder {
+
+    // Indices are unsigned shorts.
+    private static final int MAX_VERTEX_COUNT = 1 << 16;
+
+    private float[] mVertices = new float[8 * RoomMesh.COORDS_PER_VERTEX];
+    private int mVertexCount = 0;
+    private final HashMap<Corner, Integer> mCorners = new HashMap<>();
+
+    private short[] mLineIndices = new short[24];
+    private int mLineIndexCount = 0;
+    // Edges already added, by the key of their end points, and walls by the
+    // keys of their bottom and top edges.
+    private final IntIntMap mEdges = new IntIntMap(16);
+    private final HashSet<Long> mWalls = new HashSet<>();
+
+    private short[] mTriangleIndices = new short[36];
+    private int mTriangleIndexCount = 0;
+
+    private short[] mWallIndices = new short[16];
+    private int mWallIndexCount = 0;
+
+    private final float[] mExtents = {
+            Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+
+    /**
+     * Adds a room.
+     *
+     * @param footprint - x and z of every corner of the floor, in order
+     *                  around the room, either way. The polygon must not
+     *                  cross itself. Repeating the first corner at the end
+     *                  is allowed.
+     * @param floorY - Height of the floor.
+     * @param height - Distance from the floor to the ceiling.
+     * @return - This builder.
+     */
+    public RoomMeshBuilder addRoom(float[] footprint, float floorY, float height) {
+        if (footprint.length % 2 != 0) {
+            throw new IllegalArgumentException("Footprint must be pairs of x and z");
+        }
+        if (!(height > 0) || Float.isInfinite(height) || Float.isNaN(floorY)
+                || Float.isInfinite(floorY)) {
+            throw new IllegalArgumentException("Invalid room from " + floorY + " up " + height);
+        }
+        final float[] corners = withoutRepeats(footprint);
+        final int n = corners.length / 2;
+        if (n < 3) {
+            throw new IllegalArgumentException("A room needs at least three corners");
+        }
+        final float area = signedArea(corners);
+        if (area == 0 || Float.isNaN(area)) {
+            throw new IllegalArgumentException("Footprint has no area");
+        }
+        // Walk the corners clockwise as seen from above, i.e. with the x-z
+        // cross product of every convex corner negative.
+        if (area > 0) {
+            reverse(corners);
+        }
+
+        final float ceilingY = floorY + height;
+        final int[] bottom = new int[n];
+        final int[] top = new int[n];
+        for (int i = 0; i < n; i++) {
+            bottom[i] = corner(corners[i * 2], floorY, corners[i * 2 + 1]);
+            top[i] = corner(corners[i * 2], ceilingY, corners[i * 2 + 1]);
+        }
+
+        triangulate(corners, bottom, top);
+        for (int i = 0; i < n; i++) {
+            final int next = (i + 1) % n;
+            addEdge(bottom[i], bottom[next]);
+            addEdge(top[i], top[next]);
+            addEdge(bottom[i], top[i]);
+            addWall(bottom[i], bottom[next], top[next], top[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a box-shaped room.
+     *
+     * @param extents - minX, minY, minZ, maxX, maxY and maxZ of the room.
+     * @return - This builder.
+     */
+    public RoomMeshBuilder addBox(float[] extents) {
+        final float minX = extents[0], minZ = extents[2];
+        final float maxX = extents[3], maxZ = extents[5];
+        return addRoom(new float[]{minX, minZ, minX, maxZ, maxX, maxZ, maxX, minZ},
+                extents[1], extents[4] - extents[1]);
+    }
+
+    /**
+     * Returns the mesh of every room added so far.
+     */
+    public RoomMesh build() {
+        if (mVertexCount == 0) {
+            throw new IllegalStateException("No rooms");
+        }
+        float[] vertices = new float[mVertexCount * RoomMesh.COORDS_PER_VERTEX];
+        System.arraycopy(mVertices, 0, vertices, 0, vertices.length);
+        short[] lineIndices = new short[mLineIndexCount];
+        System.arraycopy(mLineIndices, 0, lineIndices, 0, mLineIndexCount);
+        short[] triangleIndices = new short[mTriangleIndexCount];
+        System.arraycopy(mTriangleIndices, 0, triangleIndices, 0, mTriangleIndexCount);
+        short[] wallIndices = new short[mWallIndexCount];
+        System.arraycopy(mWallIndices, 0, wallIndices, 0, mWallIndexCount);
+        return new RoomMesh(vertices, lineIndices, triangleIndices, wallIndices, mExtents.clone());
+    }
+
+    /**
+     * Ear-clips the footprint into the floor and ceiling triangles.
+     *
+     * @param corners - Clockwise as seen from above.
+     */
+    private void triangulate(float[] corners, int[] bottom, int[] top) {
+        int n = corners.length / 2;
+        final int[] remaining = new int[n];
+        for (int i = 0; i < n; i++) {
+            remaining[i] = i;
+        }
+        int misses = 0;
+        int i = 0;
+        while (n > 2) {
+            final int prev = remaining[(i + n - 1) % n];
+            final int cur = remaining[i];
+            final int next = remaining[(i + 1) % n];
+            final float cross = cross(corners, prev, cur, next);
+            final boolean ear = cross < 0 && isEmpty(corners, remaining, n, prev, cur, next);
+            if (ear || cross == 0) {
+                // Clip the ear; a corner on a straight line has none to clip.
+                if (ear) {
+                    // Facing into the room: up for the floor, down for the ceiling.
+                    addTriangle(bottom[prev], bottom[cur], bottom[next]);
+                    addTriangle(top[prev], top[next], top[cur]);
+                }
+                System.arraycopy(remaining, i + 1, remaining, i, n - i - 1);
+                n--;
+                misses = 0;
+            } else if (++misses > n) {
+                throw new IllegalArgumentException("Footprint crosses itself");
+            } else {
+                i++;
+            }
+            if (i >= n) {
+                i = 0;
+            }
+        }
+    }
+
+    // Whether no other corner lies in or on the triangle prev, cur, next.
+    private static boolean isEmpty(float[] corners, int[] remaining, int n,
+                                   int prev, int cur, int next) {
+        for (int j = 0; j < n; j++) {
+            final int k = remaining[j];
+            if (k == prev || k == cur || k == next
+                    || same(corners, k, prev) || same(corners, k, cur) || same(corners, k, next)) {
+                continue;
+            }
+            if (cross(corners, prev, cur, k) <= 0 && cross(corners, cur, next, k) <= 0
+                    && cross(corners, next, prev, k) <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addWall(int bottomA, int bottomB, int topB, int topA) {
+        final long key = (long) edgeKey(bottomA, bottomB) << 32 | edgeKey(topA, topB) & 0xffffffffL;
+        if (!mWalls.add(key)) {
+            // The other side of a wall between two rooms.
+            return;
+        }
+        // Facing into the room.
+        addTriangle(bottomA, topA, topB);
+        addTriangle(bottomA, topB, bottomB);
+        if (mWallIndexCount + 4 > mWallIndices.length) {
+            mWallIndices = grow(mWallIndices);
+        }
+        mWallIndices[mWallIndexCount++] = (short) bottomA;
+        mWallIndices[mWallIndexCount++] = (short) bottomB;
+        mWallIndices[mWallIndexCount++] = (short) topB;
+        mWallIndices[mWallIndexCount++] = (short) topA;
+    }
+
+    private void addEdge(int a, int b) {
+        if (mEdges.put(edgeKey(a, b), 1) != IntIntMap.NO_VALUE) {
+            return;
+        }
+        if (mLineIndexCount + 2 > mLineIndices.length) {
+            mLineIndices = grow(mLineIndices);
+        }
+        mLineIndices[mLineIndexCount++] = (short) a;
+        mLineIndices[mLineIndexCount++] = (short) b;
+    }
+
+    private void addTriangle(int a, int b, int c) {
+        if (mTriangleIndexCount + 3 > mTriangleIndices.length) {
+            mTriangleIndices = grow(mTriangleIndices);
+        }
+        mTriangleIndices[mTriangleIndexCount++] = (short) a;
+        mTriangleIndices[mTriangleIndexCount++] = (short) b;
+        mTriangleIndices[mTriangleIndexCount++] = (short) c;
+    }
+
+    /**
+     * Returns the index of the corner at the given position, adding it if
+     * it is new.
+     */
+    private int corner(float x, float y, float z) {
+        final Corner key = new Corner(x, y, z);
+        final Integer index = mCorners.get(key);
+        if (index != null) {
+            return index;
+        }
+        if (mVertexCount == MAX_VERTEX_COUNT) {
+            throw new IllegalStateException("More than " + MAX_VERTEX_COUNT + " corners");
+        }
+        if ((mVertexCount + 1) * RoomMesh.COORDS_PER_VERTEX > mVertices.length) {
+            float[] vertices = new float[mVertices.length * 2];
+            System.arraycopy(mVertices, 0, vertices, 0, mVertices.length);
+            mVertices = vertices;
+        }
+        final int offset = mVertexCount * RoomMesh.COORDS_PER_VERTEX;
+        mVertices[offset] = x;
+        mVertices[offset + 1] = y;
+        mVertices[offset + 2] = z;
+        mExtents[0] = Math.min(mExtents[0], x);
+        mExtents[1] = Math.min(mExtents[1], y);
+        mExtents[2] = Math.min(mExtents[2], z);
+        mExtents[3] = Math.max(mExtents[3], x);
+        mExtents[4] = Math.max(mExtents[4], y);
+        mExtents[5] = Math.max(mExtents[5], z);
+        mCorners.put(key, mVertexCount);
+        return mVertexCount++;
+    }
+
+    // The same for a and b in either order.
+    private static int edgeKey(int a, int b) {
+        return Math.min(a, b) << 16 | Math.max(a, b);
+    }
+
+    // Twice the signed area of the polygon in the x-z plane.
+    private static float signedArea(float[] corners) {
+        final int n = corners.length / 2;
+        float area = 0;
+        for (int i = 0; i < n; i++) {
+            final int next = (i + 1) % n;
+            area += corners[i * 2] * corners[next * 2 + 1] - corners[next * 2] * corners[i * 2 + 1];
+        }
+        return area;
+    }
+
+    // The x-z cross product of o->a and o->b; negative if b is clockwise of a
+    // as seen from above.
+    private static float cross(float[] corners, int o, int a, int b) {
+        final float ox = corners[o * 2], oz = corners[o * 2 + 1];
+        return (corners[a * 2] - ox) * (corners[b * 2 + 1] - oz)
+                - (corners[a * 2 + 1] - oz) * (corners[b * 2] - ox);
+    }
+
+    private static boolean same(float[] corners, int a, int b) {
+        return corners[a * 2] == corners[b * 2] && corners[a * 2 + 1] == corners[b * 2 + 1];
+    }
+
+    // The footprint without corners repeating the one before them.
+    private static float[] withoutRepeats(float[] footprint) {
+        final int n = footprint.length / 2;
+        float[] corners = new float[footprint.length];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            final float x = footprint[i * 2], z = footprint[i * 2 + 1];
+            if (count > 0 && corners[count * 2 - 2] == x && corners[count * 2 - 1] == z) {
+                continue;
+            }
+            corners[count * 2] = x;
+            corners[count * 2 + 1] = z;
+            count++;
+        }
+        if (count > 1 && corners[0] == corners[count * 2 - 2] && corners[1] == corners[count * 2 - 1]) {
+            count--;
+        }
+        float[] result = new float[count * 2];
+        System.arraycopy(corners, 0, result, 0, result.length);
+        return result;
+    }
+
+    private static void reverse(float[] corners) {
+        final int n = corners.length / 2;
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            float x = corners[i * 2], z = corners[i * 2 + 1];
+            corners[i * 2] = corners[j * 2];
+            corners[i * 2 + 1] = corners[j * 2 + 1];
+            corners[j * 2] = x;
+            corners[j * 2 + 1] = z;
+        }
+    }
+
+    private static short[] grow(short[] array) {
+        short[] grown = new short[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * A corner position as a map key. Minus zero is the same corner as zero.
+     */
+    private static final class Corner {
+
+        private final int mX;
+        private final int mY;
+        private final int mZ;
+
+        Corner(float x, float y, float z) {
+            mX = Float.floatToIntBits(x + 0.0f);
+            mY = Float.floatToIntBits(y + 0.0f);
+            mZ = Float.floatToIntBits(z + 0.0f);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Corner)) {
+                return false;
+            }
+            Corner other = (Corner) o;
+            return mX == other.mX && mY == other.mY && mZ == other.mZ;
+        }
+
+        @Override
+        public int hashCode() {
+            return (mX * 31 + mY) * 31 + mZ;
+        }
+    }
+}
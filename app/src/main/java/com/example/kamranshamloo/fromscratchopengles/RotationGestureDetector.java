@@ -45,7 +45,7 @@ public class RotationGestureDetector {
                     nfX = event.getX(event.findPointerIndex(ptrID2));
                     nfY = event.getY(event.findPointerIndex(ptrID2));
 
-                     mAngle = angleBetweenLines(fX, fY, sX, sY, nfX, nfY, nsX, nsY);
+                     mAngle = GestureMath.angleBetweenLines(fX, fY, sX, sY, nfX, nfY, nsX, nsY);
 
                     mDeltaAngle = mAngle - mPreviousAngle;
 
@@ -79,17 +79,6 @@ public class RotationGestureDetector {
         return true;
     }
 
-    private float angleBetweenLines (float fX, float fY, float sX, float sY, float nfX, float nfY, float nsX, float nsY)
-    {
-        float angle1 = (float) Math.atan2( (fY - sY), (fX - sX) );
-        float angle2 = (float) Math.atan2( (nfY - nsY), (nfX - nsX) );
-
-        float angle = ((float)Math.toDegrees(angle1 - angle2)) % 360;
-        if (angle < -180.f) angle += 360.0f;
-        if (angle > 180.f) angle -= 360.0f;
-        return angle;
-    }
-
     public boolean isInProgress(){
         return mIsInProgress;
     }
@@ -0,0 +1,72 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands rotation gestures from the UI thread to the GL thread without locks
+ * and without losing any delta.
+ *
+ * <p>Each axis is an atomic float accumulator. The UI thread adds deltas with a
+ * compare-and-set loop, so concurrent additions are never lost the way a
+ * {@code volatile float += delta} can lose them. The GL thread swaps each
+ * accumulator back to zero when it reads it, so every delta is consumed
+ * exactly once.</p>
+ */
+public class RotationInputChannel {
+
+    /** Index of the rotation around the Y axis (horizontal drag) in {@link #drain}. */
+    public static final int AROUND_Y = 0;
+    /** Index of the rotation around the X axis (vertical drag) in {@link #drain}. */
+    public static final int AROUND_X = 1;
+    /** Index of the rotation around the Z axis (two-finger twist) in {@link #drain}. */
+    public static final int AROUND_Z = 2;
+
+    private final AtomicInteger mAroundY = new AtomicInteger(Float.floatToIntBits(0.0f));
+    private final AtomicInteger mAroundX = new AtomicInteger(Float.floatToIntBits(0.0f));
+    private final AtomicInteger mAroundZ = new AtomicInteger(Float.floatToIntBits(0.0f));
+
+    /**
+     * Adds a drag. May be called from any thread.
+     *
+     * @param deltaX - Degrees to rotate around the Y axis.
+     * @param deltaY - Degrees to rotate around the X axis.
+     */
+    public void addDrag(float deltaX, float deltaY) {
+        add(mAroundY, deltaX);
+        add(mAroundX, deltaY);
+    }
+
+    /**
+     * Adds a two-finger twist. May be called from any thread.
+     *
+     * @param deltaAngle - Degrees to rotate around the Z axis.
+     */
+    public void addTwist(float deltaAngle) {
+        add(mAroundZ, deltaAngle);
+    }
+
+    /**
+     * Takes everything accumulated since the last call and resets the channel.
+     *
+     * @param out - Receives the degrees around Y, X and Z at
+     *              {@link #AROUND_Y}, {@link #AROUND_X} and {@link #AROUND_Z}.
+     */
+    public void drain(float[] out) {
+        out[AROUND_Y] = take(mAroundY);
+        out[AROUND_X] = take(mAroundX);
+        out[AROUND_Z] = take(mAroundZ);
+    }
+
+    private static void add(AtomicInteger accumulator, float delta) {
+        int bits;
+        int updated;
+        do {
+            bits = accumulator.get();
+            updated = Float.floatToIntBits(Float.intBitsToFloat(bits) + delta);
+        } while (!accumulator.compareAndSet(bits, updated));
+    }
+
+    private static float take(AtomicInteger accumulator) {
+        return Float.intBitsToFloat(accumulator.getAndSet(Float.floatToIntBits(0.0f)));
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Binary snapshot of a site: the room extents, its wireframe and the devices
+ * placed in it, so a new layout needs no rebuild.
+ *
+ * <p>The file is little-endian, every field four bytes:</p>
+ * <pre>
+ *   int     magic, "M2PS"
+ *   int     version, {@link #VERSION}
+ *   int     segmentVertexCount, two per line segment
+ *   int     deviceCount
+ *   float   minX, minY, minZ, maxX, maxY, maxZ of the room
+ *   float[] segmentVertexCount * 3 wireframe coordinates, xyz per vertex
+ *   int[]   deviceCount device ids
+ *   float[] deviceCount x, then deviceCount y, then deviceCount z
+ * </pre>
+ *
+ * <p>{@link #load(File)} maps the file and hands out buffer views straight
+ * onto it: the wireframe goes to the GPU and the devices into a
+ * {@link PuckStore} without being copied into arrays first. Little-endian is
+ * the byte order of every Android ABI, so the GPU reads the wireframe as it
+ * is in the file.</p>
+ */
+public final class SceneFile {
+
+    /** "M2PS" in file order. */
+    public static final int MAGIC = 'M' | '2' << 8 | 'P' << 16 | 'S' << 24;
+    public static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 4 * 4 + 6 * 4;
+
+    private SceneFile() {
+    }
+
+    /**
+     * A loaded scene. The buffers are views onto the file, positioned at 0.
+     */
+    public static class Scene {
+
+        private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+        private final String mName = "scene" + NEXT_ID.getAndIncrement();
+        private final float[] mExtents;
+        private final int mSegmentVertexCount;
+        private final FloatBuffer mSegments;
+        private final int mDeviceCount;
+        private final IntBuffer mDeviceIds;
+        private final FloatBuffer mDeviceX;
+        private final FloatBuffer mDeviceY;
+        private final FloatBuffer mDeviceZ;
+
+        Scene(float[] extents, int segmentVertexCount, FloatBuffer segments, int deviceCount,
+              IntBuffer deviceIds, FloatBuffer deviceX, FloatBuffer deviceY, FloatBuffer deviceZ) {
+            mExtents = extents;
+            mSegmentVertexCount = segmentVertexCount;
+            mSegments = segments;
+            mDeviceCount = deviceCount;
+            mDeviceIds = deviceIds;
+            mDeviceX = deviceX;
+            mDeviceY = deviceY;
+            mDeviceZ = deviceZ;
+        }
+
+        /**
+         * Returns a name no other scene has, for naming its GPU buffers.
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Returns minX, minY, minZ, maxX, maxY and maxZ of the room.
+         */
+        public float[] getExtents() {
+            return mExtents.clone();
+        }
+
+        public int getSegmentVertexCount() {
+            return mSegmentVertexCount;
+        }
+
+        /**
+         * Returns the wireframe for {@code GL_LINES}, xyz per vertex.
+         */
+        public FloatBuffer getSegments() {
+            return mSegments;
+        }
+
+        public int getDeviceCount() {
+            return mDeviceCount;
+        }
+
+        public IntBuffer getDeviceIds() {
+            return mDeviceIds;
+        }
+
+        public FloatBuffer getDeviceX() {
+            return mDeviceX;
+        }
+
+        public FloatBuffer getDeviceY() {
+            return mDeviceY;
+        }
+
+        public FloatBuffer getDeviceZ() {
+            return mDeviceZ;
+        }
+
+        /**
+         * Adds every device to a store.
+         *
+         * @param color - Color of all the pucks.
+         */
+        public void addDevicesTo(PuckStore pucks, float[] color) {
+            for (int i = 0; i < mDeviceCount; i++) {
+                pucks.add(mDeviceIds.get(i), mDeviceX.get(i), mDeviceY.get(i), mDeviceZ.get(i), color);
+            }
+        }
+    }
+
+    /**
+     * Maps a scene file. The mapping outlives the file being closed and is
+     * released with the scene.
+     *
+     * @throws IOException - If the file can't be read or isn't a valid scene.
+     */
+    public static Scene load(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a scene from the whole of a buffer, keeping views onto it.
+     *
+     * @throws IOException - If the buffer doesn't hold a valid scene, including
+     *                      one with a device id twice or Integer.MIN_VALUE.
+     */
+    public static Scene read(ByteBuffer buffer) throws IOException {
+        final ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        data.position(0);
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a scene file");
+        }
+        final int version = data.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported scene version " + version);
+        }
+        final int segmentVertexCount = data.getInt(8);
+        final int deviceCount = data.getInt(12);
+        final long expectedSize = HEADER_SIZE + 4L * (segmentVertexCount * 3L + deviceCount * 4L);
+        if (segmentVertexCount < 0 || segmentVertexCount % 2 != 0 || deviceCount < 0
+                || expectedSize != data.limit()) {
+            throw new IOException("Corrupt scene: " + segmentVertexCount + " vertices and "
+                    + deviceCount + " devices in " + data.limit() + " bytes");
+        }
+        final float[] extents = new float[6];
+        for (int i = 0; i < 6; i++) {
+            extents[i] = data.getFloat(16 + i * 4);
+        }
+        for (int i = 0; i < 3; i++) {
+            if (!(extents[i] < extents[i + 3])) {
+                throw new IOException("Corrupt scene: empty room extents");
+            }
+        }
+
+        int offset = HEADER_SIZE;
+        final FloatBuffer segments = slice(data, offset, segmentVertexCount * 3).asFloatBuffer();
+        offset += segmentVertexCount * 3 * 4;
+        final IntBuffer ids = slice(data, offset, deviceCount).asIntBuffer();
+        checkDeviceIds(ids, deviceCount);
+        offset += deviceCount * 4;
+        final FloatBuffer x = slice(data, offset, deviceCount).asFloatBuffer();
+        offset += deviceCount * 4;
+        final FloatBuffer y = slice(data, offset, deviceCount).asFloatBuffer();
+        offset += deviceCount * 4;
+        final FloatBuffer z = slice(data, offset, deviceCount).asFloatBuffer();
+        return new Scene(extents, segmentVertexCount, segments, deviceCount, ids, x, y, z);
+    }
+
+    /**
+     * Encodes a scene.
+     *
+     * @param extents - minX, minY, minZ, maxX, maxY and maxZ of the room.
+     * @param segments - Wireframe for {@code GL_LINES}, xyz per vertex.
+     * @param ids - Device ids, deviceCount of them.
+     * @param x - Device x, deviceCount of them; likewise y and z.
+     * @return - The file contents, positioned at 0.
+     */
+    public static ByteBuffer encode(float[] extents, float[] segments,
+                                    int[] ids, float[] x, float[] y, float[] z, int deviceCount) {
+        if (segments.length % 6 != 0) {
+            throw new IllegalArgumentException("Segments must be pairs of xyz vertices");
+        }
+        final int segmentVertexCount = segments.length / 3;
+        final ByteBuffer data = ByteBuffer.allocate(
+                HEADER_SIZE + 4 * (segments.length + deviceCount * 4))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(MAGIC).putInt(VERSION).putInt(segmentVertexCount).putInt(deviceCount);
+        for (int i = 0; i < 6; i++) {
+            data.putFloat(extents[i]);
+        }
+        data.asFloatBuffer().put(segments);
+        data.position(data.position() + segments.length * 4);
+        data.asIntBuffer().put(ids, 0, deviceCount);
+        data.position(data.position() + deviceCount * 4);
+        for (float[] coordinate : new float[][]{x, y, z}) {
+            data.asFloatBuffer().put(coordinate, 0, deviceCount);
+            data.position(data.position() + deviceCount * 4);
+        }
+        data.position(0);
+        return data;
+    }
+
+    /**
+     * Writes a scene file, replacing what was there.
+     *
+     * @see #encode
+     */
+    public static void write(File file, float[] extents, float[] segments,
+                             int[] ids, float[] x, float[] y, float[] z, int deviceCount)
+            throws IOException {
+        final ByteBuffer data = encode(extents, segments, ids, x, y, z, deviceCount);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    // The ids key a PuckStore, which takes every int but Integer.MIN_VALUE,
+    // once each.
+    private static void checkDeviceIds(IntBuffer ids, int deviceCount) throws IOException {
+        final IntIntMap seen = new IntIntMap(deviceCount);
+        for (int i = 0; i < deviceCount; i++) {
+            final int id = ids.get(i);
+            if (id == Integer.MIN_VALUE) {
+                throw new IOException("Corrupt scene: reserved device id " + id);
+            }
+            if (seen.put(id, i) != IntIntMap.NO_VALUE) {
+                throw new IOException("Corrupt scene: device id " + id + " appears twice");
+            }
+        }
+    }
+
+    // A little-endian buffer over count four-byte values at offset.
+    private static ByteBuffer slice(ByteBuffer data, int offset, int count) {
+        final ByteBuffer view = data.duplicate();
+        view.position(offset);
+        view.limit(offset + count * 4);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Keyframe timeline of line segments that grow or sweep over time.
+ *
+ * <p>Every track animates one line segment from a start segment to an end
+ * segment, beginning at its start time and lasting its duration, shaped by an
+ * {@link Easing}. A track that only grows a line out of a point is a segment
+ * whose start is collapsed onto its first end point. Before its start time a
+ * track is hidden; after its end it stays at its end segment.</p>
+ *
+ * <p>Tracks are stored in flat primitive arrays and evaluated in one pass.
+ * Every track is a pure function of time, so evaluating any point in time,
+ * forwards, backwards or after a jump, costs the same and keeps no state.
+ * Evaluation never allocates.</p>
+ */
+public class SegmentTimeline {
+
+    // number of coordinates per vertex in this array
+    static final int COORDS_PER_VERTEX = 3;
+
+    // Start segment (a0, b0) followed by end segment (a1, b1).
+    private static final int FLOATS_PER_TRACK = 4 * COORDS_PER_VERTEX;
+
+    private float[] mSegments = new float[8 * FLOATS_PER_TRACK];
+    private float[] mStartTimes = new float[8];
+    private float[] mDurations = new float[8];
+    private Easing[] mEasings = new Easing[8];
+    private int mTrackCount = 0;
+    private float mDuration = 0;
+
+    /**
+     * Adds a track that grows a line from {@code from} until it reaches {@code to}.
+     *
+     * @return - The index of the track.
+     */
+    public int addGrowth(float[] from, float[] to, float startTime, float duration, Easing easing) {
+        return addSweep(from, from, from, to, startTime, duration, easing);
+    }
+
+    /**
+     * Adds a track that moves the segment (a0, b0) to (a1, b1).
+     *
+     * @return - The index of the track.
+     */
+    public int addSweep(float[] a0, float[] b0, float[] a1, float[] b1,
+                        float startTime, float duration, Easing easing) {
+        if (mTrackCount == mStartTimes.length) {
+            grow(mTrackCount * 2);
+        }
+        int track = mTrackCount++;
+        int offset = track * FLOATS_PER_TRACK;
+        System.arraycopy(a0, 0, mSegments, offset, COORDS_PER_VERTEX);
+        System.arraycopy(b0, 0, mSegments, offset + 3, COORDS_PER_VERTEX);
+        System.arraycopy(a1, 0, mSegments, offset + 6, COORDS_PER_VERTEX);
+        System.arraycopy(b1, 0, mSegments, offset + 9, COORDS_PER_VERTEX);
+        mStartTimes[track] = startTime;
+        mDurations[track] = duration;
+        mEasings[track] = easing;
+        mDuration = Math.max(mDuration, startTime + duration);
+        return track;
+    }
+
+    /**
+     * Returns the time at which the last track reaches its end segment.
+     */
+    public float getDuration() {
+        return mDuration;
+    }
+
+    public int getTrackCount() {
+        return mTrackCount;
+    }
+
+    /**
+     * Returns the largest number of vertices {@link #evaluate} can write.
+     */
+    public int getMaxVertexCount() {
+        return mTrackCount * 2;
+    }
+
+    /**
+     * Writes the line vertices of every visible track at the given time.
+     *
+     * @param time - Position on the timeline in seconds.
+     * @param out - Receives {@link #COORDS_PER_VERTEX} floats per vertex, two
+     *              vertices per visible track. Must hold
+     *              {@link #getMaxVertexCount()} vertices.
+     * @return - The number of vertices written.
+     */
+    public int evaluate(float time, float[] out) {
+        final float[] segments = mSegments;
+        int written = 0;
+        for (int track = 0; track < mTrackCount; track++) {
+            float startTime = mStartTimes[track];
+            if (time < startTime) {
+                continue;
+            }
+            float duration = mDurations[track];
+            float progress = duration > 0 ? (time - startTime) / duration : 1;
+            if (progress > 1) {
+                progress = 1;
+            }
+            float t = mEasings[track].ease(progress);
+
+            int offset = track * FLOATS_PER_TRACK;
+            for (int i = 0; i < 2 * COORDS_PER_VERTEX; i++) {
+                float from = segments[offset + i];
+                float to = segments[offset + 2 * COORDS_PER_VERTEX + i];
+                out[written + i] = from + (to - from) * t;
+            }
+            written += 2 * COORDS_PER_VERTEX;
+        }
+        return written / COORDS_PER_VERTEX;
+    }
+
+    private void grow(int tracks) {
+        float[] segments = new float[tracks * FLOATS_PER_TRACK];
+        System.arraycopy(mSegments, 0, segments, 0, mSegments.length);
+        mSegments = segments;
+        float[] startTimes = new float[tracks];
+        System.arraycopy(mStartTimes, 0, startTimes, 0, mStartTimes.length);
+        mStartTimes = startTimes;
+        float[] durations = new float[tracks];
+        System.arraycopy(mDurations, 0, durations, 0, mDurations.length);
+        mDurations = durations;
+        Easing[] easings = new Easing[tracks];
+        System.arraycopy(mEasings, 0, easings, 0, mEasings.length);
+        mEasings = easings;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A linked OpenGL ES program that is shared by every shape drawing with the
+ * same vertex and fragment shader source.
+ *
+ * <p>Instances are handed out by {@link ShaderProgramCache}. Shapes keep a
+ * reference to this object rather than to the raw program handle, because the
+ * handle is replaced when the program is rebuilt after EGL context loss.</p>
+ *
+ * <p>All active attributes and uniforms are enumerated once right after
+ * linking. Shapes register the variables they need by name when they are
+ * constructed and get an integer slot back; in {@code draw()} they only index
+ * into the resolved location tables, so no name based GL lookups happen per
+ * frame. Slots stay valid across a relink.</p>
+ */
+public class ShaderProgram {
+
+    private final Gl mGl;
+    private final long mKey;
+    private final String mVertexShaderCode;
+    private final String mFragmentShaderCode;
+    private int mHandle;
+    private int mReferenceCount;
+
+    // Active variables reported by the driver for the current link: name -> {location, type}.
+    private final HashMap<String, int[]> mActiveAttributes = new HashMap<>();
+    private final HashMap<String, int[]> mActiveUniforms = new HashMap<>();
+
+    // Variables registered by shapes, indexed by slot.
+    private final ArrayList<String> mAttributeNames = new ArrayList<>();
+    private final ArrayList<String> mUniformNames = new ArrayList<>();
+    private int[] mAttributeTypes = new int[0];
+    private int[] mUniformTypes = new int[0];
+    private int[] mAttributeLocations = new int[0];
+    private int[] mUniformLocations = new int[0];
+
+    ShaderProgram(Gl gl, long key, String vertexShaderCode, String fragmentShaderCode) {
+        mGl = gl;
+        mKey = key;
+        mVertexShaderCode = vertexShaderCode;
+        mFragmentShaderCode = fragmentShaderCode;
+    }
+
+    /**
+     * Returns the OpenGL program handle for the current EGL context.
+     */
+    public int getHandle() {
+        return mHandle;
+    }
+
+    /**
+     * Registers a vertex attribute and returns the slot to pass to
+     * {@link #getAttributeLocation(int)}. Call this once, outside the draw loop.
+     *
+     * @param name - Name of the attribute in the vertex shader.
+     * @param type - Expected GL type, e.g. {@link GLES20#GL_FLOAT_VEC4}.
+     * @return - The slot of the attribute.
+     */
+    public int attributeSlot(String name, int type) {
+        int slot = mAttributeNames.indexOf(name);
+        if (slot < 0) {
+            slot = mAttributeNames.size();
+            mAttributeNames.add(name);
+            mAttributeTypes = append(mAttributeTypes, type);
+            mAttributeLocations = append(mAttributeLocations, resolve(mActiveAttributes, name, type));
+        }
+        return slot;
+    }
+
+    /**
+     * Registers a uniform and returns the slot to pass to
+     * {@link #getUniformLocation(int)} and the typed setters. Call this once,
+     * outside the draw loop.
+     *
+     * @param name - Name of the uniform in either shader.
+     * @param type - Expected GL type, e.g. {@link GLES20#GL_FLOAT_MAT4}.
+     * @return - The slot of the uniform.
+     */
+    public int uniformSlot(String name, int type) {
+        int slot = mUniformNames.indexOf(name);
+        if (slot < 0) {
+            slot = mUniformNames.size();
+            mUniformNames.add(name);
+            mUniformTypes = append(mUniformTypes, type);
+            mUniformLocations = append(mUniformLocations, resolve(mActiveUniforms, name, type));
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the location of a registered attribute, or -1 if the linker
+     * optimized it away.
+     */
+    public int getAttributeLocation(int slot) {
+        return mAttributeLocations[slot];
+    }
+
+    /**
+     * Returns the location of a registered uniform, or -1 if the linker
+     * optimized it away.
+     */
+    public int getUniformLocation(int slot) {
+        return mUniformLocations[slot];
+    }
+
+    /**
+     * Makes this program part of the current rendering state.
+     */
+    public void use() {
+        mGl.glUseProgram(mHandle);
+    }
+
+    /**
+     * Uploads a vec4 uniform. The program must be in use.
+     */
+    public void setUniform4fv(int slot, float[] value) {
+        mGl.glUniform4fv(mUniformLocations[slot], 1, value, 0);
+    }
+
+    /**
+     * Uploads a mat4 uniform. The program must be in use.
+     */
+    public void setUniformMatrix4fv(int slot, float[] value) {
+        mGl.glUniformMatrix4fv(mUniformLocations[slot], 1, false, value, 0);
+    }
+
+    long getKey() {
+        return mKey;
+    }
+
+    boolean hasSource(String vertexShaderCode, String fragmentShaderCode) {
+        return mVertexShaderCode.equals(vertexShaderCode)
+                && mFragmentShaderCode.equals(fragmentShaderCode);
+    }
+
+    int retain() {
+        return ++mReferenceCount;
+    }
+
+    int release() {
+        return --mReferenceCount;
+    }
+
+    int getReferenceCount() {
+        return mReferenceCount;
+    }
+
+    /**
+     * Compiles both shaders and links them into a new program. Any handle from a
+     * previous EGL context is simply forgotten, since it died with that context.
+     */
+    void link() {
+        int vertexShader = MyGLRenderer.loadShader(mGl,
+                GLES20.GL_VERTEX_SHADER,
+                mVertexShaderCode);
+        int fragmentShader = MyGLRenderer.loadShader(mGl,
+                GLES20.GL_FRAGMENT_SHADER,
+                mFragmentShaderCode);
+
+        mHandle = mGl.glCreateProgram();             // create empty OpenGL Program
+        mGl.glAttachShader(mHandle, vertexShader);   // add the vertex shader to program
+        mGl.glAttachShader(mHandle, fragmentShader); // add the fragment shader to program
+        mGl.glLinkProgram(mHandle);                  // create OpenGL program executables
+
+        // The shaders are only flagged for deletion here; the driver frees them
+        // together with the program.
+        mGl.glDeleteShader(vertexShader);
+        mGl.glDeleteShader(fragmentShader);
+
+        final int[] linkStatus = new int[1];
+        mGl.glGetProgramiv(mHandle, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] != GLES20.GL_TRUE) {
+            String log = mGl.glGetProgramInfoLog(mHandle);
+            mGl.glDeleteProgram(mHandle);
+            mHandle = 0;
+            throw new RuntimeException("glLinkProgram: " + log);
+        }
+
+        introspect();
+    }
+
+    /**
+     * Enumerates the active attributes and uniforms of the freshly linked program
+     * and resolves the locations of all registered slots.
+     */
+    private void introspect() {
+        final int[] count = new int[1];
+        final int[] size = new int[1];
+        final int[] type = new int[1];
+
+        mActiveAttributes.clear();
+        mGl.glGetProgramiv(mHandle, GLES20.GL_ACTIVE_ATTRIBUTES, count, 0);
+        for (int i = 0; i < count[0]; i++) {
+            String name = mGl.glGetActiveAttrib(mHandle, i, size, 0, type, 0);
+            int location = mGl.glGetAttribLocation(mHandle, name);
+            mActiveAttributes.put(name, new int[]{location, type[0]});
+        }
+
+        mActiveUniforms.clear();
+        mGl.glGetProgramiv(mHandle, GLES20.GL_ACTIVE_UNIFORMS, count, 0);
+        for (int i = 0; i < count[0]; i++) {
+            String name = mGl.glGetActiveUniform(mHandle, i, size, 0, type, 0);
+            // Arrays are reported as "name[0]"; register them under their plain name.
+            if (name.endsWith("[0]")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            int location = mGl.glGetUniformLocation(mHandle, name);
+            mActiveUniforms.put(name, new int[]{location, type[0]});
+        }
+
+        for (int slot = 0; slot < mAttributeNames.size(); slot++) {
+            mAttributeLocations[slot] = resolve(mActiveAttributes,
+                    mAttributeNames.get(slot), mAttributeTypes[slot]);
+        }
+        for (int slot = 0; slot < mUniformNames.size(); slot++) {
+            mUniformLocations[slot] = resolve(mActiveUniforms,
+                    mUniformNames.get(slot), mUniformTypes[slot]);
+        }
+    }
+
+    private static int resolve(HashMap<String, int[]> active, String name, int type) {
+        int[] variable = active.get(name);
+        if (variable == null) {
+            return -1;
+        }
+        if (variable[1] != type) {
+            throw new RuntimeException(name + ": expected GL type " + type + " but was " + variable[1]);
+        }
+        return variable[0];
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, array.length);
+        result[array.length] = value;
+        return result;
+    }
+
+    /**
+     * Deletes the program from the current EGL context.
+     */
+    void delete() {
+        if (mHandle != 0) {
+            mGl.glDeleteProgram(mHandle);
+            mHandle = 0;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Registry of linked shader programs, keyed by a hash of their vertex and
+ * fragment shader source. Programs whose sources hash alike share a list.
+ *
+ * <p>Each unique pair of sources is compiled and linked once and then shared by
+ * every shape that asks for it. Programs are reference counted and deleted when
+ * the last shape releases them. All methods must be called on the GL thread.</p>
+ */
+public class ShaderProgramCache {
+
+    private final Gl mGl;
+    private final HashMap<Long, ArrayList<ShaderProgram>> mPrograms = new HashMap<>();
+    private int mSize = 0;
+    private int mHitCount = 0;
+    private int mMissCount = 0;
+
+    public ShaderProgramCache(Gl gl) {
+        mGl = gl;
+    }
+
+    /**
+     * Returns the program built from the given sources, compiling and linking it
+     * only if no shape holds it yet. Every call must be balanced by a call to
+     * {@link #release(ShaderProgram)}.
+     *
+     * @param vertexShaderCode - String containing the vertex shader code.
+     * @param fragmentShaderCode - String containing the fragment shader code.
+     * @return - The shared program.
+     */
+    public ShaderProgram acquire(String vertexShaderCode, String fragmentShaderCode) {
+        final long key = hashKey(vertexShaderCode, fragmentShaderCode);
+        ArrayList<ShaderProgram> programs = mPrograms.get(key);
+        ShaderProgram program = null;
+        if (programs == null) {
+            programs = new ArrayList<>(1);
+            mPrograms.put(key, programs);
+        } else {
+            // Two different source pairs may hash to the same key.
+            for (int i = 0; i < programs.size() && program == null; i++) {
+                if (programs.get(i).hasSource(vertexShaderCode, fragmentShaderCode)) {
+                    program = programs.get(i);
+                }
+            }
+        }
+
+        if (program == null) {
+            mMissCount++;
+            program = new ShaderProgram(mGl, key, vertexShaderCode, fragmentShaderCode);
+            program.link();
+            programs.add(program);
+            mSize++;
+        } else {
+            mHitCount++;
+        }
+        program.retain();
+        return program;
+    }
+
+    /**
+     * Gives back a program obtained from {@link #acquire(String, String)}. The
+     * program is deleted once no shape references it anymore.
+     */
+    public void release(ShaderProgram program) {
+        if (program.release() == 0) {
+            ArrayList<ShaderProgram> programs = mPrograms.get(program.getKey());
+            programs.remove(program);
+            if (programs.isEmpty()) {
+                mPrograms.remove(program.getKey());
+            }
+            mSize--;
+            program.delete();
+        }
+    }
+
+    /**
+     * Rebuilds every live program. Call this from
+     * {@link MyGLRenderer#onSurfaceCreated} since all program handles are lost
+     * together with the EGL context.
+     */
+    public void onSurfaceCreated() {
+        for (ArrayList<ShaderProgram> programs : mPrograms.values()) {
+            for (ShaderProgram program : programs) {
+                program.link();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of {@link #acquire(String, String)} calls that were
+     * served by an already linked program.
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the number of {@link #acquire(String, String)} calls that had to
+     * compile and link a new program.
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the number of live programs in the cache.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    private static long hashKey(String vertexShaderCode, String fragmentShaderCode) {
+        return ((long) vertexShaderCode.hashCode() << 32)
+                | (fragmentShaderCode.hashCode() & 0xffffffffL);
+    }
+}
@@ -1,10 +1,6 @@
 package com.example.kamranshamloo.fromscratchopengles;
 
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
 import android.opengl.GLES20;
 
 /**
@@ -31,12 +27,13 @@ public class Square {
                     "  gl_FragColor = vColor;" +
                     "}";
 
-    private final FloatBuffer vertexBuffer;
-    private final ShortBuffer drawListBuffer;
-    private final int mProgram;
-    private int mPositionHandle;
-    private int mColorHandle;
-    private int mMVPMatrixHandle;
+    private final Gl mGl;
+    private final GpuBuffer mVertexBuffer;
+    private final GpuBuffer mDrawListBuffer;
+    private final ShaderProgram mProgram;
+    private final int mPositionSlot;
+    private final int mColorSlot;
+    private final int mMVPMatrixSlot;
 
     // number of coordinates per vertex in this array
     static final int COORDS_PER_VERTEX = 3;
@@ -55,37 +52,17 @@ public class Square {
     /**
      * Sets up the drawing object data for use in an OpenGL ES context.
      */
-    public Square() {
-        // initialize vertex byte buffer for shape coordinates
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                // (# of coordinate values * 4 bytes per float)
-                squareCoords.length * 4);
-        bb.order(ByteOrder.nativeOrder());
-        vertexBuffer = bb.asFloatBuffer();
-        vertexBuffer.put(squareCoords);
-        vertexBuffer.position(0);
-
-        // initialize byte buffer for the draw list
-        ByteBuffer dlb = ByteBuffer.allocateDirect(
-                // (# of coordinate values * 2 bytes per short)
-                drawOrder.length * 2);
-        dlb.order(ByteOrder.nativeOrder());
-        drawListBuffer = dlb.asShortBuffer();
-        drawListBuffer.put(drawOrder);
-        drawListBuffer.position(0);
-
-        // prepare shaders and OpenGL program
-        int vertexShader = MyGLRenderer.loadShader(
-                GLES20.GL_VERTEX_SHADER,
-                vertexShaderCode);
-        int fragmentShader = MyGLRenderer.loadShader(
-                GLES20.GL_FRAGMENT_SHADER,
-                fragmentShaderCode);
-
-        mProgram = GLES20.glCreateProgram();             // create empty OpenGL Program
-        GLES20.glAttachShader(mProgram, vertexShader);   // add the vertex shader to program
-        GLES20.glAttachShader(mProgram, fragmentShader); // add the fragment shader to program
-        GLES20.glLinkProgram(mProgram);                  // create OpenGL program executables
+    public Square(Gl gl, ShaderProgramCache programCache, GpuBufferManager bufferManager) {
+        mGl = gl;
+        // upload the shape coordinates and the draw list to the GPU once
+        mVertexBuffer = bufferManager.acquireStatic("square.vertices", squareCoords);
+        mDrawListBuffer = bufferManager.acquireStatic("square.indices", drawOrder);
+
+        // prepare shaders and OpenGL program (shared with every shape using the same source)
+        mProgram = programCache.acquire(vertexShaderCode, fragmentShaderCode);
+        mPositionSlot = mProgram.attributeSlot("vPosition", GLES20.GL_FLOAT_VEC4);
+        mColorSlot = mProgram.uniformSlot("vColor", GLES20.GL_FLOAT_VEC4);
+        mMVPMatrixSlot = mProgram.uniformSlot("uMVPMatrix", GLES20.GL_FLOAT_MAT4);
     }
 
     /**
@@ -96,41 +73,33 @@ public class Square {
      */
     public void draw(float[] mvpMatrix) {
         // Add program to OpenGL environment
-        GLES20.glUseProgram(mProgram);
+        mProgram.use();
 
         // get handle to vertex shader's vPosition member
-        mPositionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
+        final int positionHandle = mProgram.getAttributeLocation(mPositionSlot);
 
         // Enable a handle to the triangle vertices
-        GLES20.glEnableVertexAttribArray(mPositionHandle);
+        mGl.glEnableVertexAttribArray(positionHandle);
 
-        // Prepare the Square coordinate data
-        GLES20.glVertexAttribPointer(
-                mPositionHandle, COORDS_PER_VERTEX,
+        // Point the attribute at the Square coordinates already on the GPU
+        mVertexBuffer.bind();
+        mGl.glVertexAttribPointer(
+                positionHandle, COORDS_PER_VERTEX,
                 GLES20.GL_FLOAT, false,
-                vertexStride, vertexBuffer);
-
-        // get handle to fragment shader's vColor member
-        mColorHandle = GLES20.glGetUniformLocation(mProgram, "vColor");
+                vertexStride, 0);
 
         // Set color for drawing the triangle
-        GLES20.glUniform4fv(mColorHandle, 1, color, 0);
-
-        // get handle to shape's transformation matrix
-        mMVPMatrixHandle = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
-        MyGLRenderer.checkGlError("glGetUniformLocation");
+        mProgram.setUniform4fv(mColorSlot, color);
 
         // Apply the projection and view transformation
-        GLES20.glUniformMatrix4fv(mMVPMatrixHandle, 1, false, mvpMatrix, 0);
-        MyGLRenderer.checkGlError("glUniformMatrix4fv");
+        mProgram.setUniformMatrix4fv(mMVPMatrixSlot, mvpMatrix);
+        MyGLRenderer.checkGlError(mGl, "glUniformMatrix4fv");
 
         // Draw the square
-        GLES20.glDrawElements(
+        mDrawListBuffer.bind();
+        mGl.glDrawElements(
                 GLES20.GL_TRIANGLES, drawOrder.length,
-                GLES20.GL_UNSIGNED_SHORT, drawListBuffer);
-
-        // Disable vertex array
-        GLES20.glDisableVertexAttribArray(mPositionHandle);
+                GLES20.GL_UNSIGNED_SHORT, 0);
     }
 
 }
\ No newline at end of file
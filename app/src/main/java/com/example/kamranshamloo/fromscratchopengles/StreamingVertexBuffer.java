@@ -0,0 +1,199 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.nio.Buffer;
+
+/**
+ * Hands out ranges of a few large GPU buffers to vertex data that changes
+ * every frame.
+ *
+ * <p>Writes are appended to the current buffer with {@code glBufferSubData}
+ * until it is full, then the next buffer of the ring is taken. Before a
+ * buffer is written from the start again, the GPU must be done drawing what
+ * it held:</p>
+ * <ul>
+ *   <li>On OpenGL ES 3 a fence is inserted when the ring moves on from a
+ *   buffer, and waited for when the ring comes back to it. With enough
+ *   buffers the fence has long passed and nothing waits.</li>
+ *   <li>On OpenGL ES 2, which has no fences, the buffer is orphaned with a
+ *   {@code glBufferData} of no data instead, so the driver hands out fresh
+ *   storage rather than stalling on the old one.</li>
+ * </ul>
+ *
+ * <p>A write larger than a buffer grows all of them. All methods must be
+ * called on the GL thread.</p>
+ */
+public class StreamingVertexBuffer {
+
+    // The longest a fence is waited for before the buffer is orphaned instead.
+    private static final long MAX_FENCE_WAIT_NANOS = 100L * 1000 * 1000;
+
+    private final Gl mGl;
+    private final int[] mHandles;
+    private final long[] mFences;
+    private int mBufferSize;
+    private boolean mFenced = false;
+
+    private int mCurrent = 0;
+    private int mOffset = 0;
+
+    private int mOrphanCount = 0;
+    private int mStallCount = 0;
+
+    /**
+     * @param gl - Receives the buffer calls.
+     * @param bufferCount - Buffers in the ring, e.g. 3 to stay two frames
+     *                    ahead of the GPU.
+     * @param bufferSizeInBytes - Initial size of each buffer.
+     */
+    public StreamingVertexBuffer(Gl gl, int bufferCount, int bufferSizeInBytes) {
+        if (bufferCount < 1 || bufferSizeInBytes < 4) {
+            throw new IllegalArgumentException("Invalid ring of " + bufferCount
+                    + " buffers of " + bufferSizeInBytes + " bytes");
+        }
+        mGl = gl;
+        mHandles = new int[bufferCount];
+        mFences = new long[bufferCount];
+        mBufferSize = bufferSizeInBytes;
+    }
+
+    /**
+     * Creates the buffers for the new EGL context and picks fences or
+     * orphaning. Handles and fences of a previous context are simply
+     * forgotten, since they died with it. Call this from
+     * {@link MyGLRenderer#onSurfaceCreated}.
+     */
+    public void onSurfaceCreated() {
+        String version = mGl.glGetString(GLES20.GL_VERSION);
+        mFenced = version != null && version.startsWith("OpenGL ES 3");
+        mGl.glGenBuffers(mHandles.length, mHandles, 0);
+        for (int i = 0; i < mHandles.length; i++) {
+            mFences[i] = 0;
+            allocate(i);
+        }
+        mCurrent = 0;
+        mOffset = 0;
+        MyGLRenderer.checkGlError(mGl, "glBufferData");
+    }
+
+    /**
+     * Copies vertex data into the ring and leaves its buffer bound to
+     * {@code GL_ARRAY_BUFFER}, for {@code glVertexAttribPointer} with the
+     * returned offset. The data stays valid until the ring comes back around,
+     * so draw it in the same frame.
+     *
+     * @param data - Read from position 0.
+     * @param sizeInBytes - Bytes to copy.
+     * @return - The offset of the data in the bound buffer.
+     */
+    public int write(Buffer data, int sizeInBytes) {
+        // Keep every range aligned for float attributes.
+        final int size = (sizeInBytes + 3) & ~3;
+        if (size > mBufferSize) {
+            grow(size);
+        } else if (mOffset + size > mBufferSize) {
+            advance();
+        }
+        mGl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mHandles[mCurrent]);
+        data.position(0);
+        mGl.glBufferSubData(GLES20.GL_ARRAY_BUFFER, mOffset, sizeInBytes, data);
+        final int offset = mOffset;
+        mOffset += size;
+        return offset;
+    }
+
+    /**
+     * Returns the buffer the next write goes to, if it fits.
+     */
+    public int getHandle() {
+        return mHandles[mCurrent];
+    }
+
+    public int getBufferSizeInBytes() {
+        return mBufferSize;
+    }
+
+    /**
+     * Returns whether buffers are recycled with fences rather than orphaned.
+     */
+    public boolean isFenced() {
+        return mFenced;
+    }
+
+    /**
+     * Returns how often a buffer was orphaned, over the lifetime of the ring.
+     */
+    public int getOrphanCount() {
+        return mOrphanCount;
+    }
+
+    /**
+     * Returns how often the ring came back to a buffer the GPU was still
+     * drawing from and had to wait, over the lifetime of the ring.
+     */
+    public int getStallCount() {
+        return mStallCount;
+    }
+
+    /**
+     * Moves on to the next buffer of the ring, making sure the GPU is done
+     * with it.
+     */
+    private void advance() {
+        if (mFenced) {
+            // Guards every draw issued so far from the buffer left behind.
+            mFences[mCurrent] = mGl.glFenceSync(GLES30.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        }
+        mCurrent = (mCurrent + 1) % mHandles.length;
+        mOffset = 0;
+
+        final long fence = mFences[mCurrent];
+        if (fence == 0) {
+            if (!mFenced) {
+                orphan(mCurrent);
+            }
+            return;
+        }
+        mFences[mCurrent] = 0;
+        int result = mGl.glClientWaitSync(fence, 0, 0);
+        if (result == GLES30.GL_TIMEOUT_EXPIRED) {
+            mStallCount++;
+            result = mGl.glClientWaitSync(fence, GLES30.GL_SYNC_FLUSH_COMMANDS_BIT,
+                    MAX_FENCE_WAIT_NANOS);
+        }
+        mGl.glDeleteSync(fence);
+        if (result != GLES30.GL_ALREADY_SIGNALED && result != GLES30.GL_CONDITION_SATISFIED) {
+            // Still busy or the wait failed; fresh storage is safe either way.
+            orphan(mCurrent);
+        }
+    }
+
+    /**
+     * Reallocates every buffer large enough for one write of the given size.
+     * The old storage is orphaned, so nothing waits.
+     */
+    private void grow(int size) {
+        mBufferSize = size;
+        for (int i = 0; i < mHandles.length; i++) {
+            if (mFences[i] != 0) {
+                mGl.glDeleteSync(mFences[i]);
+                mFences[i] = 0;
+            }
+            allocate(i);
+        }
+        mCurrent = 0;
+        mOffset = 0;
+    }
+
+    private void orphan(int buffer) {
+        allocate(buffer);
+        mOrphanCount++;
+    }
+
+    private void allocate(int buffer) {
+        mGl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mHandles[buffer]);
+        mGl.glBufferData(GLES20.GL_ARRAY_BUFFER, mBufferSize, null, GLES20.GL_STREAM_DRAW);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.os.SystemClock;
+
+/**
+ * {@link AnimationClock} backed by {@link SystemClock#uptimeMillis()}.
+ */
+public class SystemAnimationClock implements AnimationClock {
+
+    @Override
+    public double now() {
+        return SystemClock.uptimeMillis() * 0.001; // in seconds
+    }
+}
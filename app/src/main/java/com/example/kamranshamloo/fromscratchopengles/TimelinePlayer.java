@@ -0,0 +1,79 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * Plays a {@link SegmentTimeline} against an {@link AnimationClock}.
+ *
+ * <p>The player only remembers where it was at the last seek or rate change
+ * and derives the current position from the clock, so seeking, pausing and
+ * reverse playback are all O(1).</p>
+ */
+public class TimelinePlayer {
+
+    private final SegmentTimeline mTimeline;
+    private final AnimationClock mClock;
+    private double mAnchorClockTime;
+    private float mAnchorPosition = 0;
+    private float mRate = 1;
+
+    /**
+     * Creates a player that starts playing forwards from the beginning now.
+     */
+    public TimelinePlayer(SegmentTimeline timeline, AnimationClock clock) {
+        mTimeline = timeline;
+        mClock = clock;
+        mAnchorClockTime = clock.now();
+    }
+
+    /**
+     * Returns the current position on the timeline in seconds, clamped to
+     * 0..{@link SegmentTimeline#getDuration()}.
+     */
+    public float getPosition() {
+        float position = mAnchorPosition + (float) (mClock.now() - mAnchorClockTime) * mRate;
+        if (position < 0) {
+            return 0;
+        }
+        return Math.min(position, mTimeline.getDuration());
+    }
+
+    /**
+     * Jumps to the given position, keeping the playback rate.
+     */
+    public void seek(float position) {
+        mAnchorPosition = Math.max(0, Math.min(position, mTimeline.getDuration()));
+        mAnchorClockTime = mClock.now();
+    }
+
+    /**
+     * Sets the playback rate: 1 plays forwards in real time, -1 plays backwards,
+     * 0 pauses.
+     */
+    public void setRate(float rate) {
+        seek(getPosition());
+        mRate = rate;
+    }
+
+    public float getRate() {
+        return mRate;
+    }
+
+    /**
+     * Returns true once playback has reached the end it is heading towards:
+     * the end of the timeline when playing forwards, its start when reversed.
+     */
+    public boolean isFinished() {
+        float position = getPosition();
+        if (mRate > 0) {
+            return position >= mTimeline.getDuration();
+        }
+        return mRate < 0 && position <= 0;
+    }
+
+    /**
+     * Writes the vertices of the current position, see
+     * {@link SegmentTimeline#evaluate(float, float[])}.
+     */
+    public int evaluate(float[] out) {
+        return mTimeline.evaluate(getPosition(), out);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import com.example.kamranshamloo.fromscratchopengles.math.Quat;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Accumulated rotation of the whole room, kept as a unit quaternion.
+ *
+ * <p>Composing a small rotation into a quaternion takes 16 multiplications
+ * instead of the 64 of a 4x4 matrix product, and the quaternion is brought back
+ * to unit length every {@link #RENORMALIZE_INTERVAL} updates, so rounding
+ * errors can never skew the room the way a drifting matrix does. The 4x4
+ * matrix for the shaders is produced once per frame by
+ * {@link #getMatrix(float[])}.</p>
+ *
+ * <p>{@link #requestReset(float)} may be called from any thread; everything
+ * else belongs to the GL thread. A reset slerps from the current orientation
+ * back to the identity over the requested duration, timed by an
+ * {@link AnimationClock}.</p>
+ */
+public class TrackballRotation {
+
+    /** Number of composed rotations after which the quaternion is renormalized. */
+    static final int RENORMALIZE_INTERVAL = 64;
+
+    private final AnimationClock mClock;
+
+    // The orientation (w, x, y, z), and the rotation being composed into it.
+    private final float[] mOrientation = new float[4];
+    private final float[] mStep = new float[4];
+    private int mUpdatesSinceNormalize = 0;
+
+    // Reset animation: slerp from the orientation at the start to the identity.
+    private final AtomicBoolean mResetRequested = new AtomicBoolean(false);
+    private volatile float mRequestedResetDuration;
+    private boolean mResetting = false;
+    private double mResetStartTime;
+    private float mResetDuration;
+    private final float[] mResetFrom = new float[4];
+    private final float[] mIdentity = new float[4];
+
+    public TrackballRotation(AnimationClock clock) {
+        mClock = clock;
+        Quat.setIdentity(mOrientation, 0);
+        Quat.setIdentity(mIdentity, 0);
+    }
+
+    /**
+     * Composes a rotation in front of the accumulated one, in the same order as
+     * {@code rotateM} around Y, then X, then Z on an identity matrix.
+     *
+     * @param degreesAroundY - Degrees around the Y axis.
+     * @param degreesAroundX - Degrees around the X axis.
+     * @param degreesAroundZ - Degrees around the Z axis.
+     */
+    public void rotate(float degreesAroundY, float degreesAroundX, float degreesAroundZ) {
+        if (degreesAroundY == 0 && degreesAroundX == 0 && degreesAroundZ == 0) {
+            return;
+        }
+        // Dragging during a reset takes over from wherever the reset got to.
+        if (mResetting) {
+            update();
+            mResetting = false;
+        }
+        // Multiplying from the left in reverse order gives qy * qx * qz * q.
+        if (degreesAroundZ != 0) {
+            Quat.setAxisAngle(mStep, 0, degreesAroundZ, 0, 0, 1);
+            Quat.multiply(mOrientation, 0, mStep, 0, mOrientation, 0);
+        }
+        if (degreesAroundX != 0) {
+            Quat.setAxisAngle(mStep, 0, degreesAroundX, 1, 0, 0);
+            Quat.multiply(mOrientation, 0, mStep, 0, mOrientation, 0);
+        }
+        if (degreesAroundY != 0) {
+            Quat.setAxisAngle(mStep, 0, degreesAroundY, 0, 1, 0);
+            Quat.multiply(mOrientation, 0, mStep, 0, mOrientation, 0);
+        }
+        if (++mUpdatesSinceNormalize >= RENORMALIZE_INTERVAL) {
+            Quat.normalize(mOrientation, 0);
+            mUpdatesSinceNormalize = 0;
+        }
+    }
+
+    /**
+     * Asks for the orientation to return to the identity. Safe to call from any
+     * thread; the reset starts on the next {@link #update()}.
+     *
+     * @param durationSeconds - Length of the animation, 0 to snap back at once.
+     */
+    public void requestReset(float durationSeconds) {
+        mRequestedResetDuration = durationSeconds;
+        mResetRequested.set(true);
+    }
+
+    /**
+     * Advances a running reset. Call once per frame before
+     * {@link #getMatrix(float[])}.
+     */
+    public void update() {
+        if (mResetRequested.getAndSet(false)) {
+            System.arraycopy(mOrientation, 0, mResetFrom, 0, 4);
+            mResetStartTime = mClock.now();
+            mResetDuration = mRequestedResetDuration;
+            mResetting = true;
+        }
+        if (!mResetting) {
+            return;
+        }
+        float t = mResetDuration > 0 ? (float) (mClock.now() - mResetStartTime) / mResetDuration : 1;
+        if (t >= 1) {
+            Quat.setIdentity(mOrientation, 0);
+            mResetting = false;
+            return;
+        }
+        Quat.slerp(mOrientation, 0, mResetFrom, 0, mIdentity, 0, Easing.EASE_IN_OUT.ease(t));
+        mUpdatesSinceNormalize = 0;
+    }
+
+    /**
+     * Returns true while a reset animation is running or pending.
+     */
+    public boolean isResetting() {
+        return mResetting || mResetRequested.get();
+    }
+
+    /**
+     * Writes the orientation as a column-major 4x4 rotation matrix.
+     */
+    public void getMatrix(float[] m) {
+        Quat.toMatrix(m, 0, mOrientation, 0);
+    }
+
+    /**
+     * Writes the orientation quaternion as (w, x, y, z).
+     */
+    public void getQuaternion(float[] out) {
+        System.arraycopy(mOrientation, 0, out, 0, 4);
+    }
+}
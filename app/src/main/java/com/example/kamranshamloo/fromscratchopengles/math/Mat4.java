@@ -0,0 +1,389 @@
+package com.example.kamranshamloo.fromscratchopengles.math;
+
+/**
+ * 4x4 matrix math on flat {@code float[]} arrays.
+ *
+ * <p>Matrices are stored column-major at an offset, exactly like
+ * {@link android.opengl.Matrix}, and every method here gives the same result as
+ * its {@code android.opengl.Matrix} counterpart. Unlike those, none of them
+ * allocates or locks, results may alias their inputs, and they run in plain
+ * JVM unit tests.</p>
+ *
+ * <p>The loops are unrolled into straight-line code over locals so the JIT can
+ * keep everything in registers and vectorize the column arithmetic.</p>
+ */
+public final class Mat4 {
+
+    private Mat4() {
+    }
+
+    /**
+     * Sets m to the identity. Same as {@link android.opengl.Matrix#setIdentityM}.
+     */
+    public static void setIdentity(float[] m, int offset) {
+        for (int i = 0; i < 16; i++) {
+            m[offset + i] = 0;
+        }
+        m[offset] = 1;
+        m[offset + 5] = 1;
+        m[offset + 10] = 1;
+        m[offset + 15] = 1;
+    }
+
+    /**
+     * Computes result = lhs * rhs. Same as
+     * {@link android.opengl.Matrix#multiplyMM}, but result may be the same
+     * matrix as lhs or rhs.
+     */
+    public static void multiply(float[] result, int resultOffset,
+                                float[] lhs, int lhsOffset,
+                                float[] rhs, int rhsOffset) {
+        final float l00 = lhs[lhsOffset], l10 = lhs[lhsOffset + 1], l20 = lhs[lhsOffset + 2], l30 = lhs[lhsOffset + 3];
+        final float l01 = lhs[lhsOffset + 4], l11 = lhs[lhsOffset + 5], l21 = lhs[lhsOffset + 6], l31 = lhs[lhsOffset + 7];
+        final float l02 = lhs[lhsOffset + 8], l12 = lhs[lhsOffset + 9], l22 = lhs[lhsOffset + 10], l32 = lhs[lhsOffset + 11];
+        final float l03 = lhs[lhsOffset + 12], l13 = lhs[lhsOffset + 13], l23 = lhs[lhsOffset + 14], l33 = lhs[lhsOffset + 15];
+        // Each result column only depends on the same column of rhs, so reading
+        // it completely before writing keeps result == rhs safe.
+        for (int column = 0; column < 16; column += 4) {
+            final float r0 = rhs[rhsOffset + column];
+            final float r1 = rhs[rhsOffset + column + 1];
+            final float r2 = rhs[rhsOffset + column + 2];
+            final float r3 = rhs[rhsOffset + column + 3];
+            result[resultOffset + column] = l00 * r0 + l01 * r1 + l02 * r2 + l03 * r3;
+            result[resultOffset + column + 1] = l10 * r0 + l11 * r1 + l12 * r2 + l13 * r3;
+            result[resultOffset + column + 2] = l20 * r0 + l21 * r1 + l22 * r2 + l23 * r3;
+            result[resultOffset + column + 3] = l30 * r0 + l31 * r1 + l32 * r2 + l33 * r3;
+        }
+    }
+
+    /**
+     * Computes result = lhs * rhs for affine matrices, i.e. both with a bottom
+     * row of (0, 0, 0, 1) such as rotations, translations and scales. Skips the
+     * work the bottom rows would contribute. Result may alias lhs or rhs.
+     */
+    public static void multiplyAffine(float[] result, int resultOffset,
+                                      float[] lhs, int lhsOffset,
+                                      float[] rhs, int rhsOffset) {
+        final float l00 = lhs[lhsOffset], l10 = lhs[lhsOffset + 1], l20 = lhs[lhsOffset + 2];
+        final float l01 = lhs[lhsOffset + 4], l11 = lhs[lhsOffset + 5], l21 = lhs[lhsOffset + 6];
+        final float l02 = lhs[lhsOffset + 8], l12 = lhs[lhsOffset + 9], l22 = lhs[lhsOffset + 10];
+        final float l03 = lhs[lhsOffset + 12], l13 = lhs[lhsOffset + 13], l23 = lhs[lhsOffset + 14];
+        for (int column = 0; column < 12; column += 4) {
+            final float r0 = rhs[rhsOffset + column];
+            final float r1 = rhs[rhsOffset + column + 1];
+            final float r2 = rhs[rhsOffset + column + 2];
+            result[resultOffset + column] = l00 * r0 + l01 * r1 + l02 * r2;
+            result[resultOffset + column + 1] = l10 * r0 + l11 * r1 + l12 * r2;
+            result[resultOffset + column + 2] = l20 * r0 + l21 * r1 + l22 * r2;
+            result[resultOffset + column + 3] = 0;
+        }
+        final float t0 = rhs[rhsOffset + 12];
+        final float t1 = rhs[rhsOffset + 13];
+        final float t2 = rhs[rhsOffset + 14];
+        result[resultOffset + 12] = l00 * t0 + l01 * t1 + l02 * t2 + l03;
+        result[resultOffset + 13] = l10 * t0 + l11 * t1 + l12 * t2 + l13;
+        result[resultOffset + 14] = l20 * t0 + l21 * t1 + l22 * t2 + l23;
+        result[resultOffset + 15] = 1;
+    }
+
+    /**
+     * Sets result to the inverse of m. Same as
+     * {@link android.opengl.Matrix#invertM}, but result may alias m.
+     *
+     * @return - False, leaving result unchanged, if m can't be inverted.
+     */
+    public static boolean invert(float[] result, int resultOffset, float[] m, int offset) {
+        final float m00 = m[offset], m10 = m[offset + 1], m20 = m[offset + 2], m30 = m[offset + 3];
+        final float m01 = m[offset + 4], m11 = m[offset + 5], m21 = m[offset + 6], m31 = m[offset + 7];
+        final float m02 = m[offset + 8], m12 = m[offset + 9], m22 = m[offset + 10], m32 = m[offset + 11];
+        final float m03 = m[offset + 12], m13 = m[offset + 13], m23 = m[offset + 14], m33 = m[offset + 15];
+
+        // 2x2 determinants of the upper and lower two rows, shared by the cofactors.
+        final float a0 = m00 * m11 - m01 * m10;
+        final float a1 = m00 * m12 - m02 * m10;
+        final float a2 = m00 * m13 - m03 * m10;
+        final float a3 = m01 * m12 - m02 * m11;
+        final float a4 = m01 * m13 - m03 * m11;
+        final float a5 = m02 * m13 - m03 * m12;
+        final float b0 = m20 * m31 - m21 * m30;
+        final float b1 = m20 * m32 - m22 * m30;
+        final float b2 = m20 * m33 - m23 * m30;
+        final float b3 = m21 * m32 - m22 * m31;
+        final float b4 = m21 * m33 - m23 * m31;
+        final float b5 = m22 * m33 - m23 * m32;
+
+        final float determinant = a0 * b5 - a1 * b4 + a2 * b3 + a3 * b2 - a4 * b1 + a5 * b0;
+        if (determinant == 0.0f) {
+            return false;
+        }
+        final float inverse = 1.0f / determinant;
+
+        result[resultOffset] = (m11 * b5 - m12 * b4 + m13 * b3) * inverse;
+        result[resultOffset + 1] = (-m10 * b5 + m12 * b2 - m13 * b1) * inverse;
+        result[resultOffset + 2] = (m10 * b4 - m11 * b2 + m13 * b0) * inverse;
+        result[resultOffset + 3] = (-m10 * b3 + m11 * b1 - m12 * b0) * inverse;
+        result[resultOffset + 4] = (-m01 * b5 + m02 * b4 - m03 * b3) * inverse;
+        result[resultOffset + 5] = (m00 * b5 - m02 * b2 + m03 * b1) * inverse;
+        result[resultOffset + 6] = (-m00 * b4 + m01 * b2 - m03 * b0) * inverse;
+        result[resultOffset + 7] = (m00 * b3 - m01 * b1 + m02 * b0) * inverse;
+        result[resultOffset + 8] = (m31 * a5 - m32 * a4 + m33 * a3) * inverse;
+        result[resultOffset + 9] = (-m30 * a5 + m32 * a2 - m33 * a1) * inverse;
+        result[resultOffset + 10] = (m30 * a4 - m31 * a2 + m33 * a0) * inverse;
+        result[resultOffset + 11] = (-m30 * a3 + m31 * a1 - m32 * a0) * inverse;
+        result[resultOffset + 12] = (-m21 * a5 + m22 * a4 - m23 * a3) * inverse;
+        result[resultOffset + 13] = (m20 * a5 - m22 * a2 + m23 * a1) * inverse;
+        result[resultOffset + 14] = (-m20 * a4 + m21 * a2 - m23 * a0) * inverse;
+        result[resultOffset + 15] = (m20 * a3 - m21 * a1 + m22 * a0) * inverse;
+        return true;
+    }
+
+    /**
+     * Computes result = m * v for a 4 component vector. Same as
+     * {@link android.opengl.Matrix#multiplyMV}, but result may alias v.
+     */
+    public static void multiplyVector(float[] result, int resultOffset,
+                                      float[] m, int offset,
+                                      float[] v, int vOffset) {
+        final float x = v[vOffset], y = v[vOffset + 1], z = v[vOffset + 2], w = v[vOffset + 3];
+        result[resultOffset] = m[offset] * x + m[offset + 4] * y + m[offset + 8] * z + m[offset + 12] * w;
+        result[resultOffset + 1] = m[offset + 1] * x + m[offset + 5] * y + m[offset + 9] * z + m[offset + 13] * w;
+        result[resultOffset + 2] = m[offset + 2] * x + m[offset + 6] * y + m[offset + 10] * z + m[offset + 14] * w;
+        result[resultOffset + 3] = m[offset + 3] * x + m[offset + 7] * y + m[offset + 11] * z + m[offset + 15] * w;
+    }
+
+    /**
+     * Transforms count points (x, y, z) with an affine matrix, treating each
+     * as (x, y, z, 1). dst may be the same array and offset as src.
+     */
+    public static void transformPoints(float[] m, int offset,
+                                       float[] src, int srcOffset,
+                                       float[] dst, int dstOffset, int count) {
+        final float m0 = m[offset], m1 = m[offset + 1], m2 = m[offset + 2];
+        final float m4 = m[offset + 4], m5 = m[offset + 5], m6 = m[offset + 6];
+        final float m8 = m[offset + 8], m9 = m[offset + 9], m10 = m[offset + 10];
+        final float m12 = m[offset + 12], m13 = m[offset + 13], m14 = m[offset + 14];
+        final int end = srcOffset + count * 3;
+        for (int s = srcOffset, d = dstOffset; s < end; s += 3, d += 3) {
+            final float x = src[s], y = src[s + 1], z = src[s + 2];
+            dst[d] = m0 * x + m4 * y + m8 * z + m12;
+            dst[d + 1] = m1 * x + m5 * y + m9 * z + m13;
+            dst[d + 2] = m2 * x + m6 * y + m10 * z + m14;
+        }
+    }
+
+    /**
+     * Translates m in place, m = m * T(x, y, z). Same as
+     * {@link android.opengl.Matrix#translateM(float[], int, float, float, float)}.
+     */
+    public static void translate(float[] m, int offset, float x, float y, float z) {
+        for (int i = 0; i < 4; i++) {
+            m[offset + 12 + i] += m[offset + i] * x + m[offset + 4 + i] * y + m[offset + 8 + i] * z;
+        }
+    }
+
+    /**
+     * Sets m to a rotation of the given degrees around the axis (x, y, z).
+     * Same as {@link android.opengl.Matrix#setRotateM}.
+     */
+    public static void setRotate(float[] m, int offset, float degrees, float x, float y, float z) {
+        m[offset + 3] = 0;
+        m[offset + 7] = 0;
+        m[offset + 11] = 0;
+        m[offset + 12] = 0;
+        m[offset + 13] = 0;
+        m[offset + 14] = 0;
+        m[offset + 15] = 1;
+        final float a = degrees * (float) (Math.PI / 180.0f);
+        final float s = (float) Math.sin(a);
+        final float c = (float) Math.cos(a);
+        if (1.0f == x && 0.0f == y && 0.0f == z) {
+            m[offset + 5] = c;
+            m[offset + 10] = c;
+            m[offset + 6] = s;
+            m[offset + 9] = -s;
+            m[offset + 1] = 0;
+            m[offset + 2] = 0;
+            m[offset + 4] = 0;
+            m[offset + 8] = 0;
+            m[offset] = 1;
+        } else if (0.0f == x && 1.0f == y && 0.0f == z) {
+            m[offset] = c;
+            m[offset + 10] = c;
+            m[offset + 8] = s;
+            m[offset + 2] = -s;
+            m[offset + 1] = 0;
+            m[offset + 4] = 0;
+            m[offset + 6] = 0;
+            m[offset + 9] = 0;
+            m[offset + 5] = 1;
+        } else if (0.0f == x && 0.0f == y && 1.0f == z) {
+            m[offset] = c;
+            m[offset + 5] = c;
+            m[offset + 1] = s;
+            m[offset + 4] = -s;
+            m[offset + 2] = 0;
+            m[offset + 6] = 0;
+            m[offset + 8] = 0;
+            m[offset + 9] = 0;
+            m[offset + 10] = 1;
+        } else {
+            final float length = Vec3.length(x, y, z);
+            if (length != 1.0f) {
+                final float recipLength = 1.0f / length;
+                x *= recipLength;
+                y *= recipLength;
+                z *= recipLength;
+            }
+            final float nc = 1.0f - c;
+            final float xy = x * y;
+            final float yz = y * z;
+            final float zx = z * x;
+            final float xs = x * s;
+            final float ys = y * s;
+            final float zs = z * s;
+            m[offset] = x * x * nc + c;
+            m[offset + 4] = xy * nc - zs;
+            m[offset + 8] = zx * nc + ys;
+            m[offset + 1] = xy * nc + zs;
+            m[offset + 5] = y * y * nc + c;
+            m[offset + 9] = yz * nc - xs;
+            m[offset + 2] = zx * nc - ys;
+            m[offset + 6] = yz * nc + xs;
+            m[offset + 10] = z * z * nc + c;
+        }
+    }
+
+    /**
+     * Rotates m in place, m = m * R(degrees, x, y, z). Same as
+     * {@link android.opengl.Matrix#rotateM(float[], int, float, float, float, float)}
+     * without its temporary matrix.
+     */
+    public static void rotate(float[] m, int offset, float degrees, float x, float y, float z) {
+        final float a = degrees * (float) (Math.PI / 180.0f);
+        final float s = (float) Math.sin(a);
+        final float c = (float) Math.cos(a);
+        final float length = Vec3.length(x, y, z);
+        if (length != 1.0f) {
+            final float recipLength = 1.0f / length;
+            x *= recipLength;
+            y *= recipLength;
+            z *= recipLength;
+        }
+        final float nc = 1.0f - c;
+        final float r00 = x * x * nc + c, r01 = x * y * nc - z * s, r02 = z * x * nc + y * s;
+        final float r10 = x * y * nc + z * s, r11 = y * y * nc + c, r12 = y * z * nc - x * s;
+        final float r20 = z * x * nc - y * s, r21 = y * z * nc + x * s, r22 = z * z * nc + c;
+        // Only the first three columns change; the translation column stays.
+        for (int row = 0; row < 4; row++) {
+            final float m0 = m[offset + row];
+            final float m1 = m[offset + 4 + row];
+            final float m2 = m[offset + 8 + row];
+            m[offset + row] = m0 * r00 + m1 * r10 + m2 * r20;
+            m[offset + 4 + row] = m0 * r01 + m1 * r11 + m2 * r21;
+            m[offset + 8 + row] = m0 * r02 + m1 * r12 + m2 * r22;
+        }
+    }
+
+    /**
+     * Sets m to a perspective projection. Same as
+     * {@link android.opengl.Matrix#frustumM}.
+     *
+     * @throws IllegalArgumentException - If the frustum is empty or near/far
+     *                                    are not positive.
+     */
+    public static void frustum(float[] m, int offset,
+                               float left, float right, float bottom, float top,
+                               float near, float far) {
+        if (left == right) {
+            throw new IllegalArgumentException("left == right");
+        }
+        if (top == bottom) {
+            throw new IllegalArgumentException("top == bottom");
+        }
+        if (near == far) {
+            throw new IllegalArgumentException("near == far");
+        }
+        if (near <= 0.0f) {
+            throw new IllegalArgumentException("near <= 0.0f");
+        }
+        if (far <= 0.0f) {
+            throw new IllegalArgumentException("far <= 0.0f");
+        }
+        final float widthScale = 1.0f / (right - left);
+        final float heightScale = 1.0f / (top - bottom);
+        final float depthScale = 1.0f / (near - far);
+        m[offset] = 2.0f * (near * widthScale);
+        m[offset + 5] = 2.0f * (near * heightScale);
+        m[offset + 8] = (right + left) * widthScale;
+        m[offset + 9] = (top + bottom) * heightScale;
+        m[offset + 10] = (far + near) * depthScale;
+        m[offset + 14] = 2.0f * (far * near * depthScale);
+        m[offset + 11] = -1.0f;
+        m[offset + 1] = 0.0f;
+        m[offset + 2] = 0.0f;
+        m[offset + 3] = 0.0f;
+        m[offset + 4] = 0.0f;
+        m[offset + 6] = 0.0f;
+        m[offset + 7] = 0.0f;
+        m[offset + 12] = 0.0f;
+        m[offset + 13] = 0.0f;
+        m[offset + 15] = 0.0f;
+    }
+
+    /**
+     * Sets m to a view matrix looking from the eye at the center. Same as
+     * {@link android.opengl.Matrix#setLookAtM}.
+     */
+    public static void setLookAt(float[] m, int offset,
+                                 float eyeX, float eyeY, float eyeZ,
+                                 float centerX, float centerY, float centerZ,
+                                 float upX, float upY, float upZ) {
+        float fx = centerX - eyeX;
+        float fy = centerY - eyeY;
+        float fz = centerZ - eyeZ;
+
+        // Normalize f
+        final float rlf = 1.0f / Vec3.length(fx, fy, fz);
+        fx *= rlf;
+        fy *= rlf;
+        fz *= rlf;
+
+        // compute s = f x up (x means "cross product")
+        float sx = fy * upZ - fz * upY;
+        float sy = fz * upX - fx * upZ;
+        float sz = fx * upY - fy * upX;
+
+        // and normalize s
+        final float rls = 1.0f / Vec3.length(sx, sy, sz);
+        sx *= rls;
+        sy *= rls;
+        sz *= rls;
+
+        // compute u = s x f
+        final float ux = sy * fz - sz * fy;
+        final float uy = sz * fx - sx * fz;
+        final float uz = sx * fy - sy * fx;
+
+        m[offset] = sx;
+        m[offset + 1] = ux;
+        m[offset + 2] = -fx;
+        m[offset + 3] = 0.0f;
+
+        m[offset + 4] = sy;
+        m[offset + 5] = uy;
+        m[offset + 6] = -fy;
+        m[offset + 7] = 0.0f;
+
+        m[offset + 8] = sz;
+        m[offset + 9] = uz;
+        m[offset + 10] = -fz;
+        m[offset + 11] = 0.0f;
+
+        m[offset + 12] = 0.0f;
+        m[offset + 13] = 0.0f;
+        m[offset + 14] = 0.0f;
+        m[offset + 15] = 1.0f;
+
+        translate(m, offset, -eyeX, -eyeY, -eyeZ);
+    }
+}
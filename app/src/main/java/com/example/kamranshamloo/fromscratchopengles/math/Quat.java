@@ -0,0 +1,129 @@
+package com.example.kamranshamloo.fromscratchopengles.math;
+
+/**
+ * Quaternion math on flat {@code float[]} arrays, stored (w, x, y, z) at an
+ * offset. Rotations follow the same conventions as {@link Mat4}: the matrix of
+ * {@code setAxisAngle(q, degrees, x, y, z)} equals
+ * {@code Mat4.setRotate(m, degrees, x, y, z)}. Nothing here allocates, and
+ * results may alias their inputs.
+ */
+public final class Quat {
+
+    // Below this angle between two quaternions slerp falls back to a normalized
+    // lerp, which avoids dividing by sin(theta) ~ 0.
+    private static final float SLERP_THRESHOLD = 0.9995f;
+
+    private Quat() {
+    }
+
+    public static void setIdentity(float[] q, int offset) {
+        q[offset] = 1;
+        q[offset + 1] = 0;
+        q[offset + 2] = 0;
+        q[offset + 3] = 0;
+    }
+
+    /**
+     * Sets q to a rotation of the given degrees around the axis (x, y, z),
+     * which does not need to be unit length.
+     */
+    public static void setAxisAngle(float[] q, int offset, float degrees, float x, float y, float z) {
+        final float length = Vec3.length(x, y, z);
+        final float halfAngle = degrees * (float) (Math.PI / 360.0);
+        final float s = (float) Math.sin(halfAngle) / length;
+        q[offset] = (float) Math.cos(halfAngle);
+        q[offset + 1] = x * s;
+        q[offset + 2] = y * s;
+        q[offset + 3] = z * s;
+    }
+
+    /**
+     * Computes result = a * b, the rotation b followed by a.
+     */
+    public static void multiply(float[] result, int resultOffset,
+                                float[] a, int aOffset, float[] b, int bOffset) {
+        final float aw = a[aOffset], ax = a[aOffset + 1], ay = a[aOffset + 2], az = a[aOffset + 3];
+        final float bw = b[bOffset], bx = b[bOffset + 1], by = b[bOffset + 2], bz = b[bOffset + 3];
+        result[resultOffset] = aw * bw - ax * bx - ay * by - az * bz;
+        result[resultOffset + 1] = aw * bx + ax * bw + ay * bz - az * by;
+        result[resultOffset + 2] = aw * by - ax * bz + ay * bw + az * bx;
+        result[resultOffset + 3] = aw * bz + ax * by - ay * bx + az * bw;
+    }
+
+    /**
+     * Scales q back to unit length in place.
+     */
+    public static void normalize(float[] q, int offset) {
+        final float w = q[offset], x = q[offset + 1], y = q[offset + 2], z = q[offset + 3];
+        final float recipLength = 1.0f / (float) Math.sqrt(w * w + x * x + y * y + z * z);
+        q[offset] = w * recipLength;
+        q[offset + 1] = x * recipLength;
+        q[offset + 2] = y * recipLength;
+        q[offset + 3] = z * recipLength;
+    }
+
+    /**
+     * Spherically interpolates between the unit quaternions a (t = 0) and b
+     * (t = 1) along the shorter arc.
+     */
+    public static void slerp(float[] result, int resultOffset,
+                             float[] a, int aOffset, float[] b, int bOffset, float t) {
+        final float aw = a[aOffset], ax = a[aOffset + 1], ay = a[aOffset + 2], az = a[aOffset + 3];
+        float bw = b[bOffset], bx = b[bOffset + 1], by = b[bOffset + 2], bz = b[bOffset + 3];
+        float cosTheta = aw * bw + ax * bx + ay * by + az * bz;
+        // q and -q are the same rotation; go the short way round.
+        if (cosTheta < 0) {
+            cosTheta = -cosTheta;
+            bw = -bw;
+            bx = -bx;
+            by = -by;
+            bz = -bz;
+        }
+        float aWeight;
+        float bWeight;
+        if (cosTheta > SLERP_THRESHOLD) {
+            aWeight = 1 - t;
+            bWeight = t;
+        } else {
+            final double theta = Math.acos(cosTheta);
+            final double sinTheta = Math.sin(theta);
+            aWeight = (float) (Math.sin((1 - t) * theta) / sinTheta);
+            bWeight = (float) (Math.sin(t * theta) / sinTheta);
+        }
+        result[resultOffset] = aWeight * aw + bWeight * bw;
+        result[resultOffset + 1] = aWeight * ax + bWeight * bx;
+        result[resultOffset + 2] = aWeight * ay + bWeight * by;
+        result[resultOffset + 3] = aWeight * az + bWeight * bz;
+        normalize(result, resultOffset);
+    }
+
+    /**
+     * Writes the unit quaternion q as a column-major 4x4 rotation matrix.
+     */
+    public static void toMatrix(float[] m, int mOffset, float[] q, int qOffset) {
+        final float w = q[qOffset], x = q[qOffset + 1], y = q[qOffset + 2], z = q[qOffset + 3];
+        final float xx = x * x, yy = y * y, zz = z * z;
+        final float xy = x * y, xz = x * z, yz = y * z;
+        final float wx = w * x, wy = w * y, wz = w * z;
+
+        m[mOffset] = 1 - 2 * (yy + zz);
+        m[mOffset + 1] = 2 * (xy + wz);
+        m[mOffset + 2] = 2 * (xz - wy);
+        m[mOffset + 3] = 0;
+
+        m[mOffset + 4] = 2 * (xy - wz);
+        m[mOffset + 5] = 1 - 2 * (xx + zz);
+        m[mOffset + 6] = 2 * (yz + wx);
+        m[mOffset + 7] = 0;
+
+        m[mOffset + 8] = 2 * (xz + wy);
+        m[mOffset + 9] = 2 * (yz - wx);
+        m[mOffset + 10] = 1 - 2 * (xx + yy);
+        m[mOffset + 11] = 0;
+
+        m[mOffset + 12] = 0;
+        m[mOffset + 13] = 0;
+        m[mOffset + 14] = 0;
+        m[mOffset + 15] = 1;
+    }
+}
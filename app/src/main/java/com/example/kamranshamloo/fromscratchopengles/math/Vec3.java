@@ -0,0 +1,68 @@
+package com.example.kamranshamloo.fromscratchopengles.math;
+
+/**
+ * 3 component vector math on flat {@code float[]} arrays, stored (x, y, z) at
+ * an offset. Nothing here allocates, and results may alias their inputs.
+ */
+public final class Vec3 {
+
+    private Vec3() {
+    }
+
+    /**
+     * Returns the length of (x, y, z). Same as {@link android.opengl.Matrix#length}.
+     */
+    public static float length(float x, float y, float z) {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    public static float length(float[] v, int offset) {
+        return length(v[offset], v[offset + 1], v[offset + 2]);
+    }
+
+    public static void set(float[] v, int offset, float x, float y, float z) {
+        v[offset] = x;
+        v[offset + 1] = y;
+        v[offset + 2] = z;
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset) {
+        return a[aOffset] * b[bOffset] + a[aOffset + 1] * b[bOffset + 1] + a[aOffset + 2] * b[bOffset + 2];
+    }
+
+    /**
+     * Computes result = a x b.
+     */
+    public static void cross(float[] result, int resultOffset,
+                             float[] a, int aOffset, float[] b, int bOffset) {
+        final float ax = a[aOffset], ay = a[aOffset + 1], az = a[aOffset + 2];
+        final float bx = b[bOffset], by = b[bOffset + 1], bz = b[bOffset + 2];
+        result[resultOffset] = ay * bz - az * by;
+        result[resultOffset + 1] = az * bx - ax * bz;
+        result[resultOffset + 2] = ax * by - ay * bx;
+    }
+
+    /**
+     * Computes result = a - b.
+     */
+    public static void subtract(float[] result, int resultOffset,
+                                float[] a, int aOffset, float[] b, int bOffset) {
+        result[resultOffset] = a[aOffset] - b[bOffset];
+        result[resultOffset + 1] = a[aOffset + 1] - b[bOffset + 1];
+        result[resultOffset + 2] = a[aOffset + 2] - b[bOffset + 2];
+    }
+
+    /**
+     * Scales v to unit length in place. Leaves a zero vector unchanged.
+     */
+    public static void normalize(float[] v, int offset) {
+        final float length = length(v, offset);
+        if (length == 0) {
+            return;
+        }
+        final float recipLength = 1.0f / length;
+        v[offset] *= recipLength;
+        v[offset + 1] *= recipLength;
+        v[offset + 2] *= recipLength;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the current thread, for asserting that hot
+ * paths do not allocate. Relies on the HotSpot thread allocation counters of the
+ * JVM the unit tests run on.
+ *
+ * <p>The JIT allocates on the measured thread now and then while it compiles,
+ * so a single measurement may count bytes that are not the code's. Assert
+ * that code allocates nothing with {@link #leastAllocated(Runnable)}, which
+ * repeats the measurement: code that allocates does so in every round.</p>
+ */
+final class AllocationMeter implements AllocationProbe {
+
+    /** How often to repeat a measurement before giving up on a clean one. */
+    private static final int MAX_ROUNDS = 50;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final AllocationTracker mTracker;
+
+    AllocationMeter() {
+        THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+        // A tracker of one phase, which subtracts what reading the counter costs.
+        mTracker = new AllocationTracker(this, Long.MAX_VALUE);
+    }
+
+    void start() {
+        mTracker.beginFrame();
+    }
+
+    /**
+     * Returns the bytes allocated by this thread since {@link #start()}.
+     */
+    long stop() {
+        mTracker.endFrame();
+        return mTracker.getLastFrameBytes(FrameStats.PHASE_FRAME);
+    }
+
+    /**
+     * Runs a body until a run allocates nothing, at most {@link #MAX_ROUNDS}
+     * times, and returns the least one run allocated.
+     *
+     * @param body - Runs the code under test; every run must do the same work.
+     */
+    static long leastAllocated(Runnable body) {
+        AllocationMeter meter = new AllocationMeter();
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < MAX_ROUNDS && least > 0; round++) {
+            meter.start();
+            body.run();
+            least = Math.min(least, meter.stop());
+        }
+        return least;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
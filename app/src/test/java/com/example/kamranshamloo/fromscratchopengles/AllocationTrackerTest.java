@@ -0,0 +1,114 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AllocationTrackerTest {
+
+    /**
+     * Reports allocations set by the test, plus what every reading costs.
+     */
+    private static class FakeProbe implements AllocationProbe {
+        final long mReadingCost;
+        long mAllocated = 0;
+
+        FakeProbe(long readingCost) {
+            mReadingCost = readingCost;
+        }
+
+        @Override
+        public long getAllocatedBytes() {
+            mAllocated += mReadingCost;
+            return mAllocated;
+        }
+    }
+
+    @Test
+    public void phases_getWhatWasAllocatedSinceThePreviousMark() throws Exception {
+        FakeProbe probe = new FakeProbe(0);
+        AllocationTracker tracker = new AllocationTracker(probe, 1000);
+
+        tracker.beginFrame();
+        probe.mAllocated += 100;
+        tracker.endPhase(FrameStats.PHASE_SETUP);
+        probe.mAllocated += 20;
+        tracker.endPhase(FrameStats.PHASE_SUBMIT);
+        probe.mAllocated += 3;
+        tracker.endFrame();
+
+        assertEquals(100, tracker.getLastFrameBytes(FrameStats.PHASE_SETUP));
+        assertEquals(0, tracker.getLastFrameBytes(FrameStats.PHASE_ANIMATION));
+        assertEquals(20, tracker.getLastFrameBytes(FrameStats.PHASE_SUBMIT));
+        // The frame also counts what came after the last phase.
+        assertEquals(123, tracker.getLastFrameBytes(FrameStats.PHASE_FRAME));
+        assertEquals(1, tracker.getFrameCount());
+        assertEquals(0, tracker.getOverBudgetCount());
+    }
+
+    @Test
+    public void probeReadings_areNotCounted() throws Exception {
+        FakeProbe probe = new FakeProbe(16);
+        AllocationTracker tracker = new AllocationTracker(probe, 0);
+
+        tracker.beginFrame();
+        tracker.endPhase(FrameStats.PHASE_SETUP);
+        probe.mAllocated += 40;
+        tracker.endPhase(FrameStats.PHASE_ANIMATION);
+        tracker.endPhase(FrameStats.PHASE_SUBMIT);
+        tracker.endFrame();
+
+        assertEquals(0, tracker.getLastFrameBytes(FrameStats.PHASE_SETUP));
+        assertEquals(40, tracker.getLastFrameBytes(FrameStats.PHASE_ANIMATION));
+        assertEquals(0, tracker.getLastFrameBytes(FrameStats.PHASE_SUBMIT));
+        assertEquals(40, tracker.getLastFrameBytes(FrameStats.PHASE_FRAME));
+    }
+
+    @Test
+    public void framesOverBudget_areCountedAndReported() throws Exception {
+        final FakeProbe probe = new FakeProbe(0);
+        AllocationTracker tracker = new AllocationTracker(probe, 64);
+        final long[] reported = new long[1];
+        tracker.setListener(new AllocationTracker.Listener() {
+            @Override
+            public void onOverBudget(AllocationTracker tracker) {
+                reported[0] = tracker.getLastFrameBytes(FrameStats.PHASE_SUBMIT);
+            }
+        });
+
+        tracker.beginFrame();
+        probe.mAllocated += 64;
+        tracker.endPhase(FrameStats.PHASE_SUBMIT);
+        tracker.endFrame();
+        assertEquals(0, tracker.getOverBudgetCount());
+        assertEquals(0, reported[0]);
+
+        tracker.beginFrame();
+        probe.mAllocated += 200;
+        tracker.endPhase(FrameStats.PHASE_SUBMIT);
+        tracker.endFrame();
+        assertEquals(1, tracker.getOverBudgetCount());
+        assertEquals(200, reported[0]);
+
+        tracker.beginFrame();
+        tracker.endFrame();
+        assertEquals(3, tracker.getFrameCount());
+        assertEquals(1, tracker.getOverBudgetCount());
+        assertEquals(0, tracker.getLastFrameBytes(FrameStats.PHASE_FRAME));
+        assertEquals(200, tracker.getMaxFrameBytes(FrameStats.PHASE_FRAME));
+        assertEquals(200, tracker.getMaxFrameBytes(FrameStats.PHASE_SUBMIT));
+    }
+
+    @Test
+    public void describeLastFrame_namesEveryPhase() throws Exception {
+        FakeProbe probe = new FakeProbe(0);
+        AllocationTracker tracker = new AllocationTracker(probe, 0);
+        tracker.beginFrame();
+        probe.mAllocated += 32;
+        tracker.endPhase(FrameStats.PHASE_ANIMATION);
+        tracker.endFrame();
+
+        assertEquals("32 bytes allocated, budget 0, setup 0, animation 32, submit 0",
+                tracker.describeLastFrame());
+    }
+}
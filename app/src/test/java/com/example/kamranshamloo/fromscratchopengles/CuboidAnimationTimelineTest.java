@@ -0,0 +1,160 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CuboidAnimationTimelineTest {
+
+    private static final float FRAME_TIME = 1.0f / 60;
+
+    @Test
+    public void firstFrame_startsWithTwoCollapsedLines() throws Exception {
+        SegmentTimeline timeline = CuboidAnimationTimeline.create();
+        float[] vertices = new float[timeline.getMaxVertexCount() * 3];
+
+        assertEquals(4, timeline.evaluate(0, vertices));
+        // The moving point starts on the left-bottom-far corner.
+        assertEquals(-2.0f, vertices[3], 0);
+        assertEquals(-1.0f, vertices[4], 0);
+        assertEquals(-1.0f, vertices[5], 0);
+    }
+
+    @Test
+    public void fullCycle_endsWithWholeRoom() throws Exception {
+        SegmentTimeline timeline = CuboidAnimationTimeline.create();
+        float[] vertices = new float[timeline.getMaxVertexCount() * 3];
+
+        assertEquals(24, timeline.evaluate(timeline.getDuration(), vertices));
+        // Every vertex of the finished room is a corner of the -2..2 x -1..1 x -1..1 box.
+        for (int i = 0; i < 24 * 3; i += 3) {
+            assertEquals(2.0f, Math.abs(vertices[i]), 0);
+            assertEquals(1.0f, Math.abs(vertices[i + 1]), 0);
+            assertEquals(1.0f, Math.abs(vertices[i + 2]), 0);
+        }
+    }
+
+    @Test
+    public void otherRooms_endWithTheirCorners() throws Exception {
+        SegmentTimeline timeline = CuboidAnimationTimeline.create(new float[]{0, 0, 0, 10, 3, 8});
+        float[] vertices = new float[timeline.getMaxVertexCount() * 3];
+
+        assertEquals(24, timeline.evaluate(timeline.getDuration(), vertices));
+        for (int i = 0; i < 24 * 3; i += 3) {
+            assertTrue(vertices[i] == 0 || vertices[i] == 10);
+            assertTrue(vertices[i + 1] == 0 || vertices[i + 1] == 3);
+            assertTrue(vertices[i + 2] == 0 || vertices[i + 2] == 8);
+        }
+        // Edges grow at the same speed, so a larger room takes longer.
+        assertTrue(timeline.getDuration() > CuboidAnimationTimeline.create().getDuration());
+    }
+
+    @Test
+    public void boxMesh_buildsUpLikeItsExtents() throws Exception {
+        SegmentTimeline fromMesh = CuboidAnimationTimeline.create(RoomMesh.box(RoomMesh.DEFAULT_EXTENTS));
+        SegmentTimeline builtIn = CuboidAnimationTimeline.create();
+        float[] expected = new float[builtIn.getMaxVertexCount() * 3];
+        float[] actual = new float[fromMesh.getMaxVertexCount() * 3];
+
+        assertEquals(builtIn.getDuration(), fromMesh.getDuration(), 0);
+        for (float time = 0; time < builtIn.getDuration(); time += 0.25f) {
+            assertEquals(builtIn.evaluate(time, expected), fromMesh.evaluate(time, actual));
+            assertArrayEquals(expected, actual, 0);
+        }
+    }
+
+    @Test
+    public void polygonalRooms_endWithEveryEdgeOfTheirMesh() throws Exception {
+        RoomMesh room = new RoomMeshBuilder()
+                .addRoom(new float[]{0, 0, 2, 0, 2, 1, 1, 1, 1, 2, 0, 2}, 0, 3)
+                .addBox(new float[]{2, 0, 0, 3, 2, 1})
+                .build();
+        SegmentTimeline timeline = CuboidAnimationTimeline.create(room);
+        float[] vertices = new float[timeline.getMaxVertexCount() * 3];
+
+        // The floor outline comes first.
+        int floorCount = timeline.evaluate(0.1f, vertices);
+        for (int i = 0; i < floorCount * 3; i += 3) {
+            assertEquals(0, vertices[i + 1], 0);
+        }
+
+        int count = timeline.evaluate(timeline.getDuration(), vertices);
+        short[] lines = room.getLineIndices();
+        float[] corners = room.getVertices();
+        assertEquals(lines.length, count);
+        for (int e = 0; e < lines.length; e += 2) {
+            boolean drawn = false;
+            for (int v = 0; v < count * 3 && !drawn; v += 6) {
+                drawn = sameSegment(corners, lines[e] * 3, lines[e + 1] * 3, vertices, v);
+            }
+            assertTrue("Edge " + e / 2 + " is missing", drawn);
+        }
+    }
+
+    @Test
+    public void sceneWireframes_endWithEverySegmentOfTheFile() throws Exception {
+        // A triangular room: floor, one vertical edge pointing down and a
+        // sloping ceiling line, none of them the edges of its extents.
+        float[] segments = {
+                0, 1, 0, 4, 1, 0,
+                4, 1, 0, 0, 1, 3,
+                0, 3, 3, 0, 1, 3,
+                4, 1, 0, 0, 4, 3,
+        };
+        SceneFile.Scene scene = SceneFile.read(SceneFile.encode(new float[]{0, 1, 0, 4, 4, 3},
+                segments, new int[0], new float[0], new float[0], new float[0], 0));
+        SegmentTimeline timeline = CuboidAnimationTimeline.create(
+                scene.getSegments(), scene.getSegmentVertexCount());
+        float[] vertices = new float[timeline.getMaxVertexCount() * 3];
+
+        // The floor comes first.
+        int floorCount = timeline.evaluate(0, vertices);
+        assertTrue(floorCount > 0);
+        for (int i = 0; i < floorCount * 3; i += 3) {
+            assertEquals(1, vertices[i + 1], 0);
+        }
+
+        int count = timeline.evaluate(timeline.getDuration(), vertices);
+        assertEquals(segments.length / 3, count);
+        for (int s = 0; s < segments.length; s += 6) {
+            boolean drawn = false;
+            for (int v = 0; v < count * 3 && !drawn; v += 6) {
+                drawn = sameSegment(segments, s, s + 3, vertices, v);
+            }
+            assertTrue("Segment " + s / 6 + " is missing", drawn);
+        }
+        assertEquals(0, scene.getSegments().position());
+    }
+
+    // Whether the segment at v in vertices joins the corners at a and b.
+    private static boolean sameSegment(float[] corners, int a, int b, float[] vertices, int v) {
+        return samePoint(corners, a, vertices, v) && samePoint(corners, b, vertices, v + 3)
+                || samePoint(corners, b, vertices, v) && samePoint(corners, a, vertices, v + 3);
+    }
+
+    private static boolean samePoint(float[] corners, int a, float[] vertices, int v) {
+        return corners[a] == vertices[v] && corners[a + 1] == vertices[v + 1]
+                && corners[a + 2] == vertices[v + 2];
+    }
+
+    @Test
+    public void steadyStateFrames_allocateNothing() throws Exception {
+        SegmentTimeline timeline = CuboidAnimationTimeline.create();
+        final float[] vertices = new float[timeline.getMaxVertexCount() * 3];
+        final ManualClock clock = new ManualClock(0);
+        final TimelinePlayer player = new TimelinePlayer(timeline, clock);
+        final float cycle = timeline.getDuration() + 1;
+
+        assertEquals(0, AllocationMeter.leastAllocated(new Runnable() {
+            @Override
+            public void run() {
+                player.seek(0);
+                for (float time = 0; time < cycle; time += FRAME_TIME) {
+                    clock.advance(FRAME_TIME);
+                    player.evaluate(vertices);
+                }
+            }
+        }));
+        assertTrue(player.isFinished());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+
+import static org.junit.Assert.*;
+
+public class FrameStatsTest {
+
+    private final FrameStats mStats = new FrameStats();
+
+    @Test
+    public void phases_areTimedSeparately() throws Exception {
+        for (int frame = 0; frame < 100; frame++) {
+            long start = frame * 20000000L;
+            mStats.begin(FrameStats.PHASE_FRAME, start);
+            mStats.begin(FrameStats.PHASE_SETUP, start);
+            mStats.end(FrameStats.PHASE_SETUP, start + 1000000);
+            mStats.begin(FrameStats.PHASE_SUBMIT, start + 1000000);
+            mStats.end(FrameStats.PHASE_SUBMIT, start + 5000000);
+            // Every tenth frame is janky.
+            mStats.end(FrameStats.PHASE_FRAME, start + (frame % 10 == 0 ? 40000000 : 6000000));
+            mStats.endFrame(2, 1000);
+        }
+
+        FrameStats.Snapshot snapshot = mStats.snapshot();
+        assertEquals(100, snapshot.getFrameCount());
+        assertEquals(200, snapshot.getDrawCallCount());
+        assertEquals(100000, snapshot.getUploadedBytes());
+        assertEquals(100, snapshot.getPhase(FrameStats.PHASE_SETUP).getCount());
+        assertEquals(0, snapshot.getPhase(FrameStats.PHASE_ANIMATION).getCount());
+        assertEquals(1000000, snapshot.getPhase(FrameStats.PHASE_SETUP).getPercentile(0.5), 1000000 / 30);
+        assertEquals(4000000, snapshot.getPhase(FrameStats.PHASE_SUBMIT).getPercentile(0.99), 4000000 / 30);
+        LatencyHistogram.Snapshot frames = snapshot.getPhase(FrameStats.PHASE_FRAME);
+        assertEquals(6000000, frames.getPercentile(0.5), 6000000 / 30);
+        assertEquals(40000000, frames.getPercentile(0.95), 40000000 / 30);
+    }
+
+    @Test
+    public void drain_startsOver() throws Exception {
+        mStats.begin(FrameStats.PHASE_FRAME, 0);
+        mStats.end(FrameStats.PHASE_FRAME, 100);
+        mStats.endFrame(1, 64);
+
+        assertEquals(1, mStats.drain().getFrameCount());
+        FrameStats.Snapshot second = mStats.drain();
+        assertEquals(0, second.getFrameCount());
+        assertEquals(0, second.getUploadedBytes());
+        assertEquals(0, second.getPhase(FrameStats.PHASE_FRAME).getCount());
+    }
+
+    @Test
+    public void writer_appendsOneLinePerPeriodWithFrames() throws Exception {
+        File file = File.createTempFile("frame_stats", ".csv");
+        file.deleteOnExit();
+        FrameStatsWriter writer = new FrameStatsWriter(mStats, file, 1000, 1024 * 1024);
+        file.delete();
+
+        for (int period = 0; period < 2; period++) {
+            mStats.begin(FrameStats.PHASE_FRAME, 0);
+            mStats.end(FrameStats.PHASE_FRAME, 16000000);
+            mStats.endFrame(2, 1000);
+            writer.write(mStats.drain());
+        }
+        // Nothing drawn, nothing written.
+        writer.write(mStats.drain());
+
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String header = reader.readLine();
+            assertTrue(header.startsWith("time_ms,frames,draw_calls,uploaded_bytes,frame_p50_us"));
+            int columns = header.split(",").length;
+            for (int line = 0; line < 2; line++) {
+                String[] row = reader.readLine().split(",");
+                assertEquals(columns, row.length);
+                assertEquals("1", row[1]);
+                assertEquals("2", row[2]);
+                assertEquals("1000", row[3]);
+                assertEquals(16000, Long.parseLong(row[4]), 16000 / 30);
+            }
+            assertNull(reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void writer_rollsTheFileOverAtItsLimit() throws Exception {
+        File file = File.createTempFile("frame_stats", ".csv");
+        file.deleteOnExit();
+        // Full after the column names and one line.
+        FrameStatsWriter writer = new FrameStatsWriter(mStats, file, 1000, 1);
+        File previous = writer.getPreviousFile();
+        previous.deleteOnExit();
+        file.delete();
+
+        for (int period = 0; period < 3; period++) {
+            mStats.begin(FrameStats.PHASE_FRAME, 0);
+            mStats.end(FrameStats.PHASE_FRAME, 16000000);
+            mStats.endFrame(period + 1, 1000);
+            writer.write(mStats.drain());
+        }
+
+        // The newest line in the file, the one before it rolled over, each
+        // under the column names.
+        assertEquals("3", readRow(file)[2]);
+        assertEquals("2", readRow(previous)[2]);
+    }
+
+    // The first line after the column names, split into its columns.
+    private static String[] readRow(File file) throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            assertTrue(reader.readLine().startsWith("time_ms,"));
+            String[] row = reader.readLine().split(",");
+            assertNull(reader.readLine());
+            return row;
+        } finally {
+            reader.close();
+        }
+    }
+}
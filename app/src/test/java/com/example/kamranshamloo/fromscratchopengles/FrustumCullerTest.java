@@ -0,0 +1,75 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import com.example.kamranshamloo.fromscratchopengles.math.Mat4;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FrustumCullerTest {
+
+    private final FrustumCuller mCuller = new FrustumCuller();
+
+    @Before
+    public void setUp() throws Exception {
+        // The renderer's camera: at z = 4 looking down -z, 90 degrees high.
+        float[] projection = new float[16];
+        float[] view = new float[16];
+        float[] m = new float[16];
+        Mat4.frustum(projection, 0, -1, 1, -1, 1, 1, 100);
+        Mat4.setLookAt(view, 0, 0, 0, 4, 0, 0, -1, 0, 1, 0);
+        Mat4.multiply(m, 0, projection, 0, view, 0);
+        mCuller.setMatrix(m, 0);
+    }
+
+    @Test
+    public void isVisible_insideAndOutside() throws Exception {
+        assertTrue(mCuller.isVisible(0, 0, 0, 0.1f));
+        // Behind the eye, and nearer than the near plane.
+        assertFalse(mCuller.isVisible(0, 0, 5, 0.1f));
+        assertFalse(mCuller.isVisible(0, 0, 3.5f, 0.1f));
+        // Beyond the far plane.
+        assertFalse(mCuller.isVisible(0, 0, -100, 0.1f));
+        // The sides are at 45 degrees: at the origin, 4 away from the axis.
+        assertFalse(mCuller.isVisible(4.5f, 0, 0, 0.1f));
+        assertFalse(mCuller.isVisible(0, -4.5f, 0, 0.1f));
+    }
+
+    @Test
+    public void isVisible_countsSpheresReachingIn() throws Exception {
+        // The center is 0.5 outside the right plane, along its normal 0.35 away.
+        assertFalse(mCuller.isVisible(4.5f, 0, 0, 0.3f));
+        assertTrue(mCuller.isVisible(4.5f, 0, 0, 0.4f));
+    }
+
+    @Test
+    public void cull_matchesIsVisible() throws Exception {
+        Random random = new Random(3);
+        int count = 1000;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] z = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextFloat() * 20 - 10;
+            y[i] = random.nextFloat() * 20 - 10;
+            z[i] = random.nextFloat() * 20 - 10;
+        }
+        int[] visible = new int[count];
+
+        int visibleCount = mCuller.cull(x, y, z, count, 0.2f, visible);
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            if (mCuller.isVisible(x[i], y[i], z[i], 0.2f)) {
+                assertEquals(i, visible[next++]);
+            }
+        }
+        assertEquals(next, visibleCount);
+        assertEquals(visibleCount, mCuller.getVisibleCount());
+        assertEquals(count - visibleCount, mCuller.getCulledCount());
+        assertTrue(visibleCount > 0);
+        assertTrue(visibleCount < count);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlStateCacheTest {
+
+    private static final String VERTEX_SHADER =
+            "uniform mat4 uMVPMatrix;" +
+            "attribute vec4 vPosition;" +
+            "void main() { gl_Position = uMVPMatrix * vPosition; }";
+    private static final String FRAGMENT_SHADER =
+            "precision mediump float;" +
+            "uniform vec4 vColor;" +
+            "void main() { gl_FragColor = vColor; }";
+
+    private final RecordingGl mRecorder = new RecordingGl();
+    private final GlStateCache mCache = new GlStateCache(mRecorder);
+
+    private int createProgram() {
+        int program = mCache.glCreateProgram();
+        mCache.glAttachShader(program, MyGLRenderer.loadShader(mCache, GLES20.GL_VERTEX_SHADER, VERTEX_SHADER));
+        mCache.glAttachShader(program, MyGLRenderer.loadShader(mCache, GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER));
+        mCache.glLinkProgram(program);
+        return program;
+    }
+
+    @Test
+    public void repeatedState_isIssuedOnce() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mCache.glLineWidth(4);
+            mCache.glEnableVertexAttribArray(0);
+            mCache.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 7);
+            mCache.glViewport(0, 0, 640, 480);
+            mCache.glClearColor(0, 0, 0, 1);
+        }
+        assertEquals(1, mRecorder.getCommandCount(RecordingGl.LINE_WIDTH));
+        assertEquals(1, mRecorder.getCommandCount(RecordingGl.ENABLE_VERTEX_ATTRIB_ARRAY));
+        assertEquals(1, mRecorder.getCommandCount(RecordingGl.BIND_BUFFER));
+        assertEquals(1, mRecorder.getCommandCount(RecordingGl.VIEWPORT));
+        assertEquals(1, mRecorder.getCommandCount(RecordingGl.CLEAR_COLOR));
+        assertEquals(5, mCache.getIssuedCount());
+        assertEquals(10, mCache.getSkippedCount());
+
+        mCache.glLineWidth(8);
+        mCache.glDisableVertexAttribArray(0);
+        assertEquals(2, mRecorder.getCommandCount(RecordingGl.LINE_WIDTH));
+        assertEquals(1, mRecorder.getCommandCount(RecordingGl.DISABLE_VERTEX_ATTRIB_ARRAY));
+
+        mCache.resetCounters();
+        assertEquals(0, mCache.getIssuedCount());
+        assertEquals(0, mCache.getSkippedCount());
+    }
+
+    @Test
+    public void uniforms_areTrackedPerProgram() throws Exception {
+        int first = createProgram();
+        int second = createProgram();
+        float[] red = {1, 0, 0, 1};
+        float[] green = {0, 1, 0, 1};
+        int color = mCache.glGetUniformLocation(first, "vColor");
+
+        mCache.glUseProgram(first);
+        mCache.glUniform4fv(color, 1, red, 0);
+        mCache.glUseProgram(second);
+        mCache.glUniform4fv(color, 1, green, 0);
+        mRecorder.reset();
+
+        // Each program still holds its own color.
+        mCache.glUseProgram(first);
+        mCache.glUniform4fv(color, 1, red, 0);
+        mCache.glUseProgram(second);
+        mCache.glUniform4fv(color, 1, green, 0);
+        mCache.glUseProgram(second);
+        assertEquals(2, mRecorder.getCommandCount(RecordingGl.USE_PROGRAM));
+        assertEquals(0, mRecorder.getCommandCount(RecordingGl.UNIFORM_4FV));
+
+        mCache.glUniform4fv(color, 1, red, 0);
+        assertEquals(1, mRecorder.getCommandCount(RecordingGl.UNIFORM_4FV));
+        assertEquals(GLES20.GL_NO_ERROR, mRecorder.glGetError());
+    }
+
+    @Test
+    public void relink_forgetsUniforms() throws Exception {
+        int program = createProgram();
+        float[] mvp = new float[16];
+        int location = mCache.glGetUniformLocation(program, "uMVPMatrix");
+        mCache.glUseProgram(program);
+        mCache.glUniformMatrix4fv(location, 1, false, mvp, 0);
+
+        mCache.glLinkProgram(program);
+        mCache.glUniformMatrix4fv(location, 1, false, mvp, 0);
+        assertEquals(2, mRecorder.getCommandCount(RecordingGl.UNIFORM_MATRIX_4FV));
+    }
+
+    @Test
+    public void deletingBoundBuffer_unbindsIt() throws Exception {
+        int[] buffers = new int[1];
+        mCache.glGenBuffers(1, buffers, 0);
+        mCache.glBindBuffer(GLES20.GL_ARRAY_BUFFER, buffers[0]);
+        mCache.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        mCache.glBindBuffer(GLES20.GL_ARRAY_BUFFER, buffers[0]);
+        mCache.glDeleteBuffers(1, buffers, 0);
+
+        // Binding 0 is now redundant, the recreated handle is not.
+        mCache.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        mCache.glGenBuffers(1, buffers, 0);
+        mCache.glBindBuffer(GLES20.GL_ARRAY_BUFFER, buffers[0]);
+        assertEquals(4, mRecorder.getCommandCount(RecordingGl.BIND_BUFFER));
+    }
+
+    @Test
+    public void attribPointers_areSkippedOnlyForTheSameBuffer() throws Exception {
+        mCache.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 1);
+        mCache.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, 12, 0);
+        mCache.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, 12, 0);
+        mCache.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 2);
+        mCache.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, 12, 0);
+        assertEquals(2, mRecorder.getCommandCount(RecordingGl.VERTEX_ATTRIB_POINTER));
+    }
+
+    @Test
+    public void invalidate_reissuesEverything() throws Exception {
+        int program = createProgram();
+        mCache.glUseProgram(program);
+        mCache.glLineWidth(4);
+        mCache.glEnableVertexAttribArray(0);
+
+        mCache.invalidate();
+        mCache.glUseProgram(program);
+        mCache.glLineWidth(4);
+        mCache.glEnableVertexAttribArray(0);
+        assertEquals(2, mRecorder.getCommandCount(RecordingGl.USE_PROGRAM));
+        assertEquals(2, mRecorder.getCommandCount(RecordingGl.LINE_WIDTH));
+        assertEquals(2, mRecorder.getCommandCount(RecordingGl.ENABLE_VERTEX_ATTRIB_ARRAY));
+    }
+}
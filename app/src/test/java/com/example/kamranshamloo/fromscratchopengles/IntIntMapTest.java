@@ -0,0 +1,70 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntIntMapTest {
+
+    @Test
+    public void putGetRemove() throws Exception {
+        IntIntMap map = new IntIntMap(4);
+        assertEquals(IntIntMap.NO_VALUE, map.put(7, 70));
+        assertEquals(70, map.put(7, 71));
+        map.put(-3, 30);
+        assertEquals(71, map.get(7));
+        assertEquals(30, map.get(-3));
+        assertEquals(IntIntMap.NO_VALUE, map.get(8));
+        assertEquals(2, map.size());
+
+        assertEquals(71, map.remove(7));
+        assertEquals(IntIntMap.NO_VALUE, map.remove(7));
+        assertFalse(map.containsKey(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void randomOperations_matchHashMap() throws Exception {
+        IntIntMap map = new IntIntMap(8);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            // Few distinct keys, so probe chains collide and get removed from often.
+            int key = random.nextInt(500) - 100;
+            if (random.nextInt(3) == 0) {
+                Integer value = expected.remove(key);
+                assertEquals(value == null ? IntIntMap.NO_VALUE : value, map.remove(key));
+            } else {
+                int value = random.nextInt(1000);
+                Integer previous = expected.put(key, value);
+                assertEquals(previous == null ? IntIntMap.NO_VALUE : previous, map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -100; key < 400; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? IntIntMap.NO_VALUE : value, map.get(key));
+        }
+    }
+
+    @Test
+    public void copyFrom_makesAnIndependentCopy() throws Exception {
+        IntIntMap source = new IntIntMap(4);
+        for (int i = 0; i < 100; i++) {
+            source.put(i, i * 2);
+        }
+        IntIntMap copy = new IntIntMap(4);
+        copy.copyFrom(source);
+        source.remove(5);
+        assertEquals(10, copy.get(5));
+        assertEquals(100, copy.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minValueKey_isRejected() throws Exception {
+        new IntIntMap(4).put(Integer.MIN_VALUE, 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram mHistogram = new LatencyHistogram();
+
+    @Test
+    public void buckets_coverEveryValueOnce() throws Exception {
+        for (int bucket = 0; bucket < LatencyHistogram.bucketOf(LatencyHistogram.MAX_VALUE); bucket++) {
+            long lowest = LatencyHistogram.lowestInBucket(bucket);
+            long highest = LatencyHistogram.highestInBucket(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(lowest));
+            assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+            assertEquals(highest + 1, LatencyHistogram.lowestInBucket(bucket + 1));
+            // About 3% wide at most.
+            assertTrue(highest - lowest <= lowest / LatencyHistogram.SUB_BUCKETS);
+        }
+    }
+
+    @Test
+    public void percentiles_matchSortedValues() throws Exception {
+        Random random = new Random(5);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            // Mostly around 8 ms, with a long tail.
+            values[i] = (long) (8e6 + Math.abs(random.nextGaussian()) * (i % 50 == 0 ? 40e6 : 1e6));
+            mHistogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyHistogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(values[values.length - 1], snapshot.getMax());
+        for (double fraction : new double[] {0.5, 0.95, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+            long reported = snapshot.getPercentile(fraction);
+            assertTrue(fraction + ": " + reported + " < " + exact, reported >= exact);
+            assertTrue(fraction + ": " + reported + " >> " + exact, reported <= exact * 1.04);
+        }
+    }
+
+    @Test
+    public void extremes_areClamped() throws Exception {
+        mHistogram.record(-5);
+        mHistogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(0, snapshot.getPercentile(0.5));
+        assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMax());
+    }
+
+    @Test
+    public void drain_startsOver() throws Exception {
+        mHistogram.record(1000);
+        mHistogram.record(2000);
+
+        LatencyHistogram.Snapshot first = mHistogram.drain();
+        assertEquals(2, first.getCount());
+        assertEquals(2000, first.getMax());
+
+        LatencyHistogram.Snapshot second = mHistogram.drain();
+        assertEquals(0, second.getCount());
+        assertEquals(0, second.getPercentile(0.99));
+    }
+
+    @Test
+    public void record_allocatesNothing() throws Exception {
+        assertEquals(0, AllocationMeter.leastAllocated(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    mHistogram.record(i * 1000L);
+                }
+            }
+        }));
+    }
+}
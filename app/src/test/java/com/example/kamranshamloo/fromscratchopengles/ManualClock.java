@@ -0,0 +1,22 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+/**
+ * {@link AnimationClock} that only moves when a test advances it.
+ */
+final class ManualClock implements AnimationClock {
+
+    private double mNow;
+
+    ManualClock(double now) {
+        mNow = now;
+    }
+
+    void advance(float seconds) {
+        mNow += seconds;
+    }
+
+    @Override
+    public double now() {
+        return mNow;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MatrixArenaTest {
+
+    @Test
+    public void obtain_handsOutDistinctMatricesUntilReset() throws Exception {
+        MatrixArena arena = new MatrixArena(4);
+        float[] first = arena.obtain();
+        float[] second = arena.obtain();
+
+        assertNotSame(first, second);
+        assertEquals(16, first.length);
+        assertEquals(2, arena.getUsed());
+
+        arena.reset();
+        assertSame(first, arena.obtain());
+    }
+
+    @Test
+    public void obtain_growsOnceThenStopsAllocating() throws Exception {
+        final MatrixArena arena = new MatrixArena(2);
+        // Five pucks need two matrices each, plus one for the room.
+        for (int i = 0; i < 11; i++) {
+            arena.obtain();
+        }
+        int allocations = arena.getAllocationCount();
+        assertTrue(allocations > 0);
+        assertEquals(11, arena.getHighWaterMark());
+
+        assertEquals(0, AllocationMeter.leastAllocated(new Runnable() {
+            @Override
+            public void run() {
+                for (int frame = 0; frame < 1000; frame++) {
+                    arena.reset();
+                    for (int i = 0; i < 11; i++) {
+                        arena.obtain();
+                    }
+                }
+            }
+        }));
+        assertEquals(allocations, arena.getAllocationCount());
+    }
+}
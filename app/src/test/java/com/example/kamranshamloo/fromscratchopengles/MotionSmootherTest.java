@@ -0,0 +1,114 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MotionSmootherTest {
+
+    private static final float DELAY = 0.1f;
+    private static final float MAX_EXTRAPOLATION = 0.25f;
+    private static final long NANOS = 1000000000L;
+
+    private final MotionSmoother mSmoother = new MotionSmoother(4, DELAY, MAX_EXTRAPOLATION);
+
+    /** Sends a device moving along x at 1 unit per second, sampled every 0.1 s. */
+    private void sample(int id, float senderTime, double now) {
+        mSmoother.addSample(id, (long) (senderTime * NANOS), senderTime, 0, 0, now);
+    }
+
+    @Test
+    public void singleSample_isShownAsIs() throws Exception {
+        mSmoother.addSample(7, 123, 1, 2, 3, 10);
+        assertFalse(mSmoother.update(10.5f));
+        assertEquals(7, mSmoother.getIds()[0]);
+        assertEquals(1.0f, mSmoother.getX()[0], 0.0f);
+        assertEquals(3.0f, mSmoother.getZ()[0], 0.0f);
+    }
+
+    @Test
+    public void betweenSamples_interpolatesBehindTheNewest() throws Exception {
+        // Sender clock starts at 100 s, local clock at 5 s.
+        for (int i = 0; i <= 3; i++) {
+            sample(1, 100 + i * 0.1f, 5 + i * 0.1f);
+        }
+        // Local 5.35 s is sender 100.35 s; with the delay that is 100.25 s.
+        assertTrue(mSmoother.update(5.35f));
+        assertEquals(100.25f, mSmoother.getX()[0], 1e-3f);
+    }
+
+    @Test
+    public void jitteryArrival_usesTheFastestTransit() throws Exception {
+        sample(1, 0.0f, 1.00f);
+        sample(1, 0.1f, 1.15f); // delayed by 50 ms
+        sample(1, 0.2f, 1.20f);
+        sample(1, 0.3f, 1.38f); // delayed by 80 ms
+        mSmoother.update(1.38f);
+        // Mapped with the 1 s offset of the on-time samples, not the late ones,
+        // give or take the few milliseconds the offset may drift meanwhile.
+        assertEquals(0.28f, mSmoother.getX()[0], 5e-3f);
+    }
+
+    @Test
+    public void lateSamples_extrapolateThenStop() throws Exception {
+        for (int i = 0; i <= 3; i++) {
+            sample(1, i * 0.1f, i * 0.1f);
+        }
+        // Newest sample at 0.3 s; rendering 0.15 s past it keeps the velocity.
+        assertTrue(mSmoother.update(0.55f));
+        assertEquals(0.45f, mSmoother.getX()[0], 1e-3f);
+
+        // Stops MAX_EXTRAPOLATION past the newest sample.
+        assertFalse(mSmoother.update(2.0f));
+        assertEquals(0.3f + MAX_EXTRAPOLATION, mSmoother.getX()[0], 1e-3f);
+    }
+
+    @Test
+    public void afterDaysOfUptime_movesEveryFrame() throws Exception {
+        // About 11.5 days of uptime, where a float clock steps by 62.5 ms.
+        final double start = 1e6;
+        for (int i = 0; i <= 3; i++) {
+            sample(1, i * 0.1f, start + i * 0.1);
+        }
+        float x = -1;
+        for (int frame = 0; frame < 12; frame++) {
+            mSmoother.update(start + 0.3 + frame / 60.0);
+            assertTrue("Frame " + frame + " did not move", mSmoother.getX()[0] > x);
+            x = mSmoother.getX()[0];
+        }
+        // Local start + 0.35 s is sender 0.35 s; with the delay that is 0.25 s.
+        mSmoother.update(start + 0.35);
+        assertEquals(0.25f, mSmoother.getX()[0], 1e-3f);
+    }
+
+    @Test
+    public void outOfOrderSamples_areIgnored() throws Exception {
+        sample(1, 0.0f, 0.0f);
+        sample(1, 0.2f, 0.2f);
+        mSmoother.addSample(1, (long) (0.1f * NANOS), -50, 0, 0, 0.2f);
+        mSmoother.update(0.3f);
+        assertEquals(0.2f, mSmoother.getX()[0], 1e-3f);
+    }
+
+    @Test
+    public void memory_isBoundedPerDevice() throws Exception {
+        for (int i = 0; i < 10000; i++) {
+            sample(i % 4, i * 0.01f, i * 0.01f);
+        }
+        assertFalse(mSmoother.addSample(99, Long.MAX_VALUE / 2, 0, 0, 0, 100));
+        assertEquals(4, mSmoother.size());
+
+        assertEquals(0, AllocationMeter.leastAllocated(new Runnable() {
+            // Sample times go on rising from run to run.
+            private int mNext = 10000;
+
+            @Override
+            public void run() {
+                for (int end = mNext + 10000; mNext < end; mNext++) {
+                    sample(mNext % 4, mNext * 0.01f, mNext * 0.01f);
+                    mSmoother.update(mNext * 0.01f);
+                }
+            }
+        }));
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the whole render loop headless against {@link RecordingGl} and checks
+ * the per-frame GL workload.
+ */
+public class MyGLRendererTest {
+
+    private static final float FRAME_TIME = 1.0f / 60;
+
+    // Long enough for the room build-up animation to finish.
+    private static final float BUILD_UP_TIME = 10.0f;
+
+    private final ManualClock mClock = new ManualClock(0);
+
+    private MyGLRenderer startRenderer(RecordingGl gl) {
+        MyGLRenderer renderer = new MyGLRenderer(gl, mClock);
+        renderer.onSurfaceCreated(null, null);
+        renderer.onSurfaceChanged(null, 1280, 800);
+        assertEquals(GLES20.GL_NO_ERROR, gl.glGetError());
+        return renderer;
+    }
+
+    private static void drawFrame(MyGLRenderer renderer, RecordingGl gl) {
+        gl.reset();
+        renderer.onDrawFrame(null);
+        assertEquals(GLES20.GL_NO_ERROR, gl.glGetError());
+    }
+
+    @Test
+    public void buildUpFrame_drawsOnlyTheAnimation() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+
+        mClock.advance(FRAME_TIME);
+        drawFrame(renderer, gl);
+        assertEquals(1, gl.getDrawCallCount());
+        assertEquals(1, gl.getCommandCount(RecordingGl.DRAW_ARRAYS));
+        assertEquals(0, gl.getCommandCount(RecordingGl.BUFFER_DATA));
+        assertEquals(1, gl.getCommandCount(RecordingGl.BUFFER_SUB_DATA));
+    }
+
+    @Test
+    public void builtRoom_drawsRoomAndAllPucksInTwoCalls() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+        assertEquals(2, gl.getDrawCallCount());
+        // The room is drawn from its indexed edges.
+        assertEquals(1, gl.getCommandCount(RecordingGl.DRAW_ELEMENTS));
+        // Streamed into the ring, which needs no new storage.
+        assertEquals(0, gl.getCommandCount(RecordingGl.BUFFER_DATA));
+        assertEquals(1, gl.getCommandCount(RecordingGl.BUFFER_SUB_DATA));
+        // Five merged puck wireframes of 24 vertices, plus a color for both draws.
+        // Room and pucks share a program and a matrix, so it is uploaded once.
+        assertEquals(5 * 24 * 3 * 4 + 2 * 16 + 64, gl.getUploadedBytes());
+    }
+
+    @Test
+    public void builtRoom_onEs3_drawsPucksInstanced() throws Exception {
+        RecordingGl gl = new RecordingGl(RecordingGl.VERSION_ES3);
+        MyGLRenderer renderer = startRenderer(gl);
+
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+        assertEquals(2, gl.getDrawCallCount());
+        assertEquals(1, gl.getCommandCount(RecordingGl.DRAW_ARRAYS_INSTANCED));
+        // Only the five offsets are uploaded.
+        assertEquals(5 * 3 * 4 + 2 * (16 + 64), gl.getUploadedBytes());
+    }
+
+    @Test
+    public void livePositions_replaceTheDemoPucks() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+        PositionExchange exchange = new PositionExchange(16);
+        renderer.setPositionSource(exchange);
+        DevicePositions positions = new DevicePositions(16);
+        for (int id = 0; id < 8; id++) {
+            positions.put(100 + id, id * 0.1f, 0, 0, 1);
+        }
+        exchange.publish(positions);
+
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+        assertEquals(2, gl.getDrawCallCount());
+        // Eight reported devices instead of the five demo pucks.
+        assertEquals(8 * 24 * 3 * 4 + 2 * 16 + 64, gl.getUploadedBytes());
+    }
+
+    @Test
+    public void scene_replacesTheBuiltInRoomAndPucks() throws Exception {
+        // A room of two floor lines with three devices.
+        float[] segments = {-1, 0, -1, 1, 0, -1, -1, 0, 1, 1, 0, 1};
+        ByteBuffer file = ByteBuffer.allocateDirect(SceneFile.HEADER_SIZE + 4 * (12 + 3 * 4));
+        file.put(SceneFile.encode(new float[]{-1, 0, -1, 1, 1, 1}, segments,
+                new int[]{1, 2, 3}, new float[]{-0.5f, 0, 0.5f}, new float[3], new float[3], 3));
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = new MyGLRenderer(gl, mClock);
+        renderer.setScene(SceneFile.read(file));
+        renderer.onSurfaceCreated(null, null);
+        renderer.onSurfaceChanged(null, 1280, 800);
+        assertEquals(3, renderer.getPuckGrid().size());
+
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+        assertEquals(2, gl.getDrawCallCount());
+        // Three merged puck wireframes of 24 vertices, plus a color for both draws.
+        assertEquals(3 * 24 * 3 * 4 + 2 * 16 + 64, gl.getUploadedBytes());
+        // The room is drawn with the vertices of the scene.
+        int[] log = gl.getLog();
+        boolean roomDrawn = false;
+        for (int p = 0; p < gl.getLogSize(); p = RecordingGl.nextCommand(log, p)) {
+            if (RecordingGl.opcodeAt(log, p) == RecordingGl.DRAW_ARRAYS) {
+                // Mode, first, then the vertex count.
+                roomDrawn |= log[p + 3] == 4;
+            }
+        }
+        assertTrue(roomDrawn);
+    }
+
+    @Test
+    public void room_uploadsItsCornersOnceAndDrawsThemIndexed() throws Exception {
+        // Two box rooms side by side sharing a wall: 12 corners and 20 edges.
+        RoomMesh room = new RoomMeshBuilder()
+                .addBox(new float[]{-2, -1, -1, 0, 1, 1})
+                .addBox(new float[]{0, -1, -1, 2, 1, 1})
+                .build();
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = new MyGLRenderer(gl, mClock);
+        renderer.setRoom(room);
+        renderer.onSurfaceCreated(null, null);
+        renderer.onSurfaceChanged(null, 1280, 800);
+
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+        assertEquals(2, gl.getDrawCallCount());
+        int[] log = gl.getLog();
+        int roomDraws = 0;
+        for (int p = 0; p < gl.getLogSize(); p = RecordingGl.nextCommand(log, p)) {
+            if (RecordingGl.opcodeAt(log, p) == RecordingGl.DRAW_ELEMENTS) {
+                // Mode, then the index count.
+                assertEquals(GLES20.GL_LINES, log[p + 1]);
+                assertEquals(20 * 2, log[p + 2]);
+                roomDraws++;
+            }
+        }
+        assertEquals(1, roomDraws);
+    }
+
+    @Test
+    public void room_isIndexedInHalfTheBytesOfPlainLines() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        new Cuboid(gl, new ShaderProgramCache(gl), new GpuBufferManager(gl));
+        // 8 corners and 24 indices instead of 24 vertices.
+        assertEquals(8 * 3 * 4 + 24 * 2, gl.getUploadedBytes());
+        assertEquals(24 * 3 * 4 / 2, gl.getUploadedBytes());
+    }
+
+    @Test
+    public void rooms_shareBuffersOnlyWithTheSameMesh() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        ShaderProgramCache programCache = new ShaderProgramCache(gl);
+        GpuBufferManager bufferManager = new GpuBufferManager(gl);
+        RoomMesh box = RoomMesh.box(RoomMesh.DEFAULT_EXTENTS);
+        RoomMesh lShape = new RoomMeshBuilder()
+                .addRoom(new float[]{0, 0, 2, 0, 2, 1, 1, 1, 1, 2, 0, 2}, 0, 3)
+                .build();
+
+        new Cuboid(gl, programCache, bufferManager, box);
+        new Cuboid(gl, programCache, bufferManager, box);
+        assertEquals(2, gl.getCommandCount(RecordingGl.BUFFER_DATA));
+        new Cuboid(gl, programCache, bufferManager, lShape);
+        assertEquals(4, gl.getCommandCount(RecordingGl.BUFFER_DATA));
+        assertEquals(8 * 3 * 4 + 24 * 2 + 12 * 3 * 4 + 36 * 2, gl.getUploadedBytes());
+    }
+
+    @Test
+    public void resetView_requestsAFrameEvenIfTheLastOneIdledTheView() throws Exception {
+        final int[] renderRequests = new int[1];
+        RenderScheduler scheduler = new RenderScheduler(new RenderScheduler.Host() {
+            @Override
+            public void setRenderMode(int renderMode) {
+            }
+
+            @Override
+            public void requestRender() {
+                renderRequests[0]++;
+            }
+        });
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+        renderer.setRenderScheduler(scheduler);
+        // Apply the initial rotation, which would cancel the reset.
+        drawFrame(renderer, gl);
+
+        renderer.resetView();
+        // A frame that read the trackball just before the reset goes idle.
+        scheduler.setActive(RenderScheduler.SOURCE_VIEW_RESET, false);
+        assertEquals(1, renderRequests[0]);
+
+        // The requested frame picks the reset up again.
+        drawFrame(renderer, gl);
+        assertTrue(scheduler.isActive(RenderScheduler.SOURCE_VIEW_RESET));
+    }
+
+    @Test
+    public void tapOnCenter_picksThePuckAtTheOrigin() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+
+        // Whatever the rotation, the origin stays in the middle of the view.
+        assertEquals(-1, renderer.pickPuck(640, 400));
+        assertEquals(PuckGrid.NO_PUCK, renderer.pickPuck(700, 400));
+        renderer.addRotation(30, 20);
+        drawFrame(renderer, gl);
+        assertEquals(-1, renderer.pickPuck(640, 400));
+    }
+
+    @Test
+    public void livePositions_areIndexed() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+        PositionExchange exchange = new PositionExchange(16);
+        renderer.setPositionSource(exchange);
+        DevicePositions positions = new DevicePositions(16);
+        for (int id = 0; id < 8; id++) {
+            positions.put(100 + id, id * 0.1f, 0, 0, 1);
+        }
+        exchange.publish(positions);
+        drawFrame(renderer, gl);
+
+        int[] found = new int[8];
+        assertEquals(8, renderer.getPuckGrid().size());
+        assertEquals(3, renderer.getPuckGrid().queryBox(0.15f, -1, -1, 0.45f, 1, 1, found));
+    }
+
+    @Test
+    public void pucksOutOfView_areCulled() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+        PositionExchange exchange = new PositionExchange(16);
+        renderer.setPositionSource(exchange);
+        DevicePositions positions = new DevicePositions(16);
+        for (int id = 0; id < 8; id++) {
+            // Every other device far above the room, out of view.
+            positions.put(100 + id, id * 0.1f, id % 2 == 0 ? 0 : 50, 0, 1);
+        }
+        exchange.publish(positions);
+
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+        assertEquals(4, renderer.getPuckCuller().getVisibleCount());
+        assertEquals(4, renderer.getPuckCuller().getCulledCount());
+        assertEquals(4 * 24 * 3 * 4 + 2 * 16 + 64, gl.getUploadedBytes());
+    }
+
+    @Test
+    public void contextLoss_rebuildsProgramsAndBuffers() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+
+        gl.reset();
+        renderer.onSurfaceCreated(null, null);
+        assertEquals(renderer.getProgramCache().size(), gl.getCommandCount(RecordingGl.LINK_PROGRAM));
+        assertTrue(gl.getCommandCount(RecordingGl.BUFFER_DATA) > 0);
+
+        drawFrame(renderer, gl);
+        assertEquals(2, gl.getDrawCallCount());
+    }
+
+    @Test
+    public void staticFrames_skipRedundantStateChanges() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+        int firstFrameChanges = gl.getStateChangeCount();
+
+        // Nothing moved, so both draws find their matrices already uploaded.
+        drawFrame(renderer, gl);
+        assertEquals(2, gl.getDrawCallCount());
+        assertEquals(0, gl.getCommandCount(RecordingGl.UNIFORM_MATRIX_4FV));
+        assertEquals(0, gl.getCommandCount(RecordingGl.ENABLE_VERTEX_ATTRIB_ARRAY));
+        assertTrue(gl.getStateChangeCount() < firstFrameChanges);
+        GlStateCache cache = renderer.getStateCache();
+        assertEquals(gl.getStateChangeCount(), cache.getIssuedCount());
+        assertTrue(cache.getSkippedCount() > 0);
+    }
+
+    @Test
+    public void frameStats_countTheGlWork() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        MyGLRenderer renderer = startRenderer(gl);
+        renderer.getFrameStats().drain();
+
+        // Two frames of the build-up, then one of the finished room.
+        mClock.advance(FRAME_TIME);
+        drawFrame(renderer, gl);
+        mClock.advance(FRAME_TIME);
+        drawFrame(renderer, gl);
+        mClock.advance(BUILD_UP_TIME);
+        drawFrame(renderer, gl);
+        GlStateCache cache = renderer.getStateCache();
+        assertEquals(gl.getDrawCallCount(), cache.getDrawCallCount());
+        assertEquals(gl.getUploadedBytes(), cache.getUploadedBytes());
+
+        FrameStats.Snapshot stats = renderer.getFrameStats().drain();
+        assertEquals(3, stats.getFrameCount());
+        assertEquals(3, stats.getPhase(FrameStats.PHASE_FRAME).getCount());
+        assertEquals(3, stats.getPhase(FrameStats.PHASE_SUBMIT).getCount());
+        assertEquals(2, stats.getPhase(FrameStats.PHASE_ANIMATION).getCount());
+        assertEquals(1 + 1 + 2, stats.getDrawCallCount());
+    }
+
+    @Test
+    public void steadyStateFrames_allocateNothing() throws Exception {
+        final RecordingGl gl = new RecordingGl();
+        final MyGLRenderer renderer = startRenderer(gl);
+        mClock.advance(BUILD_UP_TIME);
+
+        assertEquals(0, AllocationMeter.leastAllocated(new Runnable() {
+            @Override
+            public void run() {
+                for (int frame = 0; frame < 1000; frame++) {
+                    renderer.addRotation(0.5f, 0.25f);
+                    gl.reset();
+                    renderer.onDrawFrame(null);
+                }
+            }
+        }));
+    }
+
+    @Test
+    public void buildUpFrames_allocateNothingInAnyPhase() throws Exception {
+        final RecordingGl gl = new RecordingGl();
+        final MyGLRenderer renderer = startRenderer(gl);
+        AllocationTracker tracker = new AllocationTracker(new AllocationMeter(), 0);
+        renderer.setAllocationTracker(tracker);
+
+        assertEquals(0, AllocationMeter.leastAllocated(new Runnable() {
+            @Override
+            public void run() {
+                for (int frame = 0; frame < 1000; frame++) {
+                    // Steps small enough for the build-up to keep running throughout.
+                    mClock.advance(1.0e-6f);
+                    gl.reset();
+                    renderer.onDrawFrame(null);
+                }
+            }
+        }));
+        renderer.setAllocationTracker(null);
+
+        // The last run allocated nothing, so neither did any phase of its frames.
+        for (int phase = 0; phase < FrameStats.PHASE_COUNT; phase++) {
+            assertEquals(FrameStats.getPhaseName(phase), 0, tracker.getLastFrameBytes(phase));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PositionExchangeTest {
+
+    @Test
+    public void acquire_takesOnlyTheNewestSnapshot() throws Exception {
+        PositionExchange exchange = new PositionExchange(4);
+        DevicePositions positions = new DevicePositions(4);
+        assertFalse(exchange.acquire());
+
+        positions.put(1, 1, 0, 0, 1);
+        exchange.publish(positions);
+        positions.put(1, 2, 0, 0, 2);
+        exchange.publish(positions);
+
+        assertTrue(exchange.acquire());
+        assertEquals(2.0f, exchange.getFront().x[0], 0.0f);
+        assertFalse(exchange.acquire());
+        assertEquals(2.0f, exchange.getFront().x[0], 0.0f);
+    }
+
+    @Test
+    public void concurrentPublishing_neverTearsASnapshot() throws Exception {
+        final int devices = 64;
+        final int rounds = 200000;
+        final PositionExchange exchange = new PositionExchange(devices);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                DevicePositions positions = new DevicePositions(devices);
+                for (int round = 1; round <= rounds; round++) {
+                    // Every device of a round gets the same position.
+                    for (int id = 0; id < devices; id++) {
+                        positions.put(id, round, round, round, round);
+                    }
+                    exchange.publish(positions);
+                }
+            }
+        });
+        writer.start();
+
+        float last = 0;
+        while (last < rounds) {
+            if (!exchange.acquire()) {
+                continue;
+            }
+            DevicePositions front = exchange.getFront();
+            float round = front.x[0];
+            assertTrue("went back from " + last + " to " + round, round > last);
+            for (int i = 0; i < front.size(); i++) {
+                assertEquals(round, front.x[i], 0.0f);
+                assertEquals(round, front.z[i], 0.0f);
+            }
+            last = round;
+        }
+        writer.join();
+    }
+}
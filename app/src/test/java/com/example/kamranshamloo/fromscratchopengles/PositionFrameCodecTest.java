@@ -0,0 +1,70 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class PositionFrameCodecTest {
+
+    private static ByteBuffer frame(long timestamp, int... ids) {
+        ByteBuffer frame = ByteBuffer.allocate(PositionFrameCodec.frameSize(ids.length));
+        PositionFrameCodec.encodeHeader(frame, ids.length, timestamp);
+        for (int id : ids) {
+            PositionFrameCodec.encodeRecord(frame, id, id, id * 2, id * 3);
+        }
+        frame.flip();
+        return frame;
+    }
+
+    @Test
+    public void decode_storesEveryRecord() throws Exception {
+        DevicePositions positions = new DevicePositions(8);
+        assertEquals(0, PositionFrameCodec.decode(frame(100, 5, 9), positions));
+        assertEquals(0, PositionFrameCodec.decode(frame(200, 9, 1), positions));
+
+        assertEquals(3, positions.size());
+        int nine = positions.indexOf(9);
+        assertEquals(1, nine);
+        assertEquals(9.0f, positions.x[nine], 0.0f);
+        assertEquals(18.0f, positions.y[nine], 0.0f);
+        assertEquals(27.0f, positions.z[nine], 0.0f);
+        assertEquals(200, positions.timestamps[nine]);
+        assertEquals(100, positions.timestamps[positions.indexOf(5)]);
+    }
+
+    @Test
+    public void olderSample_doesNotMoveTheDevice() throws Exception {
+        DevicePositions positions = new DevicePositions(8);
+        PositionFrameCodec.decode(frame(200, 4), positions);
+        positions.put(4, -1, -1, -1, 100);
+        assertEquals(4.0f, positions.x[0], 0.0f);
+        assertEquals(200, positions.timestamps[0]);
+    }
+
+    @Test
+    public void fullStore_dropsNewDevices() throws Exception {
+        DevicePositions positions = new DevicePositions(2);
+        assertEquals(1, PositionFrameCodec.decode(frame(1, 1, 2, 3), positions));
+        assertEquals(0, PositionFrameCodec.decode(frame(2, 2), positions));
+        assertEquals(2, positions.size());
+        assertEquals(IntIntMap.NO_VALUE, positions.indexOf(3));
+    }
+
+    @Test
+    public void malformedFrames_leaveTheStoreUntouched() throws Exception {
+        DevicePositions positions = new DevicePositions(8);
+        ByteBuffer truncated = frame(1, 1, 2);
+        truncated.limit(truncated.limit() - 1);
+        assertEquals(PositionFrameCodec.MALFORMED, PositionFrameCodec.decode(truncated, positions));
+
+        ByteBuffer foreign = frame(1, 1);
+        foreign.putInt(0, 0xCAFEBABE);
+        assertEquals(PositionFrameCodec.MALFORMED, PositionFrameCodec.decode(foreign, positions));
+
+        ByteBuffer tooShort = ByteBuffer.allocate(4);
+        assertEquals(PositionFrameCodec.MALFORMED, PositionFrameCodec.decode(tooShort, positions));
+        assertEquals(0, positions.size());
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sends frames to a running receiver over the loopback interface.
+ */
+public class PositionReceiverTest {
+
+    private static final long TIMEOUT_NANOS = 5000000000L;
+
+    private final PositionExchange mExchange = new PositionExchange(1024);
+    private final PositionReceiver mReceiver = new PositionReceiver(mExchange, 0);
+
+    @After
+    public void tearDown() throws Exception {
+        mReceiver.stop();
+    }
+
+    private DatagramChannel connect() throws Exception {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), mReceiver.getLocalPort()));
+        return channel;
+    }
+
+    private static void send(DatagramChannel channel, long timestamp, int firstId, int count, float x)
+            throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(PositionFrameCodec.frameSize(count));
+        PositionFrameCodec.encodeHeader(frame, count, timestamp);
+        for (int id = firstId; id < firstId + count; id++) {
+            PositionFrameCodec.encodeRecord(frame, id, x, 1, 2);
+        }
+        frame.flip();
+        channel.write(frame);
+    }
+
+    @Test
+    public void receivedFrames_arePublished() throws Exception {
+        mReceiver.start();
+        DatagramChannel channel = connect();
+        send(channel, 1, 0, 100, 0.5f);
+        send(channel, 1, 100, 100, 0.5f);
+        channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (mExchange.getFront().size() < 200 && System.nanoTime() < deadline) {
+            mExchange.acquire();
+        }
+        DevicePositions front = mExchange.getFront();
+        assertEquals(200, front.size());
+        assertEquals(0.5f, front.x[front.indexOf(150)], 0.0f);
+        while (mReceiver.getMalformedCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, mReceiver.getMalformedCount());
+        assertEquals(2, mReceiver.getFrameCount());
+        assertNull(mReceiver.getFailure());
+        channel.close();
+    }
+
+    @Test
+    public void thousandsOfUpdatesPerSecond_reachTheReader() throws Exception {
+        mReceiver.start();
+        DatagramChannel channel = connect();
+        // 500 devices in 8 datagrams per round, 50 rounds: 25000 updates.
+        int rounds = 50;
+        for (int round = 1; round <= rounds; round++) {
+            for (int first = 0; first < 500; first += 64) {
+                send(channel, round, first, Math.min(64, 500 - first), round);
+            }
+            // Loopback UDP drops datagrams if the receive buffer overflows.
+            Thread.sleep(1);
+        }
+
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (System.nanoTime() < deadline) {
+            mExchange.acquire();
+            DevicePositions front = mExchange.getFront();
+            if (front.size() == 500 && front.x[0] == rounds && front.x[499] == rounds) {
+                break;
+            }
+        }
+        DevicePositions front = mExchange.getFront();
+        assertEquals(500, front.size());
+        assertEquals(rounds, front.x[0], 0.0f);
+        assertEquals(rounds, front.x[499], 0.0f);
+        assertTrue(mReceiver.getPublishCount() <= mReceiver.getFrameCount());
+        channel.close();
+    }
+
+    @Test
+    public void inputThatNeverRunsDry_isStillPublished() throws Exception {
+        final CountDownLatch firstPublished = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        mReceiver.setListener(new PositionReceiver.Listener() {
+            @Override
+            public void onPositionsPublished() {
+                firstPublished.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        mReceiver.start();
+        DatagramChannel channel = connect();
+        send(channel, 1, 0, 1, 0);
+        firstPublished.await();
+        // Queue three bursts while the receiver is held up, as if they had
+        // arrived faster than it decodes.
+        int backlog = 3 * PositionReceiver.MAX_BURST;
+        for (int i = 1; i <= backlog; i++) {
+            send(channel, 1 + i, i, 1, 0);
+        }
+        resume.countDown();
+
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (mReceiver.getFrameCount() < 1 + backlog && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1 + backlog, mReceiver.getFrameCount());
+        // A snapshot per burst, not one once the socket is empty.
+        while (mReceiver.getPublishCount() < 1 + 3 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1 + 3, mReceiver.getPublishCount());
+        channel.close();
+    }
+
+    @Test
+    public void restart_keepsReceiving() throws Exception {
+        mReceiver.start();
+        mReceiver.stop();
+        mReceiver.start();
+        DatagramChannel channel = connect();
+        send(channel, 1, 7, 1, 3);
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (!mExchange.acquire() && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(0, mExchange.getFront().indexOf(7));
+        channel.close();
+    }
+}
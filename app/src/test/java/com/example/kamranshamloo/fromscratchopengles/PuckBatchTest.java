@@ -0,0 +1,56 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class PuckBatchTest {
+
+    @Test
+    public void instancedBatch_packsOneOffsetPerPuck() throws Exception {
+        PuckBatch batch = new PuckBatch(Puck.cubeLineSegmentsPositionData, true);
+        batch.begin();
+        batch.add(1, 2, 3);
+        batch.add(-1, -2, -3);
+        FloatBuffer data = batch.end();
+
+        assertEquals(2, batch.getCount());
+        assertEquals(Puck.cubeLineSegmentsPositionData.length / 3, batch.getVertexCount());
+        assertEquals(2 * 3 * 4, batch.getSizeInBytes());
+        assertEquals(1, data.get(0), 0);
+        assertEquals(-3, data.get(5), 0);
+    }
+
+    @Test
+    public void mergedBatch_packsTranslatedWireframes() throws Exception {
+        float[] wireframe = Puck.cubeLineSegmentsPositionData;
+        PuckBatch batch = new PuckBatch(wireframe, false);
+        batch.begin();
+        batch.add(0, 0, 0);
+        batch.add(2, 1, -1);
+        FloatBuffer data = batch.end();
+
+        assertEquals(2 * wireframe.length / 3, batch.getVertexCount());
+        for (int i = 0; i < wireframe.length; i += 3) {
+            assertEquals(wireframe[i], data.get(i), 0);
+            assertEquals(wireframe[i] + 2, data.get(wireframe.length + i), 0);
+            assertEquals(wireframe[i + 1] + 1, data.get(wireframe.length + i + 1), 0);
+            assertEquals(wireframe[i + 2] - 1, data.get(wireframe.length + i + 2), 0);
+        }
+    }
+
+    @Test
+    public void batch_growsAndKeepsEveryPuck() throws Exception {
+        PuckBatch batch = new PuckBatch(Puck.cubeLineSegmentsPositionData, true);
+        batch.begin();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(i, 0, 0);
+        }
+        FloatBuffer data = batch.end();
+
+        assertEquals(1000, batch.getCount());
+        assertEquals(999, data.get(999 * 3), 0);
+    }
+}
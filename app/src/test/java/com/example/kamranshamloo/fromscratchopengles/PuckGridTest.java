@@ -0,0 +1,260 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PuckGridTest {
+
+    private static final float CELL_SIZE = 0.25f;
+    private static final float RADIUS = 0.1f;
+
+    private final Random mRandom = new Random(7);
+    private final PuckGrid mGrid = new PuckGrid(-2, -1, -1, 2, 1, 1, CELL_SIZE, 4);
+
+    // What the grid should hold, for brute force answers.
+    private final int[] mIds = new int[500];
+    private final float[] mX = new float[500];
+    private final float[] mY = new float[500];
+    private final float[] mZ = new float[500];
+
+    @Test
+    public void queryBox_matchesBruteForce() throws Exception {
+        fill();
+        for (int query = 0; query < 200; query++) {
+            float x0 = randomX();
+            float y0 = randomY();
+            float z0 = randomY();
+            float x1 = x0 + mRandom.nextFloat();
+            float y1 = y0 + mRandom.nextFloat();
+            float z1 = z0 + mRandom.nextFloat();
+
+            int[] found = new int[mIds.length];
+            int count = mGrid.queryBox(x0, y0, z0, x1, y1, z1, found);
+            int[] expected = new int[mIds.length];
+            int expectedCount = 0;
+            for (int i = 0; i < mIds.length; i++) {
+                if (mX[i] >= x0 && mX[i] <= x1 && mY[i] >= y0 && mY[i] <= y1
+                        && mZ[i] >= z0 && mZ[i] <= z1) {
+                    expected[expectedCount++] = mIds[i];
+                }
+            }
+            assertSameIds(expected, expectedCount, found, count);
+        }
+    }
+
+    @Test
+    public void queryRadius_matchesBruteForce() throws Exception {
+        fill();
+        for (int query = 0; query < 200; query++) {
+            float x = randomX();
+            float y = randomY();
+            float z = randomY();
+            float radius = mRandom.nextFloat() * 0.8f;
+
+            int[] found = new int[mIds.length];
+            int count = mGrid.queryRadius(x, y, z, radius, found);
+            int[] expected = new int[mIds.length];
+            int expectedCount = 0;
+            for (int i = 0; i < mIds.length; i++) {
+                float dx = mX[i] - x;
+                float dy = mY[i] - y;
+                float dz = mZ[i] - z;
+                if (dx * dx + dy * dy + dz * dz <= radius * radius) {
+                    expected[expectedCount++] = mIds[i];
+                }
+            }
+            assertSameIds(expected, expectedCount, found, count);
+        }
+    }
+
+    @Test
+    public void query_countsMoreThanFit() throws Exception {
+        fill();
+        int[] found = new int[3];
+        assertEquals(mIds.length, mGrid.queryBox(-2, -1, -1, 2, 1, 1, found));
+    }
+
+    @Test
+    public void pick_matchesBruteForce() throws Exception {
+        fill();
+        int hits = 0;
+        for (int query = 0; query < 500; query++) {
+            // From in front of the room towards a random point in it.
+            float ox = randomX() * 2;
+            float oy = randomY() * 2;
+            float oz = 4;
+            float dx = randomX() - ox;
+            float dy = randomY() - oy;
+            float dz = randomY() - oz;
+
+            int expected = bruteForcePick(ox, oy, oz, dx, dy, dz);
+            assertEquals("ray " + query, expected, mGrid.pick(ox, oy, oz, dx, dy, dz, RADIUS));
+            if (expected != PuckGrid.NO_PUCK) {
+                hits++;
+            }
+        }
+        // Make sure the comparison covers both outcomes.
+        assertTrue(hits > 50);
+        assertTrue(hits < 450);
+    }
+
+    @Test
+    public void pick_fromInsideAlongAnAxis() throws Exception {
+        mGrid.put(1, 1.5f, 0.5f, 0.5f);
+        mGrid.put(2, 0.5f, 0.5f, 0.5f);
+        mGrid.put(3, -0.5f, 0.5f, 0.5f);
+
+        assertEquals(2, mGrid.pick(0, 0.5f, 0.5f, 1, 0, 0, RADIUS));
+        assertEquals(3, mGrid.pick(0, 0.5f, 0.5f, -1, 0, 0, RADIUS));
+        assertEquals(PuckGrid.NO_PUCK, mGrid.pick(0, 0.5f, 0.5f, 0, 1, 0, RADIUS));
+    }
+
+    @Test
+    public void pick_reachesOverTheBorder() throws Exception {
+        mGrid.put(1, 1.98f, 0, 0);
+
+        // Passes outside the room, but within the radius of the puck.
+        assertEquals(1, mGrid.pick(2.05f, 0, 4, 0, 0, -1, RADIUS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pick_rejectsRadiusLargerThanCells() throws Exception {
+        mGrid.pick(0, 0, 4, 0, 0, -1, CELL_SIZE * 2);
+    }
+
+    @Test
+    public void put_movesAcrossCells() throws Exception {
+        mGrid.put(1, -1.9f, -0.9f, -0.9f);
+        mGrid.put(1, 1.9f, 0.9f, 0.9f);
+        int[] found = new int[4];
+
+        assertEquals(1, mGrid.size());
+        assertEquals(0, mGrid.queryRadius(-1.9f, -0.9f, -0.9f, 0.1f, found));
+        assertEquals(1, mGrid.queryRadius(1.9f, 0.9f, 0.9f, 0.1f, found));
+        assertEquals(1, found[0]);
+    }
+
+    @Test
+    public void remove_keepsTheOthersFindable() throws Exception {
+        fill();
+        for (int i = 0; i < mIds.length; i += 2) {
+            assertTrue(mGrid.remove(mIds[i]));
+        }
+        assertFalse(mGrid.remove(mIds[0]));
+        assertEquals(mIds.length / 2, mGrid.size());
+
+        int[] found = new int[mIds.length];
+        for (int i = 1; i < mIds.length; i += 2) {
+            int count = mGrid.queryRadius(mX[i], mY[i], mZ[i], 0, found);
+            assertTrue(Arrays.asList(box(found, count)).contains(mIds[i]));
+        }
+        assertEquals(mIds.length / 2, mGrid.queryBox(-2, -1, -1, 2, 1, 1, found));
+    }
+
+    @Test
+    public void outsideTheBounds_isStillFoundByQueries() throws Exception {
+        mGrid.put(1, 5, 0, 0);
+        int[] found = new int[1];
+
+        assertEquals(1, mGrid.queryRadius(5, 0, 0, 0.01f, found));
+        assertEquals(1, mGrid.queryBox(4, -1, -1, 6, 1, 1, found));
+        assertEquals(0, mGrid.queryBox(-2, -1, -1, 2, 1, 1, found));
+    }
+
+    @Test
+    public void clear_removesEverything() throws Exception {
+        fill();
+        mGrid.clear();
+
+        assertEquals(0, mGrid.size());
+        assertEquals(0, mGrid.queryBox(-2, -1, -1, 2, 1, 1, new int[1]));
+        mGrid.put(mIds[0], 0, 0, 0);
+        assertEquals(mIds[0], mGrid.pick(0, 0, 4, 0, 0, -1, RADIUS));
+    }
+
+    @Test
+    public void movingAndQuerying_allocatesNothing() throws Exception {
+        fill();
+        final int[] found = new int[mIds.length];
+        assertEquals(0, AllocationMeter.leastAllocated(new Runnable() {
+            @Override
+            public void run() {
+                for (int round = 0; round < 100; round++) {
+                    moveAndQuery(round, found);
+                }
+            }
+        }));
+    }
+
+    private void moveAndQuery(int round, int[] found) {
+        float offset = (round % 10) * 0.05f;
+        for (int i = 0; i < mIds.length; i++) {
+            mGrid.put(mIds[i], mX[i] + offset, mY[i], mZ[i]);
+        }
+        mGrid.queryBox(-1, -0.5f, -0.5f, 1, 0.5f, 0.5f, found);
+        mGrid.queryRadius(0, 0, 0, 0.5f, found);
+        mGrid.pick(0, 0, 4, 0, 0, -1, RADIUS);
+    }
+
+    /** Adds mIds.length pucks at random, growing the grid on the way. */
+    private void fill() {
+        for (int i = 0; i < mIds.length; i++) {
+            mIds[i] = i * 7 - 100;
+            mX[i] = randomX();
+            mY[i] = randomY();
+            mZ[i] = randomY();
+            mGrid.put(mIds[i], mX[i], mY[i], mZ[i]);
+        }
+        assertEquals(mIds.length, mGrid.size());
+    }
+
+    private int bruteForcePick(float ox, float oy, float oz, float dx, float dy, float dz) {
+        float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        dx /= length;
+        dy /= length;
+        dz /= length;
+        int best = PuckGrid.NO_PUCK;
+        float bestAlong = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < mIds.length; i++) {
+            float px = mX[i] - ox;
+            float py = mY[i] - oy;
+            float pz = mZ[i] - oz;
+            float along = px * dx + py * dy + pz * dz;
+            float offsetSquared = px * px + py * py + pz * pz - along * along;
+            if (along >= 0 && along < bestAlong && offsetSquared <= RADIUS * RADIUS) {
+                best = mIds[i];
+                bestAlong = along;
+            }
+        }
+        return best;
+    }
+
+    private float randomX() {
+        return mRandom.nextFloat() * 4 - 2;
+    }
+
+    private float randomY() {
+        return mRandom.nextFloat() * 2 - 1;
+    }
+
+    private static void assertSameIds(int[] expected, int expectedCount, int[] actual, int actualCount) {
+        assertEquals(expectedCount, actualCount);
+        int[] sortedExpected = Arrays.copyOf(expected, expectedCount);
+        int[] sortedActual = Arrays.copyOf(actual, actualCount);
+        Arrays.sort(sortedExpected);
+        Arrays.sort(sortedActual);
+        assertArrayEquals(sortedExpected, sortedActual);
+    }
+
+    private static Integer[] box(int[] values, int count) {
+        Integer[] boxed = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PuckStoreTest {
+
+    private static final float[] RED = {1, 0, 0, 0.5f};
+    private static final float[] BLUE = {0, 0, 1, 1};
+
+    @Test
+    public void remove_movesTheLastPuckIntoTheHole() throws Exception {
+        PuckStore store = new PuckStore(2);
+        store.add(10, 1, 2, 3, RED);
+        store.add(20, 4, 5, 6, RED);
+        store.add(30, 7, 8, 9, BLUE);
+
+        assertTrue(store.remove(10));
+        assertFalse(store.remove(10));
+        assertEquals(2, store.size());
+        assertEquals(0, store.indexOf(30));
+        assertEquals(30, store.getIds()[0]);
+        assertEquals(7.0f, store.getX()[0], 0.0f);
+        assertEquals(9.0f, store.getZ()[0], 0.0f);
+        assertEquals(1.0f, store.getColors()[2], 0.0f);
+        assertEquals(1, store.indexOf(20));
+        assertEquals(IntIntMap.NO_VALUE, store.indexOf(10));
+    }
+
+    @Test
+    public void randomAddsAndRemoves_keepIdsAndPositionsTogether() throws Exception {
+        PuckStore store = new PuckStore(4);
+        HashMap<Integer, Float> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 100000; i++) {
+            int id = random.nextInt(300);
+            if (expected.containsKey(id)) {
+                if (random.nextBoolean()) {
+                    store.remove(id);
+                    expected.remove(id);
+                } else {
+                    store.setPosition(store.indexOf(id), i, 0, 0);
+                    expected.put(id, (float) i);
+                }
+            } else {
+                store.add(id, i, 0, 0, RED);
+                expected.put(id, (float) i);
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        for (int index = 0; index < store.size(); index++) {
+            int id = store.getIds()[index];
+            assertEquals(index, store.indexOf(id));
+            assertEquals(expected.get(id), store.getX()[index], 0.0f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateId_isRejected() throws Exception {
+        PuckStore store = new PuckStore(2);
+        store.add(1, 0, 0, 0, RED);
+        store.add(1, 0, 0, 0, RED);
+    }
+
+    @Test
+    public void memoryPerPuck_isTensOfBytes() throws Exception {
+        int pucks = 10000;
+        AllocationMeter meter = new AllocationMeter();
+        meter.start();
+        PuckStore store = new PuckStore(pucks);
+        for (int id = 0; id < pucks; id++) {
+            store.add(id, id, id, id, RED);
+        }
+        long bytesPerPuck = meter.stop() / pucks;
+        // 32 bytes of arrays plus at least two 8-byte slots of the id map.
+        assertTrue(bytesPerPuck + " bytes per puck", bytesPerPuck <= 80);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RenderQueueTest {
+
+    /** Records the order it was drawn in. */
+    private static class FakeDrawable implements Drawable {
+        final int program;
+        final int buffer;
+        final boolean translucent;
+        final ArrayList<FakeDrawable> drawn;
+
+        FakeDrawable(int program, int buffer, boolean translucent, ArrayList<FakeDrawable> drawn) {
+            this.program = program;
+            this.buffer = buffer;
+            this.translucent = translucent;
+            this.drawn = drawn;
+        }
+
+        @Override
+        public long getSortKey(float depth) {
+            return RenderQueue.makeKey(program, buffer, 4, translucent, depth);
+        }
+
+        @Override
+        public void draw(float[] mvpMatrix, float[] globalRotationMatrix, MatrixArena arena) {
+            drawn.add(this);
+        }
+    }
+
+    private final RecordingGl mGl = new RecordingGl();
+    private final RenderQueue mQueue = new RenderQueue(mGl);
+    private final ArrayList<FakeDrawable> mDrawn = new ArrayList<>();
+
+    private void execute() {
+        mQueue.execute(new float[16], new float[16], new MatrixArena(1));
+    }
+
+    @Test
+    public void opaque_isGroupedByStateThenFrontToBack() throws Exception {
+        FakeDrawable farA = new FakeDrawable(2, 1, false, mDrawn);
+        FakeDrawable b = new FakeDrawable(1, 5, false, mDrawn);
+        FakeDrawable nearA = new FakeDrawable(2, 1, false, mDrawn);
+        FakeDrawable c = new FakeDrawable(1, 3, false, mDrawn);
+        mQueue.submit(farA, 0.8f);
+        mQueue.submit(b, 0.5f);
+        mQueue.submit(nearA, 0.1f);
+        mQueue.submit(c, 0.9f);
+
+        execute();
+        assertEquals(4, mDrawn.size());
+        assertSame(c, mDrawn.get(0));
+        assertSame(b, mDrawn.get(1));
+        assertSame(nearA, mDrawn.get(2));
+        assertSame(farA, mDrawn.get(3));
+    }
+
+    @Test
+    public void translucent_isDrawnLastBackToFrontWithBlending() throws Exception {
+        FakeDrawable nearGlass = new FakeDrawable(1, 1, true, mDrawn);
+        FakeDrawable wall = new FakeDrawable(3, 1, false, mDrawn);
+        FakeDrawable farGlass = new FakeDrawable(1, 1, true, mDrawn);
+        mQueue.submit(nearGlass, 0.1f);
+        mQueue.submit(wall, 0.5f);
+        mQueue.submit(farGlass, 0.9f);
+
+        execute();
+        assertSame(wall, mDrawn.get(0));
+        assertSame(farGlass, mDrawn.get(1));
+        assertSame(nearGlass, mDrawn.get(2));
+
+        int[] log = mGl.getLog();
+        int opcodes = 0;
+        for (int p = 0; p < mGl.getLogSize(); p = RecordingGl.nextCommand(log, p)) {
+            opcodes = opcodes * 100 + RecordingGl.opcodeAt(log, p);
+        }
+        assertEquals(RecordingGl.DISABLE * 10000 + RecordingGl.ENABLE * 100 + RecordingGl.BLEND_FUNC, opcodes);
+        assertEquals(GLES20.GL_BLEND, log[1]);
+    }
+
+    @Test
+    public void equalKeys_keepSubmissionOrder() throws Exception {
+        FakeDrawable[] drawables = new FakeDrawable[300];
+        for (int i = 0; i < drawables.length; i++) {
+            drawables[i] = new FakeDrawable(1, 1, false, mDrawn);
+            mQueue.submit(drawables[i], 0.5f);
+        }
+        execute();
+        for (int i = 0; i < drawables.length; i++) {
+            assertSame(drawables[i], mDrawn.get(i));
+        }
+    }
+
+    @Test
+    public void sort_matchesUnsignedComparison() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            mQueue.submit(new FakeDrawable(random.nextInt(4096), random.nextInt(4096),
+                    random.nextBoolean(), mDrawn), random.nextFloat());
+        }
+        mQueue.sort();
+        for (int i = 1; i < mQueue.size(); i++) {
+            long previous = mQueue.getSortedKey(i - 1);
+            long key = mQueue.getSortedKey(i);
+            assertTrue("position " + i, previous + Long.MIN_VALUE < key + Long.MIN_VALUE);
+        }
+    }
+
+    @Test
+    public void clear_emptiesTheQueue() throws Exception {
+        mQueue.submit(new FakeDrawable(1, 1, false, mDrawn), 0.5f);
+        mQueue.clear();
+        execute();
+        assertEquals(0, mQueue.size());
+        assertTrue(mDrawn.isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLSurfaceView;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RenderSchedulerTest {
+
+    private static class RecordingHost implements RenderScheduler.Host {
+        int renderMode = -1;
+        int modeChanges = 0;
+        int renderRequests = 0;
+
+        @Override
+        public void setRenderMode(int renderMode) {
+            this.renderMode = renderMode;
+            modeChanges++;
+        }
+
+        @Override
+        public void requestRender() {
+            renderRequests++;
+        }
+    }
+
+    @Test
+    public void startsOnDemand() throws Exception {
+        RecordingHost host = new RecordingHost();
+        new RenderScheduler(host);
+
+        assertEquals(GLSurfaceView.RENDERMODE_WHEN_DIRTY, host.renderMode);
+    }
+
+    @Test
+    public void rendersContinuouslyWhileAnySourceIsActive() throws Exception {
+        RecordingHost host = new RecordingHost();
+        RenderScheduler scheduler = new RenderScheduler(host);
+
+        scheduler.setActive(RenderScheduler.SOURCE_ANIMATION, true);
+        scheduler.setActive(RenderScheduler.SOURCE_PUCK_MOTION, true);
+        assertEquals(GLSurfaceView.RENDERMODE_CONTINUOUSLY, host.renderMode);
+
+        scheduler.setActive(RenderScheduler.SOURCE_ANIMATION, false);
+        assertEquals(GLSurfaceView.RENDERMODE_CONTINUOUSLY, host.renderMode);
+
+        scheduler.setActive(RenderScheduler.SOURCE_PUCK_MOTION, false);
+        assertEquals(GLSurfaceView.RENDERMODE_WHEN_DIRTY, host.renderMode);
+    }
+
+    @Test
+    public void concurrentToggles_endInTheModeOfTheSources() throws Exception {
+        for (int run = 0; run < 20; run++) {
+            final RecordingHost host = new RecordingHost();
+            final RenderScheduler scheduler = new RenderScheduler(host);
+            Thread glThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        scheduler.setActive(RenderScheduler.SOURCE_ANIMATION, (i & 1) == 0);
+                    }
+                }
+            });
+            glThread.start();
+            for (int i = 0; i <= 10000; i++) {
+                scheduler.setActive(RenderScheduler.SOURCE_VIEW_RESET, (i & 1) == 0);
+            }
+            glThread.join();
+
+            // Only the view reset is left active.
+            assertEquals(GLSurfaceView.RENDERMODE_CONTINUOUSLY, scheduler.getRenderMode());
+            assertEquals(GLSurfaceView.RENDERMODE_CONTINUOUSLY, host.renderMode);
+        }
+    }
+
+    @Test
+    public void onlyChangesModeOnTransitions() throws Exception {
+        RecordingHost host = new RecordingHost();
+        RenderScheduler scheduler = new RenderScheduler(host);
+
+        // The renderer reports the animation state every frame.
+        for (int frame = 0; frame < 100; frame++) {
+            scheduler.setActive(RenderScheduler.SOURCE_ANIMATION, frame < 50);
+        }
+        // Initial mode, on, off.
+        assertEquals(3, host.modeChanges);
+    }
+
+    @Test
+    public void requestRender_forwardsToHost() throws Exception {
+        RecordingHost host = new RecordingHost();
+        RenderScheduler scheduler = new RenderScheduler(host);
+
+        scheduler.requestRender();
+        assertEquals(1, host.renderRequests);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoomMeshBuilderTest {
+
+    // An L of three unit squares, counter-clockwise as seen from above.
+    private static final float[] L_SHAPE = {0, 0, 2, 0, 2, 1, 1, 1, 1, 2, 0, 2};
+
+    @Test
+    public void box_hasEightCornersAndTwelveEdges() throws Exception {
+        RoomMesh mesh = RoomMesh.box(RoomMesh.DEFAULT_EXTENTS);
+
+        assertEquals(8, mesh.getVertexCount());
+        assertEquals(12 * 2, mesh.getLineIndices().length);
+        // Floor, ceiling and four walls of two triangles each.
+        assertEquals(12 * 3, mesh.getTriangleIndices().length);
+        assertEquals(4, mesh.getWallCount());
+        assertArrayEquals(RoomMesh.DEFAULT_EXTENTS, mesh.getExtents(), 0);
+        assertTrue(mesh.isBox());
+        assertEveryEdgeIsDistinct(mesh);
+    }
+
+    @Test
+    public void polygonalRoom_isExtruded() throws Exception {
+        RoomMesh mesh = new RoomMeshBuilder().addRoom(L_SHAPE, 0, 3).build();
+
+        assertEquals(12, mesh.getVertexCount());
+        // Floor, ceiling and one vertical edge per corner.
+        assertEquals(18 * 2, mesh.getLineIndices().length);
+        // Four floor and four ceiling triangles, two per wall.
+        assertEquals((4 + 4 + 2 * 6) * 3, mesh.getTriangleIndices().length);
+        assertEquals(6, mesh.getWallCount());
+        assertArrayEquals(new float[]{0, 0, 0, 2, 3, 2}, mesh.getExtents(), 0);
+        assertFalse(mesh.isBox());
+        assertEveryEdgeIsDistinct(mesh);
+    }
+
+    @Test
+    public void floorArea_isCoveredOnceByFloorTriangles() throws Exception {
+        RoomMesh mesh = new RoomMeshBuilder().addRoom(L_SHAPE, 0, 3).build();
+
+        float floorArea = 0;
+        float ceilingArea = 0;
+        for (float[] normal : triangleNormals(mesh)) {
+            // Twice the area of the triangle, signed by which way it faces.
+            if (normal[1] > 0) {
+                floorArea += normal[1] / 2;
+            } else if (normal[1] < 0) {
+                ceilingArea -= normal[1] / 2;
+            }
+        }
+        assertEquals(3, floorArea, 1e-6);
+        assertEquals(3, ceilingArea, 1e-6);
+    }
+
+    @Test
+    public void triangles_faceIntoTheRoom_eitherWayRound() throws Exception {
+        float[] clockwise = new float[L_SHAPE.length];
+        for (int i = 0; i < L_SHAPE.length; i += 2) {
+            clockwise[L_SHAPE.length - 2 - i] = L_SHAPE[i];
+            clockwise[L_SHAPE.length - 1 - i] = L_SHAPE[i + 1];
+        }
+        for (float[] footprint : new float[][]{L_SHAPE, clockwise}) {
+            RoomMesh mesh = new RoomMeshBuilder().addRoom(footprint, 0, 3).build();
+            float[] vertices = mesh.getVertices();
+            short[] triangles = mesh.getTriangleIndices();
+            float[][] normals = triangleNormals(mesh);
+            for (int t = 0; t < normals.length; t++) {
+                // A small step along the normal from the middle of the
+                // triangle stays inside the room.
+                int a = triangles[t * 3] * 3;
+                int b = triangles[t * 3 + 1] * 3;
+                int c = triangles[t * 3 + 2] * 3;
+                float cx = (vertices[a] + vertices[b] + vertices[c]) / 3;
+                float cy = (vertices[a + 1] + vertices[b + 1] + vertices[c + 1]) / 3;
+                float cz = (vertices[a + 2] + vertices[b + 2] + vertices[c + 2]) / 3;
+                float[] n = normals[t];
+                float step = 0.01f;
+                float length = (float) Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+                float px = cx + n[0] / length * step;
+                float py = cy + n[1] / length * step;
+                float pz = cz + n[2] / length * step;
+                assertTrue("Triangle " + t + " faces out", isInLShape(px, pz) && py > 0 && py < 3);
+            }
+        }
+    }
+
+    @Test
+    public void adjacentRooms_shareTheirCommonWall() throws Exception {
+        RoomMesh mesh = new RoomMeshBuilder()
+                .addBox(new float[]{0, 0, 0, 1, 2, 1})
+                .addBox(new float[]{1, 0, 0, 2, 2, 1})
+                .build();
+
+        assertEquals(12, mesh.getVertexCount());
+        // Twice twelve edges, less the four around the common wall.
+        assertEquals(20 * 2, mesh.getLineIndices().length);
+        assertEquals(7, mesh.getWallCount());
+        assertEquals((2 * 4 + 7 * 2) * 3, mesh.getTriangleIndices().length);
+        assertEveryEdgeIsDistinct(mesh);
+    }
+
+    @Test
+    public void roomsOfDifferentHeights_keepBothWalls() throws Exception {
+        RoomMesh mesh = new RoomMeshBuilder()
+                .addBox(new float[]{0, 0, 0, 1, 2, 1})
+                .addBox(new float[]{1, 0, 0, 2, 3, 1})
+                .build();
+
+        assertEquals(8, mesh.getWallCount());
+        assertEveryEdgeIsDistinct(mesh);
+    }
+
+    @Test
+    public void repeatedCorners_areDropped() throws Exception {
+        // A square closed with its first corner, with an extra corner halfway
+        // along one side.
+        RoomMesh mesh = new RoomMeshBuilder()
+                .addRoom(new float[]{0, 0, 1, 0, 2, 0, 2, 2, 0, 2, 0, 0}, 0, 1)
+                .build();
+
+        // The corner on the side splits the wall in two.
+        assertEquals(10, mesh.getVertexCount());
+        assertEquals(5, mesh.getWallCount());
+        assertEquals((3 + 3 + 5 * 2) * 3, mesh.getTriangleIndices().length);
+        assertEveryEdgeIsDistinct(mesh);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void selfCrossingFootprint_isRejected() throws Exception {
+        new RoomMeshBuilder().addRoom(new float[]{0, 0, 2, 2, 2, 0, 0, 2}, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void flatFootprint_isRejected() throws Exception {
+        new RoomMeshBuilder().addRoom(new float[]{0, 0, 1, 0, 2, 0}, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyRoom_isRejected() throws Exception {
+        new RoomMeshBuilder().addRoom(L_SHAPE, 0, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noRooms_isRejected() throws Exception {
+        new RoomMeshBuilder().build();
+    }
+
+    private static boolean isInLShape(float x, float z) {
+        return x > 0 && z > 0 && (x < 1 && z < 2 || x < 2 && z < 1);
+    }
+
+    // Cross products of the triangles, counter-clockwise being the front.
+    private static float[][] triangleNormals(RoomMesh mesh) {
+        float[] v = mesh.getVertices();
+        short[] triangles = mesh.getTriangleIndices();
+        float[][] normals = new float[triangles.length / 3][];
+        for (int t = 0; t < normals.length; t++) {
+            int a = triangles[t * 3] * 3;
+            int b = triangles[t * 3 + 1] * 3;
+            int c = triangles[t * 3 + 2] * 3;
+            float ux = v[b] - v[a], uy = v[b + 1] - v[a + 1], uz = v[b + 2] - v[a + 2];
+            float wx = v[c] - v[a], wy = v[c + 1] - v[a + 1], wz = v[c + 2] - v[a + 2];
+            normals[t] = new float[]{uy * wz - uz * wy, uz * wx - ux * wz, ux * wy - uy * wx};
+        }
+        return normals;
+    }
+
+    private static void assertEveryEdgeIsDistinct(RoomMesh mesh) {
+        short[] lines = mesh.getLineIndices();
+        for (int i = 0; i < lines.length; i += 2) {
+            assertNotEquals(lines[i], lines[i + 1]);
+            for (int j = i + 2; j < lines.length; j += 2) {
+                boolean same = lines[i] == lines[j] && lines[i + 1] == lines[j + 1]
+                        || lines[i] == lines[j + 1] && lines[i + 1] == lines[j];
+                assertFalse("Edge " + i / 2 + " is repeated", same);
+            }
+        }
+    }
+}
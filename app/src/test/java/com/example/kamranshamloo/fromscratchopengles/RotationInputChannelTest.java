@@ -0,0 +1,99 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class RotationInputChannelTest {
+
+    @Test
+    public void drain_returnsAccumulatedDeltasOnce() throws Exception {
+        RotationInputChannel channel = new RotationInputChannel();
+        float[] deltas = new float[3];
+
+        channel.addDrag(1.5f, -2.0f);
+        channel.addDrag(0.5f, 1.0f);
+        channel.addTwist(10.0f);
+        channel.drain(deltas);
+        assertEquals(2.0f, deltas[RotationInputChannel.AROUND_Y], 0.0f);
+        assertEquals(-1.0f, deltas[RotationInputChannel.AROUND_X], 0.0f);
+        assertEquals(10.0f, deltas[RotationInputChannel.AROUND_Z], 0.0f);
+
+        channel.drain(deltas);
+        assertEquals(0.0f, deltas[RotationInputChannel.AROUND_Y], 0.0f);
+        assertEquals(0.0f, deltas[RotationInputChannel.AROUND_X], 0.0f);
+        assertEquals(0.0f, deltas[RotationInputChannel.AROUND_Z], 0.0f);
+    }
+
+    @Test
+    public void concurrentProducerAndConsumer_loseNoDeltas() throws Exception {
+        final RotationInputChannel channel = new RotationInputChannel();
+        final int events = 1000000;
+        final AtomicBoolean producing = new AtomicBoolean(true);
+
+        // Whole and quarter degrees keep every partial sum exact in a float,
+        // so any lost update shows up as a difference in the totals.
+        Thread uiThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < events; i++) {
+                    channel.addDrag(1.0f, -1.0f);
+                    channel.addTwist(0.25f);
+                }
+                producing.set(false);
+            }
+        });
+
+        final double[] totals = new double[3];
+        Thread glThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                float[] deltas = new float[3];
+                boolean last;
+                do {
+                    last = !producing.get();
+                    channel.drain(deltas);
+                    for (int i = 0; i < 3; i++) {
+                        totals[i] += deltas[i];
+                    }
+                } while (!last);
+            }
+        });
+
+        glThread.start();
+        uiThread.start();
+        uiThread.join();
+        glThread.join();
+
+        assertEquals(events, totals[RotationInputChannel.AROUND_Y], 0.0);
+        assertEquals(-events, totals[RotationInputChannel.AROUND_X], 0.0);
+        assertEquals(events * 0.25, totals[RotationInputChannel.AROUND_Z], 0.0);
+    }
+
+    @Test
+    public void concurrentProducers_loseNoDeltas() throws Exception {
+        final RotationInputChannel channel = new RotationInputChannel();
+        final int events = 200000;
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < events; i++) {
+                        channel.addTwist(1.0f);
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        float[] deltas = new float[3];
+        channel.drain(deltas);
+        assertEquals(producers.length * events, deltas[RotationInputChannel.AROUND_Z], 0.0f);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class SceneFileTest {
+
+    private static final float[] EXTENTS = {0, 0, 0, 10, 3, 8};
+    // Two edges of the floor.
+    private static final float[] SEGMENTS = {
+            0, 0, 0, 10, 0, 0,
+            0, 0, 0, 0, 0, 8,
+    };
+    private static final int[] IDS = {7, 42, -3};
+    private static final float[] X = {1, 2, 3};
+    private static final float[] Y = {0.5f, 1.5f, 2.5f};
+    private static final float[] Z = {4, 5, 6};
+
+    private static ByteBuffer encode() {
+        return SceneFile.encode(EXTENTS, SEGMENTS, IDS, X, Y, Z, IDS.length);
+    }
+
+    @Test
+    public void load_mapsWhatWasWritten() throws Exception {
+        File file = File.createTempFile("room", ".scene");
+        file.deleteOnExit();
+        SceneFile.write(file, EXTENTS, SEGMENTS, IDS, X, Y, Z, IDS.length);
+        assertEquals(SceneFile.HEADER_SIZE + 4 * (SEGMENTS.length + IDS.length * 4), file.length());
+
+        SceneFile.Scene scene = SceneFile.load(file);
+        assertArrayEquals(EXTENTS, scene.getExtents(), 0);
+        assertEquals(4, scene.getSegmentVertexCount());
+        FloatBuffer segments = scene.getSegments();
+        assertEquals(SEGMENTS.length, segments.limit());
+        for (int i = 0; i < SEGMENTS.length; i++) {
+            assertEquals(SEGMENTS[i], segments.get(i), 0);
+        }
+        // Views onto the mapped file, not copies, ready for glBufferData.
+        assertTrue(segments.isDirect());
+        assertTrue(segments.isReadOnly());
+
+        assertEquals(3, scene.getDeviceCount());
+        for (int i = 0; i < IDS.length; i++) {
+            assertEquals(IDS[i], scene.getDeviceIds().get(i));
+            assertEquals(X[i], scene.getDeviceX().get(i), 0);
+            assertEquals(Y[i], scene.getDeviceY().get(i), 0);
+            assertEquals(Z[i], scene.getDeviceZ().get(i), 0);
+        }
+    }
+
+    @Test
+    public void addDevicesTo_fillsTheStore() throws Exception {
+        SceneFile.Scene scene = SceneFile.read(encode());
+        PuckStore pucks = new PuckStore(1);
+        float[] color = {1, 0, 0, 1};
+
+        scene.addDevicesTo(pucks, color);
+        assertEquals(3, pucks.size());
+        int index = pucks.indexOf(42);
+        assertEquals(2, pucks.getX()[index], 0);
+        assertEquals(1.5f, pucks.getY()[index], 0);
+        assertEquals(5, pucks.getZ()[index], 0);
+    }
+
+    @Test
+    public void fileOrder_isLittleEndian() throws Exception {
+        ByteBuffer data = encode();
+        assertEquals('M', data.get(0));
+        assertEquals('2', data.get(1));
+        assertEquals('P', data.get(2));
+        assertEquals('S', data.get(3));
+        assertEquals(SceneFile.VERSION, data.get(4));
+    }
+
+    @Test
+    public void emptyScene_isValid() throws Exception {
+        SceneFile.Scene scene = SceneFile.read(
+                SceneFile.encode(EXTENTS, new float[0], new int[0], new float[0], new float[0], new float[0], 0));
+        assertEquals(0, scene.getSegmentVertexCount());
+        assertEquals(0, scene.getDeviceCount());
+    }
+
+    @Test
+    public void otherFiles_areRejected() throws Exception {
+        ByteBuffer data = encode();
+        data.put(0, (byte) 'X');
+        assertRejected(data);
+    }
+
+    @Test
+    public void newerVersions_areRejected() throws Exception {
+        ByteBuffer data = encode();
+        data.putInt(4, SceneFile.VERSION + 1);
+        assertRejected(data);
+    }
+
+    @Test
+    public void truncatedFiles_areRejected() throws Exception {
+        ByteBuffer data = encode();
+        data.limit(data.limit() - 4);
+        assertRejected(data);
+        data.limit(SceneFile.HEADER_SIZE - 1);
+        assertRejected(data);
+    }
+
+    @Test
+    public void impossibleCounts_areRejected() throws Exception {
+        ByteBuffer data = encode();
+        data.putInt(12, -1);
+        assertRejected(data);
+        data = encode();
+        data.putInt(8, Integer.MAX_VALUE);
+        assertRejected(data);
+    }
+
+    @Test
+    public void invertedExtents_areRejected() throws Exception {
+        ByteBuffer data = encode();
+        data.putFloat(16, 20);
+        assertRejected(data);
+    }
+
+    @Test
+    public void deviceIdsThePuckStoreWouldRefuse_areRejected() throws Exception {
+        // Ids start after the header and the wireframe.
+        final int idsOffset = SceneFile.HEADER_SIZE + SEGMENTS.length * 4;
+        ByteBuffer data = encode();
+        data.putInt(idsOffset + 4, IDS[0]);
+        assertRejected(data);
+        data = encode();
+        data.putInt(idsOffset + 8, Integer.MIN_VALUE);
+        assertRejected(data);
+    }
+
+    private static void assertRejected(ByteBuffer data) {
+        try {
+            SceneFile.read(data);
+            fail("Expected the scene to be rejected");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SegmentTimelineTest {
+
+    private static final float[] ORIGIN = {0, 0, 0};
+    private static final float[] X = {1, 0, 0};
+    private static final float[] Y = {0, 1, 0};
+
+    @Test
+    public void growth_isHiddenUntilItStartsAndThenGrows() throws Exception {
+        SegmentTimeline timeline = new SegmentTimeline();
+        timeline.addGrowth(ORIGIN, X, 1, 2, Easing.LINEAR);
+        float[] out = new float[timeline.getMaxVertexCount() * 3];
+
+        assertEquals(0, timeline.evaluate(0.5f, out));
+        assertEquals(2, timeline.evaluate(2, out));
+        assertEquals(0, out[0], 0);
+        assertEquals(0.5f, out[3], 1e-6f);
+        assertEquals(2, timeline.evaluate(10, out));
+        assertEquals(1, out[3], 0);
+        assertEquals(3, timeline.getDuration(), 0);
+    }
+
+    @Test
+    public void sweep_movesBothEnds() throws Exception {
+        SegmentTimeline timeline = new SegmentTimeline();
+        timeline.addSweep(ORIGIN, X, Y, new float[]{1, 1, 0}, 0, 1, Easing.LINEAR);
+        float[] out = new float[6];
+
+        timeline.evaluate(0.5f, out);
+        assertArrayEquals(new float[]{0, 0.5f, 0, 1, 0.5f, 0}, out, 1e-6f);
+    }
+
+    @Test
+    public void easing_shapesProgress() throws Exception {
+        SegmentTimeline timeline = new SegmentTimeline();
+        timeline.addGrowth(ORIGIN, X, 0, 1, Easing.EASE_IN);
+        float[] out = new float[6];
+
+        timeline.evaluate(0.5f, out);
+        assertEquals(0.25f, out[3], 1e-6f);
+    }
+
+    @Test
+    public void player_seeksAndPlaysInReverseOnInjectedClock() throws Exception {
+        SegmentTimeline timeline = new SegmentTimeline();
+        timeline.addGrowth(ORIGIN, X, 0, 2, Easing.LINEAR);
+        ManualClock clock = new ManualClock(100);
+        TimelinePlayer player = new TimelinePlayer(timeline, clock);
+
+        clock.advance(0.5f);
+        assertEquals(0.5f, player.getPosition(), 1e-6f);
+
+        player.seek(1.5f);
+        assertEquals(1.5f, player.getPosition(), 0);
+        clock.advance(1);
+        assertTrue(player.isFinished());
+        assertEquals(2, player.getPosition(), 0);
+
+        player.setRate(-1);
+        assertFalse(player.isFinished());
+        clock.advance(0.5f);
+        assertEquals(1.5f, player.getPosition(), 1e-6f);
+        clock.advance(5);
+        assertEquals(0, player.getPosition(), 0);
+        assertTrue(player.isFinished());
+    }
+
+    @Test
+    public void player_sameTimeGivesSameFrame() throws Exception {
+        SegmentTimeline timeline = CuboidAnimationTimeline.create();
+        float[] forwards = new float[timeline.getMaxVertexCount() * 3];
+        float[] afterSeek = new float[forwards.length];
+
+        ManualClock clock = new ManualClock(0);
+        TimelinePlayer player = new TimelinePlayer(timeline, clock);
+        clock.advance(1.7f);
+        int count = player.evaluate(forwards);
+
+        player.seek(0.1f);
+        player.seek(1.7f);
+        assertEquals(count, player.evaluate(afterSeek));
+        assertArrayEquals(forwards, afterSeek, 0);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShaderProgramCacheTest {
+
+    private static final String FRAGMENT = "void main() { gl_FragColor = vec4(1.0); }";
+    // "Aa" and "BB" have the same String hash code.
+    private static final String VERTEX_A = "Aa";
+    private static final String VERTEX_B = "BB";
+
+    @Test
+    public void sameSources_areLinkedOnce() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        ShaderProgramCache cache = new ShaderProgramCache(gl);
+
+        ShaderProgram first = cache.acquire(VERTEX_A, FRAGMENT);
+        ShaderProgram second = cache.acquire(VERTEX_A, FRAGMENT);
+        assertSame(first, second);
+        assertEquals(1, gl.getCommandCount(RecordingGl.CREATE_PROGRAM));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void lastRelease_deletesTheProgram() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        ShaderProgramCache cache = new ShaderProgramCache(gl);
+
+        ShaderProgram program = cache.acquire(VERTEX_A, FRAGMENT);
+        cache.acquire(VERTEX_A, FRAGMENT);
+        cache.release(program);
+        assertEquals(0, gl.getCommandCount(RecordingGl.DELETE_PROGRAM));
+        cache.release(program);
+        assertEquals(1, gl.getCommandCount(RecordingGl.DELETE_PROGRAM));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void collidingSources_getProgramsOfTheirOwn() throws Exception {
+        assertEquals(VERTEX_A.hashCode(), VERTEX_B.hashCode());
+        RecordingGl gl = new RecordingGl();
+        ShaderProgramCache cache = new ShaderProgramCache(gl);
+
+        ShaderProgram a = cache.acquire(VERTEX_A, FRAGMENT);
+        ShaderProgram b = cache.acquire(VERTEX_B, FRAGMENT);
+        assertNotSame(a, b);
+        assertEquals(2, cache.size());
+        assertSame(a, cache.acquire(VERTEX_A, FRAGMENT));
+        assertSame(b, cache.acquire(VERTEX_B, FRAGMENT));
+    }
+
+    @Test
+    public void releasingOneOfCollidingSources_keepsTheOtherShared() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        ShaderProgramCache cache = new ShaderProgramCache(gl);
+
+        ShaderProgram a = cache.acquire(VERTEX_A, FRAGMENT);
+        ShaderProgram b = cache.acquire(VERTEX_B, FRAGMENT);
+        cache.release(a);
+
+        assertSame(b, cache.acquire(VERTEX_B, FRAGMENT));
+        assertEquals(2, gl.getCommandCount(RecordingGl.CREATE_PROGRAM));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void newSurface_relinksEveryLiveProgram() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        ShaderProgramCache cache = new ShaderProgramCache(gl);
+        cache.acquire(VERTEX_A, FRAGMENT);
+        cache.acquire(VERTEX_B, FRAGMENT);
+
+        gl.reset();
+        cache.onSurfaceCreated();
+        assertEquals(2, gl.getCommandCount(RecordingGl.LINK_PROGRAM));
+    }
+}
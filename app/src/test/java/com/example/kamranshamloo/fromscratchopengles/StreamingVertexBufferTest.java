@@ -0,0 +1,122 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class StreamingVertexBufferTest {
+
+    private static final ByteBuffer DATA = ByteBuffer.allocateDirect(1024);
+
+    private static StreamingVertexBuffer startRing(RecordingGl gl, int bufferCount, int bufferSize) {
+        StreamingVertexBuffer ring = new StreamingVertexBuffer(gl, bufferCount, bufferSize);
+        ring.onSurfaceCreated();
+        assertEquals(GLES20.GL_NO_ERROR, gl.glGetError());
+        gl.reset();
+        return ring;
+    }
+
+    @Test
+    public void writes_areAppendedAlignedToFloats() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        StreamingVertexBuffer ring = startRing(gl, 2, 256);
+        int handle = ring.getHandle();
+
+        assertEquals(0, ring.write(DATA, 12));
+        assertEquals(12, ring.write(DATA, 2));
+        assertEquals(16, ring.write(DATA, 40));
+        assertEquals(handle, ring.getHandle());
+        assertEquals(3, gl.getCommandCount(RecordingGl.BUFFER_SUB_DATA));
+        assertEquals(0, gl.getCommandCount(RecordingGl.BUFFER_DATA));
+        assertEquals(12 + 2 + 40, gl.getUploadedBytes());
+    }
+
+    @Test
+    public void es2_orphansEveryBufferItMovesOnTo() throws Exception {
+        RecordingGl gl = new RecordingGl(RecordingGl.VERSION_ES2);
+        StreamingVertexBuffer ring = startRing(gl, 2, 64);
+        assertFalse(ring.isFenced());
+        int first = ring.getHandle();
+
+        ring.write(DATA, 48);
+        assertEquals(0, ring.write(DATA, 48));
+        int second = ring.getHandle();
+        assertNotEquals(first, second);
+        assertEquals(0, ring.write(DATA, 48));
+        assertEquals(first, ring.getHandle());
+
+        assertEquals(2, ring.getOrphanCount());
+        assertEquals(2, gl.getCommandCount(RecordingGl.BUFFER_DATA));
+        // Orphaning allocates storage but uploads nothing.
+        assertEquals(3 * 48, gl.getUploadedBytes());
+        assertEquals(0, gl.getCommandCount(RecordingGl.FENCE_SYNC));
+        assertEquals(GLES20.GL_NO_ERROR, gl.glGetError());
+    }
+
+    @Test
+    public void es3_reusesBuffersOnceTheirFencesPassed() throws Exception {
+        RecordingGl gl = new RecordingGl(RecordingGl.VERSION_ES3);
+        // The GPU finishes a buffer before the ring comes back to it.
+        gl.setGpuLatency(1);
+        StreamingVertexBuffer ring = startRing(gl, 3, 64);
+        assertTrue(ring.isFenced());
+
+        for (int i = 0; i < 30; i++) {
+            ring.write(DATA, 64);
+        }
+        assertEquals(29, gl.getCommandCount(RecordingGl.FENCE_SYNC));
+        // Every buffer but the first two found a fence left on it.
+        assertEquals(29 - 2, gl.getCommandCount(RecordingGl.DELETE_SYNC));
+        assertEquals(0, ring.getStallCount());
+        assertEquals(0, ring.getOrphanCount());
+        assertEquals(0, gl.getCommandCount(RecordingGl.BUFFER_DATA));
+        assertEquals(GLES20.GL_NO_ERROR, gl.glGetError());
+    }
+
+    @Test
+    public void es3_waitsForTheGpuWhenTheRingIsTooShort() throws Exception {
+        RecordingGl gl = new RecordingGl(RecordingGl.VERSION_ES3);
+        gl.setGpuLatency(4);
+        StreamingVertexBuffer ring = startRing(gl, 2, 64);
+
+        ring.write(DATA, 64);
+        ring.write(DATA, 64);
+        assertEquals(0, ring.getStallCount());
+        // Back at the first buffer, whose fence the GPU has not reached.
+        assertEquals(0, ring.write(DATA, 64));
+        assertEquals(1, ring.getStallCount());
+        assertEquals(1, gl.getBlockingWaitCount());
+        assertEquals(0, ring.getOrphanCount());
+    }
+
+    @Test
+    public void largeWrite_growsTheBuffers() throws Exception {
+        RecordingGl gl = new RecordingGl(RecordingGl.VERSION_ES3);
+        StreamingVertexBuffer ring = startRing(gl, 3, 64);
+        ring.write(DATA, 16);
+
+        assertEquals(0, ring.write(DATA, 100));
+        assertEquals(100, ring.getBufferSizeInBytes());
+        assertEquals(3, gl.getCommandCount(RecordingGl.BUFFER_DATA));
+        assertEquals(100, ring.write(DATA, 0));
+    }
+
+    @Test
+    public void contextLoss_createsNewBuffers() throws Exception {
+        RecordingGl gl = new RecordingGl(RecordingGl.VERSION_ES3);
+        StreamingVertexBuffer ring = startRing(gl, 2, 64);
+        ring.write(DATA, 64);
+        ring.write(DATA, 64);
+        int before = ring.getHandle();
+
+        ring.onSurfaceCreated();
+        assertNotEquals(before, ring.getHandle());
+        assertEquals(0, ring.write(DATA, 8));
+        // The fence of the old context is never waited for.
+        assertEquals(0, gl.getCommandCount(RecordingGl.CLIENT_WAIT_SYNC));
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TrackballRotationTest {
+
+    @Test
+    public void rotate_matchesMatrixComposition() throws Exception {
+        TrackballRotation trackball = new TrackballRotation(new ManualClock(0));
+        double[] expected = identity();
+        float[][] steps = {{-45, 0, 0}, {10, 20, 0}, {0, -5, 30}, {3, 7, -11}};
+        for (float[] step : steps) {
+            trackball.rotate(step[0], step[1], step[2]);
+            // What onDrawFrame used to do with rotateM and multiplyMM.
+            double[] current = multiply(multiply(
+                    rotation(step[0], 0, 1, 0),
+                    rotation(step[1], 1, 0, 0)),
+                    rotation(step[2], 0, 0, 1));
+            expected = multiply(current, expected);
+        }
+
+        float[] actual = new float[16];
+        trackball.getMatrix(actual);
+        for (int i = 0; i < 16; i++) {
+            assertEquals("element " + i, expected[i], actual[i], 1e-5);
+        }
+    }
+
+    @Test
+    public void longSession_staysOrthonormal() throws Exception {
+        TrackballRotation trackball = new TrackballRotation(new ManualClock(0));
+        // About an hour of constant dragging at 60 frames per second.
+        for (int frame = 0; frame < 60 * 60 * 60; frame++) {
+            trackball.rotate(0.731f, -0.293f, 0.117f);
+        }
+
+        float[] m = new float[16];
+        trackball.getMatrix(m);
+        for (int a = 0; a < 3; a++) {
+            for (int b = 0; b < 3; b++) {
+                float dot = m[a * 4] * m[b * 4] + m[a * 4 + 1] * m[b * 4 + 1] + m[a * 4 + 2] * m[b * 4 + 2];
+                assertEquals("columns " + a + ", " + b, a == b ? 1.0f : 0.0f, dot, 1e-5f);
+            }
+        }
+    }
+
+    @Test
+    public void reset_slerpsBackToIdentity() throws Exception {
+        ManualClock clock = new ManualClock(10);
+        TrackballRotation trackball = new TrackballRotation(clock);
+        trackball.rotate(90, 0, 0);
+
+        trackball.requestReset(1.0f);
+        assertTrue(trackball.isResetting());
+        trackball.update();
+
+        // Half way through the eased animation the room has turned back by half.
+        clock.advance(0.5f);
+        trackball.update();
+        float[] q = new float[4];
+        trackball.getQuaternion(q);
+        assertEquals(45.0, Math.toDegrees(2 * Math.acos(q[0])), 1e-3);
+        assertEquals(0.0f, q[1], 1e-6f);
+        assertEquals(0.0f, q[3], 1e-6f);
+        assertTrue(trackball.isResetting());
+
+        clock.advance(0.5f);
+        trackball.update();
+        assertFalse(trackball.isResetting());
+        float[] m = new float[16];
+        trackball.getMatrix(m);
+        double[] identity = identity();
+        for (int i = 0; i < 16; i++) {
+            assertEquals(identity[i], m[i], 0.0);
+        }
+    }
+
+    @Test
+    public void reset_animatesEveryFrameAfterDaysOfUptime() throws Exception {
+        // About 11.5 days of uptime, where a float clock steps by 62.5 ms.
+        ManualClock clock = new ManualClock(1e6 + 0.3);
+        TrackballRotation trackball = new TrackballRotation(clock);
+        trackball.rotate(90, 0, 0);
+        trackball.requestReset(0.5f);
+        trackball.update();
+
+        float[] q = new float[4];
+        trackball.getQuaternion(q);
+        double angle = Math.toDegrees(2 * Math.acos(q[0]));
+        int frames = 0;
+        while (trackball.isResetting()) {
+            clock.advance(1.0f / 60);
+            trackball.update();
+            trackball.getQuaternion(q);
+            double next = Math.toDegrees(2 * Math.acos(Math.min(1, q[0])));
+            assertTrue("Frame " + frames + " did not turn", next < angle);
+            angle = next;
+            frames++;
+        }
+        assertEquals(30, frames, 1);
+    }
+
+    @Test
+    public void rotateDuringReset_takesOverFromCurrentOrientation() throws Exception {
+        ManualClock clock = new ManualClock(0);
+        TrackballRotation trackball = new TrackballRotation(clock);
+        trackball.rotate(0, 0, 90);
+        trackball.requestReset(1.0f);
+        trackball.update();
+        clock.advance(0.5f);
+
+        trackball.rotate(0, 0, 10);
+        assertFalse(trackball.isResetting());
+        float[] q = new float[4];
+        trackball.getQuaternion(q);
+        assertEquals(55.0, Math.toDegrees(2 * Math.acos(q[0])), 1e-3);
+    }
+
+    private static double[] identity() {
+        double[] m = new double[16];
+        m[0] = m[5] = m[10] = m[15] = 1;
+        return m;
+    }
+
+    // Column-major rotation around a unit axis, like android.opengl.Matrix.setRotateM.
+    private static double[] rotation(double degrees, double x, double y, double z) {
+        double a = Math.toRadians(degrees);
+        double c = Math.cos(a);
+        double s = Math.sin(a);
+        double nc = 1 - c;
+        double[] m = identity();
+        m[0] = x * x * nc + c;
+        m[1] = y * x * nc + z * s;
+        m[2] = x * z * nc - y * s;
+        m[4] = x * y * nc - z * s;
+        m[5] = y * y * nc + c;
+        m[6] = y * z * nc + x * s;
+        m[8] = x * z * nc + y * s;
+        m[9] = y * z * nc - x * s;
+        m[10] = z * z * nc + c;
+        return m;
+    }
+
+    private static double[] multiply(double[] lhs, double[] rhs) {
+        double[] result = new double[16];
+        for (int column = 0; column < 4; column++) {
+            for (int row = 0; row < 4; row++) {
+                double sum = 0;
+                for (int k = 0; k < 4; k++) {
+                    sum += lhs[k * 4 + row] * rhs[column * 4 + k];
+                }
+                result[column * 4 + row] = sum;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.kamranshamloo.fromscratchopengles.math;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Mat4Test {
+
+    private static final float EPSILON = 1e-5f;
+
+    private final Random mRandom = new Random(42);
+
+    @Test
+    public void multiply_matchesReference() throws Exception {
+        float[] lhs = randomMatrix();
+        float[] rhs = randomMatrix();
+        float[] result = new float[16];
+
+        Mat4.multiply(result, 0, lhs, 0, rhs, 0);
+        assertMatrixEquals(referenceMultiply(lhs, rhs), result);
+    }
+
+    @Test
+    public void multiply_inPlace() throws Exception {
+        float[] lhs = randomMatrix();
+        float[] rhs = randomMatrix();
+        float[] expected = referenceMultiply(lhs, rhs);
+
+        float[] intoLhs = lhs.clone();
+        Mat4.multiply(intoLhs, 0, intoLhs, 0, rhs, 0);
+        assertMatrixEquals(expected, intoLhs);
+
+        float[] intoRhs = rhs.clone();
+        Mat4.multiply(intoRhs, 0, lhs, 0, intoRhs, 0);
+        assertMatrixEquals(expected, intoRhs);
+    }
+
+    @Test
+    public void multiply_honoursOffsets() throws Exception {
+        float[] lhs = randomMatrix();
+        float[] rhs = randomMatrix();
+        float[] packed = new float[48];
+        System.arraycopy(lhs, 0, packed, 16, 16);
+        System.arraycopy(rhs, 0, packed, 32, 16);
+
+        Mat4.multiply(packed, 0, packed, 16, packed, 32);
+        float[] result = new float[16];
+        System.arraycopy(packed, 0, result, 0, 16);
+        assertMatrixEquals(referenceMultiply(lhs, rhs), result);
+    }
+
+    @Test
+    public void multiplyAffine_matchesMultiply() throws Exception {
+        float[] lhs = randomAffine();
+        float[] rhs = randomAffine();
+        float[] expected = new float[16];
+        float[] actual = new float[16];
+
+        Mat4.multiply(expected, 0, lhs, 0, rhs, 0);
+        Mat4.multiplyAffine(actual, 0, lhs, 0, rhs, 0);
+        assertMatrixEquals(expected, actual);
+    }
+
+    @Test
+    public void rotate_matchesSetRotateThenMultiply() throws Exception {
+        float[][] axes = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {1, 2, -3}};
+        for (float[] axis : axes) {
+            float[] m = randomMatrix();
+            float[] rotation = new float[16];
+            float[] expected = new float[16];
+            Mat4.setRotate(rotation, 0, 37, axis[0], axis[1], axis[2]);
+            Mat4.multiply(expected, 0, m, 0, rotation, 0);
+
+            Mat4.rotate(m, 0, 37, axis[0], axis[1], axis[2]);
+            assertMatrixEquals(expected, m);
+        }
+    }
+
+    @Test
+    public void setRotate_turnsXTowardsY() throws Exception {
+        float[] m = new float[16];
+        Mat4.setRotate(m, 0, 90, 0, 0, 1);
+        float[] v = {1, 0, 0, 1};
+        Mat4.multiplyVector(v, 0, m, 0, v, 0);
+        assertArrayEquals(new float[]{0, 1, 0, 1}, v, EPSILON);
+    }
+
+    @Test
+    public void translate_matchesMultiplyByTranslation() throws Exception {
+        float[] m = randomMatrix();
+        float[] translation = new float[16];
+        Mat4.setIdentity(translation, 0);
+        translation[12] = 2;
+        translation[13] = -3;
+        translation[14] = 5;
+        float[] expected = referenceMultiply(m, translation);
+
+        Mat4.translate(m, 0, 2, -3, 5);
+        assertMatrixEquals(expected, m);
+    }
+
+    @Test
+    public void setLookAt_translatesTheEyeToTheOrigin() throws Exception {
+        float[] m = new float[16];
+        // The camera of MyGLRenderer.
+        Mat4.setLookAt(m, 0, 0, 0, 4, 0, 0, -1, 0, 1, 0);
+        float[] expected = new float[16];
+        Mat4.setIdentity(expected, 0);
+        expected[14] = -4;
+        assertMatrixEquals(expected, m);
+    }
+
+    @Test
+    public void frustum_matchesFormula() throws Exception {
+        float[] m = new float[16];
+        Mat4.frustum(m, 0, -1.5f, 1.5f, -1, 1, 1, 1000);
+        float[] expected = new float[16];
+        expected[0] = 2f / 3f;
+        expected[5] = 1;
+        expected[10] = -1001f / 999f;
+        expected[11] = -1;
+        expected[14] = -2000f / 999f;
+        assertMatrixEquals(expected, m);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void frustum_rejectsNonPositiveNear() throws Exception {
+        Mat4.frustum(new float[16], 0, -1, 1, -1, 1, 0, 10);
+    }
+
+    @Test
+    public void invert_timesOriginalIsIdentity() throws Exception {
+        float[] m = randomMatrix();
+        // Keep it well away from singular.
+        m[0] += 4;
+        m[5] += 4;
+        m[10] += 4;
+        m[15] += 4;
+        float[] inverse = new float[16];
+        assertTrue(Mat4.invert(inverse, 0, m, 0));
+
+        float[] product = new float[16];
+        Mat4.multiply(product, 0, m, 0, inverse, 0);
+        float[] identity = new float[16];
+        Mat4.setIdentity(identity, 0);
+        assertMatrixEquals(identity, product);
+
+        float[] inPlace = m.clone();
+        assertTrue(Mat4.invert(inPlace, 0, inPlace, 0));
+        assertMatrixEquals(inverse, inPlace);
+    }
+
+    @Test
+    public void invert_singularLeavesResultAlone() throws Exception {
+        float[] m = randomMatrix();
+        // A zero column.
+        m[4] = 0;
+        m[5] = 0;
+        m[6] = 0;
+        m[7] = 0;
+        float[] result = new float[16];
+        result[3] = 7;
+
+        assertFalse(Mat4.invert(result, 0, m, 0));
+        assertEquals(7, result[3], 0);
+    }
+
+    @Test
+    public void transformPoints_matchesMultiplyVector() throws Exception {
+        float[] m = randomAffine();
+        int count = 7;
+        float[] points = new float[3 + count * 3];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = mRandom.nextFloat() * 10 - 5;
+        }
+        float[] transformed = new float[count * 3];
+        Mat4.transformPoints(m, 0, points, 3, transformed, 0, count);
+
+        float[] v = new float[4];
+        for (int i = 0; i < count; i++) {
+            v[0] = points[3 + i * 3];
+            v[1] = points[3 + i * 3 + 1];
+            v[2] = points[3 + i * 3 + 2];
+            v[3] = 1;
+            Mat4.multiplyVector(v, 0, m, 0, v, 0);
+            assertEquals(v[0], transformed[i * 3], EPSILON);
+            assertEquals(v[1], transformed[i * 3 + 1], EPSILON);
+            assertEquals(v[2], transformed[i * 3 + 2], EPSILON);
+        }
+    }
+
+    private float[] randomMatrix() {
+        float[] m = new float[16];
+        for (int i = 0; i < 16; i++) {
+            m[i] = mRandom.nextFloat() * 2 - 1;
+        }
+        return m;
+    }
+
+    private float[] randomAffine() {
+        float[] m = randomMatrix();
+        m[3] = 0;
+        m[7] = 0;
+        m[11] = 0;
+        m[15] = 1;
+        return m;
+    }
+
+    private static float[] referenceMultiply(float[] lhs, float[] rhs) {
+        float[] result = new float[16];
+        for (int column = 0; column < 4; column++) {
+            for (int row = 0; row < 4; row++) {
+                double sum = 0;
+                for (int k = 0; k < 4; k++) {
+                    sum += (double) lhs[k * 4 + row] * rhs[column * 4 + k];
+                }
+                result[column * 4 + row] = (float) sum;
+            }
+        }
+        return result;
+    }
+
+    private static void assertMatrixEquals(float[] expected, float[] actual) {
+        for (int i = 0; i < 16; i++) {
+            assertEquals("element " + i, expected[i], actual[i], EPSILON);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.kamranshamloo.fromscratchopengles.math;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QuatTest {
+
+    private static final float EPSILON = 1e-5f;
+
+    @Test
+    public void toMatrix_matchesSetRotate() throws Exception {
+        float[][] axes = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {-2, 1, 0.5f}};
+        for (float[] axis : axes) {
+            float[] q = new float[4];
+            float[] fromQuat = new float[16];
+            float[] expected = new float[16];
+            Quat.setAxisAngle(q, 0, 123, axis[0], axis[1], axis[2]);
+            Quat.toMatrix(fromQuat, 0, q, 0);
+            Mat4.setRotate(expected, 0, 123, axis[0], axis[1], axis[2]);
+            assertArrayEquals(expected, fromQuat, EPSILON);
+        }
+    }
+
+    @Test
+    public void multiply_composesLikeMatrices() throws Exception {
+        float[] a = new float[4];
+        float[] b = new float[4];
+        Quat.setAxisAngle(a, 0, 30, 0, 1, 0);
+        Quat.setAxisAngle(b, 0, -70, 1, 1, 0);
+        float[] ab = new float[4];
+        Quat.multiply(ab, 0, a, 0, b, 0);
+        float[] actual = new float[16];
+        Quat.toMatrix(actual, 0, ab, 0);
+
+        float[] ma = new float[16];
+        float[] mb = new float[16];
+        float[] expected = new float[16];
+        Mat4.setRotate(ma, 0, 30, 0, 1, 0);
+        Mat4.setRotate(mb, 0, -70, 1, 1, 0);
+        Mat4.multiply(expected, 0, ma, 0, mb, 0);
+        assertArrayEquals(expected, actual, EPSILON);
+    }
+
+    @Test
+    public void slerp_interpolatesTheAngle() throws Exception {
+        float[] from = new float[4];
+        float[] to = new float[4];
+        float[] result = new float[4];
+        Quat.setIdentity(from, 0);
+        Quat.setAxisAngle(to, 0, 120, 0, 0, 1);
+
+        Quat.slerp(result, 0, from, 0, to, 0, 0.25f);
+        float[] expected = new float[4];
+        Quat.setAxisAngle(expected, 0, 30, 0, 0, 1);
+        assertArrayEquals(expected, result, EPSILON);
+    }
+
+    @Test
+    public void slerp_takesTheShortWay() throws Exception {
+        float[] from = new float[4];
+        float[] to = new float[4];
+        float[] result = new float[4];
+        Quat.setAxisAngle(from, 0, 170, 0, 1, 0);
+        Quat.setAxisAngle(to, 0, -170, 0, 1, 0);
+
+        // Half way between +170 and -170 degrees is 180, not 0.
+        Quat.slerp(result, 0, from, 0, to, 0, 0.5f);
+        assertEquals(0.0f, result[0], EPSILON);
+        assertEquals(1.0f, Math.abs(result[2]), EPSILON);
+    }
+}
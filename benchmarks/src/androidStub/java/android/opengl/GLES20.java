@@ -0,0 +1,53 @@
+package android.opengl;
+
+/**
+ * Compile-time stand-in for the Android class, so the benchmarks can compile
+ * the renderer. Holds only the constants the app uses, with the values of the
+ * GL headers; javac inlines them, and {@code RecordingGl} takes every call.
+ */
+public class GLES20 {
+
+    public static final int GL_NO_ERROR = 0;
+    public static final int GL_INVALID_ENUM = 0x0500;
+    public static final int GL_INVALID_VALUE = 0x0501;
+    public static final int GL_INVALID_OPERATION = 0x0502;
+
+    public static final int GL_TRUE = 1;
+    public static final int GL_VERSION = 0x1F02;
+    public static final int GL_EXTENSIONS = 0x1F03;
+
+    public static final int GL_DEPTH_BUFFER_BIT = 0x00000100;
+    public static final int GL_COLOR_BUFFER_BIT = 0x00004000;
+    public static final int GL_BLEND = 0x0BE2;
+    public static final int GL_DEPTH_TEST = 0x0B71;
+    public static final int GL_SRC_ALPHA = 0x0302;
+    public static final int GL_ONE_MINUS_SRC_ALPHA = 0x0303;
+
+    public static final int GL_LINES = 0x0001;
+    public static final int GL_LINE_LOOP = 0x0002;
+    public static final int GL_TRIANGLES = 0x0004;
+
+    public static final int GL_UNSIGNED_SHORT = 0x1403;
+    public static final int GL_INT = 0x1404;
+    public static final int GL_FLOAT = 0x1406;
+
+    public static final int GL_ARRAY_BUFFER = 0x8892;
+    public static final int GL_ELEMENT_ARRAY_BUFFER = 0x8893;
+    public static final int GL_STREAM_DRAW = 0x88E0;
+    public static final int GL_STATIC_DRAW = 0x88E4;
+
+    public static final int GL_FRAGMENT_SHADER = 0x8B30;
+    public static final int GL_VERTEX_SHADER = 0x8B31;
+    public static final int GL_LINK_STATUS = 0x8B82;
+    public static final int GL_ACTIVE_UNIFORMS = 0x8B86;
+    public static final int GL_ACTIVE_ATTRIBUTES = 0x8B89;
+
+    public static final int GL_FLOAT_VEC2 = 0x8B50;
+    public static final int GL_FLOAT_VEC3 = 0x8B51;
+    public static final int GL_FLOAT_VEC4 = 0x8B52;
+    public static final int GL_BOOL = 0x8B56;
+    public static final int GL_FLOAT_MAT2 = 0x8B5A;
+    public static final int GL_FLOAT_MAT3 = 0x8B5B;
+    public static final int GL_FLOAT_MAT4 = 0x8B5C;
+    public static final int GL_SAMPLER_2D = 0x8B5E;
+}
@@ -0,0 +1,14 @@
+package android.opengl;
+
+/**
+ * Compile-time stand-in for the Android class, see {@link GLES20}.
+ */
+public class GLES30 extends GLES20 {
+
+    public static final int GL_SYNC_FLUSH_COMMANDS_BIT = 0x00000001;
+    public static final int GL_SYNC_GPU_COMMANDS_COMPLETE = 0x9117;
+    public static final int GL_ALREADY_SIGNALED = 0x911A;
+    public static final int GL_TIMEOUT_EXPIRED = 0x911B;
+    public static final int GL_CONDITION_SATISFIED = 0x911C;
+    public static final int GL_WAIT_FAILED = 0x911D;
+}
@@ -0,0 +1,22 @@
+package android.opengl;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Compile-time stand-in for the Android class, see {@link GLES20}. Only the
+ * renderer interface and the render modes.
+ */
+public class GLSurfaceView {
+
+    public static final int RENDERMODE_WHEN_DIRTY = 0;
+    public static final int RENDERMODE_CONTINUOUSLY = 1;
+
+    public interface Renderer {
+        void onSurfaceCreated(GL10 gl, EGLConfig config);
+
+        void onSurfaceChanged(GL10 gl, int width, int height);
+
+        void onDrawFrame(GL10 gl);
+    }
+}
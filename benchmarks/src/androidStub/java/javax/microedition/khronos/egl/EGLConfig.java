@@ -0,0 +1,7 @@
+package javax.microedition.khronos.egl;
+
+/**
+ * Compile-time stand-in for the Android class; the renderer is handed null.
+ */
+public abstract class EGLConfig {
+}
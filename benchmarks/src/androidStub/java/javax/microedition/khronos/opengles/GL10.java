@@ -0,0 +1,7 @@
+package javax.microedition.khronos.opengles;
+
+/**
+ * Compile-time stand-in for the Android interface; the renderer is handed null.
+ */
+public interface GL10 {
+}
@@ -0,0 +1,52 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Vertex generation of one {@code CuboidAnimation} frame: evaluating the
+ * timeline and copying the vertices into the direct buffer handed to GL.
+ */
+@State(Scope.Thread)
+public class CuboidAnimationBenchmark {
+
+    /** Position in the build-up, as a fraction of its duration. */
+    @Param({"0.1", "0.5", "0.9"})
+    public float progress;
+
+    private SegmentTimeline mTimeline;
+    private float[] mVertices;
+    private FloatBuffer mVertexBuffer;
+    private float mTime;
+
+    @Setup
+    public void setUp() {
+        mTimeline = CuboidAnimationTimeline.create();
+        mVertices = new float[mTimeline.getMaxVertexCount() * SegmentTimeline.COORDS_PER_VERTEX];
+        mVertexBuffer = ByteBuffer.allocateDirect(mVertices.length * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        mTime = progress * mTimeline.getDuration();
+    }
+
+    @Benchmark
+    public FloatBuffer generateFrame() {
+        int vertexCount = mTimeline.evaluate(mTime, mVertices);
+        mVertexBuffer.position(0);
+        mVertexBuffer.put(mVertices, 0, vertexCount * SegmentTimeline.COORDS_PER_VERTEX);
+        mVertexBuffer.position(0);
+        return mVertexBuffer;
+    }
+
+    @Benchmark
+    public SegmentTimeline createTimeline() {
+        return CuboidAnimationTimeline.create();
+    }
+}
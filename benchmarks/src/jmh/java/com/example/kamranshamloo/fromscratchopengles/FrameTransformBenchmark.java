@@ -0,0 +1,52 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import com.example.kamranshamloo.fromscratchopengles.math.Mat4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Matrix composition done once per frame in {@code MyGLRenderer.onDrawFrame}:
+ * the camera, the gesture rotation and the room transform.
+ */
+@State(Scope.Thread)
+public class FrameTransformBenchmark {
+
+    private final float[] mProjectionMatrix = new float[16];
+    private final float[] mViewMatrix = new float[16];
+    private final float[] mMVPMatrix = new float[16];
+    private final float[] mAccumulatedRotation = new float[16];
+    private final float[] mRoomMatrix = new float[16];
+    private final float[] mRotationDeltas = new float[3];
+    private final RotationInputChannel mRotationInput = new RotationInputChannel();
+    private TrackballRotation mTrackball;
+
+    @Setup
+    public void setUp() {
+        mTrackball = new TrackballRotation(new AnimationClock() {
+            @Override
+            public double now() {
+                return 0;
+            }
+        });
+        Mat4.frustum(mProjectionMatrix, 0, -1.6f, 1.6f, -1, 1, 1, 1000);
+    }
+
+    @Benchmark
+    public float[] composeFrame() {
+        Mat4.setLookAt(mViewMatrix, 0, 0, 0, 4, 0, 0, -1, 0, 1, 0);
+        Mat4.multiply(mMVPMatrix, 0, mProjectionMatrix, 0, mViewMatrix, 0);
+
+        // A drag arriving every frame, as during a swipe.
+        mRotationInput.addDrag(0.7f, -0.3f);
+        mTrackball.update();
+        mRotationInput.drain(mRotationDeltas);
+        mTrackball.rotate(mRotationDeltas[0], mRotationDeltas[1], mRotationDeltas[2]);
+        mTrackball.getMatrix(mAccumulatedRotation);
+
+        Mat4.multiply(mRoomMatrix, 0, mMVPMatrix, 0, mAccumulatedRotation, 0);
+        return mRoomMatrix;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import com.example.kamranshamloo.fromscratchopengles.math.Mat4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Culling a room full of pucks in bulk, with a third of them out of view,
+ * against testing them one at a time.
+ */
+@State(Scope.Thread)
+public class FrustumCullerBenchmark {
+
+    private static final float RADIUS = 0.09f;
+
+    @Param({"1000", "10000", "100000"})
+    public int pucks;
+
+    private final FrustumCuller mCuller = new FrustumCuller();
+    private float[] mX;
+    private float[] mY;
+    private float[] mZ;
+    private int[] mVisible;
+
+    @Setup
+    public void setUp() {
+        // The renderer's camera, close enough that part of the room is out of view.
+        float[] projection = new float[16];
+        float[] view = new float[16];
+        float[] m = new float[16];
+        Mat4.frustum(projection, 0, -1.6f, 1.6f, -1, 1, 1, 1000);
+        Mat4.setLookAt(view, 0, 0, 0, 1.2f, 0, 0, -1, 0, 1, 0);
+        Mat4.multiply(m, 0, projection, 0, view, 0);
+        mCuller.setMatrix(m, 0);
+
+        Random random = new Random(1);
+        mX = new float[pucks];
+        mY = new float[pucks];
+        mZ = new float[pucks];
+        for (int i = 0; i < pucks; i++) {
+            mX[i] = random.nextFloat() * 4 - 2;
+            mY[i] = random.nextFloat() * 2 - 1;
+            mZ[i] = random.nextFloat() * 2 - 1;
+        }
+        mVisible = new int[pucks];
+    }
+
+    @Benchmark
+    public int cull() {
+        return mCuller.cull(mX, mY, mZ, pucks, RADIUS, mVisible);
+    }
+
+    @Benchmark
+    public int isVisibleEach() {
+        int count = 0;
+        for (int i = 0; i < pucks; i++) {
+            if (mCuller.isVisible(mX[i], mY[i], mZ[i], RADIUS)) {
+                mVisible[count++] = i;
+            }
+        }
+        return count;
+    }
+}
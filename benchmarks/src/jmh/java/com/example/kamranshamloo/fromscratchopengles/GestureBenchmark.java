@@ -0,0 +1,22 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The angle computed for every move event of a two-finger twist in
+ * {@code RotationGestureDetector}.
+ */
+@State(Scope.Thread)
+public class GestureBenchmark {
+
+    // Not final, so the JIT cannot fold the computation away.
+    public float fX = 120, fY = 340, sX = 560, sY = 410;
+    public float nfX = 130, nfY = 300, nsX = 550, nsY = 450;
+
+    @Benchmark
+    public float angleBetweenLines() {
+        return GestureMath.angleBetweenLines(fX, fY, sX, sY, nfX, nfY, nsX, nsY);
+    }
+}
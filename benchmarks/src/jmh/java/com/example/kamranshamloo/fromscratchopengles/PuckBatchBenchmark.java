@@ -0,0 +1,53 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Packing a frame of pucks into a {@link PuckBatch}, from a handful to a
+ * crowded room. The draw calls stay at one per frame; the packing grows with
+ * the pucks, by three floats each when instanced and by a whole wireframe
+ * each when merged.
+ */
+@State(Scope.Thread)
+public class PuckBatchBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int pucks;
+
+    @Param({"true", "false"})
+    public boolean instanced;
+
+    private float[] mPositions;
+    private PuckBatch mBatch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mPositions = new float[pucks * 3];
+        for (int i = 0; i < pucks; i++) {
+            // Inside the room: -2..2 x -1..1 x -1..1
+            mPositions[i * 3] = random.nextFloat() * 4 - 2;
+            mPositions[i * 3 + 1] = random.nextFloat() * 2 - 1;
+            mPositions[i * 3 + 2] = random.nextFloat() * 2 - 1;
+        }
+        // Same size as the wireframe of Puck: 12 edges of 2 vertices.
+        mBatch = new PuckBatch(new float[72], instanced);
+    }
+
+    /** One frame of packing. */
+    @Benchmark
+    public FloatBuffer pack() {
+        mBatch.begin();
+        for (int i = 0; i < pucks; i++) {
+            mBatch.add(mPositions[i * 3], mPositions[i * 3 + 1], mPositions[i * 3 + 2]);
+        }
+        return mBatch.end();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Keeping the {@link PuckGrid} up to date and querying it, against scanning
+ * every puck of a {@link PuckStore}, for crowded rooms.
+ */
+@State(Scope.Thread)
+public class PuckGridBenchmark {
+
+    private static final float CELL_SIZE = 0.25f;
+    private static final float PICK_RADIUS = 0.1f;
+
+    @Param({"10000", "100000"})
+    public int pucks;
+
+    private final float[] mColor = {1, 0, 0, 1};
+    private PuckStore mStore;
+    private PuckGrid mGrid;
+    private int[] mFound;
+    private float[] mOffsets;
+    private int mFrame = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        mStore = new PuckStore(pucks);
+        mGrid = new PuckGrid(-2, -1, -1, 2, 1, 1, CELL_SIZE, pucks);
+        for (int i = 0; i < pucks; i++) {
+            float x = random.nextFloat() * 4 - 2;
+            float y = random.nextFloat() * 2 - 1;
+            float z = random.nextFloat() * 2 - 1;
+            mStore.add(i, x, y, z, mColor);
+            mGrid.put(i, x, y, z);
+        }
+        mFound = new int[pucks];
+        // Small per-frame moves, so some pucks change cells every frame.
+        mOffsets = new float[pucks];
+        for (int i = 0; i < pucks; i++) {
+            mOffsets[i] = (random.nextFloat() - 0.5f) * 0.02f;
+        }
+    }
+
+    /** One frame of device updates. */
+    @Benchmark
+    public int update() {
+        final float[] x = mStore.getX();
+        final float[] y = mStore.getY();
+        final float[] z = mStore.getZ();
+        final float sign = (mFrame++ & 1) == 0 ? 1 : -1;
+        for (int i = 0; i < pucks; i++) {
+            mGrid.put(i, x[i] + mOffsets[i] * sign, y[i], z[i]);
+        }
+        return mGrid.size();
+    }
+
+    @Benchmark
+    public int pick() {
+        return mGrid.pick(0.3f, 0.2f, 4, 0, 0, -1, PICK_RADIUS);
+    }
+
+    @Benchmark
+    public int pickByScan() {
+        // The ray runs down the z axis, so its distance is in x and y only.
+        final float[] x = mStore.getX();
+        final float[] y = mStore.getY();
+        final float[] z = mStore.getZ();
+        int best = PuckGrid.NO_PUCK;
+        float bestZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < mStore.size(); i++) {
+            float dx = x[i] - 0.3f;
+            float dy = y[i] - 0.2f;
+            if (dx * dx + dy * dy <= PICK_RADIUS * PICK_RADIUS && z[i] > bestZ) {
+                best = i;
+                bestZ = z[i];
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public int queryBox() {
+        return mGrid.queryBox(0, 0, 0, 0.5f, 0.5f, 0.5f, mFound);
+    }
+
+    @Benchmark
+    public int queryBoxByScan() {
+        final float[] x = mStore.getX();
+        final float[] y = mStore.getY();
+        final float[] z = mStore.getZ();
+        int count = 0;
+        for (int i = 0; i < mStore.size(); i++) {
+            if (x[i] >= 0 && x[i] <= 0.5f && y[i] >= 0 && y[i] <= 0.5f
+                    && z[i] >= 0 && z[i] <= 0.5f) {
+                mFound[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int queryRadius() {
+        return mGrid.queryRadius(0, 0, 0, 0.3f, mFound);
+    }
+}
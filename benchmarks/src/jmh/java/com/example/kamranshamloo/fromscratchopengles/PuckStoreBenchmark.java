@@ -0,0 +1,76 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Filling the puck batch from a {@link PuckStore}, against walking a list of
+ * puck objects scattered over the heap the way {@code ArrayList<Puck>} was.
+ */
+@State(Scope.Thread)
+public class PuckStoreBenchmark {
+
+    /** Stands in for a puck object: the position and a few fields around it. */
+    private static class PuckObject {
+        final float[] translation = new float[16];
+        float x;
+        float y;
+        float z;
+    }
+
+    @Param({"100", "1000", "10000"})
+    public int pucks;
+
+    private final float[] mColor = {1, 0, 0, 1};
+    private PuckStore mStore;
+    private ArrayList<PuckObject> mObjects;
+    private PuckBatch mBatch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        mStore = new PuckStore(pucks);
+        mObjects = new ArrayList<>();
+        for (int i = 0; i < pucks; i++) {
+            PuckObject puck = new PuckObject();
+            puck.x = random.nextFloat();
+            puck.y = random.nextFloat();
+            puck.z = random.nextFloat();
+            mObjects.add(puck);
+            mStore.add(i, puck.x, puck.y, puck.z, mColor);
+        }
+        // Objects created over a long session end up in no particular order.
+        Collections.shuffle(mObjects, random);
+        mBatch = new PuckBatch(new float[72], true);
+    }
+
+    @Benchmark
+    public FloatBuffer fromStore() {
+        final float[] x = mStore.getX();
+        final float[] y = mStore.getY();
+        final float[] z = mStore.getZ();
+        mBatch.begin();
+        for (int i = 0; i < mStore.size(); i++) {
+            mBatch.add(x[i], y[i], z[i]);
+        }
+        return mBatch.end();
+    }
+
+    @Benchmark
+    public FloatBuffer fromObjects() {
+        mBatch.begin();
+        for (int i = 0; i < mObjects.size(); i++) {
+            PuckObject puck = mObjects.get(i);
+            mBatch.add(puck.x, puck.y, puck.z);
+        }
+        return mBatch.end();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import com.example.kamranshamloo.fromscratchopengles.math.Mat4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Per-puck CPU work: the transform {@code Puck.draw} builds for every puck,
+ * against packing all pucks into one {@link PuckBatch}.
+ */
+@State(Scope.Thread)
+public class PuckTransformBenchmark {
+
+    @Param({"5", "100", "1000"})
+    public int pucks;
+
+    private final float[] mMVPMatrix = new float[16];
+    private final float[] mRotation = new float[16];
+    private final float[] mResult = new float[16];
+    private final MatrixArena mArena = new MatrixArena(8);
+    private float[] mPositions;
+    private PuckBatch mMergedBatch;
+    private PuckBatch mInstancedBatch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        mPositions = new float[pucks * 3];
+        for (int i = 0; i < mPositions.length; i++) {
+            mPositions[i] = random.nextFloat() * 4 - 2;
+        }
+        Mat4.frustum(mMVPMatrix, 0, -1.6f, 1.6f, -1, 1, 1, 1000);
+        Mat4.setRotate(mRotation, 0, -45, 0, 1, 0);
+        // Same size as the wireframe of Puck: 12 edges of 2 vertices.
+        mMergedBatch = new PuckBatch(new float[72], false);
+        mInstancedBatch = new PuckBatch(new float[72], true);
+    }
+
+    @Benchmark
+    public void perPuckTransforms(Blackhole blackhole) {
+        for (int i = 0; i < pucks; i++) {
+            mArena.reset();
+            PuckTransform.compose(mResult, mMVPMatrix, mRotation,
+                    mPositions[i * 3], mPositions[i * 3 + 1], mPositions[i * 3 + 2], mArena);
+            blackhole.consume(mResult);
+        }
+    }
+
+    @Benchmark
+    public FloatBuffer mergedBatch() {
+        return fill(mMergedBatch);
+    }
+
+    @Benchmark
+    public FloatBuffer instancedBatch() {
+        return fill(mInstancedBatch);
+    }
+
+    private FloatBuffer fill(PuckBatch batch) {
+        batch.begin();
+        for (int i = 0; i < pucks; i++) {
+            batch.add(mPositions[i * 3], mPositions[i * 3 + 1], mPositions[i * 3 + 2]);
+        }
+        return batch.end();
+    }
+}
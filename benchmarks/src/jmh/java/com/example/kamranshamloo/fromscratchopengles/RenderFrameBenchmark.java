@@ -0,0 +1,65 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A whole {@code MyGLRenderer.onDrawFrame} of the built room while the view
+ * is dragged, with {@link RecordingGl} taking the GL calls: everything the
+ * CPU does for a frame short of the driver.
+ */
+@State(Scope.Thread)
+public class RenderFrameBenchmark {
+
+    private static final float FRAME_TIME = 1.0f / 60;
+
+    // ES 3 draws the pucks instanced and fences the streamed vertices.
+    @Param({"false", "true"})
+    public boolean es3;
+
+    // The five demo pucks, or that many live devices.
+    @Param({"5", "1000"})
+    public int devices;
+
+    private RecordingGl mGl;
+    private MyGLRenderer mRenderer;
+    private double mTime = 0;
+
+    @Setup
+    public void setUp() {
+        mGl = new RecordingGl(es3 ? RecordingGl.VERSION_ES3 : RecordingGl.VERSION_ES2);
+        mRenderer = new MyGLRenderer(mGl, new AnimationClock() {
+            @Override
+            public double now() {
+                return mTime;
+            }
+        });
+        mRenderer.onSurfaceCreated(null, null);
+        mRenderer.onSurfaceChanged(null, 1280, 800);
+        if (devices != 5) {
+            PositionExchange exchange = new PositionExchange(devices);
+            mRenderer.setPositionSource(exchange);
+            DevicePositions positions = new DevicePositions(devices);
+            for (int id = 0; id < devices; id++) {
+                // Spread over the room: -2..2 x -1..1 x -1..1
+                positions.put(id, (id % 20) * 0.2f - 1.9f, (id / 20 % 10) * 0.2f - 0.9f,
+                        (id / 200) * 0.4f - 0.8f, 1);
+            }
+            exchange.publish(positions);
+        }
+        // Past the build-up of the room.
+        mTime = 10;
+    }
+
+    @Benchmark
+    public int drawFrame() {
+        mTime += FRAME_TIME;
+        mRenderer.addRotation(0.5f, 0.25f);
+        mGl.reset();
+        mRenderer.onDrawFrame(null);
+        return mGl.getDrawCallCount();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Loading a site from a {@link SceneFile} into a {@link PuckStore}, for
+ * large sites.
+ */
+@State(Scope.Thread)
+public class SceneFileBenchmark {
+
+    @Param({"10000", "100000"})
+    public int devices;
+
+    private final float[] mColor = {1, 0, 0, 1};
+    private File mFile;
+    private PuckStore mStore;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(1);
+        int[] ids = new int[devices];
+        float[] x = new float[devices];
+        float[] y = new float[devices];
+        float[] z = new float[devices];
+        for (int i = 0; i < devices; i++) {
+            ids[i] = i;
+            x[i] = random.nextFloat() * 4 - 2;
+            y[i] = random.nextFloat() * 2 - 1;
+            z[i] = random.nextFloat() * 2 - 1;
+        }
+        float[] segments = new float[6 * 12];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = random.nextFloat();
+        }
+        mFile = File.createTempFile("bench", ".scene");
+        SceneFile.write(mFile, new float[]{-2, -1, -1, 2, 1, 1}, segments, ids, x, y, z, devices);
+        mStore = new PuckStore(devices);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    /** Maps the file and fills the store from it. */
+    @Benchmark
+    public int load() throws IOException {
+        mStore.clear();
+        SceneFile.load(mFile).addDevicesTo(mStore, mColor);
+        return mStore.size();
+    }
+}
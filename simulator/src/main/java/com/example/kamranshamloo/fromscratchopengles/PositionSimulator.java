@@ -0,0 +1,121 @@
+package com.example.kamranshamloo.fromscratchopengles;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Sends position frames for a number of fake M2P devices circling the room.
+ *
+ * <pre>
+ * --host HOST     where to send to, default 127.0.0.1
+ * --port PORT     default PositionFrameCodec.DEFAULT_PORT
+ * --devices N     number of devices, default 100
+ * --rate HZ       position updates per device per second, default 60
+ * --batch N       records per datagram, default 64
+ * --seconds S     how long to run, default forever
+ * </pre>
+ *
+ * <p>Every update round sends all devices, so the datagram rate is
+ * devices / batch * rate and the record rate devices * rate.</p>
+ */
+public class PositionSimulator {
+
+    private final DatagramChannel mChannel;
+    private final int mDevices;
+    private final int mBatch;
+    private final ByteBuffer mFrame;
+
+    /**
+     * @param target - Address of the receiver.
+     * @param devices - Number of devices, with ids 1 to devices.
+     * @param batch - Records per datagram.
+     */
+    public PositionSimulator(InetSocketAddress target, int devices, int batch) throws IOException {
+        if (batch < 1 || batch > PositionFrameCodec.MAX_RECORDS) {
+            throw new IllegalArgumentException("Batch size " + batch);
+        }
+        mDevices = devices;
+        mBatch = batch;
+        mFrame = ByteBuffer.allocateDirect(PositionFrameCodec.frameSize(batch));
+        mChannel = DatagramChannel.open();
+        mChannel.connect(target);
+    }
+
+    /**
+     * Sends the position of every device at a point in time.
+     *
+     * @param timestamp - Sample time in nanoseconds.
+     * @return - The number of datagrams sent.
+     */
+    public int sendRound(long timestamp) throws IOException {
+        double seconds = timestamp / 1e9;
+        int datagrams = 0;
+        for (int first = 0; first < mDevices; first += mBatch) {
+            int count = Math.min(mBatch, mDevices - first);
+            mFrame.clear();
+            PositionFrameCodec.encodeHeader(mFrame, count, timestamp);
+            for (int i = first; i < first + count; i++) {
+                // Each device circles the room at its own radius, speed and height.
+                double angle = seconds * (0.2 + 0.01 * (i % 50)) + i;
+                float radius = 0.5f + 1.5f * (i % 7) / 6;
+                PositionFrameCodec.encodeRecord(mFrame, i + 1,
+                        (float) (radius * Math.cos(angle)),
+                        -0.5f + (i % 5) * 0.4f,
+                        (float) (radius * Math.sin(angle)));
+            }
+            mFrame.flip();
+            mChannel.write(mFrame);
+            datagrams++;
+        }
+        return datagrams;
+    }
+
+    public void close() throws IOException {
+        mChannel.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = PositionFrameCodec.DEFAULT_PORT;
+        int devices = 100;
+        double rate = 60;
+        int batch = 64;
+        double seconds = Double.POSITIVE_INFINITY;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--host": host = value; break;
+                case "--port": port = Integer.parseInt(value); break;
+                case "--devices": devices = Integer.parseInt(value); break;
+                case "--rate": rate = Double.parseDouble(value); break;
+                case "--batch": batch = Integer.parseInt(value); break;
+                case "--seconds": seconds = Double.parseDouble(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        PositionSimulator simulator = new PositionSimulator(new InetSocketAddress(host, port), devices, batch);
+        System.out.printf("Sending %d devices at %.0f Hz to %s:%d (%.0f records/s)%n",
+                devices, rate, host, port, devices * rate);
+        long period = (long) (1e9 / rate);
+        long start = System.nanoTime();
+        long next = start;
+        long datagrams = 0;
+        long reported = start;
+        while (System.nanoTime() - start < seconds * 1e9) {
+            datagrams += simulator.sendRound(System.nanoTime());
+            next += period;
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) {
+                Thread.sleep(sleep / 1000000, (int) (sleep % 1000000));
+            }
+            if (System.nanoTime() - reported >= 1000000000L) {
+                System.out.printf("%d datagrams sent%n", datagrams);
+                reported = System.nanoTime();
+            }
+        }
+        simulator.close();
+    }
+}